@@ -0,0 +1,315 @@
+package com.fraud.tcp;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionRequest;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import io.netty.util.internal.logging.JdkLoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load generator for the TCP scoring endpoint: a fixed number of connections, each keeping
+// up to --pipeline requests in flight, and the latency of every request from its write to
+// its decoded response. With --http it then sends the same kind of load as JSON to
+// POST /api/transactions at the same concurrency, for comparison. Lives in the benchmark
+// source set, outside the service jar; benchmark_tcp.sh runs it against the compiled
+// classes. Every run uses new transaction ids.
+public final class TcpLoadClient {
+    
+    private static final String[] CATEGORIES = {"groceries", "restaurants", "gas", "electronics", "travel"};
+    private static final String[] STATES = {"CA", "TX", "NY", "FL", "WA"};
+    
+    private TcpLoadClient() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        InternalLoggerFactory.setDefaultFactory(JdkLoggerFactory.INSTANCE); // Netty's debug output stays off
+        Map<String, String> options = parse(args);
+        String host = options.getOrDefault("host", "localhost");
+        int port = Integer.parseInt(options.getOrDefault("port", "9090"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "4"));
+        int pipeline = Integer.parseInt(options.getOrDefault("pipeline", "16"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "2000"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        String httpUrl = options.get("http");
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        
+        System.out.printf("Connections: %d, in flight per connection: %d, requests: %d (+%d warm-up)%n",
+            connections, pipeline, requests, warmup);
+        EventLoopGroup group = new NioEventLoopGroup(connections, new DefaultThreadFactory("load", true));
+        try {
+            if (warmup > 0) {
+                runTcp(group, host, port, connections, pipeline, transactions(runId + "_tw", warmup, users));
+            }
+            print("tcp", runTcp(group, host, port, connections, pipeline, transactions(runId + "_t", requests, users)));
+            if (httpUrl != null) {
+                HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                int concurrency = connections * pipeline;
+                if (warmup > 0) {
+                    runHttp(client, httpUrl, concurrency, transactions(runId + "_hw", warmup, users));
+                }
+                print("http", runHttp(client, httpUrl, concurrency, transactions(runId + "_h", requests, users)));
+            }
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        }
+    }
+    
+    // Outcome of one run: latency per request, counts per status
+    private static final class Run {
+        final List<TransactionRequest> requests;
+        final long[] sentAt;
+        final long[] latency;
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final AtomicReference<String> firstError = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        long elapsed;
+        
+        Run(List<TransactionRequest> requests) {
+            this.requests = requests;
+            this.sentAt = new long[requests.size()];
+            this.latency = new long[requests.size()];
+        }
+        
+        void complete(int index, int status, String error) {
+            latency[index] = System.nanoTime() - sentAt[index];
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            if (error != null) {
+                firstError.compareAndSet(null, status + " " + error);
+            }
+            if (completed.incrementAndGet() == requests.size()) {
+                done.countDown();
+            }
+        }
+        
+        void abort(String reason) {
+            firstError.compareAndSet(null, reason);
+            done.countDown();
+        }
+    }
+    
+    private static Run runTcp(EventLoopGroup group, String host, int port, int connections, int pipeline,
+                              List<TransactionRequest> requests) throws Exception {
+        Run run = new Run(requests);
+        Bootstrap bootstrap = new Bootstrap()
+            .group(group)
+            .channel(NioSocketChannel.class)
+            .option(ChannelOption.TCP_NODELAY, true)
+            .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel channel) {
+                    channel.pipeline()
+                        .addLast(TcpFrames.decoder(1 << 20))
+                        .addLast(new ClientHandler(run, pipeline));
+                }
+            });
+        long started = System.nanoTime();
+        List<Channel> channels = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            channels.add(bootstrap.connect(host, port).sync().channel());
+        }
+        boolean finished = run.done.await(10, TimeUnit.MINUTES);
+        run.elapsed = System.nanoTime() - started;
+        for (Channel channel : channels) {
+            channel.close().sync();
+        }
+        if (!finished || run.completed.get() < requests.size()) {
+            throw new IllegalStateException("TCP run did not complete: " + run.firstError.get());
+        }
+        return run;
+    }
+    
+    // Keeps the connection's window full: a new request for every response
+    private static final class ClientHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        private final Run run;
+        private final int window;
+        
+        ClientHandler(Run run, int window) {
+            this.run = run;
+            this.window = window;
+        }
+        
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws IOException {
+            int sent = 0;
+            while (sent < window && sendNext(ctx)) {
+                sent++;
+            }
+            ctx.flush();
+        }
+        
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) throws IOException {
+            int index = (int) frame.readLong();
+            int status = frame.readUnsignedShort();
+            if (status == TcpFrames.SCORED) {
+                TcpFrames.readMessage(frame, FraudEvaluationResponse.class);
+                run.complete(index, status, null);
+            } else {
+                run.complete(index, status, TcpFrames.readError(frame));
+            }
+            sendNext(ctx);
+        }
+        
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+        
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (run.completed.get() < run.requests.size()) {
+                run.abort("Connection closed by the server");
+            }
+        }
+        
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            run.abort(cause.toString());
+            ctx.close();
+        }
+        
+        private boolean sendNext(ChannelHandlerContext ctx) throws IOException {
+            int index = run.next.getAndIncrement();
+            if (index >= run.requests.size()) {
+                return false;
+            }
+            run.sentAt[index] = System.nanoTime();
+            ctx.write(TcpFrames.request(ctx.alloc(), index, run.requests.get(index)));
+            return true;
+        }
+    }
+    
+    private static Run runHttp(HttpClient client, String baseUrl, int concurrency,
+                               List<TransactionRequest> requests) throws Exception {
+        ObjectMapper json = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        URI uri = URI.create(baseUrl + "/api/transactions");
+        Run run = new Run(requests);
+        Semaphore inFlight = new Semaphore(concurrency);
+        long started = System.nanoTime();
+        for (int i = 0; i < requests.size(); i++) {
+            inFlight.acquire();
+            int index = i;
+            run.sentAt[index] = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(requests.get(index))))
+                .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, error) -> {
+                try {
+                    if (error != null) {
+                        run.complete(index, 0, error.toString());
+                    } else if (response.statusCode() == TcpFrames.SCORED) {
+                        json.readValue(response.body(), FraudEvaluationResponse.class);
+                        run.complete(index, response.statusCode(), null);
+                    } else {
+                        run.complete(index, response.statusCode(), new String(response.body()));
+                    }
+                } catch (IOException e) {
+                    run.complete(index, 0, e.toString());
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        if (!run.done.await(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("HTTP run did not complete: " + run.firstError.get());
+        }
+        run.elapsed = System.nanoTime() - started;
+        return run;
+    }
+    
+    private static void print(String name, Run run) {
+        long[] sorted = run.latency.clone();
+        Arrays.sort(sorted);
+        Map<Integer, Long> statuses = new TreeMap<>();
+        run.statuses.forEach((status, count) -> statuses.put(status, count.sum()));
+        System.out.printf("%-5s %d requests in %.2f s: %.0f/s, latency ms p50 %.2f p95 %.2f p99 %.2f max %.2f, statuses %s%n",
+            name, sorted.length, run.elapsed / 1e9, sorted.length / (run.elapsed / 1e9),
+            percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+            sorted[sorted.length - 1] / 1e6, statuses);
+        if (run.firstError.get() != null) {
+            System.out.println("      first error: " + run.firstError.get());
+        }
+    }
+    
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+    
+    // Ids unique to the run, so nothing is answered from the idempotency cache
+    private static List<TransactionRequest> transactions(String prefix, int count, int users) {
+        SplittableRandom random = new SplittableRandom(prefix.hashCode());
+        LocalDateTime start = LocalDateTime.now().withNano(0).minusSeconds(count);
+        List<TransactionRequest> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(new TransactionRequest("load_" + prefix + "_" + i,
+                "load_user_" + random.nextInt(users),
+                BigDecimal.valueOf(random.nextInt(500, 50000), 2),
+                "merchant_" + random.nextInt(200),
+                CATEGORIES[random.nextInt(CATEGORIES.length)],
+                start.plusSeconds(i),
+                "device_" + random.nextInt(users * 2),
+                STATES[random.nextInt(STATES.length)],
+                "US",
+                "online",
+                null));
+        }
+        return transactions;
+    }
+    
+    // --name value pairs
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -2,10 +2,15 @@ package com.fraud;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// The R2DBC transaction manager would displace the JPA one as the default; the reactive
+// path builds its own instead
+@SpringBootApplication(exclude = R2dbcTransactionManagerAutoConfiguration.class)
 @EnableAsync
+@EnableScheduling
 public class FraudDetectionApplication {
     public static void main(String[] args) {
         SpringApplication.run(FraudDetectionApplication.class, args);
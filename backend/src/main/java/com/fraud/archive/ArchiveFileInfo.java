@@ -0,0 +1,32 @@
+package com.fraud.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Footer metadata of one archive file
+@Data
+@AllArgsConstructor
+public class ArchiveFileInfo {
+    private String fileName;
+    private long rowCount;
+    private LocalDateTime minTimestamp;
+    private LocalDateTime maxTimestamp;
+    private List<ColumnChunk> columns;
+    
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return (from == null || !maxTimestamp.isBefore(from)) && (to == null || minTimestamp.isBefore(to));
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class ColumnChunk {
+        private String name;
+        private String encoding;
+        private long offset;
+        private long compressedLength;
+        private long rawLength;
+    }
+}
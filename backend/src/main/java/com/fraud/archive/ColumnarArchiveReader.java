@@ -0,0 +1,183 @@
+package com.fraud.archive;
+
+import com.fraud.entity.Transaction;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Reads archive files written by ColumnarArchiveWriter
+public final class ColumnarArchiveReader {
+    
+    public static ArchiveFileInfo readInfo(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readInfo(file, channel);
+        }
+    }
+    
+    // Decodes only the requested columns (every column when null) and hands each row
+    // to the consumer; columns that were not requested stay null. Returns the row count.
+    public static long scan(Path file, Collection<String> columns, Consumer<Transaction> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ArchiveFileInfo info = readInfo(file, channel);
+            int rowCount = (int) info.getRowCount();
+            
+            List<ColumnarFormat.Column> selected = new ArrayList<>();
+            List<Object[]> values = new ArrayList<>();
+            for (ArchiveFileInfo.ColumnChunk chunk : info.getColumns()) {
+                if (columns != null && !columns.contains(chunk.getName())) {
+                    continue;
+                }
+                ColumnarFormat.Column column = ColumnarFormat.column(chunk.getName());
+                selected.add(column);
+                values.add(decode(column, inflate(channel, chunk), rowCount));
+            }
+            
+            for (int row = 0; row < rowCount; row++) {
+                Transaction transaction = new Transaction();
+                for (int c = 0; c < selected.size(); c++) {
+                    selected.get(c).setter.accept(transaction, values.get(c)[row]);
+                }
+                consumer.accept(transaction);
+            }
+            return rowCount;
+        }
+    }
+    
+    private static ArchiveFileInfo readInfo(Path file, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < ColumnarFormat.MAGIC.length + 1 + ColumnarFormat.TRAILER_LENGTH) {
+            throw new IOException("Not an archive file: " + file);
+        }
+        ByteBuffer trailer = readFully(channel, size - ColumnarFormat.TRAILER_LENGTH, ColumnarFormat.TRAILER_LENGTH);
+        int footerLength = trailer.getInt();
+        byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+        trailer.get(magic);
+        ByteBuffer header = readFully(channel, 0, ColumnarFormat.MAGIC.length + 1);
+        byte[] headerMagic = new byte[ColumnarFormat.MAGIC.length];
+        header.get(headerMagic);
+        if (!Arrays.equals(magic, ColumnarFormat.MAGIC) || !Arrays.equals(headerMagic, ColumnarFormat.MAGIC)) {
+            throw new IOException("Not an archive file: " + file);
+        }
+        if (header.get() != ColumnarFormat.VERSION) {
+            throw new IOException("Unsupported archive version in " + file);
+        }
+        
+        ByteBuffer footerBytes = readFully(channel, size - ColumnarFormat.TRAILER_LENGTH - footerLength, footerLength);
+        ColumnarFormat.Buffer footer = new ColumnarFormat.Buffer(footerBytes.array(), footerLength);
+        long rowCount = footer.readVarLong();
+        long minMicros = footer.readZigZag();
+        long maxMicros = footer.readZigZag();
+        int columnCount = (int) footer.readVarLong();
+        List<ArchiveFileInfo.ColumnChunk> chunks = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            chunks.add(new ArchiveFileInfo.ColumnChunk(
+                readString(footer),
+                readString(footer),
+                footer.readVarLong(),
+                footer.readVarLong(),
+                footer.readVarLong()
+            ));
+        }
+        return new ArchiveFileInfo(file.getFileName().toString(), rowCount,
+            ColumnarFormat.fromEpochMicros(minMicros), ColumnarFormat.fromEpochMicros(maxMicros), chunks);
+    }
+    
+    private static ColumnarFormat.Buffer inflate(FileChannel channel, ArchiveFileInfo.ColumnChunk chunk)
+            throws IOException {
+        ByteBuffer compressed = readFully(channel, chunk.getOffset(), (int) chunk.getCompressedLength());
+        byte[] raw = new byte[(int) chunk.getRawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), 0, compressed.limit());
+            int n = 0;
+            while (n < raw.length) {
+                int read = inflater.inflate(raw, n, raw.length - n);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated column chunk " + chunk.getName());
+                }
+                n += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column chunk " + chunk.getName(), e);
+        } finally {
+            inflater.end();
+        }
+        return new ColumnarFormat.Buffer(raw, raw.length);
+    }
+    
+    private static Object[] decode(ColumnarFormat.Column column, ColumnarFormat.Buffer buffer, int rowCount) {
+        Object[] values = new Object[rowCount];
+        switch (column.encoding) {
+            case PLAIN_STRING:
+                for (int i = 0; i < rowCount; i++) {
+                    values[i] = readString(buffer);
+                }
+                break;
+            case DICT_STRING:
+                // Rows share the dictionary's String instances
+                String[] dictionary = new String[(int) buffer.readVarLong()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(buffer);
+                }
+                for (int i = 0; i < rowCount; i++) {
+                    int code = (int) buffer.readVarLong();
+                    values[i] = code == 0 ? null : dictionary[code - 1];
+                }
+                break;
+            case DECIMAL_2:
+                for (int i = 0; i < rowCount; i++) {
+                    values[i] = ColumnarFormat.fromUnscaled(buffer.readZigZag());
+                }
+                break;
+            case TIMESTAMP_DELTA:
+                long micros = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    micros += buffer.readZigZag();
+                    values[i] = ColumnarFormat.fromEpochMicros(micros);
+                }
+                break;
+            case NULLABLE_DOUBLE:
+                for (int i = 0; i < rowCount; i++) {
+                    values[i] = buffer.readByte() == 0 ? null : Double.longBitsToDouble(buffer.readLong());
+                }
+                break;
+            case NULLABLE_BOOLEAN:
+                for (int i = 0; i < rowCount; i++) {
+                    int value = buffer.readByte();
+                    values[i] = value == 0 ? null : value == 2;
+                }
+                break;
+        }
+        return values;
+    }
+    
+    private static String readString(ColumnarFormat.Buffer buffer) {
+        int length = (int) buffer.readVarLong();
+        return length == 0 ? null : buffer.readString(length - 1);
+    }
+    
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    private ColumnarArchiveReader() {
+    }
+}
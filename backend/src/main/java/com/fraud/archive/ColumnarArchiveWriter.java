@@ -0,0 +1,186 @@
+package com.fraud.archive;
+
+import com.fraud.entity.Transaction;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+// Writes one batch of transactions as a single column-oriented archive file
+public final class ColumnarArchiveWriter {
+    
+    // Writes the rows to a temporary file, fsyncs it and renames it into place, so
+    // a crash never leaves a truncated file under the final name
+    public static ArchiveFileInfo write(Path file, List<Transaction> rows, int compressionLevel) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Cannot archive an empty batch");
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        LocalDateTime minTimestamp = null;
+        LocalDateTime maxTimestamp = null;
+        for (Transaction row : rows) {
+            LocalDateTime ts = row.getTimestamp();
+            if (minTimestamp == null || ts.isBefore(minTimestamp)) {
+                minTimestamp = ts;
+            }
+            if (maxTimestamp == null || ts.isAfter(maxTimestamp)) {
+                maxTimestamp = ts;
+            }
+        }
+        
+        List<ArchiveFileInfo.ColumnChunk> chunks = new ArrayList<>();
+        Deflater deflater = new Deflater(compressionLevel);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(ColumnarFormat.MAGIC);
+            out.write(ColumnarFormat.VERSION);
+            long offset = ColumnarFormat.MAGIC.length + 1;
+            
+            byte[] compressed = new byte[64 * 1024];
+            for (ColumnarFormat.Column column : ColumnarFormat.COLUMNS) {
+                ColumnarFormat.Buffer raw = encode(column, rows);
+                deflater.reset();
+                deflater.setInput(raw.bytes, 0, raw.position);
+                deflater.finish();
+                long length = 0;
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(compressed);
+                    out.write(compressed, 0, n);
+                    length += n;
+                }
+                chunks.add(new ArchiveFileInfo.ColumnChunk(column.name, column.encoding.name(),
+                    offset, length, raw.position));
+                offset += length;
+            }
+            
+            ArchiveFileInfo info = new ArchiveFileInfo(file.getFileName().toString(), rows.size(),
+                minTimestamp, maxTimestamp, chunks);
+            ColumnarFormat.Buffer footer = writeFooter(info);
+            DataOutputStream data = new DataOutputStream(out);
+            data.write(footer.bytes, 0, footer.position);
+            data.writeInt(footer.position);
+            data.write(ColumnarFormat.MAGIC);
+            data.flush();
+            channel.force(true);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return info;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static ColumnarFormat.Buffer encode(ColumnarFormat.Column column, List<Transaction> rows) {
+        ColumnarFormat.Buffer buffer = new ColumnarFormat.Buffer(rows.size() * 8);
+        switch (column.encoding) {
+            case PLAIN_STRING:
+                for (Transaction row : rows) {
+                    writeString(buffer, (String) column.getter.apply(row));
+                }
+                break;
+            case DICT_STRING:
+                Map<String, Integer> codes = new HashMap<>();
+                List<String> dictionary = new ArrayList<>();
+                int[] rowCodes = new int[rows.size()];
+                for (int i = 0; i < rows.size(); i++) {
+                    String value = (String) column.getter.apply(rows.get(i));
+                    if (value == null) {
+                        rowCodes[i] = 0;
+                        continue;
+                    }
+                    Integer code = codes.get(value);
+                    if (code == null) {
+                        code = dictionary.size();
+                        codes.put(value, code);
+                        dictionary.add(value);
+                    }
+                    rowCodes[i] = code + 1;
+                }
+                buffer.writeVarLong(dictionary.size());
+                for (String value : dictionary) {
+                    writeString(buffer, value);
+                }
+                for (int code : rowCodes) {
+                    buffer.writeVarLong(code);
+                }
+                break;
+            case DECIMAL_2:
+                for (Transaction row : rows) {
+                    buffer.writeZigZag(ColumnarFormat.toUnscaled((BigDecimal) column.getter.apply(row)));
+                }
+                break;
+            case TIMESTAMP_DELTA:
+                long previous = 0;
+                for (Transaction row : rows) {
+                    long micros = ColumnarFormat.toEpochMicros((LocalDateTime) column.getter.apply(row));
+                    buffer.writeZigZag(micros - previous);
+                    previous = micros;
+                }
+                break;
+            case NULLABLE_DOUBLE:
+                for (Transaction row : rows) {
+                    Double value = (Double) column.getter.apply(row);
+                    if (value == null) {
+                        buffer.writeByte(0);
+                    } else {
+                        buffer.writeByte(1);
+                        buffer.writeLong(Double.doubleToRawLongBits(value));
+                    }
+                }
+                break;
+            case NULLABLE_BOOLEAN:
+                for (Transaction row : rows) {
+                    Boolean value = (Boolean) column.getter.apply(row);
+                    buffer.writeByte(value == null ? 0 : value ? 2 : 1);
+                }
+                break;
+        }
+        return buffer;
+    }
+    
+    private static ColumnarFormat.Buffer writeFooter(ArchiveFileInfo info) {
+        ColumnarFormat.Buffer footer = new ColumnarFormat.Buffer(256);
+        footer.writeVarLong(info.getRowCount());
+        footer.writeZigZag(ColumnarFormat.toEpochMicros(info.getMinTimestamp()));
+        footer.writeZigZag(ColumnarFormat.toEpochMicros(info.getMaxTimestamp()));
+        footer.writeVarLong(info.getColumns().size());
+        for (ArchiveFileInfo.ColumnChunk chunk : info.getColumns()) {
+            writeString(footer, chunk.getName());
+            writeString(footer, chunk.getEncoding());
+            footer.writeVarLong(chunk.getOffset());
+            footer.writeVarLong(chunk.getCompressedLength());
+            footer.writeVarLong(chunk.getRawLength());
+        }
+        return footer;
+    }
+    
+    private static void writeString(ColumnarFormat.Buffer buffer, String value) {
+        if (value == null) {
+            buffer.writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.writeVarLong(bytes.length + 1L);
+        buffer.writeBytes(bytes);
+    }
+    
+    private ColumnarArchiveWriter() {
+    }
+}
@@ -0,0 +1,190 @@
+package com.fraud.archive;
+
+import com.fraud.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// On-disk layout of a transaction archive file:
+//
+//   "FDCA" version
+//   column chunk * N        each chunk is one column for every row, deflate-compressed
+//   footer                  row count, timestamp range, per-column name/encoding/offset/length
+//   footer length, "FDCA"
+//
+// Readers seek to the footer first, so a scan only inflates the columns it asks for
+// and can skip whole files outside its time window.
+final class ColumnarFormat {
+    
+    static final byte[] MAGIC = "FDCA".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+    static final int TRAILER_LENGTH = Integer.BYTES + MAGIC.length;
+    
+    enum Encoding {
+        PLAIN_STRING,      // (length + 1) varint, then UTF-8 bytes; 0 = null
+        DICT_STRING,       // dictionary of distinct values, then (code + 1) varint per row; 0 = null
+        DECIMAL_2,         // unscaled value at scale 2, zigzag varint
+        TIMESTAMP_DELTA,   // epoch micros, zigzag varint delta from the previous row
+        NULLABLE_DOUBLE,   // presence byte, then 8 bytes
+        NULLABLE_BOOLEAN   // 0 = null, 1 = false, 2 = true
+    }
+    
+    static final class Column {
+        final String name;
+        final Encoding encoding;
+        final Function<Transaction, Object> getter;
+        final BiConsumer<Transaction, Object> setter;
+        
+        @SuppressWarnings("unchecked")
+        <T> Column(String name, Encoding encoding, Function<Transaction, T> getter, BiConsumer<Transaction, T> setter) {
+            this.name = name;
+            this.encoding = encoding;
+            this.getter = (Function<Transaction, Object>) getter;
+            this.setter = (BiConsumer<Transaction, Object>) setter;
+        }
+    }
+    
+    // Low-cardinality columns are dictionary encoded; ids and free text are stored plain
+    static final List<Column> COLUMNS = Arrays.asList(
+        new Column("transaction_id", Encoding.PLAIN_STRING, Transaction::getTransactionId, Transaction::setTransactionId),
+        new Column("user_id", Encoding.PLAIN_STRING, Transaction::getUserId, Transaction::setUserId),
+        new Column("amount", Encoding.DECIMAL_2, Transaction::getAmount, Transaction::setAmount),
+        new Column("merchant_id", Encoding.PLAIN_STRING, Transaction::getMerchantId, Transaction::setMerchantId),
+        new Column("merchant_category", Encoding.DICT_STRING, Transaction::getMerchantCategory, Transaction::setMerchantCategory),
+        new Column("timestamp", Encoding.TIMESTAMP_DELTA, Transaction::getTimestamp, Transaction::setTimestamp),
+        new Column("device_id", Encoding.PLAIN_STRING, Transaction::getDeviceId, Transaction::setDeviceId),
+        new Column("location_state", Encoding.DICT_STRING, Transaction::getLocationState, Transaction::setLocationState),
+        new Column("location_country", Encoding.DICT_STRING, Transaction::getLocationCountry, Transaction::setLocationCountry),
+        new Column("channel", Encoding.DICT_STRING, Transaction::getChannel, Transaction::setChannel),
+        new Column("risk_score", Encoding.NULLABLE_DOUBLE, Transaction::getRiskScore, Transaction::setRiskScore),
+        new Column("risk_category", Encoding.DICT_STRING, Transaction::getRiskCategory, Transaction::setRiskCategory),
+        new Column("is_fraud", Encoding.NULLABLE_BOOLEAN, Transaction::getIsFraud, Transaction::setIsFraud),
+        new Column("triggered_rules", Encoding.PLAIN_STRING, Transaction::getTriggeredRules, Transaction::setTriggeredRules),
+        new Column("explanation", Encoding.PLAIN_STRING, Transaction::getExplanation, Transaction::setExplanation),
+        new Column("created_at", Encoding.TIMESTAMP_DELTA, Transaction::getCreatedAt, Transaction::setCreatedAt)
+    );
+    
+    static Column column(String name) {
+        for (Column column : COLUMNS) {
+            if (column.name.equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Unknown archive column: " + name);
+    }
+    
+    static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+    
+    static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+    
+    static long toUnscaled(BigDecimal amount) {
+        return amount.setScale(2).unscaledValue().longValueExact();
+    }
+    
+    static BigDecimal fromUnscaled(long unscaled) {
+        return BigDecimal.valueOf(unscaled, 2);
+    }
+    
+    // Growable little buffer with varint helpers, used for both encoding and decoding
+    static final class Buffer {
+        byte[] bytes;
+        int position;
+        int limit;
+        
+        Buffer(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+        
+        Buffer(byte[] bytes, int limit) {
+            this.bytes = bytes;
+            this.limit = limit;
+        }
+        
+        void ensure(int extra) {
+            if (position + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + extra));
+            }
+        }
+        
+        void writeByte(int value) {
+            ensure(1);
+            bytes[position++] = (byte) value;
+        }
+        
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+        
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+        
+        void writeLong(long value) {
+            ensure(8);
+            for (int i = 7; i >= 0; i--) {
+                bytes[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+        
+        void writeBytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, position, value.length);
+            position += value.length;
+        }
+        
+        int readByte() {
+            return bytes[position++] & 0xFF;
+        }
+        
+        long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                byte b = bytes[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+        
+        long readZigZag() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+        
+        long readLong() {
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (bytes[position++] & 0xFF);
+            }
+            return result;
+        }
+        
+        String readString(int length) {
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+    
+    private ColumnarFormat() {
+    }
+}
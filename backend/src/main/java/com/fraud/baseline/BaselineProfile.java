@@ -0,0 +1,105 @@
+package com.fraud.baseline;
+
+import com.fraud.entity.UserBaseline;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// What scoring compares a transaction against, in interned form: the known devices and
+// merchants as int sets and the last location as ids. It is derived from a baseline's
+// columns and stays valid while the baseline holds the very same column strings, which
+// copies of the baseline share. Values the dictionary had no room for (id 0) are kept as
+// strings on the side. Never modified once built, so copies may share it.
+public final class BaselineProfile {
+    
+    private static final Set<String> NONE = Set.of();
+    
+    private final String knownDevicesJson;
+    private final String knownMerchantsJson;
+    private final String lastState;
+    private final String lastCountry;
+    private final IntHashSet devices;
+    private final IntHashSet merchants;
+    private final Set<String> uninternedDevices;
+    private final Set<String> uninternedMerchants;
+    private final int lastStateId;
+    private final int lastCountryId;
+    
+    public BaselineProfile(UserBaseline baseline, IntHashSet devices, IntHashSet merchants,
+                           Set<String> uninternedDevices, Set<String> uninternedMerchants,
+                           int lastStateId, int lastCountryId) {
+        this.knownDevicesJson = baseline.getKnownDevices();
+        this.knownMerchantsJson = baseline.getKnownMerchants();
+        this.lastState = baseline.getLastTransactionState();
+        this.lastCountry = baseline.getLastTransactionCountry();
+        this.devices = devices;
+        this.merchants = merchants;
+        this.uninternedDevices = uninternedDevices.isEmpty() ? NONE : uninternedDevices;
+        this.uninternedMerchants = uninternedMerchants.isEmpty() ? NONE : uninternedMerchants;
+        this.lastStateId = lastStateId;
+        this.lastCountryId = lastCountryId;
+    }
+    
+    // Identity, not equality: an updated baseline always gets new column strings
+    public boolean isCurrentFor(UserBaseline baseline) {
+        return baseline.getKnownDevices() == knownDevicesJson
+            && baseline.getKnownMerchants() == knownMerchantsJson
+            && baseline.getLastTransactionState() == lastState
+            && baseline.getLastTransactionCountry() == lastCountry;
+    }
+    
+    public boolean knowsDevice(int deviceId, String device) {
+        return deviceId != 0 ? devices.contains(deviceId) : uninternedDevices.contains(device);
+    }
+    
+    public boolean knowsMerchant(int merchantId, String merchant) {
+        return merchantId != 0 ? merchants.contains(merchantId) : uninternedMerchants.contains(merchant);
+    }
+    
+    public boolean isLastState(int stateId, String state) {
+        return stateId != 0 || lastStateId != 0 ? stateId == lastStateId : Objects.equals(state, lastState);
+    }
+    
+    public boolean isLastCountry(int countryId, String country) {
+        return countryId != 0 || lastCountryId != 0 ? countryId == lastCountryId : Objects.equals(country, lastCountry);
+    }
+    
+    // The profile of the baseline after it took in a transaction with these ids; sets
+    // that do not change are shared with this profile
+    public BaselineProfile advance(UserBaseline updated, int deviceId, String device, int merchantId, String merchant,
+                                   int stateId, int countryId) {
+        IntHashSet nextDevices = devices;
+        Set<String> nextUninternedDevices = uninternedDevices;
+        if (!knowsDevice(deviceId, device)) {
+            if (deviceId != 0) {
+                nextDevices = new IntHashSet(devices);
+                nextDevices.add(deviceId);
+            } else {
+                nextUninternedDevices = new HashSet<>(uninternedDevices);
+                nextUninternedDevices.add(device);
+            }
+        }
+        IntHashSet nextMerchants = merchants;
+        Set<String> nextUninternedMerchants = uninternedMerchants;
+        if (!knowsMerchant(merchantId, merchant)) {
+            if (merchantId != 0) {
+                nextMerchants = new IntHashSet(merchants);
+                nextMerchants.add(merchantId);
+            } else {
+                nextUninternedMerchants = new HashSet<>(uninternedMerchants);
+                nextUninternedMerchants.add(merchant);
+            }
+        }
+        return new BaselineProfile(updated, nextDevices, nextMerchants, nextUninternedDevices,
+            nextUninternedMerchants, stateId, countryId);
+    }
+    
+    public int getDeviceCount() {
+        return devices.size() + uninternedDevices.size();
+    }
+    
+    public int getMerchantCount() {
+        return merchants.size() + uninternedMerchants.size();
+    }
+}
@@ -0,0 +1,81 @@
+package com.fraud.baseline;
+
+// Open-addressing set of non-zero ints, such as interned ids (0 marks an empty slot).
+// Values are stored unboxed, 4 bytes per slot, at a load factor of at most 1/2, and
+// placed by Fibonacci hashing with linear probing. Not thread-safe; BaselineProfile only
+// shares instances that are no longer modified.
+public final class IntHashSet {
+    
+    private int[] slots;
+    private int shift;
+    private int size;
+    
+    public IntHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+    
+    public IntHashSet(IntHashSet other) {
+        this.slots = other.slots.clone();
+        this.shift = other.shift;
+        this.size = other.size;
+    }
+    
+    public boolean add(int value) {
+        if (value == 0) {
+            throw new IllegalArgumentException("0 cannot be stored");
+        }
+        if ((size + 1) * 2 > slots.length) {
+            grow();
+        }
+        int mask = slots.length - 1;
+        for (int i = index(value); ; i = (i + 1) & mask) {
+            int stored = slots[i];
+            if (stored == value) {
+                return false;
+            }
+            if (stored == 0) {
+                slots[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+    
+    public boolean contains(int value) {
+        if (value == 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        for (int i = index(value); ; i = (i + 1) & mask) {
+            int stored = slots[i];
+            if (stored == value) {
+                return true;
+            }
+            if (stored == 0) {
+                return false;
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private int index(int value) {
+        return (value * 0x9e3779b9) >>> shift;
+    }
+    
+    private void grow() {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        shift--;
+        size = 0;
+        for (int value : old) {
+            if (value != 0) {
+                add(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.fraud.baseline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+// User baselines as fixed-size records in a memory-mapped file, so tens of millions of
+// them live in the page cache rather than on the heap. The file is an open-addressing
+// table of 256-byte slots probed linearly from a 64-bit hash of the user id; a second,
+// independent 64-bit hash is stored with the record, so two users only share a record if
+// both hashes agree. Slot 0 holds the file header. Amounts are kept as Welford mean and
+// M2 in doubles, hours as a saturating histogram, and devices and merchants as bounded
+// rings of 32-bit fingerprints (oldest replaced first). Records are never deleted:
+// clear() bumps the generation, after which every older record reads as an empty slot.
+// A user's record is read and updated under one of a fixed set of stripe locks, directly
+// on the mapped bytes and without allocating; claiming an empty slot also takes the
+// insert lock.
+public final class MappedBaselineStore implements Closeable {
+    
+    public static final int DEVICE_SLOTS = 8;
+    public static final int MERCHANT_SLOTS = 12;
+    public static final int TEXT_BYTES = 15; // Longer location codes are cut; equality uses the hash
+    
+    private static final int MAGIC = 0x46444253; // "FDBS"
+    private static final int VERSION = 1;
+    private static final int RECORD_BYTES = 256;
+    private static final int RECORD_SHIFT = 8;
+    private static final int SEGMENT_SHIFT = 22; // 4M slots, 1 GiB per mapping
+    private static final int STRIPES = 1024;
+    private static final double MAX_LOAD = 0.9;
+    
+    // Header, in slot 0
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_GENERATION = 16;
+    private static final int H_SIZE = 24;
+    
+    // Record layout
+    private static final int KEY1 = 0;
+    private static final int KEY2 = 8;
+    private static final int GENERATION = 16;
+    private static final int COUNT = 20;
+    private static final int MEAN = 24;
+    private static final int M2 = 32;
+    private static final int MIN = 40;
+    private static final int MAX = 48;
+    private static final int LAST_TIME = 56;
+    private static final int STATE_HASH = 64;
+    private static final int COUNTRY_HASH = 72;
+    private static final int STATE_TEXT = 80; // [length][up to 15 bytes]
+    private static final int COUNTRY_TEXT = 96;
+    private static final int HOURS = 112; // 24 unsigned shorts
+    private static final int DEVICES = 160; // 8 ints
+    private static final int MERCHANTS = 192; // 12 ints
+    private static final int DEVICE_CURSOR = 240;
+    private static final int MERCHANT_CURSOR = 241;
+    
+    public static final long NO_TIME = Long.MIN_VALUE;
+    
+    private static final long SEED1 = 0xcbf29ce484222325L;
+    private static final long SEED2 = 0x84222325cbf29ce4L;
+    private static final long SEED_FINGERPRINT = 0x9e3779b97f4a7c15L;
+    
+    private final Path file;
+    private final long capacity;
+    private final long mask;
+    private final MappedByteBuffer[] segments;
+    private final Object[] stripes = new Object[STRIPES];
+    private final Object insertLock = new Object();
+    private volatile int generation; // Written under insertLock
+    private volatile long size; // Written under insertLock
+    
+    // Opens the store at file, or creates it when missing or laid out for another capacity
+    // (a power of two). The file is sparse: pages are only backed once a record is written.
+    public MappedBaselineStore(Path file, long capacity) throws IOException {
+        if (capacity < 2 || Long.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        long bytes = capacity * RECORD_BYTES;
+        boolean reuse = Files.exists(file) && Files.size(file) == bytes;
+        long segmentSlots = Math.min(capacity, 1L << SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[(int) (capacity / segmentSlots)];
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            if (!reuse) {
+                raf.setLength(0);
+                raf.setLength(bytes);
+            }
+            FileChannel channel = raf.getChannel();
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) i * segmentSlots << RECORD_SHIFT, segmentSlots << RECORD_SHIFT);
+                segments[i].order(ByteOrder.nativeOrder());
+            }
+        }
+        MappedByteBuffer header = segments[0];
+        if (reuse && header.getInt(H_MAGIC) == MAGIC && header.getInt(H_VERSION) == VERSION
+                && header.getLong(H_CAPACITY) == capacity) {
+            this.generation = header.getInt(H_GENERATION);
+            this.size = header.getLong(H_SIZE);
+        } else {
+            // Zero-filled slots have generation 0 and read as empty
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.putLong(H_CAPACITY, capacity);
+            this.generation = 1;
+            this.size = 0;
+            writeHeader();
+        }
+    }
+    
+    // Mutable result of read(), meant to be reused by its thread
+    public static final class Reading {
+        public int count;
+        public double mean;
+        public double std; // Sample standard deviation, 0 below two transactions
+        public double min;
+        public double max;
+        public int mostCommonHour; // -1 without transactions
+        public long lastTime; // Epoch seconds (UTC-encoded local time), or NO_TIME
+        public boolean sameState; // Last state/country equal to the ones passed to read()
+        public boolean sameCountry;
+        public final byte[] lastState = new byte[TEXT_BYTES];
+        public int lastStateLength;
+        public final byte[] lastCountry = new byte[TEXT_BYTES];
+        public int lastCountryLength;
+        public boolean knownDevice; // Device/merchant passed to read() is in the ring
+        public boolean knownMerchant;
+        
+        // These two allocate; only needed when the location differs
+        public String lastStateText() {
+            return new String(lastState, 0, lastStateLength, StandardCharsets.ISO_8859_1);
+        }
+        
+        public String lastCountryText() {
+            return new String(lastCountry, 0, lastCountryLength, StandardCharsets.ISO_8859_1);
+        }
+    }
+    
+    // Fills out from the user's record, with the membership and equality checks answered
+    // for the given device, merchant and location; false if the user has no record
+    public boolean read(String userId, String deviceId, String merchantId, String state, String country,
+                        Reading out) {
+        long key1 = key1(userId);
+        long key2 = key2(userId);
+        synchronized (stripe(key2)) {
+            long slot = find(key1, key2);
+            if (slot < 0) {
+                return false;
+            }
+            MappedByteBuffer buffer = segment(slot);
+            int base = offset(slot);
+            int count = buffer.getInt(base + COUNT);
+            out.count = count;
+            out.mean = buffer.getDouble(base + MEAN);
+            out.std = count > 1 ? Math.sqrt(Math.max(0, buffer.getDouble(base + M2)) / (count - 1)) : 0;
+            out.min = buffer.getDouble(base + MIN);
+            out.max = buffer.getDouble(base + MAX);
+            out.mostCommonHour = mostCommonHour(buffer, base);
+            out.lastTime = buffer.getLong(base + LAST_TIME);
+            out.sameState = state != null && buffer.getLong(base + STATE_HASH) == textHash(state);
+            out.sameCountry = country != null && buffer.getLong(base + COUNTRY_HASH) == textHash(country);
+            out.lastStateLength = readText(buffer, base + STATE_TEXT, out.lastState);
+            out.lastCountryLength = readText(buffer, base + COUNTRY_TEXT, out.lastCountry);
+            out.knownDevice = deviceId != null
+                && contains(buffer, base + DEVICES, DEVICE_SLOTS, fingerprint(deviceId));
+            out.knownMerchant = merchantId != null
+                && contains(buffer, base + MERCHANTS, MERCHANT_SLOTS, fingerprint(merchantId));
+            return true;
+        }
+    }
+    
+    public boolean contains(String userId) {
+        long key2 = key2(userId);
+        synchronized (stripe(key2)) {
+            return find(key1(userId), key2) >= 0;
+        }
+    }
+    
+    // Folds one transaction into the user's record in place; false if the user has no record
+    public boolean update(String userId, double amount, long epochSecond, int hour, String deviceId,
+                          String merchantId, String state, String country) {
+        long key1 = key1(userId);
+        long key2 = key2(userId);
+        synchronized (stripe(key2)) {
+            long slot = find(key1, key2);
+            if (slot < 0) {
+                return false;
+            }
+            MappedByteBuffer buffer = segment(slot);
+            int base = offset(slot);
+            int n = buffer.getInt(base + COUNT) + 1;
+            double mean = buffer.getDouble(base + MEAN);
+            double delta = amount - mean;
+            mean += delta / n;
+            buffer.putDouble(base + M2, n == 1 ? 0 : buffer.getDouble(base + M2) + delta * (amount - mean));
+            buffer.putDouble(base + MEAN, n == 1 ? amount : mean);
+            buffer.putDouble(base + MIN, n == 1 ? amount : Math.min(amount, buffer.getDouble(base + MIN)));
+            buffer.putDouble(base + MAX, n == 1 ? amount : Math.max(amount, buffer.getDouble(base + MAX)));
+            buffer.putInt(base + COUNT, n);
+            countHour(buffer, base, hour);
+            remember(buffer, base + DEVICES, base + DEVICE_CURSOR, DEVICE_SLOTS, fingerprint(deviceId));
+            remember(buffer, base + MERCHANTS, base + MERCHANT_CURSOR, MERCHANT_SLOTS, fingerprint(merchantId));
+            writeLast(buffer, base, epochSecond, state, country);
+            return true;
+        }
+    }
+    
+    // Writes a whole record from a baseline held elsewhere. Without replace, an existing
+    // record is left alone (it is at least as new). False if not written, which includes
+    // the table being at its maximum load.
+    public boolean load(String userId, int count, double mean, double std, double min, double max,
+                        int[] hourCounts, long lastEpochSecond, String lastState, String lastCountry,
+                        Collection<String> devices, Collection<String> merchants, boolean replace) {
+        long key1 = key1(userId);
+        long key2 = key2(userId);
+        synchronized (stripe(key2)) {
+            long slot = find(key1, key2);
+            if (slot >= 0 && !replace) {
+                return false;
+            }
+            if (slot < 0) {
+                slot = claim(key1);
+                if (slot < 0) {
+                    return false;
+                }
+            }
+            MappedByteBuffer buffer = segment(slot);
+            int base = offset(slot);
+            // Other users' lookups only compare the keys, which are written last
+            buffer.putInt(base + COUNT, count);
+            buffer.putDouble(base + MEAN, mean);
+            buffer.putDouble(base + M2, count > 1 ? std * std * (count - 1) : 0);
+            buffer.putDouble(base + MIN, min);
+            buffer.putDouble(base + MAX, max);
+            for (int h = 0; h < 24; h++) {
+                int value = hourCounts != null ? Math.min(hourCounts[h], 0xffff) : 0;
+                buffer.putShort(base + HOURS + h * 2, (short) value);
+            }
+            fillRing(buffer, base + DEVICES, base + DEVICE_CURSOR, DEVICE_SLOTS, devices);
+            fillRing(buffer, base + MERCHANTS, base + MERCHANT_CURSOR, MERCHANT_SLOTS, merchants);
+            writeLast(buffer, base, lastEpochSecond, lastState, lastCountry);
+            VarHandle.releaseFence();
+            buffer.putLong(base + KEY2, key2);
+            return true;
+        }
+    }
+    
+    // Empties the store in constant time
+    public void clear() {
+        synchronized (insertLock) {
+            generation++;
+            size = 0;
+            writeHeader();
+        }
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public long getCapacity() {
+        return capacity;
+    }
+    
+    public long getMaxSize() {
+        return (long) (capacity * MAX_LOAD);
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    // Writes dirty pages back; the OS does so anyway, this bounds what a machine crash loses
+    public void flush() {
+        synchronized (insertLock) {
+            writeHeader();
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+    
+    @Override
+    public void close() {
+        flush();
+    }
+    
+    // Slot holding the key, or -1 at the first empty slot
+    private long find(long key1, long key2) {
+        int current = generation;
+        for (long slot = key1 & mask; ; slot = (slot + 1) & mask) {
+            if (slot == 0) {
+                continue;
+            }
+            MappedByteBuffer buffer = segment(slot);
+            int base = offset(slot);
+            long stored = buffer.getLong(base + KEY1);
+            VarHandle.acquireFence();
+            if (stored == 0 || buffer.getInt(base + GENERATION) != current) {
+                return -1;
+            }
+            if (stored == key1 && buffer.getLong(base + KEY2) == key2) {
+                return slot;
+            }
+        }
+    }
+    
+    // An empty slot for a new key, or -1 at the maximum load. The caller holds the key's
+    // stripe, so the key cannot have been inserted meanwhile; only other keys can have
+    // taken the empty slot find() stopped at, which is why the probe is repeated here.
+    private long claim(long key1) {
+        synchronized (insertLock) {
+            if (size >= getMaxSize()) {
+                return -1;
+            }
+            int current = generation;
+            for (long slot = key1 & mask; ; slot = (slot + 1) & mask) {
+                if (slot == 0) {
+                    continue;
+                }
+                MappedByteBuffer buffer = segment(slot);
+                int base = offset(slot);
+                if (buffer.getLong(base + KEY1) == 0 || buffer.getInt(base + GENERATION) != current) {
+                    // Reserved for this key before the insert lock is released; no other
+                    // key matches it until load() has written key2
+                    buffer.putLong(base + KEY2, 0);
+                    buffer.putLong(base + KEY1, key1);
+                    VarHandle.releaseFence();
+                    buffer.putInt(base + GENERATION, current);
+                    size++;
+                    return slot;
+                }
+            }
+        }
+    }
+    
+    private void writeHeader() {
+        MappedByteBuffer header = segments[0];
+        header.putInt(H_GENERATION, generation);
+        header.putLong(H_SIZE, size);
+    }
+    
+    private MappedByteBuffer segment(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)];
+    }
+    
+    private int offset(long slot) {
+        return (int) ((slot & ((1L << SEGMENT_SHIFT) - 1)) << RECORD_SHIFT);
+    }
+    
+    private Object stripe(long key2) {
+        return stripes[(int) (key2 & (STRIPES - 1))];
+    }
+    
+    private static void writeLast(MappedByteBuffer buffer, int base, long epochSecond, String state, String country) {
+        buffer.putLong(base + LAST_TIME, epochSecond);
+        buffer.putLong(base + STATE_HASH, state != null ? textHash(state) : 0);
+        buffer.putLong(base + COUNTRY_HASH, country != null ? textHash(country) : 0);
+        writeText(buffer, base + STATE_TEXT, state);
+        writeText(buffer, base + COUNTRY_TEXT, country);
+    }
+    
+    private static void writeText(MappedByteBuffer buffer, int at, String text) {
+        int length = text != null ? Math.min(text.length(), TEXT_BYTES) : 0;
+        buffer.put(at, (byte) length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            buffer.put(at + 1 + i, (byte) (c < 0x100 ? c : '?'));
+        }
+    }
+    
+    private static int readText(MappedByteBuffer buffer, int at, byte[] into) {
+        int length = buffer.get(at);
+        for (int i = 0; i < length; i++) {
+            into[i] = buffer.get(at + 1 + i);
+        }
+        return length;
+    }
+    
+    // Saturating counts; when one would overflow, all are halved, which keeps the mode
+    private static void countHour(MappedByteBuffer buffer, int base, int hour) {
+        int at = base + HOURS + hour * 2;
+        int value = buffer.getShort(at) & 0xffff;
+        if (value == 0xffff) {
+            for (int h = 0; h < 24; h++) {
+                int other = base + HOURS + h * 2;
+                buffer.putShort(other, (short) ((buffer.getShort(other) & 0xffff) >>> 1));
+            }
+            value = buffer.getShort(at) & 0xffff;
+        }
+        buffer.putShort(at, (short) (value + 1));
+    }
+    
+    // Earliest hour among the most frequent ones, or -1 if all are zero
+    private static int mostCommonHour(MappedByteBuffer buffer, int base) {
+        int best = -1;
+        int bestCount = 0;
+        for (int h = 0; h < 24; h++) {
+            int value = buffer.getShort(base + HOURS + h * 2) & 0xffff;
+            if (value > bestCount) {
+                best = h;
+                bestCount = value;
+            }
+        }
+        return best;
+    }
+    
+    private static boolean contains(MappedByteBuffer buffer, int at, int slots, int fingerprint) {
+        for (int i = 0; i < slots; i++) {
+            if (buffer.getInt(at + i * 4) == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static void remember(MappedByteBuffer buffer, int at, int cursorAt, int slots, int fingerprint) {
+        if (contains(buffer, at, slots, fingerprint)) {
+            return;
+        }
+        int cursor = buffer.get(cursorAt);
+        buffer.putInt(at + cursor * 4, fingerprint);
+        buffer.put(cursorAt, (byte) ((cursor + 1) % slots));
+    }
+    
+    // Keeps the last `slots` of the values when there are more
+    private static void fillRing(MappedByteBuffer buffer, int at, int cursorAt, int slots, Collection<String> values) {
+        for (int i = 0; i < slots; i++) {
+            buffer.putInt(at + i * 4, 0);
+        }
+        buffer.put(cursorAt, (byte) 0);
+        if (values != null) {
+            for (String value : values) {
+                remember(buffer, at, cursorAt, slots, fingerprint(value));
+            }
+        }
+    }
+    
+    // Never 0, which marks an empty ring entry
+    private static int fingerprint(String value) {
+        int fingerprint = (int) hash(value, SEED_FINGERPRINT);
+        return fingerprint != 0 ? fingerprint : 1;
+    }
+    
+    // Never 0, which marks an empty slot
+    private static long key1(String userId) {
+        long key = hash(userId, SEED1);
+        return key != 0 ? key : 1;
+    }
+    
+    // Never 0, which marks a reserved slot
+    private static long key2(String userId) {
+        return hash(userId, SEED2) | 1;
+    }
+    
+    private static long textHash(String text) {
+        return hash(text, SEED1) | 1;
+    }
+    
+    // FNV-1a over the UTF-16 chars, then the murmur3 finalizer; seeds give independent hashes
+    private static long hash(String value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
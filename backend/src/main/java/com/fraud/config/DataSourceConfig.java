@@ -0,0 +1,71 @@
+package com.fraud.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Two bulkheaded connection pools behind one DataSource. Work inside a
+// @Transactional(readOnly = true) boundary (dashboard and search endpoints) runs on the
+// reporting pool, which may point at a read replica; everything else, including
+// scoring, runs on the scoring pool, so slow reporting queries can only exhaust their
+// own connections. The lazy proxy defers picking a pool until the first statement,
+// after the transaction's read-only flag is known.
+@Configuration
+public class DataSourceConfig {
+    
+    private static final String SCORING = "scoring";
+    private static final String REPORTING = "reporting";
+    
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties scoringDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource scoringPool(
+            @Qualifier("scoringDataSourceProperties") DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.reporting")
+    public DataSourceProperties reportingDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.reporting.hikari")
+    public HikariDataSource reportingPool(
+            @Qualifier("reportingDataSourceProperties") DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("scoringPool") DataSource scoringPool,
+                                 @Qualifier("reportingPool") DataSource reportingPool) {
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPORTING : SCORING;
+            }
+        };
+        routing.setTargetDataSources(Map.of(SCORING, scoringPool, REPORTING, reportingPool));
+        routing.setDefaultTargetDataSource(scoringPool);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "fraud.detection")
 @Data
@@ -12,12 +15,32 @@ public class FraudDetectionConfig {
     private Thresholds thresholds = new Thresholds();
     private Rules rules = new Rules();
     private ML ml = new ML();
+    private Jobs jobs = new Jobs();
+    private Partitioning partitioning = new Partitioning();
+    private Archive archive = new Archive();
+    private Stream stream = new Stream();
+    private Idempotency idempotency = new Idempotency();
+    private SharedIndex sharedIndex = new SharedIndex();
+    private MerchantRisk merchantRisk = new MerchantRisk();
+    private Sharding sharding = new Sharding();
+    private Ingest ingest = new Ingest();
+    private Decision decision = new Decision();
+    private Admission admission = new Admission();
+    private ResponseCache responseCache = new ResponseCache();
+    private Reactive reactive = new Reactive();
+    private Tcp tcp = new Tcp();
+    private BaselineCache baselineCache = new BaselineCache();
+    private BaselineStore baselineStore = new BaselineStore();
+    private Interning interning = new Interning();
+    private Warmup warmup = new Warmup();
+    private Drift drift = new Drift();
     
     @Data
     public static class Scoring {
         private Double ruleWeight = 0.5;
         private Double statisticalWeight = 0.3;
         private Double mlWeight = 0.2;
+        private String overridesFile = ""; // Watched JSON file of scoring settings; empty disables
     }
     
     @Data
@@ -32,6 +55,8 @@ public class FraudDetectionConfig {
         private Integer velocityWindowMinutes = 5;
         private Double amountAnomalyStdDev = 3.0;
         private Integer geographicTimeWindowHours = 2;
+        private Double impossibleTravelSpeedKmh = 900.0; // Roughly airliner cruising speed
+        private Double impossibleTravelMinDistanceKm = 500.0;
     }
     
     @Data
@@ -39,4 +64,174 @@ public class FraudDetectionConfig {
         private String serviceUrl = "http://localhost:8000";
         private Integer timeoutSeconds = 5;
     }
+    
+    @Data
+    public static class Jobs {
+        private Integer fetchSize = 10000;
+        private Integer usersPerChunk = 500;
+        private Integer maxChunksInFlight = 4;
+        private Integer parallelism = Runtime.getRuntime().availableProcessors();
+        private Integer backfillParallelism = 2;
+        private Integer backfillMaxRate = 500; // Transactions per second, 0 = unthrottled
+    }
+    
+    @Data
+    public static class Partitioning {
+        private Boolean enabled = true;
+        private Integer premakeMonths = 3;
+        private Integer retentionMonths = 0; // 0 keeps every partition
+    }
+    
+    @Data
+    public static class Archive {
+        private Boolean enabled = false; // Scheduled export; the admin endpoint always works
+        private String directory = "./archive";
+        private Integer olderThanDays = 365;
+        private Integer rowsPerFile = 250000;
+        private Integer deleteBatchSize = 5000;
+        private Integer compressionLevel = 6; // Deflate level, 1 (fast) to 9 (small)
+    }
+    
+    @Data
+    public static class Stream {
+        private Integer bufferSize = 256; // Events held per subscriber before the oldest is dropped
+        private Integer dispatcherThreads = 2;
+    }
+    
+    @Data
+    public static class Idempotency {
+        private Integer cacheSize = 10000; // Recently completed transaction ids answered from memory
+        private Integer retentionDays = 7; // Processed ids older than this are forgotten, 0 keeps all
+    }
+    
+    @Data
+    public static class SharedIndex {
+        private Integer windowMinutes = 60;
+        private Integer bucketMinutes = 10; // Window slides in steps of this size
+        private Integer precision = 7; // 2^precision registers per bucket, ~9% error at 7
+        private Integer maxKeys = 100000; // Per index (devices, merchants)
+        private Integer deviceUserThreshold = 5;
+    }
+    
+    @Data
+    public static class MerchantRisk {
+        private Integer topN = 1000; // Merchants kept in memory, by daily volume
+        private Integer stripes = 32;
+        private Integer bucketMinutes = 5;
+        private Integer minVolume = 20; // Daily transactions before the flag rate counts
+        private Double flagRateThreshold = 0.25;
+    }
+    
+    @Data
+    public static class Sharding {
+        private Boolean enabled = false;
+        private String nodeId; // This instance, one of nodes
+        private List<Node> nodes = new ArrayList<>();
+        private Integer virtualNodes = 128; // Ring points per node, smooths the ranges
+        private Integer forwardTimeoutSeconds = 10;
+        
+        @Data
+        public static class Node {
+            private String id;
+            private String url; // Base URL, e.g. http://backend-2:8080
+        }
+    }
+    
+    @Data
+    public static class Ingest {
+        private Boolean enabled = false;
+        private Boolean asyncByDefault = false; // Otherwise only requests with Prefer: respond-async
+        private String directory = "./ingest";
+        private Integer segmentMb = 64;
+        private Boolean syncEveryAppend = true; // Force each record to disk before acknowledging
+        private Integer workers = 4;
+        private Integer workerQueueCapacity = 1000;
+        private Long maxLag = 1000000L; // Unscored records before new ones are refused
+        private Integer maxAttempts = 3;
+    }
+    
+    @Data
+    public static class Decision {
+        private Boolean twoTier = false; // Decide on rules + statistics, apply ML when it arrives
+        private Integer budgetMs = 50; // ML still counts when it answers within this
+        private Integer enrichmentThreads = 4;
+        private Integer enrichmentQueueCapacity = 10000;
+    }
+    
+    @Data
+    public static class Admission {
+        private Boolean enabled = false; // Tune the thresholds against measured latencies first
+        private Integer maxInFlight = 64; // Concurrent scoring requests counted as full load
+        private Integer targetLatencyMs = 250; // Average latency counted as full load
+        private Double skipMlAt = 0.5; // Load fractions at which each degradation step starts
+        private Double skipVelocityAt = 0.75;
+        private Double shedAt = 1.0;
+        private List<String> lowPriorityChannels = new ArrayList<>(List.of("batch"));
+    }
+    
+    @Data
+    public static class ResponseCache {
+        private Boolean enabled = true;
+        private Integer maxEntries = 512; // Distinct read requests (path and query) kept
+        private Long maxAgeMs = 60000L; // Also recompute older entries, catching writes this instance never saw; 0 disables
+    }
+    
+    @Data
+    public static class Reactive {
+        private Boolean enabled = false; // Non-blocking scoring endpoint on its own Netty port
+        private Integer port = 8081;
+    }
+    
+    @Data
+    public static class Tcp {
+        private Boolean enabled = false; // Length-prefixed binary scoring listener, see TcpFrames
+        private Integer port = 9090;
+        private Integer ioThreads = 2; // Event loops; they only frame, decode and encode
+        private Integer scoringThreads = 32; // Scoring blocks on the database, so it runs off the event loops
+        private Integer queueCapacity = 10000; // Requests waiting for a scoring thread; beyond that 503
+        private Integer maxInFlightPerConnection = 256; // Reading pauses at this many unanswered requests
+        private Integer maxFrameBytes = 65536;
+    }
+    
+    @Data
+    public static class BaselineCache {
+        private Boolean enabled = true; // Off when several instances score the same users unsharded
+        private Integer maxEntries = 100000; // Most recently used user baselines kept in memory
+    }
+    
+    @Data
+    public static class BaselineStore {
+        private Boolean enabled = false; // Memory-mapped baselines instead of the cache, table written behind
+        private String path = "./data/baselines.store";
+        private Long capacity = 1L << 20; // Record slots, a power of two; filled to 90% at most
+        private Integer writeQueueCapacity = 100000; // Updates waiting for user_baselines
+        private Integer writeBatchSize = 500;
+    }
+    
+    @Data
+    public static class Interning {
+        private Integer maxIds = 1000000; // Per kind, never evicted (~120 bytes plus the id's length each); later values compare as strings
+    }
+    
+    @Data
+    public static class Warmup {
+        private Boolean enabled = true; // Hold back readiness until the steps below are done
+        private Integer preloadUsers = 50000; // Most recently active baselines loaded into the cache
+        private Integer preloadBatchSize = 1000;
+        private Integer preloadThreads = 4;
+        private Integer evaluations = 20000; // Synthetic evaluations run to get scoring compiled
+    }
+    
+    @Data
+    public static class Drift {
+        private Boolean enabled = true; // Live score histograms compared with a pinned reference window
+        private Integer buckets = 20; // Equal-width buckets over 0-100 per component score
+        private Integer windowMinutes = 60;
+        private Integer slotSeconds = 60; // The window moves on in steps of one slot
+        private Integer minSamples = 500; // Evaluations in a histogram before its PSI is reported
+        private Double psiModerate = 0.1;
+        private Double psiSignificant = 0.25;
+        private Boolean autoPin = true; // Pin the first full window when no reference is saved
+        private String referenceFile = "./data/score-reference.json"; // Empty keeps the reference in memory only
+    }
 }
@@ -0,0 +1,49 @@
+package com.fraud.config;
+
+import com.fraud.service.ArchiveService;
+import com.fraud.service.BackfillService;
+import com.fraud.service.IngestionService;
+import com.fraud.service.ScoreDistributionMonitor;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.util.ClassUtils;
+
+// Reachability metadata for the native image. Spring already covers controller bodies and
+// JPA entities; Jackson also binds DTOs and entities outside controllers (stored responses,
+// ingestion log payloads, ML calls, SSE events), job progress, scoring snapshots, the
+// pinned score reference and ingest dead letters, and the geo centroids are read from the classpath. Only consulted during AOT processing.
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.FraudRuntimeHints.class)
+public class NativeHintsConfig {
+    
+    static class FraudRuntimeHints implements RuntimeHintsRegistrar {
+        
+        private static final String[] BOUND_PACKAGES = {"com.fraud.dto", "com.fraud.entity"};
+        
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            BindingReflectionHintsRegistrar binding = new BindingReflectionHintsRegistrar();
+            
+            // Every class in the packages, so a new DTO needs no change here; nested types
+            // such as FraudEvaluationResponse.TriggeredRule are followed through properties
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+            scanner.addIncludeFilter((reader, factory) -> true);
+            for (String basePackage : BOUND_PACKAGES) {
+                for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                    binding.registerReflectionHints(hints.reflection(),
+                        ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader));
+                }
+            }
+            binding.registerReflectionHints(hints.reflection(),
+                ScoringSnapshot.class, BackfillService.BackfillRun.class, ArchiveService.ExportRun.class,
+                ScoreDistributionMonitor.Reference.class, IngestionService.DeadLetter.class);
+            
+            hints.resources().registerPattern("geo/*.csv");
+        }
+    }
+}
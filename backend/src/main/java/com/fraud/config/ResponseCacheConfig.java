@@ -0,0 +1,93 @@
+package com.fraud.config;
+
+import com.fraud.service.ResponseCacheService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+// Conditional GET for the dashboard read endpoints. A request whose cached response is
+// still current never reaches the controller: it gets the stored bytes, or a bodyless
+// 304 if its If-None-Match already names them. Cache-Control: no-cache makes browsers
+// revalidate every poll, so an unchanged dashboard costs one 304 and no query.
+@Configuration
+public class ResponseCacheConfig {
+    
+    @Bean
+    public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(ResponseCacheService responseCache) {
+        FilterRegistrationBean<ResponseCacheFilter> registration =
+            new FilterRegistrationBean<>(new ResponseCacheFilter(responseCache));
+        registration.addUrlPatterns(
+            "/api/transactions",
+            "/api/transactions/stats",
+            "/api/transactions/timeseries",
+            "/api/transactions/search",
+            "/api/transactions/user/*",
+            "/api/alerts"
+        );
+        return registration;
+    }
+    
+    static class ResponseCacheFilter extends OncePerRequestFilter {
+        
+        private final ResponseCacheService responseCache;
+        
+        ResponseCacheFilter(ResponseCacheService responseCache) {
+            this.responseCache = responseCache;
+        }
+        
+        @Override
+        protected boolean shouldNotFilter(HttpServletRequest request) {
+            return !"GET".equals(request.getMethod()) || !responseCache.isEnabled();
+        }
+        
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain chain) throws ServletException, IOException {
+            String key = request.getQueryString() == null
+                ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            
+            ResponseCacheService.CachedResponse cached = responseCache.lookup(key);
+            if (cached != null) {
+                send(cached, ifNoneMatch, response);
+                return;
+            }
+            
+            long version = responseCache.currentVersion();
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() != HttpServletResponse.SC_OK) {
+                wrapper.copyBodyToResponse(); // Errors are not cached
+                return;
+            }
+            cached = responseCache.store(key, version, wrapper.getContentType(), wrapper.getContentAsByteArray());
+            wrapper.resetBuffer();
+            send(cached, ifNoneMatch, wrapper);
+            wrapper.copyBodyToResponse();
+        }
+        
+        private void send(ResponseCacheService.CachedResponse cached, String ifNoneMatch,
+                          HttpServletResponse response) throws IOException {
+            response.setHeader(HttpHeaders.ETAG, cached.getEtag());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            if (cached.matches(ifNoneMatch)) {
+                responseCache.recordNotModified();
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(cached.getContentType());
+            response.setContentLength(cached.getBody().length);
+            response.getOutputStream().write(cached.getBody());
+        }
+    }
+}
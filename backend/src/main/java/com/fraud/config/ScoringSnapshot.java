@@ -0,0 +1,94 @@
+package com.fraud.config;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Immutable copy of the hot-reloadable scoring settings. Evaluations read one snapshot
+// up front and pass it along, so a reload never mixes old and new values mid-evaluation.
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class ScoringSnapshot {
+    @With
+    long version;
+    
+    // Aggregation
+    double ruleWeight;
+    double statisticalWeight;
+    double mlWeight;
+    double softFlag;
+    double hardFlag;
+    
+    // Rule parameters
+    int velocityThreshold;
+    int velocityWindowMinutes;
+    double amountAnomalyStdDev;
+    int geographicTimeWindowHours;
+    double impossibleTravelSpeedKmh;
+    double impossibleTravelMinDistanceKm;
+    int deviceUserThreshold;
+    int merchantMinVolume;
+    double merchantFlagRateThreshold;
+    
+    // Settings as bound from application.yml at startup, before any reload
+    public static ScoringSnapshot from(FraudDetectionConfig config) {
+        return ScoringSnapshot.builder()
+            .ruleWeight(config.getScoring().getRuleWeight())
+            .statisticalWeight(config.getScoring().getStatisticalWeight())
+            .mlWeight(config.getScoring().getMlWeight())
+            .softFlag(config.getThresholds().getSoftFlag())
+            .hardFlag(config.getThresholds().getHardFlag())
+            .velocityThreshold(config.getRules().getVelocityThreshold())
+            .velocityWindowMinutes(config.getRules().getVelocityWindowMinutes())
+            .amountAnomalyStdDev(config.getRules().getAmountAnomalyStdDev())
+            .geographicTimeWindowHours(config.getRules().getGeographicTimeWindowHours())
+            .impossibleTravelSpeedKmh(config.getRules().getImpossibleTravelSpeedKmh())
+            .impossibleTravelMinDistanceKm(config.getRules().getImpossibleTravelMinDistanceKm())
+            .deviceUserThreshold(config.getSharedIndex().getDeviceUserThreshold())
+            .merchantMinVolume(config.getMerchantRisk().getMinVolume())
+            .merchantFlagRateThreshold(config.getMerchantRisk().getFlagRateThreshold())
+            .build();
+    }
+    
+    // Empty when the settings are usable
+    public List<String> validate() {
+        List<String> errors = new ArrayList<>();
+        if (ruleWeight < 0 || statisticalWeight < 0 || mlWeight < 0) {
+            errors.add("Weights must not be negative");
+        }
+        if (Math.abs(ruleWeight + statisticalWeight + mlWeight - 1.0) > 0.001) {
+            errors.add("ruleWeight + statisticalWeight + mlWeight must add up to 1");
+        }
+        // Without an ML score (fast tier, load shedding, ML down) only these two are rescaled
+        if (ruleWeight + statisticalWeight < 0.001) {
+            errors.add("ruleWeight + statisticalWeight must be positive; scores without ML use only these");
+        }
+        if (softFlag < 0 || hardFlag > 100 || softFlag >= hardFlag) {
+            errors.add("Thresholds must satisfy 0 <= softFlag < hardFlag <= 100");
+        }
+        if (velocityThreshold < 1 || velocityWindowMinutes < 1) {
+            errors.add("velocityThreshold and velocityWindowMinutes must be at least 1");
+        }
+        if (amountAnomalyStdDev <= 0) {
+            errors.add("amountAnomalyStdDev must be positive");
+        }
+        if (geographicTimeWindowHours < 0) {
+            errors.add("geographicTimeWindowHours must not be negative");
+        }
+        if (impossibleTravelSpeedKmh <= 0 || impossibleTravelMinDistanceKm < 0) {
+            errors.add("impossibleTravelSpeedKmh must be positive and impossibleTravelMinDistanceKm not negative");
+        }
+        if (deviceUserThreshold < 1 || merchantMinVolume < 1) {
+            errors.add("deviceUserThreshold and merchantMinVolume must be at least 1");
+        }
+        if (merchantFlagRateThreshold <= 0 || merchantFlagRateThreshold > 1) {
+            errors.add("merchantFlagRateThreshold must be in (0, 1]");
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,31 @@
+package com.fraud.config;
+
+import com.fraud.wire.WireFormats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Binary formats for the scoring endpoints, chosen by Content-Type and Accept: Smile,
+// CBOR and protobuf. They go after JSON, so clients that accept anything still get JSON.
+// Spring's generic Smile and CBOR converters, added because the dataformats are on the
+// classpath, are dropped: binary formats are only offered for the scoring DTOs.
+@Configuration
+@RequiredArgsConstructor
+public class WireFormatConfig implements WebMvcConfigurer {
+    
+    private final WireFormats wireFormats;
+    
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+            || converter instanceof MappingJackson2CborHttpMessageConverter);
+        converters.add(wireFormats.getSmile());
+        converters.add(wireFormats.getCbor());
+        converters.add(wireFormats.getProtobuf());
+    }
+}
@@ -3,6 +3,13 @@ package com.fraud.controller;
 import com.fraud.repository.TransactionRepository;
 import com.fraud.repository.AlertRepository;
 import com.fraud.repository.UserBaselineRepository;
+import com.fraud.service.BaselineService;
+import com.fraud.service.IdempotencyService;
+import com.fraud.service.LiveEventService;
+import com.fraud.service.MerchantRiskAggregator;
+import com.fraud.service.ResponseCacheService;
+import com.fraud.service.ScoreDistributionMonitor;
+import com.fraud.service.SharedEntityIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -13,6 +20,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.Map;
 
+// Data reset. The other admin endpoints live in the per-feature *AdminController classes.
 @RestController
 @RequestMapping("/api/admin")
 @RequiredArgsConstructor
@@ -22,6 +30,13 @@ public class AdminController {
     private final TransactionRepository transactionRepository;
     private final AlertRepository alertRepository;
     private final UserBaselineRepository userBaselineRepository;
+    private final BaselineService baselineService;
+    private final IdempotencyService idempotencyService;
+    private final SharedEntityIndex sharedEntityIndex;
+    private final MerchantRiskAggregator merchantRiskAggregator;
+    private final ScoreDistributionMonitor scoreDistributionMonitor;
+    private final LiveEventService liveEventService;
+    private final ResponseCacheService responseCache;
     
     @PostMapping("/reset")
     @Transactional
@@ -34,10 +49,17 @@ public class AdminController {
             long alertCount = alertRepository.count();
             long baselineCount = userBaselineRepository.count();
             
-            // Delete all records (in order to respect foreign key constraints)
-            alertRepository.deleteAll();
-            transactionRepository.deleteAll();
-            userBaselineRepository.deleteAll();
+            // TRUNCATE instead of deleteAll(), which loads and deletes row by row
+            alertRepository.truncate();
+            transactionRepository.truncate();
+            userBaselineRepository.truncate();
+            idempotencyService.clear();
+            baselineService.clearCache();
+            sharedEntityIndex.clear();
+            merchantRiskAggregator.clear();
+            scoreDistributionMonitor.clear();
+            liveEventService.publishResync("reset");
+            responseCache.invalidate();
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -1,12 +1,18 @@
 package com.fraud.controller;
 
+import com.fraud.dto.BulkAlertTriageRequest;
 import com.fraud.entity.Alert;
 import com.fraud.repository.AlertRepository;
+import com.fraud.service.AlertTriageService;
+import com.fraud.service.LiveEventService;
+import com.fraud.service.ResponseCacheService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -20,7 +26,11 @@ import java.util.stream.Collectors;
 public class AlertController {
     
     private final AlertRepository alertRepository;
+    private final AlertTriageService alertTriageService;
+    private final LiveEventService liveEventService;
+    private final ResponseCacheService responseCache;
     
+    @Transactional(readOnly = true)
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAlerts(
             @RequestParam(required = false) Alert.AlertStatus status,
@@ -71,8 +81,25 @@ public class AlertController {
                     alert.setAnalystNotes(notes);
                 }
                 Alert saved = alertRepository.save(alert);
+                liveEventService.publishAlertsUpdated(saved.getStatus(), 1);
+                responseCache.invalidate();
                 return ResponseEntity.ok(saved);
             })
             .orElse(ResponseEntity.notFound().build());
     }
+    
+    // Updates every alert matching the ids and/or filter in one set-based UPDATE
+    @PostMapping("/bulk-status")
+    public ResponseEntity<Map<String, Object>> bulkUpdateStatus(
+            @Valid @RequestBody BulkAlertTriageRequest request) {
+        if (!request.hasCriteria()) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Specify alertIds or at least one filter"));
+        }
+        int updated = alertTriageService.bulkUpdateStatus(request);
+        Map<String, Object> result = new HashMap<>();
+        result.put("updated", updated);
+        result.put("status", request.getStatus());
+        return ResponseEntity.ok(result);
+    }
 }
@@ -0,0 +1,71 @@
+package com.fraud.controller;
+
+import com.fraud.service.ArchiveService;
+import com.fraud.service.PartitionMaintenanceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Monthly partitions of the transactions table and the export of old ones to files
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class ArchiveAdminController {
+    
+    private final PartitionMaintenanceService partitionMaintenanceService;
+    private final ArchiveService archiveService;
+    
+    @GetMapping("/partitions")
+    public ResponseEntity<Map<String, Object>> getPartitions() {
+        Map<String, Object> partitions = new TreeMap<>();
+        partitionMaintenanceService.listPartitions()
+            .forEach((month, rows) -> partitions.put(month.toString(), rows));
+        return ResponseEntity.ok(Map.of("partitions", partitions));
+    }
+    
+    @PostMapping("/partitions/maintain")
+    public ResponseEntity<Map<String, Object>> maintainPartitions() {
+        return ResponseEntity.ok(partitionMaintenanceService.maintain());
+    }
+    
+    @PostMapping("/archive/export")
+    public ResponseEntity<Map<String, Object>> startArchiveExport(
+            @RequestParam(required = false) Integer olderThanDays) {
+        if (!archiveService.start(olderThanDays)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "An archive export is already running"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(archiveService.getStatus());
+    }
+    
+    @GetMapping("/archive/export")
+    public ResponseEntity<Map<String, Object>> getArchiveExportStatus() {
+        return ResponseEntity.ok(archiveService.getStatus());
+    }
+    
+    @PostMapping("/archive/export/stop")
+    public ResponseEntity<Map<String, Object>> stopArchiveExport() {
+        archiveService.stop();
+        return ResponseEntity.ok(archiveService.getStatus());
+    }
+    
+    @GetMapping("/archive/files")
+    public ResponseEntity<Map<String, Object>> getArchiveFiles() throws IOException {
+        return ResponseEntity.ok(Map.of("files", archiveService.listFiles()));
+    }
+    
+    @GetMapping("/archive/summary")
+    public ResponseEntity<Map<String, Object>> getArchiveSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to)
+            throws IOException {
+        return ResponseEntity.ok(archiveService.summarize(from, to));
+    }
+}
@@ -0,0 +1,40 @@
+package com.fraud.controller;
+
+import com.fraud.dto.BackfillRequest;
+import com.fraud.service.BackfillService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/backfill")
+@RequiredArgsConstructor
+public class BackfillAdminController {
+    
+    private final BackfillService backfillService;
+    
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startBackfill(
+            @RequestBody(required = false) BackfillRequest request,
+            @RequestParam(required = false, defaultValue = "false") boolean resume) {
+        if (!backfillService.start(request, resume)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "A backfill is already running"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(backfillService.getStatus());
+    }
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getBackfillStatus() {
+        return ResponseEntity.ok(backfillService.getStatus());
+    }
+    
+    @PostMapping("/stop")
+    public ResponseEntity<Map<String, Object>> stopBackfill() {
+        backfillService.stop();
+        return ResponseEntity.ok(backfillService.getStatus());
+    }
+}
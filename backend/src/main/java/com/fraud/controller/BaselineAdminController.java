@@ -0,0 +1,49 @@
+package com.fraud.controller;
+
+import com.fraud.service.BaselineRebuildService;
+import com.fraud.service.BaselineService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class BaselineAdminController {
+    
+    private final BaselineRebuildService baselineRebuildService;
+    private final BaselineService baselineService;
+    
+    @PostMapping("/baselines/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildBaselines(
+            @RequestParam(required = false, defaultValue = "true") boolean resume) {
+        if (!baselineRebuildService.start(resume)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Baseline rebuild is already running"));
+        }
+        log.warn("Baseline rebuild started (resume={})", resume);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(baselineRebuildService.getStatus());
+    }
+    
+    @GetMapping("/baselines/rebuild")
+    public ResponseEntity<Map<String, Object>> getBaselineRebuildStatus() {
+        return ResponseEntity.ok(baselineRebuildService.getStatus());
+    }
+    
+    @PostMapping("/baselines/rebuild/stop")
+    public ResponseEntity<Map<String, Object>> stopBaselineRebuild() {
+        baselineRebuildService.stop();
+        return ResponseEntity.ok(baselineRebuildService.getStatus());
+    }
+    
+    // Off-heap baseline store and its write-behind to user_baselines
+    @GetMapping("/baseline-store")
+    public ResponseEntity<Map<String, Object>> getBaselineStoreStatus() {
+        return ResponseEntity.ok(baselineService.getStoreStatus());
+    }
+}
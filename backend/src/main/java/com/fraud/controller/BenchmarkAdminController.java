@@ -0,0 +1,50 @@
+package com.fraud.controller;
+
+import com.fraud.dto.TransactionBatchRequest;
+import com.fraud.service.ScoreDistributionMonitor;
+import com.fraud.service.ScoringStateBenchmark;
+import com.fraud.service.WireFormatBenchmark;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+// In-process benchmarks; each takes seconds and blocks the caller
+@RestController
+@RequestMapping("/api/admin/benchmarks")
+@RequiredArgsConstructor
+public class BenchmarkAdminController {
+    
+    private final ScoringStateBenchmark scoringStateBenchmark;
+    private final WireFormatBenchmark wireFormatBenchmark;
+    private final ScoreDistributionMonitor scoreDistributionMonitor;
+    
+    // Comparison of string and interned scoring state
+    @PostMapping("/scoring-state")
+    public ResponseEntity<Map<String, Object>> benchmarkScoringState(
+            @RequestParam(required = false, defaultValue = "2000") int baselines,
+            @RequestParam(required = false, defaultValue = "200000") int evaluations) {
+        return ResponseEntity.ok(scoringStateBenchmark.run(Math.max(1, baselines), Math.max(1, evaluations)));
+    }
+    
+    // Bytes and encode/decode time of the scoring API's wire formats
+    @PostMapping("/wire-formats")
+    public ResponseEntity<Map<String, Object>> benchmarkWireFormats(
+            @RequestParam(required = false, defaultValue = "1000") int messages,
+            @RequestParam(required = false, defaultValue = "100") int batchSize,
+            @RequestParam(required = false, defaultValue = "200") int iterations) throws IOException {
+        return ResponseEntity.ok(wireFormatBenchmark.run(Math.max(1, messages),
+            Math.max(1, Math.min(batchSize, TransactionBatchRequest.MAX_SIZE)), Math.max(1, iterations)));
+    }
+    
+    // Cost of recording one evaluation into the score histograms, alone and with threads contending
+    @PostMapping("/score-distribution")
+    public ResponseEntity<Map<String, Object>> benchmarkScoreDistribution(
+            @RequestParam(required = false, defaultValue = "5000000") int updates,
+            @RequestParam(required = false, defaultValue = "8") int threads) throws InterruptedException {
+        return ResponseEntity.ok(scoreDistributionMonitor.benchmark(Math.max(1, updates),
+            Math.max(1, Math.min(threads, 64))));
+    }
+}
@@ -0,0 +1,38 @@
+package com.fraud.controller;
+
+import com.fraud.service.IngestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/ingest")
+@RequiredArgsConstructor
+public class IngestAdminController {
+    
+    private final IngestionService ingestionService;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getIngestStatus() {
+        return ResponseEntity.ok(ingestionService.getStatus());
+    }
+    
+    @GetMapping("/dead-letters")
+    public ResponseEntity<?> getIngestDeadLetters(@RequestParam(defaultValue = "100") int limit) throws IOException {
+        if (!ingestionService.isEnabled()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Async ingestion is disabled"));
+        }
+        return ResponseEntity.ok(ingestionService.getDeadLetters(Math.max(1, Math.min(limit, 1000))));
+    }
+    
+    @PostMapping("/dead-letters/retry")
+    public ResponseEntity<Map<String, Object>> retryIngestDeadLetters() throws IOException {
+        if (!ingestionService.isEnabled()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Async ingestion is disabled"));
+        }
+        return ResponseEntity.ok(Map.of("retried", ingestionService.retryDeadLetters()));
+    }
+}
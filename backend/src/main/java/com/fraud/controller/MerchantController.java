@@ -0,0 +1,33 @@
+package com.fraud.controller;
+
+import com.fraud.service.MerchantRiskAggregator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/merchants")
+@RequiredArgsConstructor
+public class MerchantController {
+    
+    private final MerchantRiskAggregator merchantRiskAggregator;
+    
+    // Live hourly/daily merchant aggregates, served from memory
+    @GetMapping("/risk")
+    public ResponseEntity<Map<String, Object>> getMerchantRisk(
+            @RequestParam(required = false, defaultValue = "10") int limit,
+            @RequestParam(required = false, defaultValue = "flagRate") String sort) {
+        Map<String, Object> result = merchantRiskAggregator.getStatus();
+        result.put("merchants", merchantRiskAggregator.top(Math.min(limit, 100), !"volume".equals(sort)));
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/{merchantId}/risk")
+    public ResponseEntity<MerchantRiskAggregator.MerchantRiskSnapshot> getMerchantRiskById(
+            @PathVariable String merchantId) {
+        MerchantRiskAggregator.MerchantRiskSnapshot snapshot = merchantRiskAggregator.get(merchantId);
+        return snapshot != null ? ResponseEntity.ok(snapshot) : ResponseEntity.notFound().build();
+    }
+}
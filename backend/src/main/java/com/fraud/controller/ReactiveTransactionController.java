@@ -0,0 +1,111 @@
+package com.fraud.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.dto.TransactionRequest;
+import com.fraud.service.ReactiveScoringService;
+import com.fraud.service.TransactionRoutingService;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// POST /api/transactions on a separate Reactor Netty port, end to end non-blocking.
+// The application itself stays a servlet app (Spring picks one web stack per context),
+// so this endpoint is a functional route served by its own HttpServer on the event loop.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveTransactionController {
+    
+    private static final HttpStatusCode MISDIRECTED_REQUEST = HttpStatusCode.valueOf(421);
+    
+    private final ReactiveScoringService reactiveScoringService;
+    private final TransactionRoutingService transactionRoutingService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private volatile DisposableServer server;
+    
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route(RequestPredicates.POST("/api/transactions"), this::processTransaction);
+    }
+    
+    private Mono<ServerResponse> processTransaction(ServerRequest request) {
+        return request.bodyToMono(TransactionRequest.class)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Request body is required")))
+            .flatMap(transaction -> {
+                Set<ConstraintViolation<TransactionRequest>> violations = validator.validate(transaction);
+                if (!violations.isEmpty()) {
+                    return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "))));
+                }
+                // No forwarding here; with sharding, clients must call the owning instance
+                if (!transactionRoutingService.isLocal(transaction.getUserId())) {
+                    return Mono.error(new ResponseStatusException(MISDIRECTED_REQUEST,
+                        "User is owned by " + transactionRoutingService.ownerId(transaction.getUserId())));
+                }
+                return reactiveScoringService.processTransaction(transaction);
+            })
+            .flatMap(response -> ServerResponse.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(response))
+            .onErrorResume(ResponseStatusException.class, e -> ServerResponse.status(e.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("error", e.getReason() != null ? e.getReason() : e.getStatusCode().toString())));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.getReactive().getEnabled()) {
+            return;
+        }
+        // The application's ObjectMapper, so JSON matches the servlet endpoints
+        HandlerStrategies strategies = HandlerStrategies.builder()
+            .codecs(codecs -> {
+                codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+            })
+            .build();
+        ReactorHttpHandlerAdapter adapter =
+            new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes(), strategies));
+        server = HttpServer.create()
+            .port(config.getReactive().getPort())
+            .handle(adapter)
+            .bindNow();
+        log.info("Reactive scoring endpoint listening on port {}", server.port());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.fraud.controller;
+
+import com.fraud.service.AdmissionControlService;
+import com.fraud.service.IdentifierDictionary;
+import com.fraud.service.MLEnrichmentService;
+import com.fraud.service.ResponseCacheService;
+import com.fraud.service.ShardRouter;
+import com.fraud.service.WarmupService;
+import com.fraud.tcp.TcpScoringServer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Read-only status of the scoring path's moving parts
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class RuntimeAdminController {
+    
+    private final ShardRouter shardRouter;
+    private final MLEnrichmentService mlEnrichmentService;
+    private final AdmissionControlService admissionControlService;
+    private final ResponseCacheService responseCache;
+    private final IdentifierDictionary identifierDictionary;
+    private final WarmupService warmupService;
+    private final TcpScoringServer tcpScoringServer;
+    
+    @GetMapping("/sharding")
+    public ResponseEntity<Map<String, Object>> getSharding() {
+        return ResponseEntity.ok(shardRouter.getStatus());
+    }
+    
+    @GetMapping("/ml-enrichment")
+    public ResponseEntity<Map<String, Object>> getMlEnrichmentStatus() {
+        return ResponseEntity.ok(mlEnrichmentService.getStatus());
+    }
+    
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionStatus() {
+        return ResponseEntity.ok(admissionControlService.getStatus());
+    }
+    
+    @GetMapping("/response-cache")
+    public ResponseEntity<Map<String, Object>> getResponseCacheStatus() {
+        return ResponseEntity.ok(responseCache.getStatus());
+    }
+    
+    @GetMapping("/interning")
+    public ResponseEntity<Map<String, Object>> getInterningStatus() {
+        return ResponseEntity.ok(identifierDictionary.getStatus());
+    }
+    
+    // Startup baseline preload and JIT warm-up; readiness waits for it
+    @GetMapping("/warmup")
+    public ResponseEntity<Map<String, Object>> getWarmupStatus() {
+        return ResponseEntity.ok(warmupService.getStatus());
+    }
+    
+    // TCP scoring listener: connections and request counts
+    @GetMapping("/tcp")
+    public ResponseEntity<Map<String, Object>> getTcpStatus() {
+        return ResponseEntity.ok(tcpScoringServer.getStatus());
+    }
+}
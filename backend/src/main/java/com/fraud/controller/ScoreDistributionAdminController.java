@@ -0,0 +1,34 @@
+package com.fraud.controller;
+
+import com.fraud.service.ScoreDistributionMonitor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+// Score drift: histograms of the rolling window and their PSI against the pinned reference
+@RestController
+@RequestMapping("/api/admin/score-distribution")
+@RequiredArgsConstructor
+public class ScoreDistributionAdminController {
+    
+    private final ScoreDistributionMonitor scoreDistributionMonitor;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getScoreDistribution(
+            @RequestParam(required = false, defaultValue = "true") boolean histograms) {
+        return ResponseEntity.ok(scoreDistributionMonitor.getDistribution(histograms));
+    }
+    
+    // Makes the current window the reference, e.g. after a model or threshold change was accepted
+    @PostMapping("/reference")
+    public ResponseEntity<Map<String, Object>> pinScoreReference() {
+        try {
+            return ResponseEntity.ok(scoreDistributionMonitor.pinReference());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.fraud.controller;
+
+import com.fraud.config.ScoringSnapshot;
+import com.fraud.service.ScoringConfigService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/scoring-config")
+@RequiredArgsConstructor
+public class ScoringConfigAdminController {
+    
+    private final ScoringConfigService scoringConfigService;
+    
+    @GetMapping
+    public ResponseEntity<ScoringSnapshot> getScoringConfig() {
+        return ResponseEntity.ok(scoringConfigService.current());
+    }
+    
+    // Partial update: only the given settings change; takes effect for the next evaluation
+    @PutMapping
+    public ResponseEntity<?> updateScoringConfig(@RequestBody Map<String, Object> changes) {
+        try {
+            return ResponseEntity.ok(scoringConfigService.update(changes, "api"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Settings set by the overrides file and through the API, each on top of the one before
+    @GetMapping("/overrides")
+    public ResponseEntity<Map<String, Object>> getScoringOverrides() {
+        return ResponseEntity.ok(scoringConfigService.getOverrides());
+    }
+    
+    // Hands every setting changed through the API back to application.yml and the file
+    @DeleteMapping("/overrides")
+    public ResponseEntity<?> clearScoringOverrides() {
+        try {
+            return ResponseEntity.ok(scoringConfigService.clearOverrides("api"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.fraud.controller;
+
+import com.fraud.service.SharedEntityIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/shared-index")
+@RequiredArgsConstructor
+public class SharedIndexAdminController {
+    
+    private final SharedEntityIndex sharedEntityIndex;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getSharedIndexStatus() {
+        return ResponseEntity.ok(sharedEntityIndex.getStatus());
+    }
+    
+    // Approximate distinct users behind a device or merchant in the current window
+    @GetMapping("/{type}/{id}")
+    public ResponseEntity<Map<String, Object>> getSharedIndexEntry(
+            @PathVariable String type,
+            @PathVariable String id) {
+        long distinctUsers;
+        if ("devices".equals(type)) {
+            distinctUsers = sharedEntityIndex.distinctUsersForDevice(id);
+        } else if ("merchants".equals(type)) {
+            distinctUsers = sharedEntityIndex.distinctUsersForMerchant(id);
+        } else {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Type must be devices or merchants"));
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("type", type);
+        result.put("id", id);
+        result.put("distinctUsers", distinctUsers);
+        return ResponseEntity.ok(result);
+    }
+}
@@ -3,11 +3,14 @@ package com.fraud.controller;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionBatchRequest;
+import com.fraud.dto.TransactionBatchResponse;
 import com.fraud.dto.TransactionRequest;
 import com.fraud.entity.Transaction;
 import com.fraud.repository.TransactionRepository;
 import com.fraud.repository.AlertRepository;
-import com.fraud.service.TransactionService;
+import com.fraud.service.IngestionService;
+import com.fraud.service.TransactionRoutingService;
 import com.fraud.service.DataSeedService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -18,9 +21,13 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.persistence.criteria.Predicate;
+import java.io.IOException;
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -36,19 +43,75 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TransactionController {
     
-    private final TransactionService transactionService;
+    private final TransactionRoutingService transactionRoutingService;
+    private final IngestionService ingestionService;
     private final TransactionRepository transactionRepository;
     private final DataSeedService dataSeedService;
     private final AlertRepository alertRepository;
     private final ObjectMapper objectMapper;
     
     @PostMapping
-    public ResponseEntity<FraudEvaluationResponse> processTransaction(
-            @Valid @RequestBody TransactionRequest request) {
-        FraudEvaluationResponse response = transactionService.processTransaction(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    public ResponseEntity<?> processTransaction(
+            @Valid @RequestBody TransactionRequest request,
+            @RequestHeader(value = TransactionRoutingService.FORWARDED_HEADER, required = false) String forwardedBy,
+            @RequestHeader(value = "Prefer", required = false) String prefer) throws IOException {
+        // Async mode: durably queue it and return right away; users owned elsewhere are still forwarded.
+        // A forwarded request is always scored here: the forwarding node waits for the evaluation
+        if (forwardedBy == null && ingestionService.acceptsAsync(prefer)
+                && transactionRoutingService.isLocal(request.getUserId())) {
+            long offset = ingestionService.accept(request);
+            String resultUrl = "/api/transactions/" + request.getTransactionId() + "/result";
+            Map<String, Object> accepted = new HashMap<>();
+            accepted.put("transactionId", request.getTransactionId());
+            accepted.put("status", "ACCEPTED");
+            accepted.put("offset", offset);
+            accepted.put("resultUrl", resultUrl);
+            return ResponseEntity.accepted()
+                .location(URI.create(resultUrl))
+                .header("Preference-Applied", "respond-async")
+                .body(accepted);
+        }
+        
+        FraudEvaluationResponse response = transactionRoutingService.submit(request, forwardedBy);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.CREATED);
+        String owner = transactionRoutingService.ownerId(request.getUserId());
+        if (owner != null) {
+            builder.header("X-Fraud-Shard", owner);
+        }
+        return builder.body(response);
+    }
+    
+    // Scores each transaction in order as the single endpoint would, synchronously; one that
+    // fails is reported with the status it would have got and does not stop the rest
+    @PostMapping("/batch")
+    public ResponseEntity<TransactionBatchResponse> processBatch(@Valid @RequestBody TransactionBatchRequest batch) {
+        List<TransactionBatchResponse.Result> results = new ArrayList<>(batch.getTransactions().size());
+        int scored = 0;
+        for (TransactionRequest request : batch.getTransactions()) {
+            TransactionBatchResponse.Result.ResultBuilder result = TransactionBatchResponse.Result.builder()
+                .transactionId(request.getTransactionId());
+            try {
+                result.evaluation(transactionRoutingService.submit(request, null))
+                    .status(HttpStatus.CREATED.value());
+                scored++;
+            } catch (ResponseStatusException e) {
+                result.status(e.getStatusCode().value())
+                    .error(e.getReason() != null ? e.getReason() : e.getStatusCode().toString());
+            } catch (RuntimeException e) {
+                log.error("Failed to process batched transaction {}: {}", request.getTransactionId(), e.getMessage());
+                result.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).error(e.getMessage());
+            }
+            results.add(result.build());
+        }
+        return ResponseEntity.ok(TransactionBatchResponse.builder()
+            .scored(scored)
+            .failed(results.size() - scored)
+            .results(results)
+            .build());
     }
     
+    // Dashboard reads are read-only transactions, which run on the reporting pool
+    @Transactional(readOnly = true)
     @GetMapping
     public ResponseEntity<Map<String, Object>> getTransactions(
             @RequestParam(required = false, defaultValue = "0") int page,
@@ -84,20 +147,25 @@ public class TransactionController {
         return ResponseEntity.ok(result);
     }
     
+    @Transactional(readOnly = true)
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getTransactionStats() {
-        List<Transaction> allTransactions = transactionRepository.findAll();
-        
-        long total = allTransactions.size();
-        long approved = allTransactions.stream()
-            .filter(t -> "APPROVED".equals(t.getRiskCategory()))
-            .count();
-        long monitor = allTransactions.stream()
-            .filter(t -> "MONITOR".equals(t.getRiskCategory()))
-            .count();
-        long flagged = allTransactions.stream()
-            .filter(t -> "FLAGGED".equals(t.getRiskCategory()))
-            .count();
+        // One grouped count; dashboards then stay current from /api/stream deltas
+        long total = 0;
+        long approved = 0;
+        long monitor = 0;
+        long flagged = 0;
+        for (Object[] row : transactionRepository.countByRiskCategory()) {
+            long count = ((Number) row[1]).longValue();
+            total += count;
+            if ("APPROVED".equals(row[0])) {
+                approved = count;
+            } else if ("MONITOR".equals(row[0])) {
+                monitor = count;
+            } else if ("FLAGGED".equals(row[0])) {
+                flagged = count;
+            }
+        }
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("total", total);
@@ -119,6 +187,13 @@ public class TransactionController {
         }
     }
     
+    // Status of an asynchronously accepted transaction, with its evaluation once scored
+    @GetMapping("/{transactionId}/result")
+    public ResponseEntity<Map<String, Object>> getTransactionResult(@PathVariable String transactionId) {
+        Map<String, Object> result = ingestionService.getResult(transactionId);
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+    }
+    
     @GetMapping("/{transactionId}")
     public ResponseEntity<FraudEvaluationResponse> getTransactionById(
             @PathVariable String transactionId) {
@@ -140,25 +215,19 @@ public class TransactionController {
         return ResponseEntity.ok(response);
     }
     
+    @Transactional(readOnly = true)
     @GetMapping("/timeseries")
     public ResponseEntity<Map<String, Object>> getTimeSeriesData(
             @RequestParam(required = false, defaultValue = "7") int days) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
         
-        List<Transaction> transactions = transactionRepository.findAll()
-            .stream()
-            .filter(t -> t.getTimestamp().isAfter(since))
-            .collect(Collectors.toList());
-        
         // Group by date
-        Map<String, Map<String, Long>> dailyStats = transactions.stream()
-            .collect(Collectors.groupingBy(
-                t -> t.getTimestamp().toLocalDate().toString(),
-                Collectors.groupingBy(
-                    Transaction::getRiskCategory,
-                    Collectors.counting()
-                )
-            ));
+        Map<String, Map<String, Long>> dailyStats = new HashMap<>();
+        for (Object[] row : transactionRepository.countByDayAndRiskCategory(since)) {
+            String category = row[1] != null ? (String) row[1] : "UNSCORED";
+            dailyStats.computeIfAbsent(row[0].toString(), d -> new HashMap<>())
+                .put(category, ((Number) row[2]).longValue());
+        }
         
         // Format for frontend
         List<Map<String, Object>> series = dailyStats.entrySet().stream()
@@ -177,6 +246,7 @@ public class TransactionController {
         return ResponseEntity.ok(Map.of("data", series));
     }
     
+    @Transactional(readOnly = true)
     @GetMapping("/search")
     public ResponseEntity<Map<String, Object>> searchTransactions(
             @RequestParam(required = false) String transactionId,
@@ -244,6 +314,7 @@ public class TransactionController {
         return ResponseEntity.ok(result);
     }
     
+    @Transactional(readOnly = true)
     @GetMapping("/user/{userId}")
     public ResponseEntity<Map<String, Object>> getUserTransactions(
             @PathVariable String userId) {
@@ -303,6 +374,7 @@ public class TransactionController {
             .alertCreated(hasAlert)
             .triggeredRules(triggeredRules)
             .explanation(transaction.getExplanation() != null ? transaction.getExplanation() : "No explanation available")
+            .configVersion(transaction.getConfigVersion())
             .userId(transaction.getUserId())
             .amount(transaction.getAmount() != null ? transaction.getAmount().doubleValue() : null)
             .merchantId(transaction.getMerchantId())
@@ -0,0 +1,21 @@
+package com.fraud.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillRequest {
+    private OutputMode mode = OutputMode.SIDE_TABLE;
+    private Boolean includeMl = false; // ML calls go over HTTP, so they are opt-in
+    private LocalDateTime since; // Only re-score transactions in [since, until)
+    private LocalDateTime until;
+    private Integer maxTransactionsPerSecond; // Defaults to fraud.detection.jobs.backfill-max-rate
+    
+    public enum OutputMode {
+        IN_PLACE, SIDE_TABLE
+    }
+}
@@ -0,0 +1,33 @@
+package com.fraud.dto;
+
+import com.fraud.entity.Alert;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAlertTriageRequest {
+    @NotNull(message = "Status is required")
+    private Alert.AlertStatus status;
+    
+    private String analystNotes; // Replaces existing notes when set
+    
+    // Target alerts: explicit ids and/or a filter; all given criteria must match
+    private List<Long> alertIds;
+    private Alert.AlertStatus currentStatus;
+    private String userId;
+    private Double minRiskScore;
+    private Double maxRiskScore;
+    private LocalDateTime createdFrom; // Inclusive
+    private LocalDateTime createdTo; // Exclusive
+    
+    public boolean hasCriteria() {
+        return (alertIds != null && !alertIds.isEmpty()) || currentStatus != null || userId != null
+            || minRiskScore != null || maxRiskScore != null || createdFrom != null || createdTo != null;
+    }
+}
@@ -7,7 +7,7 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class FraudEvaluationResponse {
@@ -22,6 +22,9 @@ public class FraudEvaluationResponse {
     private List<TriggeredRule> triggeredRules;
     private String explanation;
     private Boolean alertCreated;
+    private String decisionTier; // FULL, or FAST when decided without the ML score
+    private Long configVersion; // Scoring configuration snapshot used
+    private String degradation; // Admission control level: NORMAL, SKIP_ML, SKIP_VELOCITY, SHED_LOW_PRIORITY
     
     // Additional fields for detail view
     private String userId;
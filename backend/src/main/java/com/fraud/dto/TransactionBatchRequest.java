@@ -0,0 +1,20 @@
+package com.fraud.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchRequest {
+    public static final int MAX_SIZE = 1000;
+    
+    @NotEmpty(message = "At least one transaction is required")
+    @Size(max = MAX_SIZE, message = "At most " + MAX_SIZE + " transactions per batch")
+    private List<@Valid TransactionRequest> transactions;
+}
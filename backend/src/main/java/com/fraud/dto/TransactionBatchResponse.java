@@ -0,0 +1,28 @@
+package com.fraud.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchResponse {
+    private Integer scored;
+    private Integer failed;
+    private List<Result> results; // In request order
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Result {
+        private String transactionId;
+        private Integer status; // HTTP status the single endpoint would have returned
+        private FraudEvaluationResponse evaluation; // Set when scored
+        private String error; // Set when not
+    }
+}
@@ -0,0 +1,52 @@
+package com.fraud.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "job_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobCheckpoint {
+    @Id
+    @Column(name = "job_name")
+    private String jobName;
+    
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+    
+    @Column(name = "last_user_id")
+    private String lastUserId; // Every user <= this id has been fully processed
+    
+    @Column(name = "users_processed", nullable = false)
+    private Long usersProcessed;
+    
+    @Column(name = "rows_processed", nullable = false)
+    private Long rowsProcessed;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "details", columnDefinition = "TEXT")
+    private String details;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    public enum JobStatus {
+        RUNNING, COMPLETED, FAILED, STOPPED
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -61,9 +63,38 @@ public class Transaction {
     @Column(name = "explanation", columnDefinition = "TEXT")
     private String explanation;
     
+    @Column(name = "config_version")
+    private Long configVersion; // Scoring configuration snapshot used
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
+    // Interned ids of the identifiers above (0 until interned), see IdentifierDictionary
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int merchantKey;
+    
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int deviceKey;
+    
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int categoryKey;
+    
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int stateKey;
+    
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int countryKey;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -1,17 +1,20 @@
 package com.fraud.entity;
 
+import com.fraud.baseline.BaselineProfile;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "user_baselines")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserBaseline {
@@ -67,6 +70,16 @@ public class UserBaseline {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
+    // Advanced by the database on every upsert; null where not known
+    @Column(name = "version", insertable = false, updatable = false)
+    private Long version;
+    
+    // Interned scoring state derived from the columns above; copies share it
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private BaselineProfile profile;
+    
     @PrePersist
     @PreUpdate
     protected void onUpdate() {
@@ -0,0 +1,19 @@
+package com.fraud.event;
+
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.entity.Alert;
+import com.fraud.entity.Transaction;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Published by MLEnrichmentService, inside its transaction, when the late ML score has been
+// applied to a fast-path decision. previous is the decision first published with
+// TransactionScoredEvent, so listeners that counted it can move it to the new score.
+@Getter
+@RequiredArgsConstructor
+public class TransactionRescoredEvent {
+    private final Transaction transaction;
+    private final FraudEvaluationResponse previous;
+    private final FraudEvaluationResponse evaluation;
+    private final Alert alert; // Null when no alert was created
+}
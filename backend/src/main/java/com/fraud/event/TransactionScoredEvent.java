@@ -0,0 +1,19 @@
+package com.fraud.event;
+
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.entity.Alert;
+import com.fraud.entity.Transaction;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Published by TransactionService for every scored transaction. Listeners that must
+// only see committed data use @TransactionalEventListener(phase = AFTER_COMMIT).
+// ReactiveScoringService publishes it after its R2DBC transaction has committed, outside
+// any Spring-managed transaction, so those listeners also set fallbackExecution.
+@Getter
+@RequiredArgsConstructor
+public class TransactionScoredEvent {
+    private final Transaction transaction;
+    private final FraudEvaluationResponse evaluation;
+    private final Alert alert; // Null when no alert was created
+}
@@ -0,0 +1,101 @@
+package com.fraud.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Append-only file of records the ingest workers gave up on, one entry per line. Each
+// append is forced to disk before it returns, so the committed offset can move past a
+// failed record without losing it. A torn last line (a crash mid-append) is cut off when
+// the file is opened, so the next entry starts on a line of its own.
+public final class DeadLetterLog implements Closeable {
+    
+    private final Path path;
+    private final FileChannel channel; // Guarded by this
+    private long count; // Guarded by this
+    
+    public DeadLetterLog(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        byte[] content = Files.readAllBytes(path);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            channel.truncate(end);
+            channel.force(true);
+        }
+        channel.position(end);
+        this.count = split(content, end).size();
+    }
+    
+    public synchronized void append(byte[] entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length + 1);
+        buffer.put(entry).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        count++;
+    }
+    
+    public synchronized List<byte[]> readAll() throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        return split(content, content.length);
+    }
+    
+    // Hands every entry to the handler and empties the file once all were accepted; if the
+    // handler fails, the file is left as it was
+    public synchronized int drain(EntryHandler handler) throws IOException {
+        List<byte[]> entries = readAll();
+        for (byte[] entry : entries) {
+            handler.accept(entry);
+        }
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        count = 0;
+        return entries.size();
+    }
+    
+    public synchronized long size() {
+        return count;
+    }
+    
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Every append was already forced
+        }
+    }
+    
+    private static List<byte[]> split(byte[] content, int end) {
+        List<byte[]> entries = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (content[i] == '\n') {
+                if (i > start) {
+                    entries.add(Arrays.copyOfRange(content, start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return entries;
+    }
+    
+    @FunctionalInterface
+    public interface EntryHandler {
+        void accept(byte[] entry) throws IOException;
+    }
+}
@@ -0,0 +1,227 @@
+package com.fraud.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only record log on local disk, split into fixed-size memory-mapped segments.
+// Each record is [int length][int crc32][payload]; a segment file is preallocated and
+// zero-filled, so a zero length marks the end of written data. Records are addressed
+// by a sequential offset, and a segment's file name carries the offset of its first
+// record. On open, each segment is scanned up to the first torn or corrupt record,
+// which is where appending resumes.
+public final class IngestLog implements Closeable {
+    
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean syncEveryAppend;
+    private final List<Segment> segments = new ArrayList<>(); // Guarded by this
+    private Segment active; // Guarded by this
+    private volatile long nextOffset; // Records below this are fully written and readable
+    
+    public IngestLog(Path directory, int segmentBytes, boolean syncEveryAppend) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncEveryAppend = syncEveryAppend;
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = Segment.open(file, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.create(directory, 0, segmentBytes));
+        }
+        this.active = segments.get(segments.size() - 1);
+        this.nextOffset = active.baseOffset + active.count;
+    }
+    
+    // Appends one record and returns its offset. With syncEveryAppend the record is
+    // forced to disk before returning, so an acknowledged record survives a crash.
+    public synchronized long append(byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes - HEADER_BYTES) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the segment size");
+        }
+        if (active.position + size > active.buffer.capacity() - HEADER_BYTES) {
+            active.buffer.force();
+            active = Segment.create(directory, nextOffset, segmentBytes);
+            segments.add(active);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.position;
+        buffer.put(position + HEADER_BYTES, payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, payload.length);
+        if (syncEveryAppend) {
+            buffer.force(position, size);
+        }
+        active.position += size;
+        active.count++;
+        long offset = nextOffset;
+        nextOffset = offset + 1; // Publishes the record to readers
+        return offset;
+    }
+    
+    // Offset the next appended record will get
+    public long getNextOffset() {
+        return nextOffset;
+    }
+    
+    // Offset of the oldest record still on disk
+    public synchronized long getFirstOffset() {
+        return segments.get(0).baseOffset;
+    }
+    
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+    
+    // Deletes whole segments whose records are all below the offset; the active segment stays
+    public synchronized int deleteBefore(long offset) throws IOException {
+        int deleted = 0;
+        while (segments.size() > 1 && segments.get(1).baseOffset <= offset) {
+            Files.deleteIfExists(segments.remove(0).path);
+            deleted++;
+        }
+        return deleted;
+    }
+    
+    public synchronized void flush() {
+        active.buffer.force();
+    }
+    
+    // Sequential reader starting at the given offset (or the oldest record if that is gone)
+    public Cursor cursor(long fromOffset) {
+        Cursor cursor = new Cursor();
+        cursor.segment = segmentFor(fromOffset);
+        cursor.offset = cursor.segment.baseOffset;
+        while (cursor.offset < fromOffset && cursor.poll() != null) {
+            // Skip records before the start offset
+        }
+        return cursor;
+    }
+    
+    @Override
+    public synchronized void close() {
+        active.buffer.force();
+    }
+    
+    private synchronized Segment segmentFor(long offset) {
+        for (int i = segments.size() - 1; i > 0; i--) {
+            if (segments.get(i).baseOffset <= offset) {
+                return segments.get(i);
+            }
+        }
+        return segments.get(0);
+    }
+    
+    public static final class Record {
+        public final long offset;
+        public final byte[] payload;
+        
+        Record(long offset, byte[] payload) {
+            this.offset = offset;
+            this.payload = payload;
+        }
+    }
+    
+    // Not thread-safe; meant for a single consumer thread
+    public final class Cursor {
+        private Segment segment;
+        private int position;
+        private long offset;
+        
+        // Next record, or null when the reader has caught up with the writer
+        public Record poll() {
+            if (offset >= nextOffset) {
+                return null;
+            }
+            if (offset == segment.baseOffset + segment.count) {
+                // Whichever segment starts here now; the old one may already be deleted
+                Segment next = segmentFor(offset);
+                if (next == segment) {
+                    return null;
+                }
+                segment = next;
+                position = 0;
+            }
+            int length = segment.buffer.getInt(position);
+            byte[] payload = new byte[length];
+            segment.buffer.get(position + HEADER_BYTES, payload);
+            position += HEADER_BYTES + length;
+            return new Record(offset++, payload);
+        }
+        
+        public long getOffset() {
+            return offset;
+        }
+    }
+    
+    private static final class Segment {
+        final Path path;
+        final long baseOffset;
+        final MappedByteBuffer buffer;
+        int position;
+        int count;
+        
+        private Segment(Path path, long baseOffset, MappedByteBuffer buffer) {
+            this.path = path;
+            this.baseOffset = baseOffset;
+            this.buffer = buffer;
+        }
+        
+        static Segment create(Path directory, long baseOffset, int size) throws IOException {
+            Path path = directory.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                return new Segment(path, baseOffset, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+        
+        // Maps an existing segment and finds the end of its valid records
+        static Segment open(Path path, long baseOffset) throws IOException {
+            Segment segment;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment = new Segment(path, baseOffset, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            }
+            MappedByteBuffer buffer = segment.buffer;
+            CRC32 crc = new CRC32();
+            while (segment.position + HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(segment.position);
+                if (length <= 0 || segment.position + HEADER_BYTES + length > buffer.capacity()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(segment.position + HEADER_BYTES, payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt(segment.position + 4)) {
+                    break; // Torn write from a crash; appending resumes here
+                }
+                segment.position += HEADER_BYTES + length;
+                segment.count++;
+            }
+            return segment;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.fraud.repository;
+
+import com.fraud.dto.BulkAlertTriageRequest;
+
+public interface AlertRepositoryCustom {
+    // One set-based UPDATE over every alert matching the request; returns the row count
+    int bulkUpdateStatus(BulkAlertTriageRequest request);
+}
@@ -0,0 +1,75 @@
+package com.fraud.repository;
+
+import com.fraud.dto.BulkAlertTriageRequest;
+import com.fraud.entity.Alert;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AlertRepositoryCustomImpl implements AlertRepositoryCustom {
+    
+    // Keeps each IN list well below the Postgres bind parameter limit
+    private static final int MAX_IDS_PER_STATEMENT = 1000;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public int bulkUpdateStatus(BulkAlertTriageRequest request) {
+        List<Long> ids = request.getAlertIds();
+        if (ids == null || ids.isEmpty()) {
+            return execute(request, null);
+        }
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            updated += execute(request, ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_STATEMENT)));
+        }
+        return updated;
+    }
+    
+    private int execute(BulkAlertTriageRequest request, List<Long> ids) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Alert> update = cb.createCriteriaUpdate(Alert.class);
+        Root<Alert> alert = update.from(Alert.class);
+        
+        // Bulk updates bypass @PreUpdate, so updated_at is set explicitly
+        update.set(alert.<Alert.AlertStatus>get("status"), request.getStatus());
+        update.set(alert.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+        if (request.getAnalystNotes() != null) {
+            update.set(alert.<String>get("analystNotes"), request.getAnalystNotes());
+        }
+        
+        List<Predicate> predicates = new ArrayList<>();
+        if (ids != null) {
+            predicates.add(alert.get("id").in(ids));
+        }
+        if (request.getCurrentStatus() != null) {
+            predicates.add(cb.equal(alert.get("status"), request.getCurrentStatus()));
+        }
+        if (request.getUserId() != null) {
+            predicates.add(cb.equal(alert.get("userId"), request.getUserId()));
+        }
+        if (request.getMinRiskScore() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(alert.get("riskScore"), request.getMinRiskScore()));
+        }
+        if (request.getMaxRiskScore() != null) {
+            predicates.add(cb.lessThanOrEqualTo(alert.get("riskScore"), request.getMaxRiskScore()));
+        }
+        if (request.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(alert.get("createdAt"), request.getCreatedFrom()));
+        }
+        if (request.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(alert.get("createdAt"), request.getCreatedTo()));
+        }
+        update.where(predicates.toArray(new Predicate[0]));
+        
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
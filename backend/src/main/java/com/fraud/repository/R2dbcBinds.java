@@ -0,0 +1,15 @@
+package com.fraud.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+// DatabaseClient rejects null values; nullable columns need the type for bindNull
+final class R2dbcBinds {
+    
+    private R2dbcBinds() {
+    }
+    
+    static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                  Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+}
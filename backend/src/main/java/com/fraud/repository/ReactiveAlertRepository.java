@@ -0,0 +1,42 @@
+package com.fraud.repository;
+
+import com.fraud.entity.Alert;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+// R2DBC access to alerts for the reactive scoring path
+@Repository
+@RequiredArgsConstructor
+public class ReactiveAlertRepository {
+    
+    // The unique transaction_id replaces the exists check done before a JPA save
+    private static final String INSERT_SQL =
+        "INSERT INTO alerts (transaction_id, user_id, risk_score, status, created_at, updated_at) " +
+        "VALUES (:transactionId, :userId, :riskScore, :status, :createdAt, :createdAt) " +
+        "ON CONFLICT (transaction_id) DO NOTHING RETURNING id";
+    
+    private final DatabaseClient databaseClient;
+    
+    // The saved alert, or empty if the transaction already has one
+    public Mono<Alert> insertIfAbsent(Alert alert) {
+        LocalDateTime now = LocalDateTime.now();
+        return databaseClient.sql(INSERT_SQL)
+            .bind("transactionId", alert.getTransactionId())
+            .bind("userId", alert.getUserId())
+            .bind("riskScore", alert.getRiskScore())
+            .bind("status", alert.getStatus().name())
+            .bind("createdAt", now)
+            .map(row -> row.get("id", Long.class))
+            .one()
+            .map(id -> {
+                alert.setId(id);
+                alert.setCreatedAt(now);
+                alert.setUpdatedAt(now);
+                return alert;
+            });
+    }
+}
@@ -0,0 +1,124 @@
+package com.fraud.repository;
+
+import com.fraud.entity.UserBaseline;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// R2DBC access to user baselines for the reactive scoring path
+@Repository
+@RequiredArgsConstructor
+public class ReactiveBaselineRepository {
+    
+    private static final String FIND_SQL = "SELECT * FROM user_baselines WHERE user_id = :userId";
+    
+    // Same statement as UserBaselineRepositoryCustomImpl.upsertIfVersion, with named parameters
+    private static final String UPSERT_SQL =
+        "INSERT INTO user_baselines (user_id, transaction_count, avg_amount, std_amount, " +
+        "min_amount, max_amount, most_common_hour, hour_distribution, merchant_categories, " +
+        "known_merchants, location_states, location_countries, known_devices, " +
+        "last_transaction_time, last_transaction_state, last_transaction_country, updated_at) " +
+        "VALUES (:userId, :transactionCount, :avgAmount, :stdAmount, :minAmount, :maxAmount, " +
+        ":mostCommonHour, :hourDistribution, :merchantCategories, :knownMerchants, :locationStates, " +
+        ":locationCountries, :knownDevices, :lastTransactionTime, :lastTransactionState, " +
+        ":lastTransactionCountry, :updatedAt) " +
+        "ON CONFLICT (user_id) DO UPDATE SET " +
+        "transaction_count = EXCLUDED.transaction_count, " +
+        "avg_amount = EXCLUDED.avg_amount, " +
+        "std_amount = EXCLUDED.std_amount, " +
+        "min_amount = EXCLUDED.min_amount, " +
+        "max_amount = EXCLUDED.max_amount, " +
+        "most_common_hour = EXCLUDED.most_common_hour, " +
+        "hour_distribution = EXCLUDED.hour_distribution, " +
+        "merchant_categories = EXCLUDED.merchant_categories, " +
+        "known_merchants = EXCLUDED.known_merchants, " +
+        "location_states = EXCLUDED.location_states, " +
+        "location_countries = EXCLUDED.location_countries, " +
+        "known_devices = EXCLUDED.known_devices, " +
+        "last_transaction_time = EXCLUDED.last_transaction_time, " +
+        "last_transaction_state = EXCLUDED.last_transaction_state, " +
+        "last_transaction_country = EXCLUDED.last_transaction_country, " +
+        "updated_at = EXCLUDED.updated_at, " +
+        "version = user_baselines.version + 1 " +
+        "WHERE user_baselines.version = :version RETURNING version";
+    
+    private static final String FIND_FOR_UPDATE_SQL = FIND_SQL + " FOR UPDATE";
+    
+    private final DatabaseClient databaseClient;
+    
+    public Mono<UserBaseline> findById(String userId) {
+        return databaseClient.sql(FIND_SQL)
+            .bind("userId", userId)
+            .map(ReactiveBaselineRepository::toBaseline)
+            .one();
+    }
+    
+    // Locked until the transaction ends
+    public Mono<UserBaseline> findByIdForUpdate(String userId) {
+        return databaseClient.sql(FIND_FOR_UPDATE_SQL)
+            .bind("userId", userId)
+            .map(ReactiveBaselineRepository::toBaseline)
+            .one();
+    }
+    
+    // False if the row moved past the baseline's version (a new baseline: if there is a row);
+    // otherwise the baseline carries the new version
+    public Mono<Boolean> upsertIfVersion(UserBaseline b) {
+        LocalDateTime now = LocalDateTime.now();
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(UPSERT_SQL)
+            .bind("userId", b.getUserId())
+            .bind("transactionCount", b.getTransactionCount())
+            .bind("updatedAt", now)
+            .bind("version", b.getVersion() != null ? b.getVersion() : -1L);
+        spec = R2dbcBinds.bind(spec, "avgAmount", b.getAvgAmount(), BigDecimal.class);
+        spec = R2dbcBinds.bind(spec, "stdAmount", b.getStdAmount(), BigDecimal.class);
+        spec = R2dbcBinds.bind(spec, "minAmount", b.getMinAmount(), BigDecimal.class);
+        spec = R2dbcBinds.bind(spec, "maxAmount", b.getMaxAmount(), BigDecimal.class);
+        spec = R2dbcBinds.bind(spec, "mostCommonHour", b.getMostCommonHour(), Integer.class);
+        spec = R2dbcBinds.bind(spec, "hourDistribution", b.getHourDistribution(), String.class);
+        spec = R2dbcBinds.bind(spec, "merchantCategories", b.getMerchantCategories(), String.class);
+        spec = R2dbcBinds.bind(spec, "knownMerchants", b.getKnownMerchants(), String.class);
+        spec = R2dbcBinds.bind(spec, "locationStates", b.getLocationStates(), String.class);
+        spec = R2dbcBinds.bind(spec, "locationCountries", b.getLocationCountries(), String.class);
+        spec = R2dbcBinds.bind(spec, "knownDevices", b.getKnownDevices(), String.class);
+        spec = R2dbcBinds.bind(spec, "lastTransactionTime", b.getLastTransactionTime(), LocalDateTime.class);
+        spec = R2dbcBinds.bind(spec, "lastTransactionState", b.getLastTransactionState(), String.class);
+        spec = R2dbcBinds.bind(spec, "lastTransactionCountry", b.getLastTransactionCountry(), String.class);
+        return spec.map(row -> row.get("version", Long.class))
+            .one()
+            .map(version -> {
+                b.setUpdatedAt(now);
+                b.setVersion(version);
+                return true;
+            })
+            .defaultIfEmpty(false);
+    }
+    
+    private static UserBaseline toBaseline(Readable row) {
+        return UserBaseline.builder()
+            .userId(row.get("user_id", String.class))
+            .transactionCount(row.get("transaction_count", Integer.class))
+            .avgAmount(row.get("avg_amount", BigDecimal.class))
+            .stdAmount(row.get("std_amount", BigDecimal.class))
+            .minAmount(row.get("min_amount", BigDecimal.class))
+            .maxAmount(row.get("max_amount", BigDecimal.class))
+            .mostCommonHour(row.get("most_common_hour", Integer.class))
+            .hourDistribution(row.get("hour_distribution", String.class))
+            .merchantCategories(row.get("merchant_categories", String.class))
+            .knownMerchants(row.get("known_merchants", String.class))
+            .locationStates(row.get("location_states", String.class))
+            .locationCountries(row.get("location_countries", String.class))
+            .knownDevices(row.get("known_devices", String.class))
+            .lastTransactionTime(row.get("last_transaction_time", LocalDateTime.class))
+            .lastTransactionState(row.get("last_transaction_state", String.class))
+            .lastTransactionCountry(row.get("last_transaction_country", String.class))
+            .updatedAt(row.get("updated_at", LocalDateTime.class))
+            .version(row.get("version", Long.class))
+            .build();
+    }
+}
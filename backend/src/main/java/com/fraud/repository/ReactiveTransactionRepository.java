@@ -0,0 +1,60 @@
+package com.fraud.repository;
+
+import com.fraud.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+// R2DBC access to transactions for the reactive scoring path. The JPA repository stays
+// the source of truth for everything else; both write the same rows.
+@Repository
+@RequiredArgsConstructor
+public class ReactiveTransactionRepository {
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO transactions (transaction_id, user_id, amount, merchant_id, merchant_category, " +
+        "timestamp, device_id, location_state, location_country, channel, risk_score, risk_category, " +
+        "is_fraud, triggered_rules, explanation, config_version, created_at) " +
+        "VALUES (:transactionId, :userId, :amount, :merchantId, :merchantCategory, :timestamp, :deviceId, " +
+        ":locationState, :locationCountry, :channel, :riskScore, :riskCategory, :isFraud, :triggeredRules, " +
+        ":explanation, :configVersion, :createdAt)";
+    
+    private static final String COUNT_RECENT_SQL =
+        "SELECT COUNT(*) FROM transactions WHERE user_id = :userId AND timestamp >= :since";
+    
+    private final DatabaseClient databaseClient;
+    
+    public Mono<Void> insert(Transaction transaction) {
+        transaction.setCreatedAt(LocalDateTime.now());
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INSERT_SQL)
+            .bind("transactionId", transaction.getTransactionId())
+            .bind("userId", transaction.getUserId())
+            .bind("amount", transaction.getAmount())
+            .bind("merchantId", transaction.getMerchantId())
+            .bind("merchantCategory", transaction.getMerchantCategory())
+            .bind("timestamp", transaction.getTimestamp())
+            .bind("deviceId", transaction.getDeviceId())
+            .bind("locationState", transaction.getLocationState())
+            .bind("locationCountry", transaction.getLocationCountry())
+            .bind("createdAt", transaction.getCreatedAt());
+        spec = R2dbcBinds.bind(spec, "channel", transaction.getChannel(), String.class);
+        spec = R2dbcBinds.bind(spec, "riskScore", transaction.getRiskScore(), Double.class);
+        spec = R2dbcBinds.bind(spec, "riskCategory", transaction.getRiskCategory(), String.class);
+        spec = R2dbcBinds.bind(spec, "isFraud", transaction.getIsFraud(), Boolean.class);
+        spec = R2dbcBinds.bind(spec, "triggeredRules", transaction.getTriggeredRules(), String.class);
+        spec = R2dbcBinds.bind(spec, "explanation", transaction.getExplanation(), String.class);
+        spec = R2dbcBinds.bind(spec, "configVersion", transaction.getConfigVersion(), Long.class);
+        return spec.then();
+    }
+    
+    public Mono<Long> countRecentTransactions(String userId, LocalDateTime since) {
+        return databaseClient.sql(COUNT_RECENT_SQL)
+            .bind("userId", userId)
+            .bind("since", since)
+            .map(row -> row.get(0, Long.class))
+            .one();
+    }
+}
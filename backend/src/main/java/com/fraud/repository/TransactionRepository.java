@@ -5,6 +5,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -29,6 +30,20 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
         @Param("since") LocalDateTime since
     );
     
+    // Aggregated in the database; the timestamp bound lets Postgres prune partitions
+    @Query(value = "SELECT CAST(timestamp AS DATE) AS day, risk_category, COUNT(*) " +
+                   "FROM transactions WHERE timestamp >= :since " +
+                   "GROUP BY CAST(timestamp AS DATE), risk_category",
+           nativeQuery = true)
+    List<Object[]> countByDayAndRiskCategory(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT t.riskCategory, COUNT(t) FROM Transaction t GROUP BY t.riskCategory")
+    List<Object[]> countByRiskCategory();
+    
+    @Modifying
+    @Query(value = "TRUNCATE TABLE transactions", nativeQuery = true)
+    void truncate();
+    
     Page<Transaction> findByRiskCategoryOrderByTimestampDesc(
         String riskCategory, 
         Pageable pageable
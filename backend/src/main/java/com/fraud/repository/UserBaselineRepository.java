@@ -2,8 +2,13 @@ package com.fraud.repository;
 
 import com.fraud.entity.UserBaseline;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UserBaselineRepository extends JpaRepository<UserBaseline, String> {
+public interface UserBaselineRepository extends JpaRepository<UserBaseline, String>, UserBaselineRepositoryCustom {
+    @Modifying
+    @Query(value = "TRUNCATE TABLE user_baselines", nativeQuery = true)
+    void truncate();
 }
@@ -0,0 +1,22 @@
+package com.fraud.repository;
+
+import com.fraud.entity.UserBaseline;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface UserBaselineRepositoryCustom {
+    int upsertAll(List<UserBaseline> baselines);
+    
+    // Leaves rows updated at or after since as they are, but locks them all
+    int upsertAllUnchangedSince(List<UserBaseline> baselines, LocalDateTime since);
+    
+    // False if the row moved past the baseline's version; otherwise the baseline carries the new one
+    boolean upsertIfVersion(UserBaseline baseline);
+    
+    // Rows as committed now, locked until the transaction ends
+    List<UserBaseline> findAllByIdForUpdate(Collection<String> userIds);
+    
+    Map<String, LocalDateTime> findUpdatedAt(Collection<String> userIds);
+}
@@ -0,0 +1,177 @@
+package com.fraud.repository;
+
+import com.fraud.entity.UserBaseline;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class UserBaselineRepositoryCustomImpl implements UserBaselineRepositoryCustom {
+    
+    private static final String UPSERT_SQL =
+        "INSERT INTO user_baselines (user_id, transaction_count, avg_amount, std_amount, " +
+        "min_amount, max_amount, most_common_hour, hour_distribution, merchant_categories, " +
+        "known_merchants, location_states, location_countries, known_devices, " +
+        "last_transaction_time, last_transaction_state, last_transaction_country, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (user_id) DO UPDATE SET " +
+        "transaction_count = EXCLUDED.transaction_count, " +
+        "avg_amount = EXCLUDED.avg_amount, " +
+        "std_amount = EXCLUDED.std_amount, " +
+        "min_amount = EXCLUDED.min_amount, " +
+        "max_amount = EXCLUDED.max_amount, " +
+        "most_common_hour = EXCLUDED.most_common_hour, " +
+        "hour_distribution = EXCLUDED.hour_distribution, " +
+        "merchant_categories = EXCLUDED.merchant_categories, " +
+        "known_merchants = EXCLUDED.known_merchants, " +
+        "location_states = EXCLUDED.location_states, " +
+        "location_countries = EXCLUDED.location_countries, " +
+        "known_devices = EXCLUDED.known_devices, " +
+        "last_transaction_time = EXCLUDED.last_transaction_time, " +
+        "last_transaction_state = EXCLUDED.last_transaction_state, " +
+        "last_transaction_country = EXCLUDED.last_transaction_country, " +
+        "updated_at = EXCLUDED.updated_at, " +
+        "version = user_baselines.version + 1";
+    
+    // Only over the version the baseline was read at; a baseline without one only goes in
+    // where there is no row yet
+    private static final String UPSERT_IF_VERSION_SQL =
+        UPSERT_SQL + " WHERE user_baselines.version = ? RETURNING version";
+    
+    private static final String FIND_FOR_UPDATE_SQL =
+        "SELECT * FROM user_baselines WHERE user_id = ANY(?) ORDER BY user_id FOR UPDATE";
+    
+    // The conflicting row is locked even where the condition leaves it alone
+    private static final String UPSERT_UNCHANGED_SQL = UPSERT_SQL + " WHERE user_baselines.updated_at < ?";
+    
+    private static final String FIND_UPDATED_AT_SQL =
+        "SELECT user_id, updated_at FROM user_baselines WHERE user_id = ANY(?)";
+    
+    private static final RowMapper<UserBaseline> ROW_MAPPER = new BeanPropertyRowMapper<>(UserBaseline.class);
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public int upsertAll(List<UserBaseline> baselines) {
+        return upsert(UPSERT_SQL, baselines, null);
+    }
+    
+    @Override
+    public int upsertAllUnchangedSince(List<UserBaseline> baselines, LocalDateTime since) {
+        return upsert(UPSERT_UNCHANGED_SQL, baselines, Timestamp.valueOf(since));
+    }
+    
+    @Override
+    public boolean upsertIfVersion(UserBaseline baseline) {
+        LocalDateTime writtenAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<Long> versions = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(UPSERT_IF_VERSION_SQL);
+            bind(ps, baseline, Timestamp.valueOf(writtenAt));
+            ps.setLong(18, baseline.getVersion() != null ? baseline.getVersion() : -1);
+            return ps;
+        }, (rs, rowNum) -> rs.getLong("version"));
+        if (versions.isEmpty()) {
+            return false;
+        }
+        baseline.setUpdatedAt(writtenAt);
+        baseline.setVersion(versions.get(0));
+        return true;
+    }
+    
+    @Override
+    public List<UserBaseline> findAllByIdForUpdate(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_FOR_UPDATE_SQL);
+            ps.setArray(1, connection.createArrayOf("varchar", userIds.toArray()));
+            return ps;
+        }, ROW_MAPPER);
+    }
+    
+    @Override
+    public Map<String, LocalDateTime> findUpdatedAt(Collection<String> userIds) {
+        Map<String, LocalDateTime> updatedAt = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return updatedAt;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_UPDATED_AT_SQL);
+            ps.setArray(1, connection.createArrayOf("varchar", userIds.toArray()));
+            return ps;
+        }, (ResultSet rs) -> {
+            updatedAt.put(rs.getString("user_id"), rs.getTimestamp("updated_at").toLocalDateTime());
+        });
+        return updatedAt;
+    }
+    
+    private int upsert(String sql, List<UserBaseline> baselines, Timestamp unchangedSince) {
+        if (baselines.isEmpty()) {
+            return 0;
+        }
+        // Microseconds, as stored, so a caller can tell its own write from a later one
+        LocalDateTime writtenAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Timestamp now = Timestamp.valueOf(writtenAt);
+        int[] counts = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UserBaseline b = baselines.get(i);
+                bind(ps, b, now);
+                if (unchangedSince != null) {
+                    ps.setTimestamp(18, unchangedSince);
+                }
+                b.setUpdatedAt(writtenAt);
+                b.setVersion(null); // Not known without reading it back
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return baselines.size();
+            }
+        });
+        // The driver may report SUCCESS_NO_INFO (-2) for rewritten batches
+        return (int) Arrays.stream(counts).filter(c -> c != 0).count();
+    }
+    
+    private static void bind(PreparedStatement ps, UserBaseline b, Timestamp now) throws SQLException {
+        ps.setString(1, b.getUserId());
+        ps.setInt(2, b.getTransactionCount());
+        ps.setBigDecimal(3, b.getAvgAmount());
+        ps.setBigDecimal(4, b.getStdAmount());
+        ps.setBigDecimal(5, b.getMinAmount());
+        ps.setBigDecimal(6, b.getMaxAmount());
+        if (b.getMostCommonHour() != null) {
+            ps.setInt(7, b.getMostCommonHour());
+        } else {
+            ps.setNull(7, Types.INTEGER);
+        }
+        ps.setString(8, b.getHourDistribution());
+        ps.setString(9, b.getMerchantCategories());
+        ps.setString(10, b.getKnownMerchants());
+        ps.setString(11, b.getLocationStates());
+        ps.setString(12, b.getLocationCountries());
+        ps.setString(13, b.getKnownDevices());
+        ps.setTimestamp(14, b.getLastTransactionTime() != null
+            ? Timestamp.valueOf(b.getLastTransactionTime()) : null);
+        ps.setString(15, b.getLastTransactionState());
+        ps.setString(16, b.getLastTransactionCountry());
+        ps.setTimestamp(17, now);
+    }
+}
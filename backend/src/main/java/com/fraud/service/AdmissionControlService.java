@@ -0,0 +1,206 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Admission control in front of synchronous scoring. Load is measured as the larger of
+// in-flight requests against max-in-flight and the moving average latency against the
+// target; as it rises, scoring degrades in steps (no ML, then no velocity lookup, then
+// 429 for low-priority channels) so that every request stays fast instead of all of
+// them queueing behind a saturated thread pool. Latency is averaged per level, so the
+// cheaper degraded requests do not talk the controller out of degrading: the next step
+// depends on the latency of the level below it. An average nobody has fed for a while
+// decays, so a level that was left because it was slow is tried again later, and a level
+// is only left downwards once load is clearly under its threshold.
+@Service
+@Slf4j
+public class AdmissionControlService {
+    
+    public enum Level {
+        NORMAL,
+        SKIP_ML,
+        SKIP_VELOCITY, // Also skips ML
+        SHED_LOW_PRIORITY; // Also skips ML and velocity for admitted requests
+        
+        public boolean skipsMl() {
+            return this != NORMAL;
+        }
+        
+        public boolean skipsVelocity() {
+            return this == SKIP_VELOCITY || this == SHED_LOW_PRIORITY;
+        }
+    }
+    
+    private static final Level[] LEVELS = Level.values();
+    private static final double SMOOTHING_NANOS = TimeUnit.SECONDS.toNanos(1); // Time constant of the averages
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(5); // Of an average without samples
+    private static final double HYSTERESIS = 0.2; // Fraction below a threshold to step back down
+    
+    private final FraudDetectionConfig config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final double[] latencyAverageMs = new double[LEVELS.length]; // Guarded by this
+    private final long[] latencySampledNanos = new long[LEVELS.length]; // Guarded by this
+    private volatile Level currentLevel = Level.NORMAL;
+    
+    private final Map<Level, Counter> admitted = new EnumMap<>(Level.class);
+    private final Map<Level, Timer> latency = new EnumMap<>(Level.class);
+    private final Counter shed;
+    
+    public AdmissionControlService(FraudDetectionConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        for (Level level : Level.values()) {
+            admitted.put(level, Counter.builder("fraud.admission.requests")
+                .tag("level", level.name())
+                .tag("outcome", "admitted")
+                .register(meterRegistry));
+            latency.put(level, Timer.builder("fraud.scoring.latency")
+                .tag("level", level.name())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+        }
+        this.shed = Counter.builder("fraud.admission.requests")
+            .tag("level", Level.SHED_LOW_PRIORITY.name())
+            .tag("outcome", "rejected")
+            .register(meterRegistry);
+        Gauge.builder("fraud.admission.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        for (Level level : LEVELS) {
+            Gauge.builder("fraud.admission.latency-average-ms", this, s -> s.latencyAt(level, System.nanoTime()))
+                .tag("level", level.name())
+                .register(meterRegistry);
+        }
+        Gauge.builder("fraud.admission.level", this, s -> s.currentLevel.ordinal()).register(meterRegistry);
+    }
+    
+    // Admits a request at the current degradation level, or rejects it with 429. The
+    // permit must be closed when scoring finishes.
+    public Permit admit(String channel) {
+        FraudDetectionConfig.Admission settings = config.getAdmission();
+        if (!settings.getEnabled()) {
+            return new Permit(Level.NORMAL, false);
+        }
+        int running = inFlight.incrementAndGet();
+        long now = System.nanoTime();
+        Level level = levelFor(running, now, settings);
+        if (level != currentLevel) {
+            log.info("Admission level changed from {} to {} ({} in flight, {} ms average latency at {})",
+                currentLevel, level, running, Math.round(latencyAt(currentLevel, now)), currentLevel);
+            currentLevel = level;
+        }
+        if (level == Level.SHED_LOW_PRIORITY && channel != null
+                && settings.getLowPriorityChannels().contains(channel.toLowerCase())) {
+            inFlight.decrementAndGet();
+            shed.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                "Overloaded: not accepting " + channel + " transactions right now");
+        }
+        admitted.get(level).increment();
+        return new Permit(level, true);
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", config.getAdmission().getEnabled());
+        status.put("level", currentLevel);
+        status.put("inFlight", inFlight.get());
+        long now = System.nanoTime();
+        Map<String, Long> latencyByLevel = new HashMap<>();
+        for (Level level : LEVELS) {
+            latencyByLevel.put(level.name(), Math.round(latencyAt(level, now)));
+        }
+        status.put("latencyAverageMs", latencyByLevel);
+        status.put("shed", (long) shed.count());
+        Map<String, Long> byLevel = new HashMap<>();
+        admitted.forEach((level, counter) -> byLevel.put(level.name(), (long) counter.count()));
+        status.put("admitted", byLevel);
+        return status;
+    }
+    
+    // Steps up from NORMAL while the load measured at a level reaches the next step's threshold
+    private Level levelFor(int running, long now, FraudDetectionConfig.Admission settings) {
+        double inFlightLoad = (double) running / settings.getMaxInFlight();
+        Level level = Level.NORMAL;
+        while (level != Level.SHED_LOW_PRIORITY) {
+            Level next = LEVELS[level.ordinal() + 1];
+            double threshold = thresholdFor(next, settings);
+            if (next.ordinal() <= currentLevel.ordinal()) {
+                threshold *= 1 - HYSTERESIS;
+            }
+            double load = Math.max(inFlightLoad, latencyAt(level, now) / settings.getTargetLatencyMs());
+            if (load < threshold) {
+                break;
+            }
+            level = next;
+        }
+        return level;
+    }
+    
+    private static double thresholdFor(Level level, FraudDetectionConfig.Admission settings) {
+        switch (level) {
+            case SKIP_ML:
+                return settings.getSkipMlAt();
+            case SKIP_VELOCITY:
+                return settings.getSkipVelocityAt();
+            case SHED_LOW_PRIORITY:
+                return settings.getShedAt();
+            default:
+                return 0;
+        }
+    }
+    
+    // The level's average, decaying towards zero once it has had no sample for a while
+    private synchronized double latencyAt(Level level, long now) {
+        int i = level.ordinal();
+        double idle = now - latencySampledNanos[i] - SMOOTHING_NANOS;
+        return idle > 0 ? latencyAverageMs[i] * Math.exp(-idle / DECAY_NANOS) : latencyAverageMs[i];
+    }
+    
+    // Weighted by the time since the level's previous sample, so the average covers about
+    // a second whatever the request rate; after a long gap the new sample takes over
+    private synchronized void recordLatency(Level level, double millis, long now) {
+        int i = level.ordinal();
+        double weight = latencySampledNanos[i] == 0 ? 1
+            : 1 - Math.exp(-(now - latencySampledNanos[i]) / SMOOTHING_NANOS);
+        latencyAverageMs[i] += weight * (millis - latencyAverageMs[i]);
+        latencySampledNanos[i] = now;
+    }
+    
+    public final class Permit implements AutoCloseable {
+        private final Level level;
+        private final boolean tracked;
+        private final long startedNanos = System.nanoTime();
+        
+        private Permit(Level level, boolean tracked) {
+            this.level = level;
+            this.tracked = tracked;
+        }
+        
+        public Level getLevel() {
+            return level;
+        }
+        
+        @Override
+        public void close() {
+            if (!tracked) {
+                return;
+            }
+            inFlight.decrementAndGet();
+            long now = System.nanoTime();
+            long elapsed = now - startedNanos;
+            latency.get(level).record(elapsed, TimeUnit.NANOSECONDS);
+            recordLatency(level, elapsed / 1_000_000.0, now);
+        }
+    }
+}
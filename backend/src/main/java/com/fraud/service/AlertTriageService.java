@@ -0,0 +1,29 @@
+package com.fraud.service;
+
+import com.fraud.dto.BulkAlertTriageRequest;
+import com.fraud.repository.AlertRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertTriageService {
+    
+    private final AlertRepository alertRepository;
+    private final LiveEventService liveEventService;
+    private final ResponseCacheService responseCache;
+    
+    @Transactional
+    public int bulkUpdateStatus(BulkAlertTriageRequest request) {
+        int updated = alertRepository.bulkUpdateStatus(request);
+        log.info("Bulk triage set {} alerts to {}", updated, request.getStatus());
+        if (updated > 0) {
+            liveEventService.publishAlertsUpdated(request.getStatus(), updated);
+            responseCache.invalidate();
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,330 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.archive.ArchiveFileInfo;
+import com.fraud.archive.ColumnarArchiveReader;
+import com.fraud.archive.ColumnarArchiveWriter;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.entity.Transaction;
+import com.fraud.repository.JobCheckpointRepository;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Moves aged transactions out of Postgres into column-oriented archive files and
+// scans them back for offline tools
+@Service
+@Slf4j
+public class ArchiveService {
+    
+    public static final String JOB_NAME = "archive-export";
+    
+    private static final String FILE_SUFFIX = ".fdca";
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    
+    private static final String EXPORT_SQL =
+        "SELECT transaction_id, user_id, amount, merchant_id, merchant_category, timestamp, " +
+        "device_id, location_state, location_country, channel, risk_score, risk_category, " +
+        "is_fraud, triggered_rules, explanation, created_at " +
+        "FROM transactions WHERE timestamp < ? ORDER BY timestamp, transaction_id";
+    
+    private static final String DELETE_SQL =
+        "DELETE FROM transactions WHERE transaction_id = ? AND timestamp = ?";
+    
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private final LiveEventService liveEventService;
+    private final ResponseCacheService responseCache;
+    private final JobProgressTracker progress;
+    
+    private volatile ExportRun currentRun;
+    
+    public ArchiveService(DataSource dataSource,
+                          JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          ObjectMapper objectMapper,
+                          JobCheckpointRepository checkpointRepository,
+                          LiveEventService liveEventService,
+                          ResponseCacheService responseCache,
+                          FraudDetectionConfig config) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.liveEventService = liveEventService;
+        this.responseCache = responseCache;
+        this.progress = new JobProgressTracker(JOB_NAME, checkpointRepository);
+    }
+    
+    @Scheduled(cron = "${fraud.detection.archive.export-cron:0 45 2 * * *}")
+    public void runScheduledExport() {
+        if (config.getArchive().getEnabled() && start(null)) {
+            log.info("Scheduled archive export started");
+        }
+    }
+    
+    // Starts an export of everything older than the given number of days (the
+    // configured default when null); false if an export is already running.
+    // Exported rows are deleted, so a stopped export simply continues next time.
+    public boolean start(Integer olderThanDays) {
+        if (!progress.begin(false)) {
+            return false;
+        }
+        int days = olderThanDays != null ? olderThanDays : config.getArchive().getOlderThanDays();
+        ExportRun run = new ExportRun();
+        run.setCutoff(LocalDateTime.now().minusDays(days));
+        currentRun = run;
+        saveDetails();
+        log.info("Archive export started for transactions before {}", run.getCutoff());
+        
+        progress.runInBackground(ignored -> {
+            try {
+                return export(run);
+            } finally {
+                if (run.getRowsArchived() > 0) {
+                    liveEventService.publishResync("archive");
+                }
+            }
+        });
+        return true;
+    }
+    
+    public void stop() {
+        progress.stop();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> result = progress.getStatus();
+        if (currentRun != null) {
+            result.put("summary", currentRun);
+        }
+        return result;
+    }
+    
+    public List<ArchiveFileInfo> listFiles() throws IOException {
+        List<ArchiveFileInfo> infos = new ArrayList<>();
+        for (Path file : archiveFiles()) {
+            infos.add(ColumnarArchiveReader.readInfo(file));
+        }
+        return infos;
+    }
+    
+    // Streams archived transactions with from <= timestamp < to (either bound may be
+    // null) in file order. Only the named columns are decoded (all when null); files
+    // outside the window are skipped on their footer alone.
+    public long scan(LocalDateTime from, LocalDateTime to, Collection<String> columns,
+                     Consumer<Transaction> consumer) throws IOException {
+        Set<String> decoded = null;
+        if (columns != null) {
+            decoded = new LinkedHashSet<>(columns);
+            if (from != null || to != null) {
+                decoded.add("timestamp");
+            }
+        }
+        long matched = 0;
+        for (Path file : archiveFiles()) {
+            ArchiveFileInfo info = ColumnarArchiveReader.readInfo(file);
+            if (!info.overlaps(from, to)) {
+                continue;
+            }
+            long[] count = new long[1];
+            ColumnarArchiveReader.scan(file, decoded, transaction -> {
+                LocalDateTime ts = transaction.getTimestamp();
+                if ((from == null || !ts.isBefore(from)) && (to == null || ts.isBefore(to))) {
+                    count[0]++;
+                    consumer.accept(transaction);
+                }
+            });
+            matched += count[0];
+        }
+        return matched;
+    }
+    
+    // Decision and label counts over archived history, for offline evaluation
+    public Map<String, Object> summarize(LocalDateTime from, LocalDateTime to) throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, Long> byCategory = new TreeMap<>();
+        long[] confusion = new long[4]; // flaggedFraud, flaggedLegit, missedFraud, passedLegit
+        long rows = scan(from, to, List.of("risk_category", "is_fraud"), t -> {
+            String category = t.getRiskCategory() != null ? t.getRiskCategory() : "UNSCORED";
+            byCategory.merge(category, 1L, Long::sum);
+            if (t.getIsFraud() != null) {
+                boolean flagged = "FLAGGED".equals(t.getRiskCategory());
+                confusion[(flagged ? 0 : 2) + (t.getIsFraud() ? 0 : 1)]++;
+            }
+        });
+        long elapsedMs = System.currentTimeMillis() - start;
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("rows", rows);
+        result.put("byRiskCategory", byCategory);
+        result.put("labelled", Map.of(
+            "flaggedFraud", confusion[0],
+            "flaggedLegit", confusion[1],
+            "missedFraud", confusion[2],
+            "passedLegit", confusion[3]
+        ));
+        result.put("elapsedMs", elapsedMs);
+        result.put("rowsPerSecond", elapsedMs > 0 ? rows * 1000 / elapsedMs : rows);
+        return result;
+    }
+    
+    private boolean export(ExportRun run) throws SQLException, IOException {
+        FraudDetectionConfig.Archive settings = config.getArchive();
+        Path directory = Paths.get(settings.getDirectory());
+        Files.createDirectories(directory);
+        
+        // Same cursor setup as TransactionHistoryScanner: a dedicated connection with
+        // auto-commit off so Postgres streams rows instead of buffering the result
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(config.getJobs().getFetchSize());
+                statement.setTimestamp(1, Timestamp.valueOf(run.getCutoff()));
+                
+                try (ResultSet rs = statement.executeQuery()) {
+                    List<Transaction> batch = new ArrayList<>(settings.getRowsPerFile());
+                    while (rs.next()) {
+                        batch.add(mapRow(rs));
+                        if (batch.size() >= settings.getRowsPerFile()) {
+                            archiveBatch(directory, batch, run);
+                            batch = new ArrayList<>(settings.getRowsPerFile());
+                            if (progress.isStopRequested()) {
+                                connection.rollback();
+                                return false;
+                            }
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        archiveBatch(directory, batch, run);
+                    }
+                }
+            }
+            connection.rollback();
+        }
+        return true;
+    }
+    
+    // The file is durable before its rows are deleted. The name derives from the
+    // batch's first row, so if a crash hits between the two steps the next export
+    // rebuilds the same batch and overwrites the file rather than duplicating it.
+    private void archiveBatch(Path directory, List<Transaction> batch, ExportRun run) throws IOException {
+        Transaction first = batch.get(0);
+        String name = "transactions-" + first.getTimestamp().format(FILE_TIME_FORMAT) + "-" +
+            String.format("%08x", first.getTransactionId().hashCode()) + FILE_SUFFIX;
+        Path file = directory.resolve(name);
+        ColumnarArchiveWriter.write(file, batch, config.getArchive().getCompressionLevel());
+        
+        int deleteBatchSize = config.getArchive().getDeleteBatchSize();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < batch.size(); from += deleteBatchSize) {
+                List<Object[]> keys = batch.subList(from, Math.min(batch.size(), from + deleteBatchSize))
+                    .stream()
+                    .map(t -> new Object[] {t.getTransactionId(), Timestamp.valueOf(t.getTimestamp())})
+                    .collect(Collectors.toList());
+                jdbcTemplate.batchUpdate(DELETE_SQL, keys);
+            }
+            responseCache.invalidate();
+        });
+        
+        run.record(name, batch.size(), Files.size(file));
+        saveDetails();
+        progress.recordChunk(null, 0, batch.size());
+        log.info("Archived {} transactions to {}", batch.size(), name);
+    }
+    
+    private List<Path> archiveFiles() throws IOException {
+        Path directory = Paths.get(config.getArchive().getDirectory());
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        // Names start with the first row's timestamp, so name order is time order
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+    
+    private void saveDetails() {
+        try {
+            progress.setDetails(objectMapper.writeValueAsString(currentRun));
+        } catch (Exception e) {
+            log.error("Failed to serialize archive export summary", e);
+        }
+    }
+    
+    private Transaction mapRow(ResultSet rs) throws SQLException {
+        double riskScore = rs.getDouble("risk_score");
+        boolean riskScoreNull = rs.wasNull();
+        boolean isFraud = rs.getBoolean("is_fraud");
+        boolean isFraudNull = rs.wasNull();
+        return Transaction.builder()
+            .transactionId(rs.getString("transaction_id"))
+            .userId(rs.getString("user_id"))
+            .amount(rs.getBigDecimal("amount"))
+            .merchantId(rs.getString("merchant_id"))
+            .merchantCategory(rs.getString("merchant_category"))
+            .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+            .deviceId(rs.getString("device_id"))
+            .locationState(rs.getString("location_state"))
+            .locationCountry(rs.getString("location_country"))
+            .channel(rs.getString("channel"))
+            .riskScore(riskScoreNull ? null : riskScore)
+            .riskCategory(rs.getString("risk_category"))
+            .isFraud(isFraudNull ? null : isFraud)
+            .triggeredRules(rs.getString("triggered_rules"))
+            .explanation(rs.getString("explanation"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+    }
+    
+    @Data
+    public static class ExportRun {
+        private LocalDateTime cutoff;
+        private long filesWritten;
+        private long rowsArchived;
+        private long bytesWritten;
+        private String lastFile;
+        
+        void record(String file, int rows, long bytes) {
+            filesWritten++;
+            rowsArchived += rows;
+            bytesWritten += bytes;
+            lastFile = file;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.entity.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// A backfill run's own shared device index. It is filled from every transaction
+// in the run's window (and one index window before it) before anything is scored, then
+// only read, so the counts do not depend on the order users are replayed in and the live
+// SharedEntityIndex is left alone. Buckets are kept for the whole range rather than in a
+// ring, since replays jump back and forth in time. As in the live index, counts are per
+// bucket: a transaction also sees the ones later in its own bucket.
+public class BackfillEntityIndex implements SharedEntityLookup {
+    
+    private final FraudDetectionConfig.SharedIndex settings;
+    private final int bucketCount;
+    private final int registers;
+    private final Map<String, TreeMap<Long, byte[]>> devices = new HashMap<>();
+    private long rows;
+    private long untrackedKeys;
+    
+    public BackfillEntityIndex(FraudDetectionConfig.SharedIndex settings) {
+        this.settings = settings;
+        this.bucketCount = SharedEntityIndex.bucketCount(settings);
+        this.registers = 1 << settings.getPrecision();
+    }
+    
+    // Filling is single-threaded; lookups start once it is done
+    public void add(String userId, String deviceId, LocalDateTime timestamp) {
+        long epoch = SharedEntityIndex.epochOf(timestamp, settings);
+        long userHash = SharedEntityIndex.hash(userId);
+        add(devices, deviceId, userHash, epoch);
+        rows++;
+    }
+    
+    @Override
+    public SharedEntityIndex.Observation lookup(Transaction transaction) {
+        long epoch = SharedEntityIndex.epochOf(transaction, settings);
+        long userHash = SharedEntityIndex.hash(transaction.getUserId());
+        return new SharedEntityIndex.Observation(estimate(devices, transaction.getDeviceId(), userHash, epoch));
+    }
+    
+    public long getRows() {
+        return rows;
+    }
+    
+    public int getKeys() {
+        return devices.size();
+    }
+    
+    public long getUntrackedKeys() {
+        return untrackedKeys;
+    }
+    
+    private void add(Map<String, TreeMap<Long, byte[]>> index, String key, long userHash, long epoch) {
+        if (key == null) {
+            return;
+        }
+        TreeMap<Long, byte[]> buckets = index.get(key);
+        if (buckets == null) {
+            // Same key budget as the live index
+            if (index.size() >= settings.getMaxKeys()) {
+                untrackedKeys++;
+                return;
+            }
+            buckets = new TreeMap<>();
+            index.put(key, buckets);
+        }
+        byte[] sketch = buckets.computeIfAbsent(epoch, e -> new byte[registers]);
+        WindowedDistinctCounter.addToSketch(sketch, userHash, settings.getPrecision());
+    }
+    
+    private long estimate(Map<String, TreeMap<Long, byte[]>> index, String key, long userHash, long epoch) {
+        if (key == null) {
+            return 0;
+        }
+        byte[] merged = new byte[registers];
+        TreeMap<Long, byte[]> buckets = index.get(key);
+        if (buckets != null) {
+            NavigableMap<Long, byte[]> window = buckets.subMap(epoch - bucketCount + 1, true, epoch, true);
+            for (byte[] sketch : window.values()) {
+                WindowedDistinctCounter.mergeInto(merged, sketch);
+            }
+        }
+        WindowedDistinctCounter.addToSketch(merged, userHash, settings.getPrecision());
+        return WindowedDistinctCounter.estimateSketch(merged);
+    }
+}
@@ -0,0 +1,346 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.config.ScoringSnapshot;
+import com.fraud.dto.BackfillRequest;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.entity.Transaction;
+import com.fraud.entity.UserBaseline;
+import com.fraud.repository.JobCheckpointRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+@Service
+@Slf4j
+public class BackfillService {
+    
+    public static final String JOB_NAME = "backfill";
+    
+    // Rules a backfill cannot replay point in time, so it leaves them out rather than feed
+    // months-old transactions today's values
+    private static final List<String> SKIPPED_RULES = List.of("merchant_risk");
+    
+    private static final String UPDATE_IN_PLACE_SQL =
+        "UPDATE transactions SET risk_score = ?, risk_category = ?, config_version = ? " +
+        "WHERE transaction_id = ? AND timestamp = ?";
+    
+    private static final String INSERT_SIDE_TABLE_SQL =
+        "INSERT INTO backfill_results (run_id, transaction_id, user_id, timestamp, " +
+        "previous_risk_score, previous_risk_category, risk_score, risk_category) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (run_id, transaction_id) DO UPDATE SET " +
+        "risk_score = EXCLUDED.risk_score, risk_category = EXCLUDED.risk_category";
+    
+    private final TransactionHistoryScanner historyScanner;
+    private final RuleEngineService ruleEngineService;
+    private final StatisticalScorerService statisticalScorerService;
+    private final MLScoringClient mlScoringClient;
+    private final RiskAggregatorService riskAggregatorService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private final ScoringConfigService scoringConfigService;
+    private final ResponseCacheService responseCache;
+    private final JobProgressTracker progress;
+    
+    // Mutated only by the job thread; read by status requests
+    private volatile BackfillRun currentRun;
+    
+    public BackfillService(TransactionHistoryScanner historyScanner,
+                           RuleEngineService ruleEngineService,
+                           StatisticalScorerService statisticalScorerService,
+                           MLScoringClient mlScoringClient,
+                           RiskAggregatorService riskAggregatorService,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           ObjectMapper objectMapper,
+                           JobCheckpointRepository checkpointRepository,
+                           FraudDetectionConfig config,
+                           ScoringConfigService scoringConfigService,
+                           ResponseCacheService responseCache) {
+        this.historyScanner = historyScanner;
+        this.ruleEngineService = ruleEngineService;
+        this.statisticalScorerService = statisticalScorerService;
+        this.mlScoringClient = mlScoringClient;
+        this.riskAggregatorService = riskAggregatorService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.scoringConfigService = scoringConfigService;
+        this.responseCache = responseCache;
+        this.progress = new JobProgressTracker(JOB_NAME, checkpointRepository);
+    }
+    
+    // Starts a backfill on a background thread; false if one is already running.
+    // When resuming, the options of the interrupted run win over the given ones.
+    public boolean start(BackfillRequest request, boolean resume) {
+        if (!progress.begin(resume)) {
+            return false;
+        }
+        BackfillRun run = resume ? restoreRun(progress.getDetails()) : null;
+        if (run == null) {
+            run = new BackfillRun();
+            run.setRunId(UUID.randomUUID().toString());
+            run.setRequest(request != null ? request : new BackfillRequest());
+            run.setSkippedRules(SKIPPED_RULES);
+        }
+        currentRun = run;
+        saveDetails();
+        
+        BackfillRequest options = run.getRequest();
+        int maxRate = options.getMaxTransactionsPerSecond() != null
+            ? options.getMaxTransactionsPerSecond()
+            : config.getJobs().getBackfillMaxRate();
+        RateLimiter throttle = new RateLimiter(maxRate);
+        ScoringSnapshot settings = scoringConfigService.current(); // One configuration for the whole run
+        log.info("Backfill {} started: mode={}, includeMl={}, window=[{}, {}), maxRate={}/s",
+            run.getRunId(), options.getMode(), options.getIncludeMl(),
+            options.getSince(), options.getUntil(), maxRate);
+        
+        progress.runInBackground(afterUserId -> {
+            BackfillEntityIndex sharedEntities = loadSharedEntities(options);
+            ForkJoinPool pool = new ForkJoinPool(config.getJobs().getBackfillParallelism());
+            try {
+                return historyScanner.scanByUser(
+                    afterUserId,
+                    pool,
+                    history -> rescoreUser(history, options, throttle, settings, sharedEntities),
+                    this::commitChunk,
+                    progress::isStopRequested
+                );
+            } finally {
+                pool.shutdown();
+            }
+        });
+        return true;
+    }
+    
+    public void stop() {
+        progress.stop();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> result = progress.getStatus();
+        BackfillRun run = currentRun != null ? currentRun : restoreRun(progress.getDetails());
+        if (run != null) {
+            result.put("summary", run);
+        }
+        return result;
+    }
+    
+    // The run's shared device index, over its window and the index window before it
+    private BackfillEntityIndex loadSharedEntities(BackfillRequest options) throws SQLException {
+        FraudDetectionConfig.SharedIndex sharedIndex = config.getSharedIndex();
+        BackfillEntityIndex index = new BackfillEntityIndex(sharedIndex);
+        LocalDateTime from = options.getSince() != null
+            ? options.getSince().minusMinutes(sharedIndex.getWindowMinutes())
+            : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime until = options.getUntil() != null ? options.getUntil() : LocalDateTime.of(9999, 1, 1, 0, 0);
+        historyScanner.scanEntities(from, until, index::add);
+        log.info("Backfill shared-entity index loaded: {} transactions, {} keys ({} untracked)",
+            index.getRows(), index.getKeys(), index.getUntrackedKeys());
+        return index;
+    }
+    
+    // Replays one user's history in timestamp order, scoring each transaction
+    // against the baseline and velocity as they were just before it happened
+    private List<RescoredTransaction> rescoreUser(TransactionHistoryScanner.UserHistory history,
+                                                  BackfillRequest options,
+                                                  RateLimiter throttle,
+                                                  ScoringSnapshot settings,
+                                                  SharedEntityLookup sharedEntities) {
+        int velocityWindow = settings.getVelocityWindowMinutes();
+        int longestWindow = Math.max(velocityWindow, 10);
+        BaselineAccumulator accumulator = new BaselineAccumulator(history.userId);
+        Deque<LocalDateTime> recentTimestamps = new ArrayDeque<>();
+        List<RescoredTransaction> results = new ArrayList<>();
+        
+        for (Transaction transaction : history.transactions) {
+            LocalDateTime timestamp = transaction.getTimestamp();
+            if (options.getUntil() != null && !timestamp.isBefore(options.getUntil())) {
+                break;
+            }
+            LocalDateTime horizon = timestamp.minusMinutes(longestWindow);
+            while (!recentTimestamps.isEmpty() && recentTimestamps.peekFirst().isBefore(horizon)) {
+                recentTimestamps.pollFirst();
+            }
+            
+            if (options.getSince() == null || !timestamp.isBefore(options.getSince())) {
+                acquire(throttle);
+                UserBaseline baseline = accumulator.toBaseline();
+                long velocity = countSince(recentTimestamps, timestamp.minusMinutes(velocityWindow));
+                
+                RuleEngineService.RuleEvaluationResult ruleResult =
+                    ruleEngineService.evaluateRules(transaction, baseline, velocity, settings, sharedEntities,
+                        MerchantRiskLookup.NONE);
+                StatisticalScorerService.StatisticalScoreResult statResult =
+                    statisticalScorerService.computeScore(transaction, baseline);
+                Double mlScore = null;
+                if (Boolean.TRUE.equals(options.getIncludeMl())) {
+                    int velocity10m = (int) countSince(recentTimestamps, timestamp.minusMinutes(10));
+                    mlScore = mlScoringClient.getMLScore(transaction, baseline, velocity10m).getMlScore();
+                }
+                
+                FraudEvaluationResponse evaluation = riskAggregatorService.aggregate(
+                    ruleResult.ruleScore,
+                    statResult.statisticalScore,
+                    mlScore,
+                    transaction.getTransactionId(),
+                    ruleResult,
+                    settings
+                );
+                results.add(new RescoredTransaction(transaction,
+                    evaluation.getRiskScore(), evaluation.getRiskCategory(), settings.getVersion()));
+            }
+            
+            accumulator.add(transaction);
+            recentTimestamps.addLast(timestamp);
+        }
+        return results;
+    }
+    
+    // The rows and the checkpoint commit together: an in-place update that outlived its
+    // checkpoint would be read back as the "previous" score when the run resumes
+    private void commitChunk(List<List<RescoredTransaction>> perUser, String lastUserId, int users, int rows) {
+        BackfillRun run = currentRun;
+        List<Object[]> batch = new ArrayList<>();
+        for (List<RescoredTransaction> userResults : perUser) {
+            for (RescoredTransaction r : userResults) {
+                Transaction t = r.transaction;
+                if (run.getRequest().getMode() == BackfillRequest.OutputMode.IN_PLACE) {
+                    batch.add(new Object[] {r.riskScore, r.riskCategory, r.configVersion, t.getTransactionId(),
+                        t.getTimestamp()});
+                } else {
+                    batch.add(new Object[] {run.getRunId(), t.getTransactionId(), t.getUserId(), t.getTimestamp(),
+                        t.getRiskScore(), t.getRiskCategory(), r.riskScore, r.riskCategory});
+                }
+                run.record(t.getRiskCategory(), r.riskCategory, t.getRiskScore(), r.riskScore);
+                if (firedSkippedRule(t)) {
+                    run.setSkippedRuleHits(run.getSkippedRuleHits() + 1);
+                }
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!batch.isEmpty()) {
+                boolean inPlace = run.getRequest().getMode() == BackfillRequest.OutputMode.IN_PLACE;
+                jdbcTemplate.batchUpdate(inPlace ? UPDATE_IN_PLACE_SQL : INSERT_SIDE_TABLE_SQL, batch);
+                if (inPlace) {
+                    responseCache.invalidate();
+                }
+            }
+            saveDetails();
+            progress.recordChunk(lastUserId, users, rows);
+        });
+    }
+    
+    private void saveDetails() {
+        try {
+            progress.setDetails(objectMapper.writeValueAsString(currentRun));
+        } catch (Exception e) {
+            log.error("Failed to serialize backfill summary", e);
+        }
+    }
+    
+    private BackfillRun restoreRun(String details) {
+        if (details == null || details.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(details, BackfillRun.class);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable backfill checkpoint: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private static boolean firedSkippedRule(Transaction transaction) {
+        String fired = transaction.getTriggeredRules();
+        if (fired == null) {
+            return false;
+        }
+        for (String rule : SKIPPED_RULES) {
+            if (fired.contains("\"" + rule + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static long countSince(Deque<LocalDateTime> timestamps, LocalDateTime since) {
+        long count = 0;
+        var it = timestamps.descendingIterator();
+        while (it.hasNext() && !it.next().isBefore(since)) {
+            count++;
+        }
+        return count;
+    }
+    
+    private static void acquire(RateLimiter throttle) {
+        try {
+            throttle.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Backfill interrupted", e);
+        }
+    }
+    
+    private static class RescoredTransaction {
+        final Transaction transaction;
+        final double riskScore;
+        final String riskCategory;
+        final long configVersion;
+        
+        RescoredTransaction(Transaction transaction, double riskScore, String riskCategory, long configVersion) {
+            this.transaction = transaction;
+            this.riskScore = riskScore;
+            this.riskCategory = riskCategory;
+            this.configVersion = configVersion;
+        }
+    }
+    
+    // Persisted as the checkpoint details so a resumed run keeps its id, options and totals
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BackfillRun {
+        private String runId;
+        private BackfillRequest request;
+        private long rescored;
+        private long changed;
+        private double totalAbsScoreDelta;
+        private Map<String, Long> transitions = new TreeMap<>(); // "APPROVED->FLAGGED" -> count
+        private List<String> skippedRules = List.of(); // Never fire in this run, see SKIPPED_RULES
+        private long skippedRuleHits; // Stored decisions one of them fired on, so "changed" may include these
+        
+        void record(String previousCategory, String newCategory, Double previousScore, double newScore) {
+            rescored++;
+            if (!Objects.equals(previousCategory, newCategory)) {
+                changed++;
+                transitions.merge(previousCategory + "->" + newCategory, 1L, Long::sum);
+            }
+            if (previousScore != null) {
+                totalAbsScoreDelta += Math.abs(newScore - previousScore);
+            }
+        }
+    }
+}
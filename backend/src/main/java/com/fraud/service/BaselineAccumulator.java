@@ -0,0 +1,136 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.entity.Transaction;
+import com.fraud.entity.UserBaseline;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// In-memory equivalent of BaselineService.updateBaseline for replaying a user's
+// history in timestamp order; JSON columns are only serialized in toBaseline()
+@Slf4j
+public class BaselineAccumulator {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private final String userId;
+    
+    // Welford's online algorithm state
+    private int count;
+    private double mean;
+    private double m2;
+    private double min;
+    private double max;
+    
+    private final int[] hourCounts = new int[24];
+    private final Map<String, Integer> merchantCategories = new HashMap<>();
+    private final Set<String> knownMerchants = new LinkedHashSet<>();
+    private final Map<String, Integer> locationStates = new HashMap<>();
+    private final Map<String, Integer> locationCountries = new HashMap<>();
+    private final Set<String> knownDevices = new LinkedHashSet<>();
+    
+    private LocalDateTime lastTransactionTime;
+    private String lastTransactionState;
+    private String lastTransactionCountry;
+    
+    public BaselineAccumulator(String userId) {
+        this.userId = userId;
+    }
+    
+    public void add(Transaction transaction) {
+        double amount = transaction.getAmount().doubleValue();
+        count++;
+        if (count == 1) {
+            mean = amount;
+            m2 = 0.0;
+            min = amount;
+            max = amount;
+        } else {
+            double delta = amount - mean;
+            mean += delta / count;
+            m2 += delta * (amount - mean);
+            min = Math.min(min, amount);
+            max = Math.max(max, amount);
+        }
+        
+        hourCounts[transaction.getTimestamp().getHour()]++;
+        merchantCategories.merge(transaction.getMerchantCategory(), 1, Integer::sum);
+        knownMerchants.add(transaction.getMerchantId());
+        locationStates.merge(transaction.getLocationState(), 1, Integer::sum);
+        locationCountries.merge(transaction.getLocationCountry(), 1, Integer::sum);
+        knownDevices.add(transaction.getDeviceId());
+        
+        lastTransactionTime = transaction.getTimestamp();
+        lastTransactionState = transaction.getLocationState();
+        lastTransactionCountry = transaction.getLocationCountry();
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public UserBaseline toBaseline() {
+        UserBaseline baseline = UserBaseline.builder()
+            .userId(userId)
+            .transactionCount(count)
+            .avgAmount(BigDecimal.ZERO)
+            .stdAmount(BigDecimal.ZERO)
+            .maxAmount(BigDecimal.ZERO)
+            .build();
+        if (count == 0) {
+            return baseline;
+        }
+        
+        double std = count > 1 ? Math.sqrt(Math.max(0.0, m2 / (count - 1))) : 0.0;
+        baseline.setAvgAmount(toAmount(mean));
+        baseline.setStdAmount(toAmount(std));
+        baseline.setMinAmount(toAmount(min));
+        baseline.setMaxAmount(toAmount(max));
+        
+        // Same tie-breaking as BaselineService: the earliest hour wins
+        Map<Integer, Integer> hourDist = new HashMap<>();
+        Integer mostCommonHour = null;
+        for (int hour = 0; hour < 24; hour++) {
+            if (hourCounts[hour] == 0) {
+                continue;
+            }
+            hourDist.put(hour, hourCounts[hour]);
+            if (mostCommonHour == null || hourCounts[hour] > hourCounts[mostCommonHour]) {
+                mostCommonHour = hour;
+            }
+        }
+        baseline.setHourDistribution(toJsonString(hourDist));
+        baseline.setMostCommonHour(mostCommonHour);
+        
+        baseline.setMerchantCategories(toJsonString(merchantCategories));
+        baseline.setKnownMerchants(toJsonString(knownMerchants));
+        baseline.setLocationStates(toJsonString(locationStates));
+        baseline.setLocationCountries(toJsonString(locationCountries));
+        baseline.setKnownDevices(toJsonString(knownDevices));
+        
+        baseline.setLastTransactionTime(lastTransactionTime);
+        baseline.setLastTransactionState(lastTransactionState);
+        baseline.setLastTransactionCountry(lastTransactionCountry);
+        return baseline;
+    }
+    
+    private static BigDecimal toAmount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    private static String toJsonString(Object obj) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(obj);
+        } catch (Exception e) {
+            log.error("Failed to serialize to JSON", e);
+            return "{}";
+        }
+    }
+}
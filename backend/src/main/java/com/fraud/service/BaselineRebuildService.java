@@ -0,0 +1,127 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.entity.Transaction;
+import com.fraud.entity.UserBaseline;
+import com.fraud.repository.JobCheckpointRepository;
+import com.fraud.repository.UserBaselineRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class BaselineRebuildService {
+    
+    public static final String JOB_NAME = "baseline-rebuild";
+    
+    // How long before its commit a scoring write stamps the row, with room for clock skew
+    // between instances
+    private static final long WRITE_MARGIN_MINUTES = 5;
+    
+    private final TransactionHistoryScanner historyScanner;
+    private final UserBaselineRepository baselineRepository;
+    private final BaselineService baselineService;
+    private final TransactionTemplate transactionTemplate;
+    private final FraudDetectionConfig config;
+    private final JobProgressTracker progress;
+    private final AtomicLong reread = new AtomicLong();
+    // Rows updated at or after this may hold transactions the scan did not see
+    private volatile LocalDateTime unchangedSince;
+    
+    public BaselineRebuildService(TransactionHistoryScanner historyScanner,
+                                  UserBaselineRepository baselineRepository,
+                                  BaselineService baselineService,
+                                  TransactionTemplate transactionTemplate,
+                                  JobCheckpointRepository checkpointRepository,
+                                  FraudDetectionConfig config) {
+        this.historyScanner = historyScanner;
+        this.baselineRepository = baselineRepository;
+        this.baselineService = baselineService;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        this.progress = new JobProgressTracker(JOB_NAME, checkpointRepository);
+    }
+    
+    // Starts the rebuild on a background thread; false if one is already running
+    public boolean start(boolean resume) {
+        if (!progress.begin(resume)) {
+            return false;
+        }
+        reread.set(0);
+        progress.runInBackground(afterUserId -> {
+            // The cursor's snapshot is taken after this
+            unchangedSince = LocalDateTime.now().minusMinutes(WRITE_MARGIN_MINUTES);
+            ForkJoinPool pool = new ForkJoinPool(config.getJobs().getParallelism());
+            try {
+                return historyScanner.scanByUser(
+                    afterUserId,
+                    pool,
+                    this::rebuildUser,
+                    this::commitChunk,
+                    progress::isStopRequested
+                );
+            } finally {
+                pool.shutdown();
+            }
+        });
+        return true;
+    }
+    
+    public void stop() {
+        progress.stop();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> result = progress.getStatus();
+        result.put("usersReread", reread.get());
+        return result;
+    }
+    
+    private UserBaseline rebuildUser(TransactionHistoryScanner.UserHistory history) {
+        BaselineAccumulator accumulator = new BaselineAccumulator(history.userId);
+        for (Transaction transaction : history.transactions) {
+            accumulator.add(transaction);
+        }
+        return accumulator.toBaseline();
+    }
+    
+    // Scoring keeps updating rows while the scan runs, so a baseline computed from the scan's
+    // snapshot only replaces a row nobody wrote since. The others, including rows created
+    // meanwhile, stay locked by the upsert and are rebuilt from their history as committed now;
+    // scoring writes still in flight wait for the lock and then apply on top.
+    private void commitChunk(List<UserBaseline> baselines, String lastUserId, int users, int rows) {
+        List<UserBaseline> committed = transactionTemplate.execute(status -> {
+            baselineRepository.upsertAllUnchangedSince(baselines, unchangedSince);
+            Map<String, LocalDateTime> updatedAt = baselineRepository.findUpdatedAt(
+                baselines.stream().map(UserBaseline::getUserId).toList());
+            List<UserBaseline> result = new ArrayList<>(baselines.size());
+            List<String> changed = new ArrayList<>();
+            for (UserBaseline baseline : baselines) {
+                if (baseline.getUpdatedAt().equals(updatedAt.get(baseline.getUserId()))) {
+                    result.add(baseline);
+                } else {
+                    changed.add(baseline.getUserId());
+                }
+            }
+            if (!changed.isEmpty()) {
+                List<UserBaseline> rebuilt = historyScanner.readHistories(changed).stream()
+                    .map(this::rebuildUser)
+                    .toList();
+                baselineRepository.upsertAll(rebuilt);
+                result.addAll(rebuilt);
+                reread.addAndGet(changed.size());
+            }
+            return result;
+        });
+        committed.forEach(baselineService::refresh);
+        progress.recordChunk(lastUserId, users, rows);
+    }
+}
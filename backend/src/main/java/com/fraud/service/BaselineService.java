@@ -1,50 +1,500 @@
 package com.fraud.service;
 
+import com.fraud.baseline.BaselineProfile;
+import com.fraud.baseline.MappedBaselineStore;
+import com.fraud.config.FraudDetectionConfig;
 import com.fraud.entity.Transaction;
 import com.fraud.entity.UserBaseline;
 import com.fraud.repository.UserBaselineRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class BaselineService {
     
+    // How long after its commit a transaction's queued update may still arrive
+    private static final long REDERIVE_WINDOW_MINUTES = 10;
+    
     private final UserBaselineRepository baselineRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FraudDetectionConfig config;
+    private final IdentifierDictionary identifierDictionary;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final MathContext mathContext = new MathContext(10, RoundingMode.HALF_UP);
+    // Recently used baselines as of their last committed update, so a returning user is
+    // scored without reading user_baselines. Entries are copied in and out, never shared.
+    private final Map<String, UserBaseline> cache;
+    // With the baseline store enabled it replaces the cache: scoring reads and updates the
+    // mapped records, and user_baselines trails them, updated by the write-behind thread
+    private final MappedBaselineStore store;
+    private final BlockingQueue<Pending> writeQueue;
+    // Users whose updates could not be queued or written: the writer rewrites their rows
+    // from their committed history once everything queued before them is written, with the
+    // queue sequence number they wait for. Nothing is dropped, whatever the queue does.
+    private final Map<String, Long> dirty = new ConcurrentHashMap<>();
+    // Transactions a rewrite already counted, in case their queued update comes after it
+    private final Map<String, Long> rederivedUntil = new HashMap<>(); // Writer thread only
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long dequeued;
+    private final TransactionHistoryScanner historyScanner;
+    private final ThreadLocal<MappedBaselineStore.Reading> readings =
+        ThreadLocal.withInitial(MappedBaselineStore.Reading::new);
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong rederived = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Thread writer;
+    private volatile boolean running;
+    private volatile boolean warnedFull;
+    
+    public BaselineService(UserBaselineRepository baselineRepository,
+                           TransactionTemplate transactionTemplate,
+                           TransactionHistoryScanner historyScanner,
+                           FraudDetectionConfig config,
+                           IdentifierDictionary identifierDictionary) {
+        this.baselineRepository = baselineRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.historyScanner = historyScanner;
+        this.config = config;
+        this.identifierDictionary = identifierDictionary;
+        FraudDetectionConfig.BaselineStore storeSettings = config.getBaselineStore();
+        FraudDetectionConfig.BaselineCache settings = config.getBaselineCache();
+        int capacity = settings.getEnabled() && !storeSettings.getEnabled() ? settings.getMaxEntries() : 0;
+        int initialCapacity = Math.min(capacity, 1 << 16) * 4 / 3 + 1;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(initialCapacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserBaseline> eldest) {
+                return size() > capacity;
+            }
+        });
+        
+        if (!storeSettings.getEnabled()) {
+            this.store = null;
+            this.writeQueue = null;
+            return;
+        }
+        try {
+            this.store = new MappedBaselineStore(Paths.get(storeSettings.getPath()), storeSettings.getCapacity());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open baseline store " + storeSettings.getPath(), e);
+        }
+        log.info("Opened baseline store {} with {} of {} users", store.getFile(), store.getSize(), store.getMaxSize());
+        this.writeQueue = new LinkedBlockingQueue<>(storeSettings.getWriteQueueCapacity());
+        this.running = true;
+        Thread thread = new Thread(this::writeBehind, "baseline-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
     
     @Transactional
     public UserBaseline getOrCreateBaseline(String userId) {
+        UserBaseline cached = findCached(userId);
+        if (cached != null) {
+            return cached;
+        }
         return baselineRepository.findById(userId)
-            .orElseGet(() -> {
-                UserBaseline baseline = UserBaseline.builder()
-                    .userId(userId)
-                    .transactionCount(0)
-                    .avgAmount(BigDecimal.ZERO)
-                    .stdAmount(BigDecimal.ZERO)
-                    .maxAmount(BigDecimal.ZERO)
-                    .build();
-                return baselineRepository.save(baseline);
-            });
+            .orElseGet(() -> baselineRepository.save(newBaseline(userId)));
+    }
+    
+    // The baseline to score this transaction against. From the store, this is a projection
+    // made for this transaction only (see findStored) and must not be persisted.
+    @Transactional
+    public UserBaseline getBaselineFor(Transaction transaction) {
+        if (store == null) {
+            return getOrCreateBaseline(transaction.getUserId());
+        }
+        UserBaseline stored = findStored(transaction);
+        if (stored != null) {
+            return stored;
+        }
+        // Not in the store yet: the row goes in as it is, the update follows after commit.
+        // A new user's row is created by the write-behind thread.
+        String userId = transaction.getUserId();
+        UserBaseline baseline = baselineRepository.findById(userId).orElseGet(() -> newBaseline(userId));
+        preload(baseline);
+        return baseline;
+    }
+    
+    // Empty baseline for a user seen for the first time
+    public UserBaseline newBaseline(String userId) {
+        return UserBaseline.builder()
+            .userId(userId)
+            .transactionCount(0)
+            .avgAmount(BigDecimal.ZERO)
+            .stdAmount(BigDecimal.ZERO)
+            .maxAmount(BigDecimal.ZERO)
+            .build();
     }
     
     @Transactional
     public void updateBaseline(Transaction transaction) {
-        UserBaseline baseline = getOrCreateBaseline(transaction.getUserId());
+        if (store != null) {
+            afterCommit(() -> recordInStore(transaction));
+            return;
+        }
+        String userId = transaction.getUserId();
+        UserBaseline cached = findCached(userId);
+        if (cached != null) {
+            // Detached copy: written only over the row version it was cached at
+            applyTransaction(cached, transaction);
+            if (baselineRepository.upsertIfVersion(cached)) {
+                cacheAfterCommit(cached);
+                return;
+            }
+        }
+        // Not cached, or the row was written elsewhere since (another instance, a rebuild):
+        // apply to the row as committed now, locked until this transaction ends. A row
+        // created by getOrCreateBaseline in this transaction is flushed first.
+        baselineRepository.flush();
+        UserBaseline baseline;
+        do {
+            List<UserBaseline> rows = baselineRepository.findAllByIdForUpdate(List.of(userId));
+            baseline = rows.isEmpty() ? newBaseline(userId) : rows.get(0);
+            applyTransaction(baseline, transaction);
+            // Only fails for a new user whose row another transaction has just created
+        } while (!baselineRepository.upsertIfVersion(baseline));
+        cacheAfterCommit(baseline);
+    }
+    
+    // Whether user_baselines is written behind; callers then leave the row alone
+    public boolean isWriteBehind() {
+        return store != null;
+    }
+    
+    // A copy of the cached baseline, or null if the user is not cached
+    public UserBaseline findCached(String userId) {
+        UserBaseline cached = cache.get(userId);
+        return cached != null ? cached.toBuilder().build() : null;
+    }
+    
+    // Same for a transaction about to be scored; with the store, the projection for it
+    public UserBaseline findCached(Transaction transaction) {
+        return store != null ? findStored(transaction) : findCached(transaction.getUserId());
+    }
+    
+    // For callers that persist the baseline in their own (committed) transaction; with
+    // the store, the transaction is applied to the record and written behind instead
+    public void recordScored(Transaction transaction, UserBaseline baseline) {
+        if (store != null) {
+            recordInStore(transaction);
+        } else {
+            cache(baseline);
+        }
+    }
+    
+    public void cache(UserBaseline baseline) {
+        cache.put(baseline.getUserId(), baseline.toBuilder().build());
+    }
+    
+    // Adds a baseline read at startup unless scoring has cached a newer one meanwhile
+    public boolean preload(UserBaseline baseline) {
+        if (store != null) {
+            return loadIntoStore(baseline, false);
+        }
+        return cache.putIfAbsent(baseline.getUserId(), baseline.toBuilder().build()) == null;
+    }
+    
+    // After the row was rewritten elsewhere: the cached copy is dropped, the store record replaced
+    public void refresh(UserBaseline baseline) {
+        if (store != null) {
+            loadIntoStore(baseline, true);
+        } else {
+            cache.remove(baseline.getUserId());
+        }
+    }
+    
+    // Pending writes are discarded too, so only use this when user_baselines is emptied
+    public void clearCache() {
+        cache.clear();
+        if (store != null) {
+            writeQueue.clear();
+            dirty.clear();
+            store.clear();
+        }
+    }
+    
+    public long getCacheSize() {
+        return store != null ? store.getSize() : cache.size();
+    }
+    
+    public Map<String, Object> getStoreStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", store != null);
+        if (store != null) {
+            status.put("file", store.getFile().toString());
+            status.put("capacity", store.getCapacity());
+            status.put("maxUsers", store.getMaxSize());
+            status.put("users", store.getSize());
+            status.put("writeQueued", writeQueue.size());
+            status.put("written", written.get());
+            status.put("deferred", deferred.get());
+            status.put("dirtyUsers", dirty.size());
+            status.put("rederived", rederived.get());
+            status.put("failed", failed.get());
+        }
+        return status;
+    }
+    
+    // Drains what is queued or dirty for user_baselines and flushes the store
+    @PreDestroy
+    public void shutdown() {
+        if (store == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        store.close();
+    }
+    
+    private void cacheAfterCommit(UserBaseline baseline) {
+        UserBaseline copy = baseline.toBuilder().build();
+        afterCommit(() -> cache.put(copy.getUserId(), copy));
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    // Only what scoring reads is filled in. The known device and merchant sets hold just
+    // this transaction's ids, when the record knows them, and the location is this
+    // transaction's when the record's hash matches it (the record only keeps a prefix).
+    private UserBaseline findStored(Transaction transaction) {
+        MappedBaselineStore.Reading reading = readings.get();
+        if (!store.read(transaction.getUserId(), transaction.getDeviceId(), transaction.getMerchantId(),
+                transaction.getLocationState(), transaction.getLocationCountry(), reading)) {
+            return null;
+        }
+        boolean any = reading.count > 0;
+        return UserBaseline.builder()
+            .userId(transaction.getUserId())
+            .transactionCount(reading.count)
+            // Same scale as the columns, so a spread the table rounds to zero stays zero
+            .avgAmount(BigDecimal.valueOf(reading.mean).setScale(2, RoundingMode.HALF_UP))
+            .stdAmount(BigDecimal.valueOf(reading.std).setScale(2, RoundingMode.HALF_UP))
+            .minAmount(any ? BigDecimal.valueOf(reading.min).setScale(2, RoundingMode.HALF_UP) : null)
+            .maxAmount(any ? BigDecimal.valueOf(reading.max).setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO)
+            .mostCommonHour(reading.mostCommonHour >= 0 ? reading.mostCommonHour : null)
+            .lastTransactionTime(reading.lastTime != MappedBaselineStore.NO_TIME
+                ? LocalDateTime.ofEpochSecond(reading.lastTime, 0, ZoneOffset.UTC) : null)
+            .lastTransactionState(!any ? null
+                : reading.sameState ? transaction.getLocationState() : reading.lastStateText())
+            .lastTransactionCountry(!any ? null
+                : reading.sameCountry ? transaction.getLocationCountry() : reading.lastCountryText())
+            .knownDevices(reading.knownDevice ? toJsonString(List.of(transaction.getDeviceId())) : "[]")
+            .knownMerchants(reading.knownMerchant ? toJsonString(List.of(transaction.getMerchantId())) : "[]")
+            .build();
+    }
+    
+    private boolean loadIntoStore(UserBaseline baseline, boolean replace) {
+        int[] hours = new int[24];
+        parseJsonMap(baseline.getHourDistribution(), Object.class)
+            .forEach((hour, count) -> hours[Integer.parseInt(hour)] = ((Number) count).intValue());
+        LocalDateTime last = baseline.getLastTransactionTime();
+        boolean loaded = store.load(baseline.getUserId(), baseline.getTransactionCount(),
+            doubleOf(baseline.getAvgAmount()), doubleOf(baseline.getStdAmount()),
+            doubleOf(baseline.getMinAmount()), doubleOf(baseline.getMaxAmount()), hours,
+            last != null ? last.toEpochSecond(ZoneOffset.UTC) : MappedBaselineStore.NO_TIME,
+            baseline.getLastTransactionState(), baseline.getLastTransactionCountry(),
+            parseJsonSet(baseline.getKnownDevices(), String.class),
+            parseJsonSet(baseline.getKnownMerchants(), String.class), replace);
+        if (!loaded && !warnedFull && store.getSize() >= store.getMaxSize()) {
+            warnedFull = true;
+            log.warn("Baseline store is full at {} users; further users are scored from user_baselines",
+                store.getSize());
+        }
+        return loaded;
+    }
+    
+    private static double doubleOf(BigDecimal value) {
+        return value != null ? value.doubleValue() : 0;
+    }
+    
+    // Applies a committed transaction to the store record, then queues it for user_baselines.
+    // Never waits: a full queue marks the user dirty instead, as does a dirty user, whose
+    // rewrite will include this transaction.
+    private void recordInStore(Transaction transaction) {
+        LocalDateTime timestamp = transaction.getTimestamp();
+        String userId = transaction.getUserId();
+        store.update(userId, transaction.getAmount().doubleValue(),
+            timestamp.toEpochSecond(ZoneOffset.UTC), timestamp.getHour(), transaction.getDeviceId(),
+            transaction.getMerchantId(), transaction.getLocationState(), transaction.getLocationCountry());
+        if (dirty.containsKey(userId)) {
+            deferred.incrementAndGet();
+            return;
+        }
+        long seq = sequence.incrementAndGet();
+        if (!writeQueue.offer(new Pending(transaction, seq))) {
+            deferred.incrementAndGet();
+            if (dirty.putIfAbsent(userId, seq) == null) {
+                log.debug("Baseline write-behind queue full; user {} is rewritten from history", userId);
+            }
+        }
+    }
+    
+    // One thread, so a user's transactions reach user_baselines in the order they were queued
+    private void writeBehind() {
+        int batchSize = config.getBaselineStore().getWriteBatchSize();
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !writeQueue.isEmpty() || !dirty.isEmpty()) {
+            try {
+                Pending first = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    writeQueue.drainTo(batch, batchSize - 1);
+                    dequeued = batch.get(batch.size() - 1).seq;
+                    writeBatch(batch);
+                }
+                if (!dirty.isEmpty()) {
+                    rederive(batchSize);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    // A few attempts, for deadlocks and failovers; after that the users are marked dirty and
+    // their rows rewritten from history
+    private void writeBatch(List<Pending> pending) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        rederivedUntil.values().removeIf(until -> until < now);
+        List<Transaction> batch = new ArrayList<>(pending.size());
+        for (Pending p : pending) {
+            // Dirty users are rewritten anyway; a rewrite may have counted this one already
+            if (!dirty.containsKey(p.transaction.getUserId())
+                    && rederivedUntil.remove(p.transaction.getTransactionId()) == null) {
+                batch.add(p.transaction);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Map<String, UserBaseline> baselines = new LinkedHashMap<>();
+                    Set<String> userIds = batch.stream().map(Transaction::getUserId).collect(Collectors.toSet());
+                    // Locked, so no other writer moves the rows on between this read and the upsert
+                    for (UserBaseline row : baselineRepository.findAllByIdForUpdate(userIds)) {
+                        baselines.put(row.getUserId(), row);
+                    }
+                    for (Transaction transaction : batch) {
+                        applyTransaction(baselines.computeIfAbsent(transaction.getUserId(), this::newBaseline),
+                            transaction);
+                    }
+                    baselineRepository.upsertAll(new ArrayList<>(baselines.values()));
+                });
+                written.addAndGet(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == 3) {
+                    failed.addAndGet(batch.size());
+                    log.error("Failed to write {} baseline updates behind; their users are rewritten from history",
+                        batch.size(), e);
+                    // Everything queued before is written (or dirty), so they can go right away
+                    batch.forEach(transaction -> dirty.putIfAbsent(transaction.getUserId(), 0L));
+                    return;
+                }
+                log.warn("Baseline write-behind attempt {} failed, retrying: {}", attempt, e.getMessage());
+                Thread.sleep(1000L * attempt);
+            }
+        }
+    }
+    
+    // Rewrites the rows of dirty users from their committed history, once the updates queued
+    // before they became dirty are written. Removing a user from the set first means any
+    // transaction not in the history read below is queued again; one that is, and whose
+    // update is queued anyway, is remembered for a while and skipped.
+    private void rederive(int batchSize) throws InterruptedException {
+        boolean drained = writeQueue.isEmpty();
+        List<String> userIds = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : dirty.entrySet()) {
+            if (userIds.size() >= batchSize) {
+                break;
+            }
+            if ((drained || entry.getValue() <= dequeued) && dirty.remove(entry.getKey(), entry.getValue())) {
+                userIds.add(entry.getKey());
+            }
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime recent = LocalDateTime.now().minusMinutes(REDERIVE_WINDOW_MINUTES);
+        long until = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(REDERIVE_WINDOW_MINUTES);
+        try {
+            List<TransactionHistoryScanner.UserHistory> histories = transactionTemplate.execute(status -> {
+                baselineRepository.findAllByIdForUpdate(userIds);
+                List<TransactionHistoryScanner.UserHistory> read = historyScanner.readHistories(userIds);
+                List<UserBaseline> rows = new ArrayList<>(read.size());
+                for (TransactionHistoryScanner.UserHistory history : read) {
+                    BaselineAccumulator accumulator = new BaselineAccumulator(history.userId);
+                    history.transactions.forEach(accumulator::add);
+                    rows.add(accumulator.toBaseline());
+                }
+                baselineRepository.upsertAll(rows);
+                return read;
+            });
+            for (TransactionHistoryScanner.UserHistory history : histories) {
+                for (Transaction transaction : history.transactions) {
+                    if (!transaction.getCreatedAt().isBefore(recent)) {
+                        rederivedUntil.put(transaction.getTransactionId(), until);
+                    }
+                }
+            }
+            rederived.addAndGet(userIds.size());
+        } catch (RuntimeException e) {
+            userIds.forEach(userId -> dirty.putIfAbsent(userId, 0L));
+            log.warn("Failed to rewrite {} dirty baselines from history, retrying: {}", userIds.size(), e.getMessage());
+            Thread.sleep(1000L);
+        }
+    }
+    
+    // Folds the transaction into the baseline in memory; the caller persists it
+    public void applyTransaction(UserBaseline baseline, Transaction transaction) {
         int n = baseline.getTransactionCount() + 1;
+        BaselineProfile profile = baseline.getProfile();
+        boolean profileCurrent = profile != null && profile.isCurrentFor(baseline);
         
         // Update amount statistics using Welford's online algorithm
         BigDecimal amount = transaction.getAmount();
@@ -138,7 +588,14 @@ public class BaselineService {
         baseline.setLastTransactionCountry(transaction.getLocationCountry());
         
         baseline.setTransactionCount(n);
-        baselineRepository.save(baseline);
+        
+        // Advance the interned profile too, so a cached baseline is never parsed for scoring
+        if (profileCurrent) {
+            identifierDictionary.intern(transaction);
+            baseline.setProfile(profile.advance(baseline, transaction.getDeviceKey(), transaction.getDeviceId(),
+                transaction.getMerchantKey(), transaction.getMerchantId(), transaction.getStateKey(),
+                transaction.getCountryKey()));
+        }
     }
     
     private <T> Map<String, T> parseJsonMap(String json, Class<T> valueType) {
@@ -174,4 +631,14 @@ public class BaselineService {
             return "{}";
         }
     }
+    
+    private static final class Pending {
+        final Transaction transaction;
+        final long seq;
+        
+        Pending(Transaction transaction, long seq) {
+            this.transaction = transaction;
+            this.seq = seq;
+        }
+    }
 }
@@ -18,7 +18,7 @@ import java.util.concurrent.ThreadLocalRandom;
 @Slf4j
 public class DataSeedService {
     
-    private final TransactionService transactionService;
+    private final TransactionRoutingService transactionRoutingService;
     private final TransactionRepository transactionRepository;
     
     private static final String[] USER_IDS = {
@@ -47,7 +47,7 @@ public class DataSeedService {
         for (int i = 0; i < count; i++) {
             try {
                 TransactionRequest request = generateRandomTransaction(i, now);
-                var response = transactionService.processTransaction(request);
+                var response = transactionRoutingService.submit(request, null);
                 
                 switch (response.getRiskCategory()) {
                     case "APPROVED":
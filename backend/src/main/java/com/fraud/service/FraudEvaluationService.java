@@ -1,6 +1,9 @@
 package com.fraud.service;
 
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.config.ScoringSnapshot;
 import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.MLScoreResponse;
 import com.fraud.entity.Transaction;
 import com.fraud.entity.UserBaseline;
 import lombok.RequiredArgsConstructor;
@@ -8,49 +11,128 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FraudEvaluationService {
     
+    public static final String TIER_FULL = "FULL"; // Rules, statistics and ML
+    public static final String TIER_FAST = "FAST"; // Rules and statistics only
+    
     private final BaselineService baselineService;
     private final RuleEngineService ruleEngineService;
     private final StatisticalScorerService statisticalScorerService;
     private final MLScoringClient mlScoringClient;
     private final RiskAggregatorService riskAggregatorService;
+    private final MLEnrichmentService mlEnrichmentService;
+    private final ScoringConfigService scoringConfigService;
+    private final FraudDetectionConfig config;
     
     @Transactional
     public FraudEvaluationResponse evaluate(Transaction transaction) {
+        return evaluate(transaction, AdmissionControlService.Level.NORMAL);
+    }
+    
+    // Under load, admission control can have ML and the velocity lookup skipped
+    @Transactional
+    public FraudEvaluationResponse evaluate(Transaction transaction, AdmissionControlService.Level level) {
+        long started = System.nanoTime();
+        // One snapshot for the whole evaluation, even if a reload happens meanwhile
+        ScoringSnapshot settings = scoringConfigService.current();
+        
         // Get user baseline
-        UserBaseline baseline = baselineService.getOrCreateBaseline(transaction.getUserId());
+        UserBaseline baseline = baselineService.getBaselineFor(transaction);
+        
+        // Two-tier mode: the ML call runs alongside the rules instead of after them
+        boolean skipMl = level.skipsMl();
+        boolean twoTier = config.getDecision().getTwoTier() && !skipMl;
+        CompletableFuture<MLScoreResponse> mlFuture = twoTier
+            ? mlScoringClient.getMLScoreAsync(transaction, baseline)
+            : null;
         
         // 1. Rule-based evaluation
-        RuleEngineService.RuleEvaluationResult ruleResult = 
-            ruleEngineService.evaluateRules(transaction, baseline);
+        RuleEngineService.RuleEvaluationResult ruleResult = level.skipsVelocity()
+            ? ruleEngineService.evaluateRules(transaction, baseline, 0, settings)
+            : ruleEngineService.evaluateRules(transaction, baseline, settings);
         
         // 2. Statistical deviation scoring
         StatisticalScorerService.StatisticalScoreResult statResult = 
             statisticalScorerService.computeScore(transaction, baseline);
         
-        // 3. ML anomaly detection
-        com.fraud.dto.MLScoreResponse mlResponse = 
-            mlScoringClient.getMLScore(transaction, baseline);
+        // 3. ML anomaly detection; in two-tier mode only what arrives within the budget
+        MLScoreResponse mlResponse;
+        if (skipMl) {
+            mlResponse = null;
+        } else if (twoTier) {
+            long budgetNanos = TimeUnit.MILLISECONDS.toNanos(config.getDecision().getBudgetMs());
+            mlResponse = awaitWithin(mlFuture, budgetNanos - (System.nanoTime() - started));
+            if (mlResponse == null) {
+                mlEnrichmentService.enrichAfterCommit(transaction, mlFuture, ruleResult, statResult, settings);
+            }
+        } else {
+            mlResponse = mlScoringClient.getMLScore(transaction, baseline);
+        }
         
         // 4. Aggregate scores
+        FraudEvaluationResponse response = combine(transaction, ruleResult, statResult, mlResponse, settings, level);
+        
+        // Update baseline with this transaction
+        baselineService.updateBaseline(transaction);
+        
+        return response;
+    }
+    
+    // Scores against the inputs given, without reading or writing anything: velocity and the
+    // ML response (null when ML does not count) are supplied and the baseline is left as is
+    public FraudEvaluationResponse evaluateDetached(Transaction transaction, UserBaseline baseline, long velocityCount,
+                                                    MLScoreResponse mlResponse, ScoringSnapshot settings,
+                                                    AdmissionControlService.Level level) {
+        RuleEngineService.RuleEvaluationResult ruleResult =
+            ruleEngineService.evaluateRules(transaction, baseline, velocityCount, settings);
+        StatisticalScorerService.StatisticalScoreResult statResult =
+            statisticalScorerService.computeScore(transaction, baseline);
+        return combine(transaction, ruleResult, statResult, mlResponse, settings, level);
+    }
+    
+    // Final decision from the component results; mlResponse is null when ML did not count
+    public FraudEvaluationResponse combine(Transaction transaction,
+                                           RuleEngineService.RuleEvaluationResult ruleResult,
+                                           StatisticalScorerService.StatisticalScoreResult statResult,
+                                           MLScoreResponse mlResponse,
+                                           ScoringSnapshot settings,
+                                           AdmissionControlService.Level level) {
         FraudEvaluationResponse response = riskAggregatorService.aggregate(
             ruleResult.ruleScore,
             statResult.statisticalScore,
-            mlResponse.getMlScore(),
+            mlResponse != null ? mlResponse.getMlScore() : null,
             transaction.getTransactionId(),
-            ruleResult
+            ruleResult,
+            settings
         );
         
-        // Set z-score
+        // Set z-score and the tier that decided
         response.setZScore(statResult.zScore);
-        
-        // Update baseline with this transaction
-        baselineService.updateBaseline(transaction);
-        
+        response.setDecisionTier(mlResponse != null ? TIER_FULL : TIER_FAST);
+        response.setDegradation(level.name());
         return response;
     }
+    
+    // The ML response if it completes within the remaining budget, otherwise null
+    private MLScoreResponse awaitWithin(CompletableFuture<MLScoreResponse> mlFuture, long remainingNanos) {
+        try {
+            return remainingNanos > 0 ? mlFuture.get(remainingNanos, TimeUnit.NANOSECONDS) : mlFuture.getNow(null);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null; // Not expected: failed calls complete with the fallback score
+        }
+    }
 }
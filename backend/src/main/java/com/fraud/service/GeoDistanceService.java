@@ -0,0 +1,128 @@
+package com.fraud.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Distances between transaction locations from a centroid table loaded at startup.
+// Every US state and country is interned to a small integer code, and the distances
+// between all pairs are precomputed into one flat array, so scoring a transaction
+// costs a few char reads to find the codes and a single array access per distance.
+@Service
+@Slf4j
+public class GeoDistanceService {
+    
+    public static final int UNKNOWN = -1;
+    
+    private static final String CENTROIDS = "geo/centroids.csv";
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final int SLOTS = 26 * 26; // Every two-letter code
+    
+    // Two-letter code slot -> location code, UNKNOWN where the table has no entry
+    private final short[] countryCodes = new short[SLOTS];
+    private final short[] usStateCodes = new short[SLOTS];
+    private final int usCountryCode;
+    private final int size;
+    private final float[] distanceKm; // size x size, symmetric
+    
+    public GeoDistanceService() {
+        Arrays.fill(countryCodes, (short) UNKNOWN);
+        Arrays.fill(usStateCodes, (short) UNKNOWN);
+        List<double[]> centroids = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(CENTROIDS).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                String key = fields[0].trim();
+                boolean usState = key.startsWith("US-");
+                int slot = slot(usState ? key.substring(3) : key);
+                if (slot == UNKNOWN) {
+                    throw new IllegalStateException("Invalid location code in " + CENTROIDS + ": " + key);
+                }
+                (usState ? usStateCodes : countryCodes)[slot] = (short) centroids.size();
+                centroids.add(new double[]{
+                    Math.toRadians(Double.parseDouble(fields[1].trim())),
+                    Math.toRadians(Double.parseDouble(fields[2].trim()))
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load " + CENTROIDS, e);
+        }
+        
+        this.size = centroids.size();
+        this.usCountryCode = countryCodes[slot("US")];
+        this.distanceKm = new float[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                float distance = (float) haversineKm(centroids.get(i), centroids.get(j));
+                distanceKm[i * size + j] = distance;
+                distanceKm[j * size + i] = distance;
+            }
+        }
+        log.info("Loaded {} location centroids ({} KB distance matrix)", size, distanceKm.length * 4 / 1024);
+    }
+    
+    // Code of the most specific known location: the state centroid for US
+    // transactions, otherwise the country centroid, or UNKNOWN
+    public int locate(String state, String country) {
+        int slot = slot(country);
+        if (slot == UNKNOWN) {
+            return UNKNOWN;
+        }
+        int countryCode = countryCodes[slot];
+        if (countryCode == usCountryCode) {
+            int stateSlot = slot(state);
+            if (stateSlot != UNKNOWN && usStateCodes[stateSlot] != UNKNOWN) {
+                return usStateCodes[stateSlot];
+            }
+        }
+        return countryCode;
+    }
+    
+    // Kilometres between two location codes, or -1 if either is unknown
+    public double distanceKm(int from, int to) {
+        if (from < 0 || to < 0) {
+            return -1;
+        }
+        return distanceKm[from * size + to];
+    }
+    
+    public double distanceKm(String fromState, String fromCountry, String toState, String toCountry) {
+        return distanceKm(locate(fromState, fromCountry), locate(toState, toCountry));
+    }
+    
+    // Direct index for a two-letter code (case-insensitive), or UNKNOWN
+    private static int slot(String code) {
+        if (code == null || code.length() != 2) {
+            return UNKNOWN;
+        }
+        int first = (code.charAt(0) | 0x20) - 'a';
+        int second = (code.charAt(1) | 0x20) - 'a';
+        if (first < 0 || first >= 26 || second < 0 || second >= 26) {
+            return UNKNOWN;
+        }
+        return first * 26 + second;
+    }
+    
+    private static double haversineKm(double[] from, double[] to) {
+        double dLat = to[0] - from[0];
+        double dLon = to[1] - from[1];
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(from[0]) * Math.cos(to[0]) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
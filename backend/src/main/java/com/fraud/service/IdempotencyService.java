@@ -0,0 +1,202 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.entity.Transaction;
+import com.fraud.repository.AlertRepository;
+import com.fraud.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Makes transaction submission idempotent on transactionId. Recently completed ids
+// are answered from a bounded in-memory LRU; anything else is claimed with a
+// unique insert into processed_transactions, which also serializes concurrent
+// duplicates: the second insert waits for the first transaction and then conflicts.
+// The LRU holds each response as its serialized JSON, the same bytes that are stored
+// in the table, and every lookup decodes a fresh copy, so a caller changing the
+// response it got cannot change what later replays see.
+@Service
+@Slf4j
+public class IdempotencyService {
+    
+    private static final String CLAIM_SQL =
+        "INSERT INTO processed_transactions (transaction_id) VALUES (?) ON CONFLICT DO NOTHING";
+    
+    private static final String COMPLETE_SQL =
+        "UPDATE processed_transactions SET response = ? WHERE transaction_id = ?";
+    
+    private static final String FIND_RESPONSE_SQL =
+        "SELECT response FROM processed_transactions WHERE transaction_id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionRepository transactionRepository;
+    private final AlertRepository alertRepository;
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private final Map<String, byte[]> recent;
+    
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              TransactionRepository transactionRepository,
+                              AlertRepository alertRepository,
+                              ObjectMapper objectMapper,
+                              FraudDetectionConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionRepository = transactionRepository;
+        this.alertRepository = alertRepository;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        int capacity = config.getIdempotency().getCacheSize();
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+    
+    // The response of a recently completed submission, or null
+    public FraudEvaluationResponse findRecent(String transactionId) {
+        return decode(transactionId, recent.get(transactionId));
+    }
+    
+    // True if this call owns the transaction id and must process it; false if it was
+    // already processed (or is being processed by a transaction that then committed)
+    public boolean claim(String transactionId) {
+        return jdbcTemplate.update(CLAIM_SQL, transactionId) == 1;
+    }
+    
+    // Stores the response with the claim and caches it once the transaction commits
+    public void complete(String transactionId, FraudEvaluationResponse response) {
+        byte[] encoded = encode(transactionId, response);
+        if (encoded == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(COMPLETE_SQL, new String(encoded, StandardCharsets.UTF_8), transactionId);
+        } catch (Exception e) {
+            log.warn("Failed to store response for transaction {}: {}", transactionId, e.getMessage());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(transactionId, encoded);
+                }
+            });
+        } else {
+            recent.put(transactionId, encoded);
+        }
+    }
+    
+    // Caches a response stored by a caller that manages its own transaction (reactive path)
+    public void remember(String transactionId, FraudEvaluationResponse response) {
+        byte[] encoded = encode(transactionId, response);
+        if (encoded != null) {
+            recent.put(transactionId, encoded);
+        }
+    }
+    
+    // The response of an already processed transaction, for replays
+    public FraudEvaluationResponse loadStored(String transactionId) {
+        FraudEvaluationResponse stored = findStored(transactionId);
+        if (stored != null) {
+            return stored;
+        }
+        // Processed before responses were stored: answer from the transaction row
+        Transaction transaction = transactionRepository.findById(transactionId)
+            .orElseThrow(() -> new IllegalStateException("Transaction already processed: " + transactionId));
+        return fromTransaction(transaction);
+    }
+    
+    // The stored response of a completed submission, or null if there is none (yet)
+    public FraudEvaluationResponse findStored(String transactionId) {
+        FraudEvaluationResponse cached = findRecent(transactionId);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> stored = jdbcTemplate.queryForList(FIND_RESPONSE_SQL, String.class, transactionId);
+        if (!stored.isEmpty() && stored.get(0) != null) {
+            byte[] encoded = stored.get(0).getBytes(StandardCharsets.UTF_8);
+            FraudEvaluationResponse response = decode(transactionId, encoded);
+            if (response != null) {
+                recent.put(transactionId, encoded);
+            }
+            return response;
+        }
+        return null;
+    }
+    
+    // Forgets every processed id, for the admin data reset
+    public void clear() {
+        jdbcTemplate.execute("TRUNCATE TABLE processed_transactions");
+        recent.clear();
+    }
+    
+    @Scheduled(cron = "${fraud.detection.idempotency.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int retentionDays = config.getIdempotency().getRetentionDays();
+        if (retentionDays <= 0) {
+            return;
+        }
+        int purged = jdbcTemplate.update("DELETE FROM processed_transactions WHERE created_at < ?",
+            LocalDateTime.now().minusDays(retentionDays));
+        if (purged > 0) {
+            log.info("Purged {} processed transaction ids older than {} days", purged, retentionDays);
+        }
+    }
+    
+    private byte[] encode(String transactionId, FraudEvaluationResponse response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (Exception e) {
+            log.warn("Failed to serialize response for transaction {}: {}", transactionId, e.getMessage());
+            return null;
+        }
+    }
+    
+    private FraudEvaluationResponse decode(String transactionId, byte[] encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(encoded, FraudEvaluationResponse.class);
+        } catch (Exception e) {
+            log.warn("Unreadable stored response for transaction {}: {}", transactionId, e.getMessage());
+            return null;
+        }
+    }
+    
+    private FraudEvaluationResponse fromTransaction(Transaction transaction) {
+        List<FraudEvaluationResponse.TriggeredRule> triggeredRules = List.of();
+        if (transaction.getTriggeredRules() != null && !transaction.getTriggeredRules().isEmpty()) {
+            try {
+                triggeredRules = objectMapper.readValue(transaction.getTriggeredRules(),
+                    new TypeReference<List<FraudEvaluationResponse.TriggeredRule>>() {});
+            } catch (Exception e) {
+                log.warn("Failed to deserialize triggered rules for transaction {}: {}",
+                    transaction.getTransactionId(), e.getMessage());
+            }
+        }
+        return FraudEvaluationResponse.builder()
+            .transactionId(transaction.getTransactionId())
+            .riskScore(transaction.getRiskScore())
+            .riskCategory(transaction.getRiskCategory())
+            .triggeredRules(triggeredRules)
+            .explanation(transaction.getExplanation())
+            .alertCreated(alertRepository.existsByTransactionId(transaction.getTransactionId()))
+            .build();
+    }
+}
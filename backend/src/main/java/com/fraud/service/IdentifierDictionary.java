@@ -0,0 +1,195 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.baseline.BaselineProfile;
+import com.fraud.baseline.IntHashSet;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.entity.Transaction;
+import com.fraud.entity.UserBaseline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps the identifiers scoring compares (merchant and device ids, categories, states and
+// countries) to dense ints, assigned on first sight and never reused, so the hot path
+// compares ints and keeps int sets instead of strings. Transactions are interned when
+// they are built from a request; each kind holds at most interning.max-ids values, after
+// which new values get id 0 and are compared as strings. Categories are interned case-
+// insensitively, since rules only ever looked them up lowercased. Ids are never evicted,
+// so max-ids is what bounds the heap: each id costs about BYTES_PER_ID plus its characters.
+@Service
+@Slf4j
+public class IdentifierDictionary {
+    
+    public static final int NONE = 0;
+    
+    // Map node, boxed id, String header and array, and the values slot (with growth slack)
+    static final int BYTES_PER_ID = 120;
+    
+    public enum Kind { MERCHANT, DEVICE, CATEGORY, STATE, COUNTRY }
+    
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+    
+    private final int maxIds;
+    private final Table[] tables = new Table[Kind.values().length];
+    
+    public IdentifierDictionary(FraudDetectionConfig config) {
+        this.maxIds = config.getInterning().getMaxIds();
+        for (Kind kind : Kind.values()) {
+            tables[kind.ordinal()] = new Table(kind);
+        }
+    }
+    
+    // Id of the value, assigned now if it is new; NONE for null or once the kind is full
+    public int intern(Kind kind, String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Table table = tables[kind.ordinal()];
+        Integer id = table.ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (kind == Kind.CATEGORY) {
+            String folded = value.toLowerCase(Locale.ROOT);
+            if (!folded.equals(value)) {
+                int foldedId = table.assign(folded);
+                if (foldedId != NONE) {
+                    table.ids.putIfAbsent(value, foldedId);
+                }
+                return foldedId;
+            }
+        }
+        return table.assign(value);
+    }
+    
+    // The value an id was assigned to, or null
+    public String lookup(Kind kind, int id) {
+        String[] values = tables[kind.ordinal()].values;
+        return id > 0 && id < values.length ? values[id] : null;
+    }
+    
+    // Fills in the transaction's keys; a no-op for keys already interned
+    public void intern(Transaction transaction) {
+        if (transaction.getMerchantKey() == NONE) {
+            transaction.setMerchantKey(intern(Kind.MERCHANT, transaction.getMerchantId()));
+        }
+        if (transaction.getDeviceKey() == NONE) {
+            transaction.setDeviceKey(intern(Kind.DEVICE, transaction.getDeviceId()));
+        }
+        if (transaction.getCategoryKey() == NONE) {
+            transaction.setCategoryKey(intern(Kind.CATEGORY, transaction.getMerchantCategory()));
+        }
+        if (transaction.getStateKey() == NONE) {
+            transaction.setStateKey(intern(Kind.STATE, transaction.getLocationState()));
+        }
+        if (transaction.getCountryKey() == NONE) {
+            transaction.setCountryKey(intern(Kind.COUNTRY, transaction.getLocationCountry()));
+        }
+    }
+    
+    // The baseline's interned profile, built from its columns the first time it is needed
+    // and kept on the baseline (and its copies) while those columns do not change
+    public BaselineProfile profile(UserBaseline baseline) {
+        BaselineProfile profile = baseline.getProfile();
+        if (profile != null && profile.isCurrentFor(baseline)) {
+            return profile;
+        }
+        List<String> devices = parseList(baseline.getKnownDevices());
+        List<String> merchants = parseList(baseline.getKnownMerchants());
+        IntHashSet deviceIds = new IntHashSet(devices.size());
+        IntHashSet merchantIds = new IntHashSet(merchants.size());
+        Set<String> uninternedDevices = new HashSet<>();
+        Set<String> uninternedMerchants = new HashSet<>();
+        internAll(Kind.DEVICE, devices, deviceIds, uninternedDevices);
+        internAll(Kind.MERCHANT, merchants, merchantIds, uninternedMerchants);
+        profile = new BaselineProfile(baseline, deviceIds, merchantIds, uninternedDevices, uninternedMerchants,
+            intern(Kind.STATE, baseline.getLastTransactionState()),
+            intern(Kind.COUNTRY, baseline.getLastTransactionCountry()));
+        baseline.setProfile(profile);
+        return profile;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        long estimatedBytes = 0;
+        for (Kind kind : Kind.values()) {
+            Table table = tables[kind.ordinal()];
+            status.put(kind.name().toLowerCase(Locale.ROOT), table.count);
+            estimatedBytes += table.count * (long) BYTES_PER_ID + table.chars;
+        }
+        status.put("maxIdsPerKind", maxIds);
+        status.put("estimatedBytes", estimatedBytes);
+        return status;
+    }
+    
+    private void internAll(Kind kind, List<String> values, IntHashSet ids, Set<String> uninterned) {
+        for (String value : values) {
+            int id = intern(kind, value);
+            if (id != NONE) {
+                ids.add(id);
+            } else {
+                uninterned.add(value);
+            }
+        }
+    }
+    
+    private static List<String> parseList(String json) {
+        if (json == null || json.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return JSON.readValue(json, STRING_LIST);
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+    
+    private final class Table {
+        private final Kind kind;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[1024]; // Indexed by id; 0 is never assigned
+        private volatile int count; // Written under the table's lock
+        private volatile long chars; // Total length of the values, for the memory estimate
+        private boolean full;
+        
+        private Table(Kind kind) {
+            this.kind = kind;
+        }
+        
+        private synchronized int assign(String value) {
+            Integer existing = ids.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            if (count >= maxIds) {
+                if (!full) {
+                    full = true;
+                    log.warn("Identifier dictionary full for {} at {} ids; new values are compared as strings",
+                        kind, maxIds);
+                }
+                return NONE;
+            }
+            int id = count + 1;
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[id] = value;
+            // Published after the reverse entry, so lookup() finds every id it can be given
+            ids.put(value, id);
+            chars += value.length();
+            count = id;
+            return id;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionRequest;
+import com.fraud.ingest.DeadLetterLog;
+import com.fraud.ingest.IngestLog;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous scoring. Accepted transactions are appended to a durable local log and
+// acknowledged right away; a dispatcher thread tails the log and hands each record to
+// a scoring worker chosen by userId, so one user's transactions are scored in order.
+// The committed offset only moves past records that have been persisted, either scored
+// or, after max-attempts failures, forced into the dead-letter file next to the log, and
+// it is checkpointed to disk: after a crash everything from the checkpoint on is
+// replayed, which idempotent processing turns into no-ops for records already scored.
+// Dead letters stay on disk across restarts until they are retried.
+@Service
+@Slf4j
+public class IngestionService {
+    
+    private static final String OFFSET_FILE = "committed.offset";
+    private static final String DEAD_LETTER_FILE = "dead-letter.jsonl";
+    
+    private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private final IngestLog ingestLog; // Null when async ingestion is disabled
+    private final DeadLetterLog deadLetters; // Null when async ingestion is disabled
+    private final Path offsetFile;
+    
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> failures;
+    private final TreeSet<Long> inFlight = new TreeSet<>(); // Guarded by itself
+    private long dispatchedUpTo; // Guarded by inFlight
+    private volatile long committedOffset;
+    private long checkpointedOffset;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    
+    private final List<BlockingQueue<Task>> workerQueues = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile Thread dispatcher;
+    private volatile boolean running;
+    
+    public IngestionService(TransactionService transactionService,
+                            IdempotencyService idempotencyService,
+                            ObjectMapper objectMapper,
+                            FraudDetectionConfig config) {
+        this.transactionService = transactionService;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.failures = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > 1000;
+            }
+        });
+        
+        FraudDetectionConfig.Ingest settings = config.getIngest();
+        if (!settings.getEnabled()) {
+            this.ingestLog = null;
+            this.deadLetters = null;
+            this.offsetFile = null;
+            return;
+        }
+        try {
+            Path directory = Paths.get(settings.getDirectory());
+            this.ingestLog = new IngestLog(directory, settings.getSegmentMb() * 1024 * 1024,
+                settings.getSyncEveryAppend());
+            this.offsetFile = directory.resolve(OFFSET_FILE);
+            this.deadLetters = new DeadLetterLog(directory.resolve(DEAD_LETTER_FILE));
+            // Results of earlier failures keep answering FAILED after a restart
+            for (DeadLetter deadLetter : readDeadLetters()) {
+                failures.put(deadLetter.getTransactionId(), deadLetter.getError());
+            }
+            if (deadLetters.size() > 0) {
+                log.warn("{} ingest records are dead-lettered in {}; retry them with " +
+                    "POST /api/admin/ingest/dead-letters/retry", deadLetters.size(), DEAD_LETTER_FILE);
+            }
+            long checkpoint = Files.exists(offsetFile)
+                ? Long.parseLong(Files.readString(offsetFile).trim())
+                : ingestLog.getFirstOffset();
+            this.committedOffset = Math.max(checkpoint, ingestLog.getFirstOffset());
+            this.checkpointedOffset = committedOffset;
+            this.dispatchedUpTo = committedOffset;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open ingest log in " + settings.getDirectory(), e);
+        }
+    }
+    
+    public boolean isEnabled() {
+        return ingestLog != null;
+    }
+    
+    // Whether this request should be queued instead of scored inline
+    public boolean acceptsAsync(String prefer) {
+        FraudDetectionConfig.Ingest settings = config.getIngest();
+        return settings.getEnabled() && (settings.getAsyncByDefault()
+            || (prefer != null && prefer.toLowerCase().contains("respond-async")));
+    }
+    
+    // Durably queues the transaction for scoring and returns its log offset
+    public long accept(TransactionRequest request) throws IOException {
+        if (ingestLog.getNextOffset() - committedOffset >= config.getIngest().getMaxLag()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Ingest backlog is full");
+        }
+        byte[] payload = objectMapper.writeValueAsBytes(request);
+        pending.add(request.getTransactionId());
+        long offset;
+        try {
+            offset = ingestLog.append(payload);
+        } catch (IOException | RuntimeException e) {
+            pending.remove(request.getTransactionId());
+            throw e;
+        }
+        Thread current = dispatcher;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+        return offset;
+    }
+    
+    // Result of an accepted transaction, or null if this id is unknown
+    public Map<String, Object> getResult(String transactionId) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("transactionId", transactionId);
+        if (pending.contains(transactionId)) {
+            result.put("status", "PENDING");
+            return result;
+        }
+        String error = failures.get(transactionId);
+        if (error != null) {
+            result.put("status", "FAILED");
+            result.put("error", error);
+            return result;
+        }
+        FraudEvaluationResponse response = idempotencyService.findStored(transactionId);
+        if (response == null) {
+            return null;
+        }
+        result.put("status", "COMPLETED");
+        result.put("result", response);
+        return result;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", ingestLog != null);
+        if (ingestLog != null) {
+            status.put("nextOffset", ingestLog.getNextOffset());
+            status.put("committedOffset", committedOffset);
+            status.put("lag", ingestLog.getNextOffset() - committedOffset);
+            status.put("segments", ingestLog.getSegmentCount());
+            status.put("pending", pending.size());
+            status.put("processed", processed.get());
+            status.put("failed", failed.get());
+            status.put("deadLetters", deadLetters.size());
+            status.put("workers", workerQueues.size());
+        }
+        return status;
+    }
+    
+    // The most recent dead-lettered records, newest last
+    public List<DeadLetter> getDeadLetters(int limit) throws IOException {
+        List<DeadLetter> all = readDeadLetters();
+        return all.size() > limit ? new ArrayList<>(all.subList(all.size() - limit, all.size())) : all;
+    }
+    
+    // Appends every dead-lettered record to the log again and empties the dead-letter file.
+    // A record that was scored in the meantime is a no-op thanks to idempotency.
+    public int retryDeadLetters() throws IOException {
+        int retried = deadLetters.drain(entry -> {
+            DeadLetter deadLetter = objectMapper.readValue(entry, DeadLetter.class);
+            String transactionId = deadLetter.getTransactionId();
+            pending.add(transactionId);
+            failures.remove(transactionId);
+            ingestLog.append(objectMapper.writeValueAsBytes(deadLetter.getRequest()));
+        });
+        Thread current = dispatcher;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+        if (retried > 0) {
+            log.info("Re-queued {} dead-lettered ingest records", retried);
+        }
+        return retried;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (ingestLog == null) {
+            return;
+        }
+        running = true;
+        FraudDetectionConfig.Ingest settings = config.getIngest();
+        for (int i = 0; i < settings.getWorkers(); i++) {
+            BlockingQueue<Task> queue = new ArrayBlockingQueue<>(settings.getWorkerQueueCapacity());
+            workerQueues.add(queue);
+            Thread worker = new Thread(() -> work(queue), "ingest-worker-" + (i + 1));
+            worker.setDaemon(true);
+            threads.add(worker);
+            worker.start();
+        }
+        long backlog = ingestLog.getNextOffset() - committedOffset;
+        if (backlog > 0) {
+            log.info("Replaying {} unscored records from the ingest log, starting at offset {}", backlog,
+                committedOffset);
+        }
+        IngestLog.Cursor cursor = ingestLog.cursor(committedOffset);
+        Thread thread = new Thread(() -> dispatch(cursor), "ingest-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (ingestLog == null) {
+            return;
+        }
+        running = false;
+        // Workers finish their current record; anything still queued is replayed on restart
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkpoint();
+        ingestLog.close();
+        deadLetters.close();
+    }
+    
+    // Persists the committed offset and deletes segments that are fully scored
+    @Scheduled(fixedDelayString = "${fraud.detection.ingest.checkpoint-ms:1000}")
+    public synchronized void checkpoint() {
+        if (ingestLog == null) {
+            return;
+        }
+        if (!config.getIngest().getSyncEveryAppend()) {
+            ingestLog.flush();
+        }
+        long offset = committedOffset;
+        if (offset == checkpointedOffset) {
+            return;
+        }
+        try {
+            Path temp = offsetFile.resolveSibling(OFFSET_FILE + ".tmp");
+            Files.writeString(temp, Long.toString(offset));
+            Files.move(temp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointedOffset = offset;
+            int deleted = ingestLog.deleteBefore(offset);
+            if (deleted > 0) {
+                log.info("Deleted {} fully scored ingest log segments", deleted);
+            }
+        } catch (IOException e) {
+            log.error("Failed to checkpoint ingest offset {}", offset, e);
+        }
+    }
+    
+    private void dispatch(IngestLog.Cursor cursor) {
+        while (running) {
+            IngestLog.Record record = cursor.poll();
+            if (record == null) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                continue;
+            }
+            TransactionRequest request;
+            try {
+                request = objectMapper.readValue(record.payload, TransactionRequest.class);
+            } catch (Exception e) {
+                log.error("Skipping unreadable ingest record at offset {}", record.offset, e);
+                synchronized (inFlight) {
+                    dispatchedUpTo = record.offset + 1;
+                }
+                complete(record.offset);
+                continue;
+            }
+            synchronized (inFlight) {
+                inFlight.add(record.offset);
+                dispatchedUpTo = record.offset + 1;
+            }
+            pending.add(request.getTransactionId());
+            // Same user, same worker: a user's transactions are scored in log order
+            BlockingQueue<Task> queue = workerQueues.get(Math.floorMod(request.getUserId().hashCode(),
+                workerQueues.size()));
+            try {
+                while (!queue.offer(new Task(record.offset, request), 100, TimeUnit.MILLISECONDS)) {
+                    if (!running) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+    
+    private void work(BlockingQueue<Task> queue) {
+        while (running) {
+            Task task;
+            try {
+                task = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task != null) {
+                process(task);
+            }
+        }
+    }
+    
+    private void process(Task task) {
+        String transactionId = task.request.getTransactionId();
+        int maxAttempts = config.getIngest().getMaxAttempts();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionService.processTransaction(task.request);
+                processed.incrementAndGet();
+                break;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Giving up on transaction {} at offset {} after {} attempts: {}", transactionId,
+                        task.offset, attempt, e.getMessage());
+                    if (!deadLetter(task, e.getMessage())) {
+                        return; // Shutting down: still in flight, so it is replayed on restart
+                    }
+                    failures.put(transactionId, e.getMessage());
+                    failed.incrementAndGet();
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(500L * attempt));
+            }
+        }
+        pending.remove(transactionId);
+        complete(task.offset);
+    }
+    
+    // The offset may only move past a failed record once it is on disk elsewhere, so this
+    // keeps trying until the write succeeds; false if the service stops first
+    private boolean deadLetter(Task task, String error) {
+        byte[] entry;
+        try {
+            entry = objectMapper.writeValueAsBytes(new DeadLetter(task.offset, task.request.getTransactionId(),
+                error, LocalDateTime.now(), task.request));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot serialize dead letter for offset " + task.offset, e);
+        }
+        for (int attempt = 1; running; attempt++) {
+            try {
+                deadLetters.append(entry);
+                return true;
+            } catch (IOException e) {
+                log.error("Failed to dead-letter ingest record at offset {} (attempt {}): {}", task.offset,
+                    attempt, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.min(5000L, 500L * attempt)));
+            }
+        }
+        return false;
+    }
+    
+    private List<DeadLetter> readDeadLetters() throws IOException {
+        List<DeadLetter> result = new ArrayList<>();
+        for (byte[] entry : deadLetters.readAll()) {
+            result.add(objectMapper.readValue(entry, DeadLetter.class));
+        }
+        return result;
+    }
+    
+    // Everything below the oldest record still being scored is committed
+    private void complete(long offset) {
+        synchronized (inFlight) {
+            inFlight.remove(offset);
+            committedOffset = inFlight.isEmpty() ? dispatchedUpTo : inFlight.first();
+        }
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DeadLetter {
+        private long offset;
+        private String transactionId;
+        private String error;
+        private LocalDateTime failedAt;
+        private TransactionRequest request;
+    }
+    
+    private static class Task {
+        final long offset;
+        final TransactionRequest request;
+        
+        Task(long offset, TransactionRequest request) {
+            this.offset = offset;
+            this.request = request;
+        }
+    }
+}
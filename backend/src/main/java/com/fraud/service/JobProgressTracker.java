@@ -0,0 +1,170 @@
+package com.fraud.service;
+
+import com.fraud.entity.JobCheckpoint;
+import com.fraud.repository.JobCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Run state, progress counters and the persisted checkpoint of one user-partitioned
+// job. At most one run per job is active at a time.
+@Slf4j
+public class JobProgressTracker {
+    
+    private final String jobName;
+    private final JobCheckpointRepository checkpointRepository;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean stopRequested = new AtomicBoolean(false);
+    private final AtomicLong usersProcessed = new AtomicLong();
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private volatile String lastUserId;
+    private volatile LocalDateTime startedAt;
+    private volatile JobCheckpoint.JobStatus status;
+    private volatile String details;
+    private volatile String error;
+    
+    public JobProgressTracker(String jobName, JobCheckpointRepository checkpointRepository) {
+        this.jobName = jobName;
+        this.checkpointRepository = checkpointRepository;
+    }
+    
+    // Claims the job and restores the last checkpoint when resuming an unfinished
+    // run; false if a run is already active
+    public boolean begin(boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            stopRequested.set(false);
+            error = null;
+            
+            JobCheckpoint checkpoint = checkpointRepository.findById(jobName).orElse(null);
+            if (resume && checkpoint != null && checkpoint.getStatus() != JobCheckpoint.JobStatus.COMPLETED) {
+                lastUserId = checkpoint.getLastUserId();
+                usersProcessed.set(checkpoint.getUsersProcessed());
+                rowsProcessed.set(checkpoint.getRowsProcessed());
+                startedAt = checkpoint.getStartedAt() != null ? checkpoint.getStartedAt() : LocalDateTime.now();
+                details = checkpoint.getDetails();
+                log.info("Resuming {} after user {}", jobName, lastUserId);
+            } else {
+                lastUserId = null;
+                usersProcessed.set(0);
+                rowsProcessed.set(0);
+                startedAt = LocalDateTime.now();
+                details = null;
+            }
+            status = JobCheckpoint.JobStatus.RUNNING;
+            saveCheckpoint();
+            return true;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+    
+    // Runs the body on a background thread; the body returns false if it stopped early
+    public void runInBackground(JobBody body) {
+        Thread worker = new Thread(() -> {
+            long runStart = System.currentTimeMillis();
+            try {
+                boolean finished = body.run(lastUserId);
+                status = finished ? JobCheckpoint.JobStatus.COMPLETED : JobCheckpoint.JobStatus.STOPPED;
+                log.info("{} {}: {} users, {} rows in {} ms", jobName, status,
+                    usersProcessed.get(), rowsProcessed.get(), System.currentTimeMillis() - runStart);
+            } catch (Exception e) {
+                log.error("{} failed after user {}", jobName, lastUserId, e);
+                status = JobCheckpoint.JobStatus.FAILED;
+                error = e.getMessage();
+            } finally {
+                try {
+                    saveCheckpoint();
+                } catch (Exception e) {
+                    log.error("Failed to save final {} checkpoint", jobName, e);
+                }
+                running.set(false);
+            }
+        }, jobName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    public void recordChunk(String chunkLastUserId, int users, int rows) {
+        lastUserId = chunkLastUserId;
+        usersProcessed.addAndGet(users);
+        rowsProcessed.addAndGet(rows);
+        saveCheckpoint();
+        log.debug("{} checkpoint at user {} ({} users, {} rows)",
+            jobName, chunkLastUserId, usersProcessed.get(), rowsProcessed.get());
+    }
+    
+    public void stop() {
+        stopRequested.set(true);
+    }
+    
+    public boolean isStopRequested() {
+        return stopRequested.get();
+    }
+    
+    public String getDetails() {
+        return details;
+    }
+    
+    public void setDetails(String details) {
+        this.details = details;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> result = new HashMap<>();
+        if (status == null) {
+            JobCheckpoint checkpoint = checkpointRepository.findById(jobName).orElse(null);
+            if (checkpoint == null) {
+                result.put("status", "IDLE");
+                return result;
+            }
+            result.put("status", checkpoint.getStatus());
+            result.put("lastUserId", checkpoint.getLastUserId());
+            result.put("usersProcessed", checkpoint.getUsersProcessed());
+            result.put("rowsProcessed", checkpoint.getRowsProcessed());
+            result.put("startedAt", checkpoint.getStartedAt());
+            result.put("updatedAt", checkpoint.getUpdatedAt());
+            return result;
+        }
+        
+        long elapsedMs = Duration.between(startedAt, LocalDateTime.now()).toMillis();
+        result.put("status", status);
+        result.put("running", running.get());
+        result.put("lastUserId", lastUserId);
+        result.put("usersProcessed", usersProcessed.get());
+        result.put("rowsProcessed", rowsProcessed.get());
+        result.put("startedAt", startedAt);
+        result.put("elapsedMs", elapsedMs);
+        result.put("rowsPerSecond", elapsedMs > 0 ? rowsProcessed.get() * 1000 / elapsedMs : 0);
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+    
+    private void saveCheckpoint() {
+        checkpointRepository.save(JobCheckpoint.builder()
+            .jobName(jobName)
+            .status(status)
+            .lastUserId(lastUserId)
+            .usersProcessed(usersProcessed.get())
+            .rowsProcessed(rowsProcessed.get())
+            .startedAt(startedAt)
+            .details(details)
+            .build());
+    }
+    
+    @FunctionalInterface
+    public interface JobBody {
+        boolean run(String afterUserId) throws Exception;
+    }
+}
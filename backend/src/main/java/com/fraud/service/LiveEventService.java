@@ -0,0 +1,254 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.entity.Alert;
+import com.fraud.event.TransactionScoredEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pushes new alerts, alert triage changes and transaction stat deltas to dashboard subscribers over SSE.
+// Each event is serialized once and offered to every subscriber's bounded buffer;
+// a small dispatcher pool drains the buffers, so a slow client only loses its own
+// oldest events (and is told to resync) instead of holding up anyone else.
+@Service
+@Slf4j
+public class LiveEventService {
+    
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    
+    // Stat deltas since the last flush, coalesced into one event per interval
+    private final LongAdder total = new LongAdder();
+    private final LongAdder approved = new LongAdder();
+    private final LongAdder monitor = new LongAdder();
+    private final LongAdder flagged = new LongAdder();
+    
+    public LiveEventService(ObjectMapper objectMapper, FraudDetectionConfig config) {
+        this.objectMapper = objectMapper;
+        this.config = config;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(config.getStream().getDispatcherThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L); // No timeout; heartbeats detect dead clients
+        Subscriber subscriber = new Subscriber(emitter, config.getStream().getBufferSize());
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.add(subscriber);
+        // Flushes the response headers so the browser sees the stream open right away
+        subscriber.offer(SseEmitter.event().comment("connected").reconnectTime(3000).build());
+        log.debug("SSE subscriber added ({} active)", subscribers.size());
+        return emitter;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionScored(TransactionScoredEvent event) {
+        total.increment();
+        String category = event.getEvaluation().getRiskCategory();
+        if ("APPROVED".equals(category)) {
+            approved.increment();
+        } else if ("MONITOR".equals(category)) {
+            monitor.increment();
+        } else if ("FLAGGED".equals(category)) {
+            flagged.increment();
+        }
+        Alert alert = event.getAlert();
+        if (alert != null) {
+            broadcast("alert", alert);
+        }
+    }
+    
+    // Alert raised outside the scoring transaction, e.g. after ML enrichment
+    public void publishAlert(Alert alert) {
+        broadcast("alert", alert);
+    }
+    
+    // Tells clients their view is stale (e.g. after a reset) so they reload once
+    public void publishResync(String reason) {
+        broadcastAfterCommit("resync", Map.of("reason", reason));
+    }
+    
+    // Alerts changed status in place (triage), so alert views should reload
+    public void publishAlertsUpdated(Alert.AlertStatus status, int count) {
+        broadcastAfterCommit("alerts", Map.of("status", status, "updated", count));
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("subscribers", subscribers.size());
+        status.put("droppedEvents", droppedEvents.get());
+        return status;
+    }
+    
+    @Scheduled(fixedDelayString = "${fraud.detection.stream.stats-interval-ms:1000}")
+    public void flushStats() {
+        long totalDelta = total.sumThenReset();
+        long approvedDelta = approved.sumThenReset();
+        long monitorDelta = monitor.sumThenReset();
+        long flaggedDelta = flagged.sumThenReset();
+        if (totalDelta == 0 || subscribers.isEmpty()) {
+            return;
+        }
+        Map<String, Long> delta = new HashMap<>();
+        delta.put("total", totalDelta);
+        delta.put("approved", approvedDelta);
+        delta.put("monitor", monitorDelta);
+        delta.put("flagged", flaggedDelta);
+        broadcast("stats", delta);
+    }
+    
+    @Scheduled(fixedRateString = "${fraud.detection.stream.heartbeat-ms:20000}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) {
+            Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+            subscribers.forEach(s -> s.offer(ping));
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(s -> s.emitter.complete());
+        dispatcher.shutdownNow();
+    }
+    
+    private void broadcast(String name, Object payload) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            log.error("Failed to serialize {} event", name, e);
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> event =
+            SseEmitter.event().name(name).data(json).build();
+        subscribers.forEach(s -> s.offer(event));
+    }
+    
+    // Inside a transaction the event waits for the commit, so a reload sees the change
+    private void broadcastAfterCommit(String name, Object payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast(name, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                broadcast(name, payload);
+            }
+        });
+    }
+    
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        if (subscribers.remove(subscriber)) {
+            log.debug("SSE subscriber removed ({} active)", subscribers.size());
+        }
+    }
+    
+    private class Subscriber {
+        final SseEmitter emitter;
+        final int capacity;
+        final Deque<Set<ResponseBodyEmitter.DataWithMediaType>> buffer; // Guarded by this
+        int dropped; // Guarded by this
+        boolean draining; // Guarded by this
+        volatile boolean closed;
+        
+        Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.capacity = capacity;
+            this.buffer = new ArrayDeque<>(capacity);
+        }
+        
+        // Never blocks the publisher: a full buffer drops its oldest event
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (buffer.size() >= capacity) {
+                    buffer.pollFirst();
+                    dropped++;
+                    droppedEvents.incrementAndGet();
+                }
+                buffer.addLast(event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                dispatcher.execute(this::drain);
+            } catch (Exception e) {
+                remove(this);
+            }
+        }
+        
+        private void drain() {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                int lost;
+                synchronized (this) {
+                    lost = dropped;
+                    dropped = 0;
+                    event = buffer.pollFirst();
+                    if (event == null && lost == 0) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    if (lost > 0) {
+                        // Events were lost, so incremental updates no longer add up
+                        emitter.send(SseEmitter.event().name("resync")
+                            .data("{\"reason\":\"dropped\",\"dropped\":" + lost + "}"));
+                    }
+                    if (event != null) {
+                        emitter.send(event);
+                    }
+                } catch (Exception e) {
+                    remove(this);
+                    emitter.completeWithError(e);
+                    synchronized (this) {
+                        buffer.clear();
+                        draining = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
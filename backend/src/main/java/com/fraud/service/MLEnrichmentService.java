@@ -0,0 +1,195 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.config.ScoringSnapshot;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.MLScoreResponse;
+import com.fraud.entity.Alert;
+import com.fraud.entity.Transaction;
+import com.fraud.event.TransactionRescoredEvent;
+import com.fraud.repository.AlertRepository;
+import com.fraud.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Second tier of two-tier decisioning. Transactions decided on rules and statistics
+// alone get their ML score applied once it arrives: the stored score, category and
+// explanation are re-aggregated, and an alert is raised retroactively when the full
+// score crosses the hard flag. The stored idempotency response is replaced in the same
+// transaction, so retries get the full decision, and a TransactionRescoredEvent lets
+// the live aggregates move the transaction to its new category. Work starts only after
+// the transaction commits.
+@Service
+@Slf4j
+public class MLEnrichmentService {
+    
+    private final RiskAggregatorService riskAggregatorService;
+    private final TransactionRepository transactionRepository;
+    private final AlertRepository alertRepository;
+    private final LiveEventService liveEventService;
+    private final ResponseCacheService responseCache;
+    private final IdempotencyService idempotencyService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    
+    private final AtomicLong enriched = new AtomicLong();
+    private final AtomicLong retroactiveAlerts = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    
+    public MLEnrichmentService(RiskAggregatorService riskAggregatorService,
+                               TransactionRepository transactionRepository,
+                               AlertRepository alertRepository,
+                               LiveEventService liveEventService,
+                               ResponseCacheService responseCache,
+                               IdempotencyService idempotencyService,
+                               ApplicationEventPublisher eventPublisher,
+                               TransactionTemplate transactionTemplate,
+                               FraudDetectionConfig config) {
+        this.riskAggregatorService = riskAggregatorService;
+        this.transactionRepository = transactionRepository;
+        this.alertRepository = alertRepository;
+        this.liveEventService = liveEventService;
+        this.responseCache = responseCache;
+        this.idempotencyService = idempotencyService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = config.getDecision().getEnrichmentThreads();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getDecision().getEnrichmentQueueCapacity()), runnable -> {
+                Thread thread = new Thread(runnable, "ml-enrich-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+    
+    // Applies the ML score to the fast-path decision once both the score and the
+    // transaction's commit are in
+    public void enrichAfterCommit(Transaction transaction,
+                                  CompletableFuture<MLScoreResponse> mlScore,
+                                  RuleEngineService.RuleEvaluationResult ruleResult,
+                                  StatisticalScorerService.StatisticalScoreResult statResult,
+                                  ScoringSnapshot settings) {
+        Runnable schedule = () -> mlScore
+            .thenAcceptAsync(response -> enrich(transaction, response, ruleResult, statResult, settings), executor)
+            .exceptionally(e -> {
+                // A full queue rejects the task; the fast-path decision then stands
+                dropped.incrementAndGet();
+                log.warn("ML enrichment of transaction {} skipped: {}", transaction.getTransactionId(),
+                    e.getMessage());
+                return null;
+            });
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            schedule.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule.run();
+            }
+        });
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("queued", executor.getQueue().size());
+        status.put("enriched", enriched.get());
+        status.put("retroactiveAlerts", retroactiveAlerts.get());
+        status.put("dropped", dropped.get());
+        return status;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private void enrich(Transaction transaction,
+                        MLScoreResponse mlResponse,
+                        RuleEngineService.RuleEvaluationResult ruleResult,
+                        StatisticalScorerService.StatisticalScoreResult statResult,
+                        ScoringSnapshot settings) {
+        String transactionId = transaction.getTransactionId();
+        FraudEvaluationResponse full = riskAggregatorService.aggregate(
+            ruleResult.ruleScore,
+            statResult.statisticalScore,
+            mlResponse.getMlScore(),
+            transactionId,
+            ruleResult,
+            settings // Same snapshot as the fast-path decision
+        );
+        full.setDecisionTier(FraudEvaluationService.TIER_FULL);
+        full.setExplanation(full.getExplanation() + "\nML score applied after the fast-path decision");
+        
+        Alert createdAlert = transactionTemplate.execute(status -> {
+            Transaction stored = transactionRepository.findById(transactionId).orElse(null);
+            if (stored == null) {
+                return null; // Reset or archived in the meantime
+            }
+            // The fast-path decision as it was published; rules and statistics are unchanged
+            FraudEvaluationResponse previous = FraudEvaluationResponse.builder()
+                .transactionId(transactionId)
+                .riskScore(stored.getRiskScore())
+                .riskCategory(stored.getRiskCategory())
+                .ruleScore(ruleResult.ruleScore)
+                .statisticalScore(statResult.statisticalScore)
+                .triggeredRules(ruleResult.triggeredRules)
+                .decisionTier(FraudEvaluationService.TIER_FAST)
+                .build();
+            stored.setRiskScore(full.getRiskScore());
+            stored.setRiskCategory(full.getRiskCategory());
+            stored.setExplanation(full.getExplanation());
+            transactionRepository.save(stored);
+            responseCache.invalidate();
+            
+            Alert alert = null;
+            if ("FLAGGED".equals(full.getRiskCategory()) && !alertRepository.existsByTransactionId(transactionId)) {
+                alert = alertRepository.save(Alert.builder()
+                    .transactionId(transactionId)
+                    .userId(stored.getUserId())
+                    .riskScore(full.getRiskScore())
+                    .status(Alert.AlertStatus.NEW)
+                    .build());
+            }
+            
+            // Retries of this transaction id now get the full decision
+            FraudEvaluationResponse response = idempotencyService.findStored(transactionId);
+            if (response != null) {
+                idempotencyService.complete(transactionId, response.toBuilder()
+                    .riskScore(full.getRiskScore())
+                    .riskCategory(full.getRiskCategory())
+                    .mlScore(full.getMlScore())
+                    .explanation(full.getExplanation())
+                    .decisionTier(FraudEvaluationService.TIER_FULL)
+                    .alertCreated(Boolean.TRUE.equals(response.getAlertCreated()) || alert != null)
+                    .build());
+            }
+            eventPublisher.publishEvent(new TransactionRescoredEvent(stored, previous, full, alert));
+            return alert;
+        });
+        enriched.incrementAndGet();
+        
+        if (createdAlert != null) {
+            retroactiveAlerts.incrementAndGet();
+            log.info("Retroactive alert created for transaction {} with risk score {} after ML enrichment",
+                transactionId, full.getRiskScore());
+            liveEventService.publishAlert(createdAlert);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.fraud.service;
 
+import com.fraud.baseline.BaselineProfile;
 import com.fraud.config.FraudDetectionConfig;
 import com.fraud.dto.MLScoreRequest;
 import com.fraud.dto.MLScoreResponse;
@@ -10,13 +11,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -26,21 +27,23 @@ public class MLScoringClient {
     private final WebClient.Builder webClientBuilder;
     private final FraudDetectionConfig config;
     private final TransactionRepository transactionRepository;
+    private final GeoDistanceService geoDistanceService;
+    private final IdentifierDictionary identifierDictionary;
     
     public MLScoreResponse getMLScore(Transaction transaction, UserBaseline baseline) {
+        // Calculate velocity (transactions in last 10 minutes)
+        LocalDateTime since = transaction.getTimestamp().minusMinutes(10);
+        Long velocity10m = transactionRepository.countRecentTransactions(
+            transaction.getUserId(), since);
+        return getMLScore(transaction, baseline, velocity10m.intValue());
+    }
+    
+    // Velocity supplied by the caller, e.g. point-in-time counts during a backfill
+    public MLScoreResponse getMLScore(Transaction transaction, UserBaseline baseline, int velocity10m) {
         try {
-            MLScoreRequest request = buildMLScoreRequest(transaction, baseline);
+            MLScoreRequest request = buildMLScoreRequest(transaction, baseline, velocity10m);
             
-            MLScoreResponse response = webClientBuilder.build()
-                .post()
-                .uri(config.getMl().getServiceUrl() + "/score")
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(MLScoreResponse.class)
-                .timeout(Duration.ofSeconds(config.getMl().getTimeoutSeconds()))
-                .retryWhen(Retry.backoff(2, Duration.ofSeconds(1))
-                    .filter(throwable -> !(throwable instanceof java.util.concurrent.TimeoutException)))
-                .block();
+            MLScoreResponse response = requestScore(request).block();
             
             return response != null ? response : getFallbackScore(transaction, baseline);
         } catch (Exception e) {
@@ -49,33 +52,69 @@ public class MLScoringClient {
         }
     }
     
-    private MLScoreRequest buildMLScoreRequest(Transaction transaction, UserBaseline baseline) {
-        // Calculate velocity (transactions in last 10 minutes)
+    // Non-blocking variant for two-tier decisioning. The features and fallback are taken
+    // from the baseline now, before it is updated with this transaction; a failed call
+    // completes with the fallback score.
+    public CompletableFuture<MLScoreResponse> getMLScoreAsync(Transaction transaction, UserBaseline baseline) {
         LocalDateTime since = transaction.getTimestamp().minusMinutes(10);
         Long velocity10m = transactionRepository.countRecentTransactions(
             transaction.getUserId(), since);
+        return getMLScoreReactive(transaction, baseline, velocity10m.intValue()).toFuture();
+    }
+    
+    // Fully non-blocking call for the reactive scoring path; completes with the fallback
+    // score if the service fails or returns nothing
+    public Mono<MLScoreResponse> getMLScoreReactive(Transaction transaction, UserBaseline baseline, int velocity10m) {
+        MLScoreRequest request = buildMLScoreRequest(transaction, baseline, velocity10m);
+        MLScoreResponse fallback = getFallbackScore(transaction, baseline);
+        return requestScore(request)
+            .defaultIfEmpty(fallback)
+            .onErrorResume(e -> {
+                log.warn("ML service call failed, using fallback score: {}", e.getMessage());
+                return Mono.just(fallback);
+            });
+    }
+    
+    private Mono<MLScoreResponse> requestScore(MLScoreRequest request) {
+        return webClientBuilder.build()
+            .post()
+            .uri(config.getMl().getServiceUrl() + "/score")
+            .bodyValue(request)
+            .retrieve()
+            .bodyToMono(MLScoreResponse.class)
+            .timeout(Duration.ofSeconds(config.getMl().getTimeoutSeconds()))
+            .retryWhen(Retry.backoff(2, Duration.ofSeconds(1))
+                .filter(throwable -> !(throwable instanceof java.util.concurrent.TimeoutException)));
+    }
+    
+    private MLScoreRequest buildMLScoreRequest(Transaction transaction, UserBaseline baseline, int velocity10m) {
+        identifierDictionary.intern(transaction);
+        BaselineProfile profile = identifierDictionary.profile(baseline);
         
-        // Calculate distance (simplified - binary for now)
+        // Distance between location centroids
         double distanceKm = 0.0;
         if (baseline.getLastTransactionState() != null) {
-            if (!transaction.getLocationState().equals(baseline.getLastTransactionState()) ||
-                !transaction.getLocationCountry().equals(baseline.getLastTransactionCountry())) {
-                distanceKm = 1000.0; // Simplified large distance
+            distanceKm = geoDistanceService.distanceKm(
+                baseline.getLastTransactionState(), baseline.getLastTransactionCountry(),
+                transaction.getLocationState(), transaction.getLocationCountry());
+            if (distanceKm < 0) {
+                // Location missing from the centroid table
+                boolean moved = !profile.isLastState(transaction.getStateKey(), transaction.getLocationState()) ||
+                    !profile.isLastCountry(transaction.getCountryKey(), transaction.getLocationCountry());
+                distanceKm = moved ? 1000.0 : 0.0;
             }
         }
         
         // Check if new device
-        Set<String> knownDevices = parseJsonSet(baseline.getKnownDevices());
-        int isNewDevice = knownDevices.contains(transaction.getDeviceId()) ? 0 : 1;
+        int isNewDevice = profile.knowsDevice(transaction.getDeviceKey(), transaction.getDeviceId()) ? 0 : 1;
         
         // Check if new merchant
-        Set<String> knownMerchants = parseJsonSet(baseline.getKnownMerchants());
-        int isNewMerchant = knownMerchants.contains(transaction.getMerchantId()) ? 0 : 1;
+        int isNewMerchant = profile.knowsMerchant(transaction.getMerchantKey(), transaction.getMerchantId()) ? 0 : 1;
         
         return new MLScoreRequest(
             transaction.getAmount(),
             transaction.getTimestamp().getHour(),
-            velocity10m.intValue(),
+            velocity10m,
             distanceKm,
             isNewDevice,
             isNewMerchant,
@@ -95,25 +134,12 @@ public class MLScoringClient {
                     .divide(baseline.getStdAmount(), 10, java.math.RoundingMode.HALF_UP);
                 score += Math.min(0.4, Math.abs(z.doubleValue()) / 10.0);
             }
-            Set<String> devices = parseJsonSet(baseline.getKnownDevices());
-            if (!devices.contains(transaction.getDeviceId())) {
+            identifierDictionary.intern(transaction);
+            if (!identifierDictionary.profile(baseline).knowsDevice(transaction.getDeviceKey(),
+                    transaction.getDeviceId())) {
                 score += 0.2;
             }
         }
         return new MLScoreResponse(Math.min(1.0, score), "fallback_v1", null);
     }
-    
-    private Set<String> parseJsonSet(String json) {
-        if (json == null || json.isEmpty()) {
-            return new HashSet<>();
-        }
-        try {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = 
-                new com.fasterxml.jackson.databind.ObjectMapper();
-            return new java.util.HashSet<>(mapper.readValue(json, 
-                new com.fasterxml.jackson.core.type.TypeReference<java.util.List<String>>() {}));
-        } catch (Exception e) {
-            return new HashSet<>();
-        }
-    }
 }
@@ -0,0 +1,411 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.entity.Transaction;
+import com.fraud.event.TransactionRescoredEvent;
+import com.fraud.event.TransactionScoredEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Live per-merchant volume and flag rate over the last hour and day, kept in memory.
+// Merchants are spread over lock stripes, each holding a ring of time buckets per
+// merchant, so concurrent scoring threads rarely contend and queries never touch the
+// transactions table. Only the top merchants by daily volume are kept; the state is
+// rebuilt from the last day of transactions at startup, once every bean exists but before
+// the servers start, so no transaction can be scored while the rebuild reads the table.
+// A flag that only happened because of the merchant_risk rule is counted on its own and
+// left out of the flag rate, which that rule reads: otherwise every flag it caused would
+// raise the rate that keeps it firing.
+@Service
+@Slf4j
+public class MerchantRiskAggregator implements MerchantRiskLookup, SmartInitializingSingleton {
+    
+    private static final String REBUILD_SQL =
+        "SELECT merchant_id, MAX(merchant_category) AS merchant_category, " +
+        "FLOOR(EXTRACT(EPOCH FROM timestamp) / ?)::bigint AS bucket, COUNT(*) AS total, " +
+        // Stored rows carry the triggered rules but not the score components, so at startup any
+        // flag on which merchant_risk fired counts as caused by it
+        "COUNT(*) FILTER (WHERE risk_category = 'FLAGGED' AND " +
+        "COALESCE(triggered_rules, '') NOT LIKE '%\"merchant_risk\"%') AS flagged, " +
+        "COUNT(*) FILTER (WHERE risk_category = 'FLAGGED' AND triggered_rules LIKE '%\"merchant_risk\"%') " +
+        "AS rule_flagged, " +
+        "COUNT(*) FILTER (WHERE risk_category = 'MONITOR') AS monitor, " +
+        "COALESCE(SUM(amount), 0) AS amount " +
+        "FROM transactions WHERE timestamp >= ? AND timestamp < ? " +
+        "GROUP BY merchant_id, bucket";
+    
+    private static final String MERCHANT_RISK_RULE = "merchant_risk";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final FraudDetectionConfig config;
+    private final RiskAggregatorService riskAggregatorService;
+    private final ScoringConfigService scoringConfigService;
+    private volatile Stripe[] stripes;
+    private final int bucketSeconds;
+    private final int hourBuckets;
+    private final int dayBuckets;
+    private final AtomicReference<LocalDateTime> lastRebuild = new AtomicReference<>();
+    
+    public MerchantRiskAggregator(JdbcTemplate jdbcTemplate,
+                                  FraudDetectionConfig config,
+                                  RiskAggregatorService riskAggregatorService,
+                                  ScoringConfigService scoringConfigService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+        this.riskAggregatorService = riskAggregatorService;
+        this.scoringConfigService = scoringConfigService;
+        FraudDetectionConfig.MerchantRisk settings = config.getMerchantRisk();
+        this.stripes = newStripes(Integer.highestOneBit(Math.max(1, settings.getStripes() - 1)) << 1);
+        this.bucketSeconds = settings.getBucketMinutes() * 60;
+        this.hourBuckets = Math.max(1, 60 / settings.getBucketMinutes());
+        this.dayBuckets = Math.max(hourBuckets, 24 * 60 / settings.getBucketMinutes());
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionScored(TransactionScoredEvent event) {
+        Transaction transaction = event.getTransaction();
+        Outcome outcome = outcomeOf(event.getEvaluation());
+        record(stripes, transaction.getMerchantId(), transaction.getMerchantCategory(),
+            epochOf(transaction.getTimestamp()), 1, outcome == Outcome.FLAGGED ? 1 : 0,
+            outcome == Outcome.RULE_FLAGGED ? 1 : 0, outcome == Outcome.MONITOR ? 1 : 0,
+            toCents(transaction.getAmount()));
+    }
+    
+    // A late ML score moved the transaction to another category: move its flag/monitor count
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionRescored(TransactionRescoredEvent event) {
+        Outcome before = outcomeOf(event.getPrevious());
+        Outcome after = outcomeOf(event.getEvaluation());
+        Transaction transaction = event.getTransaction();
+        if (transaction.getMerchantId() == null || before == after) {
+            return;
+        }
+        int flagged = (after == Outcome.FLAGGED ? 1 : 0) - (before == Outcome.FLAGGED ? 1 : 0);
+        int ruleFlagged = (after == Outcome.RULE_FLAGGED ? 1 : 0) - (before == Outcome.RULE_FLAGGED ? 1 : 0);
+        int monitor = (after == Outcome.MONITOR ? 1 : 0) - (before == Outcome.MONITOR ? 1 : 0);
+        Stripe stripe = stripeFor(stripes, transaction.getMerchantId());
+        synchronized (stripe) {
+            MerchantWindow window = stripe.merchants.get(transaction.getMerchantId());
+            if (window != null) {
+                window.correct(epochOf(transaction.getTimestamp()), flagged, ruleFlagged, monitor);
+            }
+        }
+    }
+    
+    // Current hour and day aggregates for a merchant, or null if it is not tracked
+    @Override
+    public MerchantRiskSnapshot get(String merchantId) {
+        long now = epochOf(LocalDateTime.now());
+        Stripe stripe = stripeFor(stripes, merchantId);
+        synchronized (stripe) {
+            MerchantWindow window = stripe.merchants.get(merchantId);
+            return window != null ? window.snapshot(merchantId, now) : null;
+        }
+    }
+    
+    // Tracked merchants ranked by daily flag rate (among those with enough volume) or by volume
+    public List<MerchantRiskSnapshot> top(int limit, boolean byFlagRate) {
+        List<MerchantRiskSnapshot> snapshots = snapshotAll();
+        if (byFlagRate) {
+            int minVolume = config.getMerchantRisk().getMinVolume();
+            snapshots.removeIf(s -> s.getLastDay().getCount() < minVolume);
+            snapshots.sort(Comparator.comparingDouble((MerchantRiskSnapshot s) -> s.getLastDay().getFlagRate())
+                .thenComparingLong(s -> s.getLastDay().getCount()).reversed());
+        } else {
+            snapshots.sort(Comparator.comparingLong((MerchantRiskSnapshot s) -> s.getLastDay().getCount()).reversed());
+        }
+        return snapshots.size() > limit ? new ArrayList<>(snapshots.subList(0, limit)) : snapshots;
+    }
+    
+    public Map<String, Object> getStatus() {
+        int tracked = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                tracked += stripe.merchants.size();
+            }
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("trackedMerchants", tracked);
+        status.put("topN", config.getMerchantRisk().getTopN());
+        status.put("lastRebuild", lastRebuild.get());
+        return status;
+    }
+    
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.merchants.clear();
+            }
+        }
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+    
+    // Builds into fresh stripes and swaps them in, so readers never see a half-built state.
+    // Run with scoring live, it would drop what is recorded into the old stripes meanwhile.
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusSeconds((long) dayBuckets * bucketSeconds);
+        Stripe[] rebuilt = newStripes(stripes.length);
+        int[] rows = new int[1];
+        jdbcTemplate.query(REBUILD_SQL, rs -> {
+            record(rebuilt, rs.getString("merchant_id"), rs.getString("merchant_category"), rs.getLong("bucket"),
+                rs.getInt("total"), rs.getInt("flagged"), rs.getInt("rule_flagged"), rs.getInt("monitor"),
+                toCents(rs.getBigDecimal("amount")));
+            rows[0]++;
+        }, bucketSeconds, from, now.plusSeconds(bucketSeconds));
+        stripes = rebuilt;
+        int evicted = evictOutsideTopN();
+        lastRebuild.set(now);
+        log.info("Rebuilt merchant risk aggregates from {} buckets in {} ms ({} merchants evicted outside top {})",
+            rows[0], System.currentTimeMillis() - started, evicted, config.getMerchantRisk().getTopN());
+    }
+    
+    @Scheduled(fixedDelayString = "${fraud.detection.merchant-risk.evict-ms:60000}")
+    public void evict() {
+        int evicted = evictOutsideTopN();
+        if (evicted > 0) {
+            log.debug("Evicted {} merchants outside the top {}", evicted, config.getMerchantRisk().getTopN());
+        }
+    }
+    
+    // Keeps the top N merchants by daily volume and drops the rest, including idle ones
+    private int evictOutsideTopN() {
+        long now = epochOf(LocalDateTime.now());
+        Stripe[] current = stripes;
+        List<Map.Entry<String, Long>> volumes = new ArrayList<>();
+        for (Stripe stripe : current) {
+            synchronized (stripe) {
+                stripe.merchants.entrySet().removeIf(e -> e.getValue().lastDayCount(now) == 0);
+                stripe.merchants.forEach((id, window) -> volumes.add(Map.entry(id, window.lastDayCount(now))));
+            }
+        }
+        int topN = config.getMerchantRisk().getTopN();
+        if (volumes.size() <= topN) {
+            return 0;
+        }
+        volumes.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Set<String> evict = new HashSet<>();
+        for (Map.Entry<String, Long> entry : volumes.subList(topN, volumes.size())) {
+            evict.add(entry.getKey());
+        }
+        for (String merchantId : evict) {
+            Stripe stripe = stripeFor(current, merchantId);
+            synchronized (stripe) {
+                stripe.merchants.remove(merchantId);
+            }
+        }
+        return evict.size();
+    }
+    
+    private void record(Stripe[] target, String merchantId, String category, long epoch, int total, int flagged,
+                        int ruleFlagged, int monitor, long amountCents) {
+        long now = epochOf(LocalDateTime.now());
+        if (merchantId == null || epoch <= now - dayBuckets || epoch > now) {
+            return;
+        }
+        Stripe stripe = stripeFor(target, merchantId);
+        synchronized (stripe) {
+            stripe.merchants.computeIfAbsent(merchantId, id -> new MerchantWindow(dayBuckets))
+                .add(epoch, category, total, flagged, ruleFlagged, monitor, amountCents);
+        }
+    }
+    
+    private List<MerchantRiskSnapshot> snapshotAll() {
+        long now = epochOf(LocalDateTime.now());
+        List<MerchantRiskSnapshot> snapshots = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.merchants.forEach((id, window) -> snapshots.add(window.snapshot(id, now)));
+            }
+        }
+        return snapshots;
+    }
+    
+    private Outcome outcomeOf(FraudEvaluationResponse evaluation) {
+        String category = evaluation.getRiskCategory();
+        if ("MONITOR".equals(category)) {
+            return Outcome.MONITOR;
+        }
+        if (!"FLAGGED".equals(category)) {
+            return Outcome.NONE;
+        }
+        boolean ruleFired = evaluation.getTriggeredRules() != null && evaluation.getTriggeredRules().stream()
+            .anyMatch(rule -> MERCHANT_RISK_RULE.equals(rule.getRuleName()));
+        if (ruleFired && !"FLAGGED".equals(riskAggregatorService.categoryWithout(evaluation, MERCHANT_RISK_RULE,
+                scoringConfigService.current()))) {
+            return Outcome.RULE_FLAGGED;
+        }
+        return Outcome.FLAGGED;
+    }
+    
+    private static Stripe stripeFor(Stripe[] target, String merchantId) {
+        int h = merchantId.hashCode();
+        return target[(h ^ (h >>> 16)) & (target.length - 1)];
+    }
+    
+    // Count is a power of two, so a stripe is picked with a mask
+    private static Stripe[] newStripes(int count) {
+        Stripe[] created = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            created[i] = new Stripe();
+        }
+        return created;
+    }
+    
+    private long epochOf(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).longValue() : 0;
+    }
+    
+    // Flagged only because of merchant_risk, or flagged regardless of it
+    private enum Outcome { NONE, MONITOR, FLAGGED, RULE_FLAGGED }
+    
+    private static class Stripe {
+        final Map<String, MerchantWindow> merchants = new HashMap<>(); // Guarded by this
+    }
+    
+    // Ring of time buckets for one merchant; guarded by its stripe
+    private class MerchantWindow {
+        final long[] epochs;
+        final int[] total;
+        final int[] flagged;
+        final int[] ruleFlagged;
+        final int[] monitor;
+        final long[] amountCents;
+        String category;
+        
+        MerchantWindow(int buckets) {
+            this.epochs = new long[buckets];
+            this.total = new int[buckets];
+            this.flagged = new int[buckets];
+            this.ruleFlagged = new int[buckets];
+            this.monitor = new int[buckets];
+            this.amountCents = new long[buckets];
+            Arrays.fill(epochs, Long.MIN_VALUE);
+        }
+        
+        void add(long epoch, String merchantCategory, int count, int flaggedCount, int ruleFlaggedCount,
+                 int monitorCount, long cents) {
+            int slot = (int) Math.floorMod(epoch, (long) epochs.length);
+            if (epochs[slot] != epoch) {
+                if (epochs[slot] > epoch) {
+                    return;
+                }
+                epochs[slot] = epoch;
+                total[slot] = 0;
+                flagged[slot] = 0;
+                ruleFlagged[slot] = 0;
+                monitor[slot] = 0;
+                amountCents[slot] = 0;
+            }
+            total[slot] += count;
+            flagged[slot] += flaggedCount;
+            ruleFlagged[slot] += ruleFlaggedCount;
+            monitor[slot] += monitorCount;
+            amountCents[slot] += cents;
+            if (merchantCategory != null) {
+                category = merchantCategory;
+            }
+        }
+        
+        // Only while the transaction's bucket is still held; otherwise it no longer counts
+        void correct(long epoch, int flaggedDelta, int ruleFlaggedDelta, int monitorDelta) {
+            int slot = (int) Math.floorMod(epoch, (long) epochs.length);
+            if (epochs[slot] == epoch) {
+                flagged[slot] = Math.max(0, flagged[slot] + flaggedDelta);
+                ruleFlagged[slot] = Math.max(0, ruleFlagged[slot] + ruleFlaggedDelta);
+                monitor[slot] = Math.max(0, monitor[slot] + monitorDelta);
+            }
+        }
+        
+        long lastDayCount(long now) {
+            long count = 0;
+            for (int i = 0; i < epochs.length; i++) {
+                if (epochs[i] > now - dayBuckets && epochs[i] <= now) {
+                    count += total[i];
+                }
+            }
+            return count;
+        }
+        
+        MerchantRiskSnapshot snapshot(String merchantId, long now) {
+            long hourCount = 0, hourFlagged = 0, hourRuleFlagged = 0, hourMonitor = 0, hourCents = 0;
+            long dayCount = 0, dayFlagged = 0, dayRuleFlagged = 0, dayMonitor = 0, dayCents = 0;
+            for (int i = 0; i < epochs.length; i++) {
+                long age = now - epochs[i];
+                if (age < 0 || age >= dayBuckets) {
+                    continue;
+                }
+                dayCount += total[i];
+                dayFlagged += flagged[i];
+                dayRuleFlagged += ruleFlagged[i];
+                dayMonitor += monitor[i];
+                dayCents += amountCents[i];
+                if (age < hourBuckets) {
+                    hourCount += total[i];
+                    hourFlagged += flagged[i];
+                    hourRuleFlagged += ruleFlagged[i];
+                    hourMonitor += monitor[i];
+                    hourCents += amountCents[i];
+                }
+            }
+            return new MerchantRiskSnapshot(merchantId, category,
+                WindowStats.of(hourCount, hourFlagged, hourRuleFlagged, hourMonitor, hourCents),
+                WindowStats.of(dayCount, dayFlagged, dayRuleFlagged, dayMonitor, dayCents));
+        }
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class MerchantRiskSnapshot {
+        private String merchantId;
+        private String merchantCategory;
+        private WindowStats lastHour;
+        private WindowStats lastDay;
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class WindowStats {
+        private long count;
+        private long flagged; // Excludes merchantRiskFlagged
+        private long merchantRiskFlagged; // Flagged only because of the merchant_risk rule
+        private long monitor;
+        private BigDecimal amount;
+        private double flagRate; // flagged / count, what merchant_risk compares
+        
+        static WindowStats of(long count, long flagged, long merchantRiskFlagged, long monitor, long amountCents) {
+            return new WindowStats(count, flagged, merchantRiskFlagged, monitor, BigDecimal.valueOf(amountCents, 2),
+                count > 0 ? (double) flagged / count : 0.0);
+        }
+    }
+}
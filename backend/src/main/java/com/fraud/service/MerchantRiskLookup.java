@@ -0,0 +1,11 @@
+package com.fraud.service;
+
+// Read-only merchant aggregates for the merchant_risk rule: the live MerchantRiskAggregator,
+// or none during a backfill, which has no point-in-time flag rates to replay
+public interface MerchantRiskLookup {
+    
+    MerchantRiskLookup NONE = merchantId -> null;
+    
+    // Current aggregates for a merchant, or null if it is not tracked
+    MerchantRiskAggregator.MerchantRiskSnapshot get(String merchantId);
+}
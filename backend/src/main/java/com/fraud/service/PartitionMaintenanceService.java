@@ -0,0 +1,155 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionMaintenanceService {
+    
+    private static final String PARTITION_PREFIX = "transactions_p";
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    
+    private static final String LIST_PARTITIONS_SQL =
+        "SELECT c.relname, c.reltuples::BIGINT AS estimated_rows " +
+        "FROM pg_inherits i " +
+        "JOIN pg_class c ON c.oid = i.inhrelid " +
+        "JOIN pg_class p ON p.oid = i.inhparent " +
+        "WHERE p.relname = 'transactions' AND c.relname LIKE 'transactions\\_p%'";
+    
+    // Backdated or far-future rows land in the default partition
+    private static final String DEFAULT_PARTITION_MONTHS_SQL =
+        "SELECT DISTINCT to_char(timestamp, 'YYYYMM') FROM transactions_default";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FraudDetectionConfig config;
+    private final ResponseCacheService responseCache;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        runScheduledMaintenance();
+    }
+    
+    @Scheduled(cron = "${fraud.detection.partitioning.maintenance-cron:0 15 3 * * *}")
+    public void runScheduledMaintenance() {
+        if (!config.getPartitioning().getEnabled()) {
+            return;
+        }
+        try {
+            maintain();
+        } catch (Exception e) {
+            log.error("Partition maintenance failed", e);
+        }
+    }
+    
+    // Creates partitions from the current month up to premake-months ahead and drops
+    // partitions that ended more than retention-months ago (0 keeps everything)
+    public synchronized Map<String, Object> maintain() {
+        FraudDetectionConfig.Partitioning settings = config.getPartitioning();
+        YearMonth current = YearMonth.now();
+        Map<YearMonth, Long> existing = listPartitions();
+        List<String> created = new ArrayList<>();
+        List<String> dropped = new ArrayList<>();
+        
+        Set<YearMonth> wanted = new TreeSet<>();
+        for (int i = 0; i <= settings.getPremakeMonths(); i++) {
+            wanted.add(current.plusMonths(i));
+        }
+        // Give months stranded in the default partition their own partition, so
+        // retention can drop them like any other month
+        jdbcTemplate.queryForList(DEFAULT_PARTITION_MONTHS_SQL, String.class)
+            .forEach(month -> wanted.add(YearMonth.parse(month, SUFFIX_FORMAT)));
+        
+        for (YearMonth month : wanted) {
+            if (!existing.containsKey(month)) {
+                createPartition(month);
+                created.add(partitionName(month));
+                existing.put(month, 0L);
+            }
+        }
+        
+        if (settings.getRetentionMonths() > 0) {
+            YearMonth oldestKept = current.minusMonths(settings.getRetentionMonths());
+            for (YearMonth month : existing.keySet()) {
+                if (month.isBefore(oldestKept)) {
+                    dropPartition(month);
+                    dropped.add(partitionName(month));
+                }
+            }
+        }
+        
+        if (!dropped.isEmpty()) {
+            responseCache.invalidate(); // Dashboards must stop showing the dropped months
+        }
+        if (!created.isEmpty() || !dropped.isEmpty()) {
+            log.info("Partition maintenance created {} and dropped {}", created, dropped);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("created", created);
+        result.put("dropped", dropped);
+        return result;
+    }
+    
+    // Month -> estimated row count (from planner statistics, so no table scan)
+    public Map<YearMonth, Long> listPartitions() {
+        Map<YearMonth, Long> partitions = new TreeMap<>();
+        jdbcTemplate.query(LIST_PARTITIONS_SQL, rs -> {
+            String name = rs.getString("relname");
+            try {
+                YearMonth month = YearMonth.parse(name.substring(PARTITION_PREFIX.length()), SUFFIX_FORMAT);
+                partitions.put(month, Math.max(0L, rs.getLong("estimated_rows")));
+            } catch (Exception e) {
+                log.warn("Ignoring partition with unexpected name {}", name);
+            }
+        });
+        return partitions;
+    }
+    
+    private void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        String from = month.atDay(1).toString();
+        String to = month.plusMonths(1).atDay(1).toString();
+        // Rows for this month may already sit in the default partition, which would
+        // make a plain CREATE ... PARTITION OF fail; move them across before attaching
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE transactions INCLUDING DEFAULTS)");
+            jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM transactions_default " +
+                "WHERE timestamp >= '" + from + "' AND timestamp < '" + to + "'");
+            jdbcTemplate.update("DELETE FROM transactions_default " +
+                "WHERE timestamp >= '" + from + "' AND timestamp < '" + to + "'");
+            jdbcTemplate.execute("ALTER TABLE transactions ATTACH PARTITION " + name +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        });
+    }
+    
+    private void dropPartition(YearMonth month) {
+        String name = partitionName(month);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + name);
+            jdbcTemplate.execute("DROP TABLE " + name);
+        });
+    }
+    
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(SUFFIX_FORMAT);
+    }
+}
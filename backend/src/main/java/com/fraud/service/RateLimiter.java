@@ -0,0 +1,31 @@
+package com.fraud.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Paces callers to a fixed number of permits per second; blocks instead of rejecting
+public class RateLimiter {
+    
+    private final long intervalNanos;
+    private long nextFreeNanos = System.nanoTime();
+    
+    public RateLimiter(int permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+    }
+    
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // Do not bank idle time beyond one second of burst
+            nextFreeNanos = Math.max(nextFreeNanos, now - TimeUnit.SECONDS.toNanos(1));
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += intervalNanos;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.ScoringSnapshot;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.MLScoreResponse;
+import com.fraud.dto.TransactionRequest;
+import com.fraud.entity.Alert;
+import com.fraud.entity.Transaction;
+import com.fraud.entity.UserBaseline;
+import com.fraud.event.TransactionScoredEvent;
+import com.fraud.repository.ReactiveAlertRepository;
+import com.fraud.repository.ReactiveBaselineRepository;
+import com.fraud.repository.ReactiveTransactionRepository;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Non-blocking twin of TransactionService for the WebFlux endpoint. Scoring reuses the
+// same rule, statistical, aggregation and baseline logic; only the I/O differs: baseline
+// and velocity come from R2DBC, the ML call is never blocked on, and the writes run in one
+// R2DBC transaction. Submissions of the same user are chained so they are scored in
+// arrival order, as the per-user ingestion workers do.
+@Service
+@Slf4j
+public class ReactiveScoringService {
+    
+    private static final String CLAIM_SQL =
+        "INSERT INTO processed_transactions (transaction_id) VALUES (:transactionId) ON CONFLICT DO NOTHING";
+    private static final String COMPLETE_SQL =
+        "UPDATE processed_transactions SET response = :response WHERE transaction_id = :transactionId";
+    private static final String FIND_RESPONSE_SQL =
+        "SELECT response FROM processed_transactions WHERE transaction_id = :transactionId";
+    
+    private final ReactiveTransactionRepository transactionRepository;
+    private final ReactiveBaselineRepository baselineRepository;
+    private final ReactiveAlertRepository alertRepository;
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final TransactionService transactionService;
+    private final FraudEvaluationService fraudEvaluationService;
+    private final BaselineService baselineService;
+    private final MLScoringClient mlScoringClient;
+    private final ScoringConfigService scoringConfigService;
+    private final IdempotencyService idempotencyService;
+    private final AdmissionControlService admissionControlService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    
+    // Completes when the user's latest submission is done; the next one waits on it
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> userTails = new ConcurrentHashMap<>();
+    
+    public ReactiveScoringService(ReactiveTransactionRepository transactionRepository,
+                                  ReactiveBaselineRepository baselineRepository,
+                                  ReactiveAlertRepository alertRepository,
+                                  DatabaseClient databaseClient,
+                                  ConnectionFactory connectionFactory,
+                                  TransactionService transactionService,
+                                  FraudEvaluationService fraudEvaluationService,
+                                  BaselineService baselineService,
+                                  MLScoringClient mlScoringClient,
+                                  ScoringConfigService scoringConfigService,
+                                  IdempotencyService idempotencyService,
+                                  AdmissionControlService admissionControlService,
+                                  ApplicationEventPublisher eventPublisher,
+                                  ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.baselineRepository = baselineRepository;
+        this.alertRepository = alertRepository;
+        this.databaseClient = databaseClient;
+        // Not a bean: a second TransactionManager bean would make @Transactional ambiguous
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        this.transactionService = transactionService;
+        this.fraudEvaluationService = fraudEvaluationService;
+        this.baselineService = baselineService;
+        this.mlScoringClient = mlScoringClient;
+        this.scoringConfigService = scoringConfigService;
+        this.idempotencyService = idempotencyService;
+        this.admissionControlService = admissionControlService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+    
+    public Mono<FraudEvaluationResponse> processTransaction(TransactionRequest request) {
+        return Mono.defer(() -> {
+            FraudEvaluationResponse replay = idempotencyService.findRecent(request.getTransactionId());
+            if (replay != null) {
+                return Mono.just(replay);
+            }
+            return Mono.using(
+                () -> admissionControlService.admit(request.getChannel()),
+                permit -> inUserOrder(request.getUserId(), () -> score(request, permit.getLevel())),
+                AdmissionControlService.Permit::close);
+        });
+    }
+    
+    private Mono<FraudEvaluationResponse> score(TransactionRequest request, AdmissionControlService.Level level) {
+        Transaction transaction = transactionService.buildTransaction(request);
+        ScoringSnapshot settings = scoringConfigService.current();
+        String userId = transaction.getUserId();
+        
+        // Reads and the ML call happen before the write transaction, so no connection is
+        // held while waiting for the ML service; ordering per user keeps them consistent
+        UserBaseline cached = baselineService.findCached(transaction);
+        Mono<UserBaseline> baseline = cached != null ? Mono.just(cached) : baselineRepository.findById(userId)
+            .switchIfEmpty(Mono.fromSupplier(() -> baselineService.newBaseline(userId)))
+            .doOnNext(baselineService::preload);
+        Mono<Long> velocity = level.skipsVelocity() ? Mono.just(0L)
+            : transactionRepository.countRecentTransactions(userId,
+                transaction.getTimestamp().minusMinutes(settings.getVelocityWindowMinutes()));
+        Mono<Long> velocity10m = level.skipsMl() ? Mono.just(0L)
+            : transactionRepository.countRecentTransactions(userId, transaction.getTimestamp().minusMinutes(10));
+        
+        return Mono.zip(baseline, velocity, velocity10m)
+            .flatMap(inputs -> {
+                Mono<Optional<MLScoreResponse>> ml = level.skipsMl() ? Mono.just(Optional.empty())
+                    : mlScoringClient.getMLScoreReactive(transaction, inputs.getT1(), inputs.getT3().intValue())
+                        .map(Optional::of);
+                return ml.flatMap(mlResponse -> transactionalOperator.transactional(
+                    claim(transaction.getTransactionId()).flatMap(claimed -> claimed
+                        ? evaluateAndStore(transaction, inputs.getT1(), inputs.getT2(), mlResponse.orElse(null),
+                            settings, level)
+                        : loadStored(transaction.getTransactionId()))));
+            })
+            // The follow-up can block (event listeners, the idempotency and cache updates), which the
+            // event loop must never do
+            .publishOn(Schedulers.boundedElastic())
+            .map(scored -> {
+                if (scored.transaction != null) {
+                    // Committed: same follow-up as the AFTER_COMMIT listeners of the servlet path
+                    idempotencyService.remember(transaction.getTransactionId(), scored.response);
+                    baselineService.recordScored(scored.transaction, scored.baseline);
+                    eventPublisher.publishEvent(
+                        new TransactionScoredEvent(scored.transaction, scored.response, scored.alert));
+                }
+                return scored.response;
+            });
+    }
+    
+    private Mono<Scored> evaluateAndStore(Transaction transaction, UserBaseline baseline, long velocity,
+                                          MLScoreResponse mlResponse, ScoringSnapshot settings,
+                                          AdmissionControlService.Level level) {
+        FraudEvaluationResponse evaluation =
+            fraudEvaluationService.evaluateDetached(transaction, baseline, velocity, mlResponse, settings, level);
+        transactionService.recordEvaluation(transaction, evaluation);
+        // With the baseline store, user_baselines is written behind after commit
+        boolean writeBaseline = !baselineService.isWriteBehind();
+        if (writeBaseline) {
+            baselineService.applyTransaction(baseline, transaction);
+        }
+        
+        Mono<Optional<Alert>> alert = !"FLAGGED".equals(evaluation.getRiskCategory()) ? Mono.just(Optional.empty())
+            : alertRepository.insertIfAbsent(Alert.builder()
+                    .transactionId(transaction.getTransactionId())
+                    .userId(transaction.getUserId())
+                    .riskScore(evaluation.getRiskScore())
+                    .status(Alert.AlertStatus.NEW)
+                    .build())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+        
+        return transactionRepository.insert(transaction)
+            .then(writeBaseline ? storeBaseline(transaction, baseline) : Mono.just(baseline))
+            .flatMap(stored -> alert.flatMap(created -> {
+                evaluation.setAlertCreated(created.isPresent());
+                created.ifPresent(a -> log.info("Alert created for transaction {} with risk score {}",
+                    transaction.getTransactionId(), evaluation.getRiskScore()));
+                return complete(transaction.getTransactionId(), evaluation)
+                    .thenReturn(new Scored(evaluation, transaction, stored, created.orElse(null)));
+            }));
+    }
+    
+    // The baseline, with the transaction applied, only replaces the row version it was read
+    // (or cached) at. Otherwise the row was written elsewhere since, and the transaction is
+    // applied to it as committed now, locked until this transaction ends.
+    private Mono<UserBaseline> storeBaseline(Transaction transaction, UserBaseline baseline) {
+        String userId = transaction.getUserId();
+        return baselineRepository.upsertIfVersion(baseline).flatMap(written -> written ? Mono.just(baseline)
+            : baselineRepository.findByIdForUpdate(userId)
+                .switchIfEmpty(Mono.fromSupplier(() -> baselineService.newBaseline(userId)))
+                .flatMap(current -> {
+                    baselineService.applyTransaction(current, transaction);
+                    return storeBaseline(transaction, current);
+                }));
+    }
+    
+    // Same claim as IdempotencyService: a concurrent duplicate waits for the first
+    // transaction and then conflicts, without holding a thread while it waits
+    private Mono<Boolean> claim(String transactionId) {
+        return databaseClient.sql(CLAIM_SQL)
+            .bind("transactionId", transactionId)
+            .fetch()
+            .rowsUpdated()
+            .map(rows -> rows == 1);
+    }
+    
+    private Mono<Void> complete(String transactionId, FraudEvaluationResponse response) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(response))
+            .flatMap(json -> databaseClient.sql(COMPLETE_SQL)
+                .bind("response", json)
+                .bind("transactionId", transactionId)
+                .then());
+    }
+    
+    private Mono<Scored> loadStored(String transactionId) {
+        log.info("Duplicate submission of transaction {}, returning stored result", transactionId);
+        return databaseClient.sql(FIND_RESPONSE_SQL)
+            .bind("transactionId", transactionId)
+            .map(row -> Optional.ofNullable(row.get("response", String.class)))
+            .one()
+            .flatMap(stored -> stored.isPresent()
+                ? Mono.fromCallable(() -> objectMapper.readValue(stored.get(), FraudEvaluationResponse.class))
+                // Ids processed before responses were stored are replayed by the servlet endpoint
+                : Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Transaction already processed: " + transactionId)))
+            .map(response -> new Scored(response, null, null, null));
+    }
+    
+    // Runs the work once every earlier submission of the user has finished
+    private <T> Mono<T> inUserOrder(String userId, Supplier<Mono<T>> work) {
+        return Mono.defer(() -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            CompletableFuture<Void> previous = userTails.put(userId, done);
+            Mono<Void> turn = previous == null ? Mono.empty() : Mono.fromFuture(previous, true);
+            return turn.then(Mono.defer(work))
+                .doFinally(signal -> {
+                    userTails.remove(userId, done);
+                    done.complete(null);
+                });
+        });
+    }
+    
+    // Transaction and baseline are null when the response is a replay of an earlier submission
+    private static class Scored {
+        final FraudEvaluationResponse response;
+        final Transaction transaction;
+        final UserBaseline baseline;
+        final Alert alert;
+        
+        Scored(FraudEvaluationResponse response, Transaction transaction, UserBaseline baseline, Alert alert) {
+            this.response = response;
+            this.transaction = transaction;
+            this.baseline = baseline;
+            this.alert = alert;
+        }
+    }
+}
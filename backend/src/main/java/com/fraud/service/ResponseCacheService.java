@@ -0,0 +1,153 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.event.TransactionScoredEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Serialized dashboard responses keyed by path and query, each tagged with the data
+// version it was computed at. Any write that changes what the read endpoints return
+// bumps the version once it commits, which makes every cached entry stale at once;
+// until then repeated polls are answered from memory, or with a 304 when the client
+// already holds the same ETag, without touching the database.
+@Service
+public class ResponseCacheService {
+    
+    private final FraudDetectionConfig config;
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final Map<String, CachedResponse> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public ResponseCacheService(FraudDetectionConfig config) {
+        this.config = config;
+        int capacity = config.getResponseCache().getMaxEntries();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+    
+    public boolean isEnabled() {
+        return config.getResponseCache().getEnabled();
+    }
+    
+    // Read before computing a response, so a write that commits meanwhile leaves it stale
+    public long currentVersion() {
+        return dataVersion.get();
+    }
+    
+    // The cached response for the key if it is still current, or null
+    public CachedResponse lookup(String key) {
+        CachedResponse cached = entries.get(key);
+        long maxAgeMs = config.getResponseCache().getMaxAgeMs();
+        if (cached == null || cached.version != dataVersion.get()
+                || (maxAgeMs > 0 && System.currentTimeMillis() - cached.createdAt > maxAgeMs)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached;
+    }
+    
+    public CachedResponse store(String key, long version, String contentType, byte[] body) {
+        // Strong ETag: derived from the exact bytes, so equal tags mean identical bodies
+        String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        CachedResponse cached = new CachedResponse(version, etag, contentType, body);
+        entries.put(key, cached);
+        return cached;
+    }
+    
+    public void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+    
+    // Every scored transaction changes lists, stats and timeseries
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionScored(TransactionScoredEvent event) {
+        dataVersion.incrementAndGet();
+    }
+    
+    // For writes outside transaction scoring (alert triage, enrichment, reset, archive,
+    // backfill); inside a transaction the bump waits for the commit
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dataVersion.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dataVersion.incrementAndGet();
+            }
+        });
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", isEnabled());
+        status.put("dataVersion", dataVersion.get());
+        status.put("entries", entries.size());
+        status.put("hits", hits.get());
+        status.put("notModified", notModified.get());
+        status.put("misses", misses.get());
+        return status;
+    }
+    
+    public static final class CachedResponse {
+        private final long version;
+        private final String etag;
+        private final String contentType;
+        private final byte[] body;
+        private final long createdAt = System.currentTimeMillis();
+        
+        private CachedResponse(long version, String etag, String contentType, byte[] body) {
+            this.version = version;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.body = body;
+        }
+        
+        public String getEtag() {
+            return etag;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public byte[] getBody() {
+            return body;
+        }
+        
+        // If-None-Match may list several tags, or * for any
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.startsWith("W/")) {
+                    trimmed = trimmed.substring(2); // If-None-Match uses weak comparison
+                }
+                if (trimmed.equals("*") || trimmed.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.fraud.service;
 
-import com.fraud.config.FraudDetectionConfig;
+import com.fraud.config.ScoringSnapshot;
 import com.fraud.dto.FraudEvaluationResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,44 +11,19 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class RiskAggregatorService {
     
-    private final FraudDetectionConfig config;
-    
     public FraudEvaluationResponse aggregate(
             double ruleScore,
             double statisticalScore,
             Double mlScore,
             String transactionId,
-            RuleEngineService.RuleEvaluationResult ruleResult) {
+            RuleEngineService.RuleEvaluationResult ruleResult,
+            ScoringSnapshot settings) {
         
         // Convert ML score to 0-100 range if present
         Double mlScore100 = mlScore != null ? mlScore * 100.0 : null;
         
-        // Weighted aggregation
-        double finalScore;
-        if (mlScore100 != null) {
-            finalScore = config.getScoring().getRuleWeight() * ruleScore +
-                        config.getScoring().getStatisticalWeight() * statisticalScore +
-                        config.getScoring().getMlWeight() * mlScore100;
-        } else {
-            // Adjust weights if ML is not available
-            double totalWeight = config.getScoring().getRuleWeight() + 
-                               config.getScoring().getStatisticalWeight();
-            finalScore = (config.getScoring().getRuleWeight() / totalWeight) * ruleScore +
-                        (config.getScoring().getStatisticalWeight() / totalWeight) * statisticalScore;
-        }
-        
-        // Ensure score is in 0-100 range
-        finalScore = Math.min(100.0, Math.max(0.0, finalScore));
-        
-        // Determine risk category
-        String riskCategory;
-        if (finalScore < config.getThresholds().getSoftFlag()) {
-            riskCategory = "APPROVED";
-        } else if (finalScore < config.getThresholds().getHardFlag()) {
-            riskCategory = "MONITOR";
-        } else {
-            riskCategory = "FLAGGED";
-        }
+        double finalScore = combine(ruleScore, statisticalScore, mlScore100, settings);
+        String riskCategory = categorize(finalScore, settings);
         
         // Generate explanation
         StringBuilder explanation = new StringBuilder();
@@ -80,6 +55,52 @@ public class RiskAggregatorService {
             .velocityCount(ruleResult.velocityCount)
             .triggeredRules(ruleResult.triggeredRules)
             .explanation(explanation.toString())
+            .configVersion(settings.getVersion())
             .build();
     }
+    
+    // The category the evaluation would have got without one of its triggered rules, e.g. so
+    // a rule that reads decision statistics does not count the decisions it caused itself
+    public String categoryWithout(FraudEvaluationResponse evaluation, String ruleName, ScoringSnapshot settings) {
+        double ruleScore = 0.0;
+        if (evaluation.getTriggeredRules() != null) {
+            for (var rule : evaluation.getTriggeredRules()) {
+                if (!ruleName.equals(rule.getRuleName()) && rule.getPoints() != null) {
+                    ruleScore += rule.getPoints();
+                }
+            }
+        }
+        ruleScore = Math.min(100.0, Math.max(0.0, ruleScore));
+        double statisticalScore = evaluation.getStatisticalScore() != null ? evaluation.getStatisticalScore() : 0.0;
+        return categorize(combine(ruleScore, statisticalScore, evaluation.getMlScore(), settings), settings);
+    }
+    
+    private static double combine(double ruleScore, double statisticalScore, Double mlScore100,
+                                  ScoringSnapshot settings) {
+        // Weighted aggregation
+        double finalScore;
+        if (mlScore100 != null) {
+            finalScore = settings.getRuleWeight() * ruleScore +
+                        settings.getStatisticalWeight() * statisticalScore +
+                        settings.getMlWeight() * mlScore100;
+        } else {
+            // Adjust weights if ML is not available
+            double totalWeight = settings.getRuleWeight() + 
+                               settings.getStatisticalWeight();
+            finalScore = (settings.getRuleWeight() / totalWeight) * ruleScore +
+                        (settings.getStatisticalWeight() / totalWeight) * statisticalScore;
+        }
+        
+        // Ensure score is in 0-100 range
+        return Math.min(100.0, Math.max(0.0, finalScore));
+    }
+    
+    private static String categorize(double finalScore, ScoringSnapshot settings) {
+        if (finalScore < settings.getSoftFlag()) {
+            return "APPROVED";
+        } else if (finalScore < settings.getHardFlag()) {
+            return "MONITOR";
+        }
+        return "FLAGGED";
+    }
 }
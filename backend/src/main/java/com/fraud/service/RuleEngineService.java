@@ -1,11 +1,13 @@
 package com.fraud.service;
 
+import com.fraud.baseline.BaselineProfile;
+import com.fraud.baseline.IntHashSet;
 import com.fraud.config.FraudDetectionConfig;
+import com.fraud.config.ScoringSnapshot;
 import com.fraud.dto.FraudEvaluationResponse.TriggeredRule;
 import com.fraud.entity.Transaction;
 import com.fraud.entity.UserBaseline;
 import com.fraud.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -16,31 +18,77 @@ import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RuleEngineService {
     
     private final TransactionRepository transactionRepository;
     private final FraudDetectionConfig config;
+    private final GeoDistanceService geoDistanceService;
+    private final SharedEntityIndex sharedEntityIndex;
+    private final MerchantRiskAggregator merchantRiskAggregator;
+    private final IdentifierDictionary identifierDictionary;
+    private final IntHashSet riskyCategoryIds;
     
     private static final Set<String> RISKY_CATEGORIES = Set.of(
         "electronics", "crypto", "gift_cards", "jewelry", 
         "luxury_goods", "prepaid_cards"
     );
     
-    private static final Map<String, Double> RULE_WEIGHTS = Map.of(
-        "amount_anomaly", 25.0,
-        "velocity_spike", 20.0,
-        "geographic_anomaly", 15.0,
-        "new_device", 10.0,
-        "new_merchant_high_amount", 15.0,
-        "risky_category", 10.0,
-        "time_anomaly", 10.0
+    public RuleEngineService(TransactionRepository transactionRepository,
+                             FraudDetectionConfig config,
+                             GeoDistanceService geoDistanceService,
+                             SharedEntityIndex sharedEntityIndex,
+                             MerchantRiskAggregator merchantRiskAggregator,
+                             IdentifierDictionary identifierDictionary) {
+        this.transactionRepository = transactionRepository;
+        this.config = config;
+        this.geoDistanceService = geoDistanceService;
+        this.sharedEntityIndex = sharedEntityIndex;
+        this.merchantRiskAggregator = merchantRiskAggregator;
+        this.identifierDictionary = identifierDictionary;
+        this.riskyCategoryIds = new IntHashSet(RISKY_CATEGORIES.size());
+        for (String category : RISKY_CATEGORIES) {
+            riskyCategoryIds.add(identifierDictionary.intern(IdentifierDictionary.Kind.CATEGORY, category));
+        }
+    }
+    
+    private static final Map<String, Double> RULE_WEIGHTS = Map.ofEntries(
+        Map.entry("amount_anomaly", 25.0),
+        Map.entry("velocity_spike", 20.0),
+        Map.entry("geographic_anomaly", 15.0),
+        Map.entry("new_device", 10.0),
+        Map.entry("new_merchant_high_amount", 15.0),
+        Map.entry("risky_category", 10.0),
+        Map.entry("time_anomaly", 10.0),
+        Map.entry("impossible_travel", 20.0),
+        Map.entry("shared_device", 20.0),
+        Map.entry("merchant_risk", 15.0)
     );
     
-    public RuleEvaluationResult evaluateRules(Transaction transaction, UserBaseline baseline) {
+    public RuleEvaluationResult evaluateRules(Transaction transaction, UserBaseline baseline,
+                                              ScoringSnapshot settings) {
+        LocalDateTime since = transaction.getTimestamp()
+            .minusMinutes(settings.getVelocityWindowMinutes());
+        Long velocityCount = transactionRepository.countRecentTransactions(
+            transaction.getUserId(), since);
+        return evaluateRules(transaction, baseline, velocityCount, settings);
+    }
+    
+    // Velocity supplied by the caller, e.g. point-in-time counts during a backfill
+    public RuleEvaluationResult evaluateRules(Transaction transaction, UserBaseline baseline, long velocityCount,
+                                              ScoringSnapshot settings) {
+        return evaluateRules(transaction, baseline, velocityCount, settings, sharedEntityIndex, merchantRiskAggregator);
+    }
+    
+    // Shared device/merchant counts and merchant aggregates from the given lookups; a backfill
+    // passes its own index and no merchant aggregates
+    public RuleEvaluationResult evaluateRules(Transaction transaction, UserBaseline baseline, long velocityCount,
+                                              ScoringSnapshot settings, SharedEntityLookup sharedEntities,
+                                              MerchantRiskLookup merchantRisks) {
         List<TriggeredRule> triggeredRules = new ArrayList<>();
         double totalScore = 0.0;
+        identifierDictionary.intern(transaction);
+        BaselineProfile profile = identifierDictionary.profile(baseline);
         
         // Rule 1: Amount anomaly
         if (baseline.getTransactionCount() > 0 && baseline.getStdAmount().compareTo(BigDecimal.ZERO) > 0) {
@@ -48,7 +96,7 @@ public class RuleEngineService {
                 .subtract(baseline.getAvgAmount())
                 .divide(baseline.getStdAmount(), 10, RoundingMode.HALF_UP);
             
-            if (zScore.compareTo(BigDecimal.valueOf(config.getRules().getAmountAnomalyStdDev())) > 0) {
+            if (zScore.compareTo(BigDecimal.valueOf(settings.getAmountAnomalyStdDev())) > 0) {
                 double points = RULE_WEIGHTS.get("amount_anomaly");
                 totalScore += points;
                 triggeredRules.add(TriggeredRule.builder()
@@ -65,12 +113,7 @@ public class RuleEngineService {
         }
         
         // Rule 2: Velocity spike
-        LocalDateTime since = transaction.getTimestamp()
-            .minusMinutes(config.getRules().getVelocityWindowMinutes());
-        Long velocityCount = transactionRepository.countRecentTransactions(
-            transaction.getUserId(), since);
-        
-        if (velocityCount >= config.getRules().getVelocityThreshold()) {
+        if (velocityCount >= settings.getVelocityThreshold()) {
             double points = RULE_WEIGHTS.get("velocity_spike");
             totalScore += points;
             triggeredRules.add(TriggeredRule.builder()
@@ -78,25 +121,24 @@ public class RuleEngineService {
                 .points(points)
                 .explanation(String.format(
                     "%d transactions in the last %d minutes (threshold: %d)",
-                    velocityCount, config.getRules().getVelocityWindowMinutes(),
-                    config.getRules().getVelocityThreshold()
+                    velocityCount, settings.getVelocityWindowMinutes(),
+                    settings.getVelocityThreshold()
                 ))
                 .build());
         }
         
         // Rule 3: Geographic anomaly
         if (baseline.getLastTransactionTime() != null) {
-            boolean stateMatch = transaction.getLocationState()
-                .equals(baseline.getLastTransactionState());
-            boolean countryMatch = transaction.getLocationCountry()
-                .equals(baseline.getLastTransactionCountry());
+            boolean stateMatch = profile.isLastState(transaction.getStateKey(), transaction.getLocationState());
+            boolean countryMatch = profile.isLastCountry(transaction.getCountryKey(),
+                transaction.getLocationCountry());
             
             if (!stateMatch || !countryMatch) {
                 Duration timeDiff = Duration.between(
                     baseline.getLastTransactionTime(), transaction.getTimestamp());
                 double hoursDiff = timeDiff.toHours();
                 
-                if (hoursDiff < config.getRules().getGeographicTimeWindowHours()) {
+                if (hoursDiff < settings.getGeographicTimeWindowHours()) {
                     double points = RULE_WEIGHTS.get("geographic_anomaly");
                     totalScore += points;
                     triggeredRules.add(TriggeredRule.builder()
@@ -114,8 +156,7 @@ public class RuleEngineService {
         }
         
         // Rule 4: New device
-        Set<String> knownDevices = parseJsonSet(baseline.getKnownDevices());
-        if (!knownDevices.contains(transaction.getDeviceId())) {
+        if (!profile.knowsDevice(transaction.getDeviceKey(), transaction.getDeviceId())) {
             double points = RULE_WEIGHTS.get("new_device");
             totalScore += points;
             triggeredRules.add(TriggeredRule.builder()
@@ -126,8 +167,7 @@ public class RuleEngineService {
         }
         
         // Rule 5: New merchant + high amount
-        Set<String> knownMerchants = parseJsonSet(baseline.getKnownMerchants());
-        if (!knownMerchants.contains(transaction.getMerchantId()) && 
+        if (!profile.knowsMerchant(transaction.getMerchantKey(), transaction.getMerchantId()) &&
             baseline.getTransactionCount() > 0) {
             BigDecimal threshold = baseline.getAvgAmount().multiply(BigDecimal.valueOf(2));
             if (transaction.getAmount().compareTo(threshold) > 0) {
@@ -147,7 +187,10 @@ public class RuleEngineService {
         }
         
         // Rule 6: Risky category
-        if (RISKY_CATEGORIES.contains(transaction.getMerchantCategory().toLowerCase())) {
+        boolean risky = transaction.getCategoryKey() != IdentifierDictionary.NONE
+            ? riskyCategoryIds.contains(transaction.getCategoryKey())
+            : RISKY_CATEGORIES.contains(transaction.getMerchantCategory().toLowerCase());
+        if (risky) {
             double points = RULE_WEIGHTS.get("risky_category");
             totalScore += points;
             triggeredRules.add(TriggeredRule.builder()
@@ -175,25 +218,76 @@ public class RuleEngineService {
             }
         }
         
-        // Normalize to 0-100
-        totalScore = Math.min(100.0, Math.max(0.0, totalScore));
+        // Rule 8: Impossible travel - the implied speed from the last location is not physically plausible
+        if (baseline.getLastTransactionTime() != null) {
+            double distanceKm = geoDistanceService.distanceKm(
+                baseline.getLastTransactionState(), baseline.getLastTransactionCountry(),
+                transaction.getLocationState(), transaction.getLocationCountry());
+            // Centroids are coarse, so neighbouring locations never count as travel
+            if (distanceKm >= settings.getImpossibleTravelMinDistanceKm()) {
+                long seconds = Math.abs(Duration.between(
+                    baseline.getLastTransactionTime(), transaction.getTimestamp()).getSeconds());
+                double hours = Math.max(seconds, 60) / 3600.0;
+                double speedKmh = distanceKm / hours;
+                if (speedKmh > settings.getImpossibleTravelSpeedKmh()) {
+                    double points = RULE_WEIGHTS.get("impossible_travel");
+                    totalScore += points;
+                    triggeredRules.add(TriggeredRule.builder()
+                        .ruleName("impossible_travel")
+                        .points(points)
+                        .explanation(String.format(
+                            "%.0f km from %s, %s in %.1f hours implies %.0f km/h (limit: %.0f km/h)",
+                            distanceKm, baseline.getLastTransactionState(),
+                            baseline.getLastTransactionCountry(), hours, speedKmh,
+                            settings.getImpossibleTravelSpeedKmh()
+                        ))
+                        .build());
+                }
+            }
+        }
         
-        return new RuleEvaluationResult(totalScore, triggeredRules, velocityCount.intValue());
-    }
-    
-    private Set<String> parseJsonSet(String json) {
-        if (json == null || json.isEmpty()) {
-            return new HashSet<>();
+        // Rule 9: Device shared by many distinct users (ring activity). Merchants are counted
+        // too, for the admin query only: a popular merchant has many users for no bad reason.
+        SharedEntityIndex.Observation shared = sharedEntities.lookup(transaction);
+        int windowMinutes = config.getSharedIndex().getWindowMinutes();
+        if (shared.deviceUsers >= settings.getDeviceUserThreshold()) {
+            double points = RULE_WEIGHTS.get("shared_device");
+            totalScore += points;
+            triggeredRules.add(TriggeredRule.builder()
+                .ruleName("shared_device")
+                .points(points)
+                .explanation(String.format(
+                    "Device %s used by ~%d distinct users in the last %d minutes (threshold: %d)",
+                    transaction.getDeviceId(), shared.deviceUsers,
+                    windowMinutes, settings.getDeviceUserThreshold()
+                ))
+                .build());
         }
-        try {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = 
-                new com.fasterxml.jackson.databind.ObjectMapper();
-            List<String> list = mapper.readValue(json, 
-                new com.fasterxml.jackson.core.type.TypeReference<List<String>>() {});
-            return new HashSet<>(list);
-        } catch (Exception e) {
-            return new HashSet<>();
+        
+        // Rule 11: Merchant with a high flag rate over the last day
+        MerchantRiskAggregator.MerchantRiskSnapshot merchantRisk = merchantRisks.get(transaction.getMerchantId());
+        if (merchantRisk != null) {
+            MerchantRiskAggregator.WindowStats lastDay = merchantRisk.getLastDay();
+            if (lastDay.getCount() >= settings.getMerchantMinVolume() &&
+                lastDay.getFlagRate() >= settings.getMerchantFlagRateThreshold()) {
+                double points = RULE_WEIGHTS.get("merchant_risk");
+                totalScore += points;
+                triggeredRules.add(TriggeredRule.builder()
+                    .ruleName("merchant_risk")
+                    .points(points)
+                    .explanation(String.format(
+                        "Merchant %s flagged %.0f%% of %d transactions in the last 24 hours (threshold: %.0f%%)",
+                        transaction.getMerchantId(), lastDay.getFlagRate() * 100, lastDay.getCount(),
+                        settings.getMerchantFlagRateThreshold() * 100
+                    ))
+                    .build());
+            }
         }
+        
+        // Normalize to 0-100
+        totalScore = Math.min(100.0, Math.max(0.0, totalScore));
+        
+        return new RuleEvaluationResult(totalScore, triggeredRules, (int) velocityCount);
     }
     
     public static class RuleEvaluationResult {
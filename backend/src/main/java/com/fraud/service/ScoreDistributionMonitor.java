@@ -0,0 +1,523 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.event.TransactionRescoredEvent;
+import com.fraud.event.TransactionScoredEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Live distribution of the scores the model hands out, to catch drift before it shows up
+// as missed fraud or a flood of alerts. Every evaluation increments one fixed-width bucket
+// per component score (0-100) under its risk category, in the current time slot of a ring;
+// the hot path is a volatile read and a few atomic increments, no locks and no allocation.
+// Slots rotate on a schedule and the window is the sum of the ring. The window is compared
+// with a pinned reference window by the population stability index (PSI).
+@Service
+@Slf4j
+public class ScoreDistributionMonitor {
+    
+    public static final String[] COMPONENTS = {"riskScore", "ruleScore", "statisticalScore", "mlScore"};
+    public static final String[] CATEGORIES = {"APPROVED", "MONITOR", "FLAGGED"};
+    
+    private static final int RISK = 0;
+    private static final int RULE = 1;
+    private static final int STATISTICAL = 2;
+    private static final int ML = 3;
+    // Floor for empty buckets, which would otherwise make PSI infinite
+    private static final double EMPTY_SHARE = 0.0001;
+    
+    private final FraudDetectionConfig.Drift settings;
+    private final ObjectMapper objectMapper;
+    private final int buckets;
+    private final double bucketsPerPoint;
+    private final Slot[] ring;
+    private final AtomicLong recorded = new AtomicLong();
+    
+    private volatile Slot current;
+    private volatile Reference reference;
+    private volatile String drift = "INSUFFICIENT_DATA";
+    private int position;
+    private long rotations;
+    
+    public ScoreDistributionMonitor(FraudDetectionConfig config, ObjectMapper objectMapper) {
+        this.settings = config.getDrift();
+        this.objectMapper = objectMapper;
+        this.buckets = Math.max(1, settings.getBuckets());
+        this.bucketsPerPoint = buckets / 100.0;
+        this.ring = new Slot[Math.max(1, settings.getWindowMinutes() * 60 / settings.getSlotSeconds())];
+        this.current = new Slot(buckets, System.currentTimeMillis());
+        ring[0] = current;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionScored(TransactionScoredEvent event) {
+        if (settings.getEnabled()) {
+            record(current.counts, event.getEvaluation(), 1);
+        }
+    }
+    
+    // The late ML score replaces the fast-path decision counted when it was scored
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionRescored(TransactionRescoredEvent event) {
+        if (settings.getEnabled()) {
+            AtomicLongArray counts = current.counts;
+            record(counts, event.getPrevious(), -1);
+            record(counts, event.getEvaluation(), 1);
+        }
+    }
+    
+    private void record(AtomicLongArray counts, FraudEvaluationResponse evaluation, int delta) {
+        int category = categoryIndex(evaluation.getRiskCategory());
+        if (category < 0) {
+            return;
+        }
+        add(counts, RISK, category, evaluation.getRiskScore(), delta);
+        add(counts, RULE, category, evaluation.getRuleScore(), delta);
+        add(counts, STATISTICAL, category, evaluation.getStatisticalScore(), delta);
+        // Null when the decision was made without the ML service
+        add(counts, ML, category, evaluation.getMlScore(), delta);
+    }
+    
+    private void add(AtomicLongArray counts, int component, int category, Double score, int delta) {
+        if (score == null) {
+            return;
+        }
+        // Out-of-range scores land in the end buckets (NaN in the first)
+        int bucket = Math.max(0, Math.min(buckets - 1, (int) (score * bucketsPerPoint)));
+        counts.getAndAdd((component * CATEGORIES.length + category) * buckets + bucket, delta);
+    }
+    
+    private static int categoryIndex(String category) {
+        if (category == null) {
+            return -1;
+        }
+        switch (category) {
+            case "APPROVED":
+                return 0;
+            case "MONITOR":
+                return 1;
+            case "FLAGGED":
+                return 2;
+            default:
+                return -1;
+        }
+    }
+    
+    // Starts a fresh slot in place of the oldest one
+    @Scheduled(fixedRateString = "${fraud.detection.drift.slot-seconds:60}",
+        initialDelayString = "${fraud.detection.drift.slot-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void rotate() {
+        boolean full;
+        synchronized (this) {
+            position = (position + 1) % ring.length;
+            Slot previous = current;
+            current = new Slot(buckets, System.currentTimeMillis());
+            ring[position] = current;
+            recorded.addAndGet(previous.total());
+            full = ++rotations >= ring.length;
+        }
+        if (!settings.getEnabled()) {
+            return;
+        }
+        Window window = window();
+        if (reference == null && settings.getAutoPin() && full
+                && window.total(RISK) >= settings.getMinSamples()) {
+            pin(window);
+            log.info("Pinned the first full score window ({} evaluations) as the drift reference",
+                window.total(RISK));
+        }
+        Map<String, Object> report = report(window, false);
+        String level = (String) report.get("drift");
+        if ("SIGNIFICANT".equals(level) && !"SIGNIFICANT".equals(drift)) {
+            log.warn("Score distribution has drifted from the reference: {}", psiSummary(report));
+        } else if ("STABLE".equals(level) && !"STABLE".equals(drift) && !"INSUFFICIENT_DATA".equals(drift)) {
+            log.info("Score distribution is back in line with the reference: {}", psiSummary(report));
+        }
+        drift = level;
+    }
+    
+    // Histograms of the current window, with PSI against the reference where there is one
+    public Map<String, Object> getDistribution(boolean histograms) {
+        return report(window(), histograms);
+    }
+    
+    // Pins the current window as the reference later windows are compared with
+    public Map<String, Object> pinReference() {
+        Window window = window();
+        if (window.total(RISK) < settings.getMinSamples()) {
+            throw new IllegalStateException("The current window has " + window.total(RISK) +
+                " evaluations; at least " + settings.getMinSamples() + " are needed for a reference");
+        }
+        pin(window);
+        log.info("Pinned the score window from {} to {} ({} evaluations) as the drift reference",
+            window.from, window.to, window.total(RISK));
+        return describe(reference);
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", settings.getEnabled());
+        status.put("recorded", recorded.get() + current.total());
+        status.put("drift", drift);
+        status.put("reference", reference != null ? describe(reference) : null);
+        return status;
+    }
+    
+    // Drops the live window; the reference stays pinned
+    public synchronized void clear() {
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = null;
+        }
+        current = new Slot(buckets, System.currentTimeMillis());
+        ring[position] = current;
+        rotations = 0;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadReference() {
+        Path file = referenceFile();
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try {
+            Reference loaded = objectMapper.readValue(file.toFile(), Reference.class);
+            if (loaded.getBuckets() != buckets) {
+                log.warn("Ignoring the drift reference in {}: it has {} buckets, not {}", file,
+                    loaded.getBuckets(), buckets);
+                return;
+            }
+            reference = loaded;
+            log.info("Loaded the drift reference pinned at {} from {}", loaded.getPinnedAt(), file);
+        } catch (IOException e) {
+            log.warn("Could not read the drift reference from {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private void pin(Window window) {
+        Reference pinned = new Reference(LocalDateTime.now(), window.from, window.to, buckets, window.counts);
+        reference = pinned;
+        Path file = referenceFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), pinned);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not save the drift reference to {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private Path referenceFile() {
+        String file = settings.getReferenceFile();
+        return file == null || file.isBlank() ? null : Paths.get(file).toAbsolutePath();
+    }
+    
+    private synchronized Window window() {
+        long[][][] counts = new long[COMPONENTS.length][CATEGORIES.length][buckets];
+        long from = current.startedAt;
+        for (Slot slot : ring) {
+            if (slot == null) {
+                continue;
+            }
+            from = Math.min(from, slot.startedAt);
+            for (int component = 0; component < COMPONENTS.length; component++) {
+                for (int category = 0; category < CATEGORIES.length; category++) {
+                    int offset = (component * CATEGORIES.length + category) * buckets;
+                    for (int bucket = 0; bucket < buckets; bucket++) {
+                        counts[component][category][bucket] += slot.counts.get(offset + bucket);
+                    }
+                }
+            }
+        }
+        // A re-score is taken off the current slot, so it can go below zero when the
+        // original decision's slot has already left the window
+        for (long[][] byCategory : counts) {
+            for (long[] histogram : byCategory) {
+                for (int bucket = 0; bucket < buckets; bucket++) {
+                    histogram[bucket] = Math.max(0, histogram[bucket]);
+                }
+            }
+        }
+        return new Window(toLocal(from), LocalDateTime.now(), counts);
+    }
+    
+    private Map<String, Object> report(Window window, boolean histograms) {
+        Reference pinned = reference;
+        long[][][] expected = pinned != null ? pinned.getCounts() : null;
+        
+        Map<String, Object> components = new LinkedHashMap<>();
+        double worst = -1;
+        for (int component = 0; component < COMPONENTS.length; component++) {
+            long[] actual = sumCategories(window.counts[component]);
+            Map<String, Object> entry = compare(actual, expected != null ? sumCategories(expected[component]) : null,
+                histograms);
+            Double psi = (Double) entry.get("psi");
+            if (psi != null) {
+                worst = Math.max(worst, psi);
+            }
+            Map<String, Object> byCategory = new LinkedHashMap<>();
+            for (int category = 0; category < CATEGORIES.length; category++) {
+                byCategory.put(CATEGORIES[category], compare(window.counts[component][category],
+                    expected != null ? expected[component][category] : null, histograms));
+            }
+            entry.put("byCategory", byCategory);
+            components.put(COMPONENTS[component], entry);
+        }
+        // Share of each category, from the risk score histograms every evaluation is in
+        long[] actualMix = categoryMix(window.counts[RISK]);
+        long[] expectedMix = expected != null ? categoryMix(expected[RISK]) : null;
+        Map<String, Object> categories = compare(actualMix, expectedMix, false);
+        categories.put("current", shares(actualMix));
+        categories.put("reference", expectedMix != null ? shares(expectedMix) : null);
+        if (categories.get("psi") != null) {
+            worst = Math.max(worst, (Double) categories.get("psi"));
+        }
+        
+        Map<String, Object> windowInfo = new LinkedHashMap<>();
+        windowInfo.put("from", window.from);
+        windowInfo.put("to", window.to);
+        windowInfo.put("evaluations", window.total(RISK));
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("drift", worst < 0 ? "INSUFFICIENT_DATA" : level(worst));
+        result.put("window", windowInfo);
+        result.put("reference", pinned != null ? describe(pinned) : null);
+        result.put("bucketWidth", 100.0 / buckets);
+        result.put("psiModerate", settings.getPsiModerate());
+        result.put("psiSignificant", settings.getPsiSignificant());
+        result.put("minSamples", settings.getMinSamples());
+        result.put("categories", categories);
+        result.put("components", components);
+        return result;
+    }
+    
+    // PSI of one histogram against its reference; left out when either side is too small
+    private Map<String, Object> compare(long[] actual, long[] expected, boolean histograms) {
+        long actualTotal = sum(actual);
+        long expectedTotal = expected != null ? sum(expected) : 0;
+        Double psi = null;
+        if (actualTotal >= settings.getMinSamples() && expectedTotal >= settings.getMinSamples()) {
+            double total = 0;
+            for (int i = 0; i < actual.length; i++) {
+                double a = Math.max(EMPTY_SHARE, (double) actual[i] / actualTotal);
+                double e = Math.max(EMPTY_SHARE, (double) expected[i] / expectedTotal);
+                total += (a - e) * Math.log(a / e);
+            }
+            psi = Math.round(total * 10000) / 10000.0;
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("evaluations", actualTotal);
+        entry.put("referenceEvaluations", expected != null ? expectedTotal : null);
+        entry.put("psi", psi);
+        entry.put("drift", psi != null ? level(psi) : "INSUFFICIENT_DATA");
+        if (histograms) {
+            entry.put("histogram", actual);
+            entry.put("referenceHistogram", expected);
+        }
+        return entry;
+    }
+    
+    private String level(double psi) {
+        if (psi >= settings.getPsiSignificant()) {
+            return "SIGNIFICANT";
+        }
+        return psi >= settings.getPsiModerate() ? "MODERATE" : "STABLE";
+    }
+    
+    private Map<String, Object> describe(Reference pinned) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("pinnedAt", pinned.getPinnedAt());
+        description.put("from", pinned.getFrom());
+        description.put("to", pinned.getTo());
+        description.put("evaluations", sum(sumCategories(pinned.getCounts()[RISK])));
+        return description;
+    }
+    
+    private static String psiSummary(Map<String, Object> report) {
+        List<String> parts = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> components = (Map<String, Map<String, Object>>) report.get("components");
+        components.forEach((name, entry) -> parts.add(name + " PSI " + entry.get("psi")));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> categories = (Map<String, Object>) report.get("categories");
+        parts.add("category mix PSI " + categories.get("psi"));
+        return String.join(", ", parts);
+    }
+    
+    private static long[] sumCategories(long[][] byCategory) {
+        long[] total = new long[byCategory[0].length];
+        for (long[] histogram : byCategory) {
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                total[bucket] += histogram[bucket];
+            }
+        }
+        return total;
+    }
+    
+    private static long[] categoryMix(long[][] byCategory) {
+        long[] mix = new long[byCategory.length];
+        for (int category = 0; category < byCategory.length; category++) {
+            mix[category] = sum(byCategory[category]);
+        }
+        return mix;
+    }
+    
+    private static Map<String, Object> shares(long[] mix) {
+        long total = sum(mix);
+        Map<String, Object> shares = new LinkedHashMap<>();
+        for (int category = 0; category < mix.length; category++) {
+            shares.put(CATEGORIES[category], total > 0 ? Math.round(mix[category] * 10000.0 / total) / 10000.0 : 0.0);
+        }
+        return shares;
+    }
+    
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+    
+    private static LocalDateTime toLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+    
+    // Cost of recording an evaluation, on scratch counters so the live window is untouched;
+    // with several threads they all hit the same counters, as scoring threads do
+    public Map<String, Object> benchmark(int updates, int threads) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(7);
+        FraudEvaluationResponse[] samples = new FraudEvaluationResponse[4096];
+        for (int i = 0; i < samples.length; i++) {
+            double score = random.nextDouble(0, 100);
+            samples[i] = FraudEvaluationResponse.builder()
+                .riskScore(score)
+                .riskCategory(CATEGORIES[score >= 80 ? 2 : score >= 50 ? 1 : 0])
+                .ruleScore(random.nextDouble(0, 100))
+                .statisticalScore(random.nextDouble(0, 100))
+                .mlScore(random.nextInt(10) == 0 ? null : random.nextDouble(0, 100))
+                .build();
+        }
+        AtomicLongArray counts = new Slot(buckets, 0).counts;
+        // Warm-up, so the timed runs measure compiled code
+        for (int i = 0; i < Math.max(updates, 100000); i++) {
+            record(counts, samples[i & (samples.length - 1)], 1);
+        }
+        
+        long started = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            record(counts, samples[i & (samples.length - 1)], 1);
+        }
+        double singleNanos = (double) (System.nanoTime() - started) / updates;
+        
+        Thread[] workers = new Thread[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 997;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < updates; i++) {
+                    record(counts, samples[(i + offset) & (samples.length - 1)], 1);
+                }
+            }, "drift-benchmark-" + t);
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        started = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - started;
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("updates", updates);
+        result.put("threads", threads);
+        result.put("singleThreadNsPerUpdate", Math.round(singleNanos * 100) / 100.0);
+        // Wall time per update across all threads, and what each update cost its thread
+        result.put("contendedNsPerUpdate", Math.round((double) elapsed / ((long) updates * threads) * 100) / 100.0);
+        result.put("contendedThreadNsPerUpdate", Math.round((double) elapsed / updates * 100) / 100.0);
+        log.info("Score distribution benchmark: {}", result);
+        return result;
+    }
+    
+    // One time slot: counts indexed by component, then category, then bucket
+    private static class Slot {
+        private final AtomicLongArray counts;
+        private final long startedAt;
+        
+        Slot(int buckets, long startedAt) {
+            this.counts = new AtomicLongArray(COMPONENTS.length * CATEGORIES.length * buckets);
+            this.startedAt = startedAt;
+        }
+        
+        // Evaluations recorded, counted from the risk score every evaluation has
+        long total() {
+            long total = 0;
+            for (int i = 0; i < counts.length() / COMPONENTS.length; i++) {
+                total += counts.get(i);
+            }
+            return total;
+        }
+    }
+    
+    @AllArgsConstructor
+    private static class Window {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final long[][][] counts;
+        
+        long total(int component) {
+            return sum(sumCategories(counts[component]));
+        }
+    }
+    
+    // Saved to reference-file so the reference survives restarts
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Reference {
+        private LocalDateTime pinnedAt;
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private int buckets;
+        private long[][][] counts;
+    }
+}
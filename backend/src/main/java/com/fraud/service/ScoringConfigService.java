@@ -0,0 +1,229 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.config.ScoringSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Owns the current scoring snapshot. Updates come from the admin API or from the
+// optional override file (watched for changes); they are validated, recorded as a new
+// version in scoring_config_versions and then published with a single volatile write.
+// Readers never lock: each evaluation calls current() once and uses that snapshot.
+// The snapshot is always rebuilt in layers: application.yml, then the file, then the
+// settings changed through the API, so neither source silently undoes the other.
+@Service
+@Slf4j
+public class ScoringConfigService {
+    
+    private static final String LATEST_SQL =
+        "SELECT version, settings FROM scoring_config_versions ORDER BY version DESC LIMIT 1";
+    private static final String INSERT_SQL =
+        "INSERT INTO scoring_config_versions (settings, source) VALUES (?, ?) RETURNING version";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private final ScoringSnapshot startupSettings;
+    private volatile ScoringSnapshot current;
+    // Guarded by this
+    private Map<String, Object> fileOverrides = new HashMap<>();
+    private Map<String, Object> apiOverrides = new HashMap<>();
+    private volatile WatchService watchService;
+    
+    public ScoringConfigService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, FraudDetectionConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.startupSettings = ScoringSnapshot.from(config);
+        this.current = startupSettings;
+    }
+    
+    // The snapshot to use for one whole evaluation
+    public ScoringSnapshot current() {
+        return current;
+    }
+    
+    // Adds the given settings to the API layer and publishes the result; they stay in
+    // force over the file's values until cleared
+    public synchronized ScoringSnapshot update(Map<String, Object> changes, String source) {
+        Map<String, Object> overrides = new HashMap<>(apiOverrides);
+        overrides.putAll(changes);
+        ScoringSnapshot published = publish(build(fileOverrides, overrides), source);
+        apiOverrides = overrides;
+        return published;
+    }
+    
+    // Drops every setting changed through the API, back to application.yml and the file
+    public synchronized ScoringSnapshot clearOverrides(String source) {
+        ScoringSnapshot published = publish(build(fileOverrides, new HashMap<>()), source);
+        apiOverrides = new HashMap<>();
+        return published;
+    }
+    
+    public synchronized Map<String, Object> getOverrides() {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("file", new HashMap<>(fileOverrides));
+        overrides.put("api", new HashMap<>(apiOverrides));
+        return overrides;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ScoringSnapshot initial = startupSettings;
+        Map<String, Object> initialFile = new HashMap<>();
+        Path file = overridesFile();
+        if (file != null && Files.exists(file)) {
+            try {
+                initialFile = readFile(file);
+                initial = overlay(startupSettings, initialFile);
+            } catch (Exception e) {
+                log.error("Ignoring scoring overrides in {}: {}", file, e.getMessage());
+                initialFile = new HashMap<>();
+            }
+        }
+        synchronized (this) {
+            List<String> errors = initial.validate();
+            if (!errors.isEmpty()) {
+                log.error("Invalid scoring configuration, using application.yml values: {}", errors);
+                initial = startupSettings;
+                initialFile = new HashMap<>();
+            }
+            fileOverrides = initialFile;
+            // Restarting with unchanged settings keeps the version the last instance used
+            List<Map<String, Object>> latest = jdbcTemplate.queryForList(LATEST_SQL);
+            if (!latest.isEmpty() && toJson(initial).equals(latest.get(0).get("settings"))) {
+                current = initial.withVersion(((Number) latest.get(0).get("version")).longValue());
+            } else {
+                publish(initial, "startup");
+            }
+        }
+        log.info("Scoring configuration version {} active", current.getVersion());
+        if (file != null) {
+            watch(file);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+    
+    private ScoringSnapshot publish(ScoringSnapshot settings, String source) {
+        List<String> errors = settings.validate();
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        Long version = jdbcTemplate.queryForObject(INSERT_SQL, Long.class, toJson(settings), source);
+        ScoringSnapshot published = settings.withVersion(version);
+        current = published;
+        log.info("Published scoring configuration version {} from {}", version, source);
+        return published;
+    }
+    
+    private ScoringSnapshot build(Map<String, Object> file, Map<String, Object> api) {
+        return overlay(overlay(startupSettings, file), api);
+    }
+    
+    // Unknown keys are rejected rather than ignored, so a typo cannot go unnoticed
+    private ScoringSnapshot overlay(ScoringSnapshot base, Map<String, Object> changes) {
+        Map<String, Object> merged = objectMapper.convertValue(base, new TypeReference<Map<String, Object>>() {});
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if ("version".equals(change.getKey()) || !merged.containsKey(change.getKey())) {
+                throw new IllegalArgumentException("Unknown scoring setting: " + change.getKey());
+            }
+            merged.put(change.getKey(), change.getValue());
+        }
+        return objectMapper.convertValue(merged, ScoringSnapshot.class);
+    }
+    
+    // Settings without the version, as stored for comparison on restart
+    private String toJson(ScoringSnapshot settings) {
+        try {
+            return objectMapper.writeValueAsString(settings.withVersion(0));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize scoring configuration", e);
+        }
+    }
+    
+    private Map<String, Object> readFile(Path file) throws IOException {
+        String content = Files.readString(file);
+        return content.isBlank() ? new HashMap<>() : objectMapper.readValue(content, new TypeReference<>() {});
+    }
+    
+    private Path overridesFile() {
+        String file = config.getScoring().getOverridesFile();
+        return file == null || file.isBlank() ? null : Paths.get(file).toAbsolutePath();
+    }
+    
+    // Reloads the overrides file whenever it changes; it is applied on top of the
+    // application.yml values, so removing a key restores the original setting, and
+    // settings changed through the API still win
+    private void watch(Path file) {
+        try {
+            Files.createDirectories(file.getParent());
+            watchService = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.error("Cannot watch scoring overrides file {}: {}", file, e.getMessage());
+            return;
+        }
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= file.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                    if (changed) {
+                        reload(file);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Shutting down
+            }
+        }, "scoring-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching {} for scoring configuration changes", file);
+    }
+    
+    private synchronized void reload(Path file) {
+        try {
+            Map<String, Object> overrides = readFile(file);
+            ScoringSnapshot settings = build(overrides, apiOverrides);
+            if (toJson(settings).equals(toJson(current))) {
+                fileOverrides = overrides;
+                return; // Editors often write a file more than once per save
+            }
+            publish(settings, "file");
+            fileOverrides = overrides;
+        } catch (Exception e) {
+            log.error("Rejected scoring configuration from {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.baseline.BaselineProfile;
+import com.fraud.baseline.IntHashSet;
+import com.fraud.entity.Transaction;
+import com.fraud.entity.UserBaseline;
+import com.fraud.repository.UserBaselineRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// In-process comparison of the scoring-state checks (last location, known device and
+// merchant for the rules and again for the ML features, risky category) on real baselines:
+// as they were with strings, with JSON parsed into HashSet<String> per evaluation, against
+// interned ids and the cached int-set profile. Also measures the heap a baseline's parsed
+// device and merchant state takes in either form. Used by benchmark_scoring_state.sh.
+@Service
+@Slf4j
+public class ScoringStateBenchmark {
+    
+    private static final Set<String> RISKY_CATEGORIES = Set.of(
+        "electronics", "crypto", "gift_cards", "jewelry", "luxury_goods", "prepaid_cards");
+    private static final String[] CATEGORIES = {"Groceries", "restaurants", "gas", "Electronics", "travel", "crypto"};
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+    
+    private final UserBaselineRepository baselineRepository;
+    private final IdentifierDictionary identifierDictionary;
+    private final BaselineService baselineService;
+    
+    public ScoringStateBenchmark(UserBaselineRepository baselineRepository,
+                                 IdentifierDictionary identifierDictionary,
+                                 BaselineService baselineService) {
+        this.baselineRepository = baselineRepository;
+        this.identifierDictionary = identifierDictionary;
+        this.baselineService = baselineService;
+    }
+    
+    public synchronized Map<String, Object> run(int baselineCount, int evaluations) {
+        List<UserBaseline> baselines = sampleBaselines(baselineCount);
+        SplittableRandom random = new SplittableRandom(7);
+        List<Transaction> transactions = new ArrayList<>(baselines.size());
+        for (int i = 0; i < baselines.size(); i++) {
+            transactions.add(transactionFor(baselines.get(i), i, random));
+        }
+        
+        // Ingestion-time cost, paid once per transaction
+        long internStarted = System.nanoTime();
+        for (Transaction transaction : transactions) {
+            identifierDictionary.intern(transaction);
+        }
+        double internNs = (double) (System.nanoTime() - internStarted) / transactions.size();
+        
+        IntHashSet riskyIds = new IntHashSet(RISKY_CATEGORIES.size());
+        for (String category : RISKY_CATEGORIES) {
+            riskyIds.add(identifierDictionary.intern(IdentifierDictionary.Kind.CATEGORY, category));
+        }
+        ObjectMapper shared = new ObjectMapper();
+        Checks legacy = (t, b) -> stringChecks(t, b, new ObjectMapper()); // A new mapper per parse, as before
+        Checks legacyShared = (t, b) -> stringChecks(t, b, shared);
+        Checks interned = (t, b) -> internedChecks(t, b, riskyIds);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("baselines", baselines.size());
+        result.put("evaluations", evaluations);
+        result.put("internNsPerTransaction", round(internNs));
+        result.put("avgKnownDevices", round(baselines.stream()
+            .mapToInt(b -> identifierDictionary.profile(b).getDeviceCount()).average().orElse(0)));
+        result.put("avgKnownMerchants", round(baselines.stream()
+            .mapToInt(b -> identifierDictionary.profile(b).getMerchantCount()).average().orElse(0)));
+        
+        Map<String, Object> timing = new HashMap<>();
+        Measurement strings = measure(legacy, baselines, transactions, evaluations);
+        Measurement stringsShared = measure(legacyShared, baselines, transactions, evaluations);
+        Measurement ints = measure(interned, baselines, transactions, evaluations);
+        timing.put("stringsNsPerEvaluation", round(strings.nanos));
+        timing.put("stringsSharedMapperNsPerEvaluation", round(stringsShared.nanos));
+        timing.put("internedNsPerEvaluation", round(ints.nanos));
+        timing.put("speedup", round(strings.nanos / ints.nanos));
+        timing.put("speedupOverSharedMapper", round(stringsShared.nanos / ints.nanos));
+        timing.put("stringsBytesAllocatedPerEvaluation", round(strings.bytes));
+        timing.put("stringsSharedMapperBytesAllocatedPerEvaluation", round(stringsShared.bytes));
+        timing.put("internedBytesAllocatedPerEvaluation", round(ints.bytes));
+        timing.put("resultsAgree", strings.hits == ints.hits && stringsShared.hits == ints.hits);
+        result.put("evaluation", timing);
+        
+        Map<String, Object> memory = new HashMap<>();
+        double setBytes = retainedBytesPerBaseline(baselines, b -> List.of(
+            parseSet(b.getKnownDevices(), shared), parseSet(b.getKnownMerchants(), shared)));
+        double profileBytes = retainedBytesPerBaseline(baselines, b ->
+            identifierDictionary.profile(b.toBuilder().profile(null).build()));
+        memory.put("stringSetBytesPerBaseline", Math.round(setBytes));
+        memory.put("profileBytesPerBaseline", Math.round(profileBytes));
+        memory.put("reduction", setBytes > 0 ? round(1 - profileBytes / setBytes) : null);
+        result.put("memory", memory);
+        result.put("dictionary", identifierDictionary.getStatus());
+        log.info("Scoring state benchmark: {}", result);
+        return result;
+    }
+    
+    private interface Checks {
+        int check(Transaction transaction, UserBaseline baseline);
+    }
+    
+    private interface Retained {
+        Object of(UserBaseline baseline);
+    }
+    
+    private static class Measurement {
+        double nanos;
+        double bytes;
+        long hits;
+    }
+    
+    // The checks as RuleEngineService and MLScoringClient made them before interning
+    private int stringChecks(Transaction transaction, UserBaseline baseline, ObjectMapper mapper) {
+        int hits = 0;
+        hits += transaction.getLocationState().equals(baseline.getLastTransactionState()) ? 1 : 0;
+        hits += transaction.getLocationCountry().equals(baseline.getLastTransactionCountry()) ? 1 : 0;
+        hits += parseSet(baseline.getKnownDevices(), mapper).contains(transaction.getDeviceId()) ? 1 : 0;
+        hits += parseSet(baseline.getKnownMerchants(), mapper).contains(transaction.getMerchantId()) ? 1 : 0;
+        hits += RISKY_CATEGORIES.contains(transaction.getMerchantCategory().toLowerCase()) ? 1 : 0;
+        hits += parseSet(baseline.getKnownDevices(), mapper).contains(transaction.getDeviceId()) ? 1 : 0;
+        hits += parseSet(baseline.getKnownMerchants(), mapper).contains(transaction.getMerchantId()) ? 1 : 0;
+        return hits;
+    }
+    
+    private int internedChecks(Transaction transaction, UserBaseline baseline, IntHashSet riskyIds) {
+        BaselineProfile profile = identifierDictionary.profile(baseline);
+        int hits = 0;
+        hits += profile.isLastState(transaction.getStateKey(), transaction.getLocationState()) ? 1 : 0;
+        hits += profile.isLastCountry(transaction.getCountryKey(), transaction.getLocationCountry()) ? 1 : 0;
+        hits += profile.knowsDevice(transaction.getDeviceKey(), transaction.getDeviceId()) ? 1 : 0;
+        hits += profile.knowsMerchant(transaction.getMerchantKey(), transaction.getMerchantId()) ? 1 : 0;
+        hits += riskyIds.contains(transaction.getCategoryKey()) ? 1 : 0;
+        hits += profile.knowsDevice(transaction.getDeviceKey(), transaction.getDeviceId()) ? 1 : 0;
+        hits += profile.knowsMerchant(transaction.getMerchantKey(), transaction.getMerchantId()) ? 1 : 0;
+        return hits;
+    }
+    
+    // A fifth of the evaluations as warm-up, then the timed run; hits are compared across paths
+    private Measurement measure(Checks path, List<UserBaseline> baselines, List<Transaction> transactions,
+                                int evaluations) {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long sink = 0;
+        for (int i = 0; i < evaluations / 5; i++) {
+            int n = i % baselines.size();
+            sink += path.check(transactions.get(n), baselines.get(n));
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long started = System.nanoTime();
+        for (int i = 0; i < evaluations; i++) {
+            int n = i % baselines.size();
+            sink += path.check(transactions.get(n), baselines.get(n));
+        }
+        Measurement measurement = new Measurement();
+        measurement.nanos = (double) (System.nanoTime() - started) / evaluations;
+        measurement.bytes = (double) (threads.getThreadAllocatedBytes(thread) - allocated) / evaluations;
+        measurement.hits = sink;
+        return measurement;
+    }
+    
+    // Approximate: heap in use after a full GC, with and without the objects held
+    private double retainedBytesPerBaseline(List<UserBaseline> baselines, Retained retained) {
+        long before = usedHeapAfterGc();
+        Object[] held = new Object[baselines.size()];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = retained.of(baselines.get(i));
+        }
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(held);
+        double perBaseline = (double) (after - before - 16L - 4L * held.length) / held.length;
+        return Math.max(0, perBaseline);
+    }
+    
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    private List<UserBaseline> sampleBaselines(int count) {
+        List<UserBaseline> baselines = new ArrayList<>(
+            baselineRepository.findAll(PageRequest.of(0, count)).getContent());
+        // Synthetic users when the database has few, so the run is still meaningful
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = baselines.size(); i < count; i++) {
+            UserBaseline baseline = baselineService.newBaseline("bench_user_" + i);
+            for (int n = 0; n < 30; n++) {
+                baselineService.applyTransaction(baseline, transactionFor(baseline, n, random));
+            }
+            baselines.add(baseline);
+        }
+        return baselines;
+    }
+    
+    // Half the time a device, merchant and state the user already has
+    private Transaction transactionFor(UserBaseline baseline, int n, SplittableRandom random) {
+        List<String> devices = parseList(baseline.getKnownDevices());
+        List<String> merchants = parseList(baseline.getKnownMerchants());
+        boolean familiar = random.nextBoolean() && !devices.isEmpty() && !merchants.isEmpty();
+        String state = familiar && baseline.getLastTransactionState() != null
+            ? baseline.getLastTransactionState() : "TX";
+        return Transaction.builder()
+            .transactionId("bench_" + n)
+            .userId(baseline.getUserId())
+            .amount(BigDecimal.valueOf(random.nextInt(100, 50000), 2))
+            .merchantId(familiar ? merchants.get(random.nextInt(merchants.size())) : "bench_merchant_" + random.nextInt(50))
+            .merchantCategory(CATEGORIES[random.nextInt(CATEGORIES.length)])
+            .timestamp(LocalDateTime.of(2000, 1, 1, 0, 0).plusMinutes(n))
+            .deviceId(familiar ? devices.get(random.nextInt(devices.size())) : "bench_device_" + random.nextInt(50))
+            // Fresh strings, as parsed from a request, so equality is not decided by identity
+            .locationState(new String(state))
+            .locationCountry(new String("US"))
+            .build();
+    }
+    
+    private static Set<String> parseSet(String json, ObjectMapper mapper) {
+        if (json == null || json.isEmpty()) {
+            return new HashSet<>();
+        }
+        try {
+            return new HashSet<>(mapper.readValue(json, STRING_LIST));
+        } catch (Exception e) {
+            return new HashSet<>();
+        }
+    }
+    
+    private static List<String> parseList(String json) {
+        return new ArrayList<>(parseSet(json, new ObjectMapper()));
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
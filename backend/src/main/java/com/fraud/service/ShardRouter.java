@@ -0,0 +1,128 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Consistent-hash ring mapping each userId to the instance that owns it. Membership is
+// static config, identical on every instance, so all of them agree on the owner without
+// coordinating; adding a node only moves the users on the ranges it takes over.
+@Service
+@Slf4j
+public class ShardRouter {
+    
+    private final boolean enabled;
+    private final FraudDetectionConfig.Sharding.Node self;
+    private final long[] points; // Sorted ring positions
+    private final FraudDetectionConfig.Sharding.Node[] owners; // Owner of each position
+    private final Map<String, Double> ownership = new LinkedHashMap<>();
+    
+    public ShardRouter(FraudDetectionConfig config) {
+        FraudDetectionConfig.Sharding sharding = config.getSharding();
+        this.enabled = sharding.getEnabled();
+        if (!enabled) {
+            this.self = null;
+            this.points = new long[0];
+            this.owners = new FraudDetectionConfig.Sharding.Node[0];
+            return;
+        }
+        
+        List<FraudDetectionConfig.Sharding.Node> nodes = sharding.getNodes();
+        this.self = nodes.stream()
+            .filter(node -> node.getId().equals(sharding.getNodeId()))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException(
+                "Sharding node-id '" + sharding.getNodeId() + "' is not one of the configured nodes"));
+        
+        int virtualNodes = sharding.getVirtualNodes();
+        List<long[]> ring = new ArrayList<>(); // {position, node index}
+        for (int n = 0; n < nodes.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.add(new long[]{hash(nodes.get(n).getId() + "#" + v), n});
+            }
+        }
+        ring.sort((a, b) -> Long.compareUnsigned(a[0], b[0]));
+        this.points = new long[ring.size()];
+        this.owners = new FraudDetectionConfig.Sharding.Node[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            points[i] = ring.get(i)[0];
+            owners[i] = nodes.get((int) ring.get(i)[1]);
+        }
+        
+        // Share of the hash space each node owns, for the status endpoint
+        for (int i = 0; i < points.length; i++) {
+            long previous = points[(i + points.length - 1) % points.length];
+            double span = ((points[i] - previous) >>> 1) / (double) Long.MAX_VALUE; // Unsigned gap / 2^64
+            ownership.merge(owners[i].getId(), span, Double::sum);
+        }
+        log.info("Sharding enabled: this is {} of {} nodes, owning {}% of users", self.getId(), nodes.size(),
+            Math.round(ownership.get(self.getId()) * 1000) / 10.0);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public String getNodeId() {
+        return enabled ? self.getId() : null;
+    }
+    
+    public boolean isLocal(String userId) {
+        return !enabled || owner(userId) == self;
+    }
+    
+    // The node owning the first ring position at or after the user's hash
+    public FraudDetectionConfig.Sharding.Node owner(String userId) {
+        if (!enabled) {
+            return null;
+        }
+        long h = hash(userId);
+        int index = 0;
+        int low = 0, high = points.length - 1;
+        if (Long.compareUnsigned(h, points[high]) <= 0) {
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (Long.compareUnsigned(points[mid], h) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            index = low;
+        }
+        return owners[index];
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        if (enabled) {
+            status.put("nodeId", self.getId());
+            status.put("ringPoints", points.length);
+            status.put("ownership", ownership);
+        }
+        return status;
+    }
+    
+    // 64-bit FNV-1a with a murmur finalizer; must be identical on every instance
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,200 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.entity.Transaction;
+import com.fraud.event.TransactionScoredEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cross-user index of how many distinct users each device and merchant has seen over
+// a sliding window, for spotting fraud rings that share devices or cash-out merchants.
+// Only device counts are scored; merchant counts are for investigation.
+// Windows are in transaction time. Scoring only looks counts up; a transaction is added
+// once it has committed, so warm-up runs, detached evaluations and rolled-back scores
+// never change the live counts. Backfills use their own BackfillEntityIndex.
+@Service
+@Slf4j
+public class SharedEntityIndex implements SharedEntityLookup {
+    
+    private final FraudDetectionConfig config;
+    private final ConcurrentMap<String, WindowedDistinctCounter> devices = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, WindowedDistinctCounter> merchants = new ConcurrentHashMap<>();
+    private final AtomicLong latestEpoch = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong untrackedKeys = new AtomicLong();
+    
+    public SharedEntityIndex(FraudDetectionConfig config) {
+        this.config = config;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionScored(TransactionScoredEvent event) {
+        observe(event.getTransaction());
+    }
+    
+    // Adds the transaction's user to its device and merchant
+    public void observe(Transaction transaction) {
+        long epoch = epochOf(transaction, config.getSharedIndex());
+        latestEpoch.accumulateAndGet(epoch, Math::max);
+        long userHash = hash(transaction.getUserId());
+        record(devices, transaction.getDeviceId(), userHash, epoch);
+        record(merchants, transaction.getMerchantId(), userHash, epoch);
+    }
+    
+    // Distinct-user counts in the window ending at the transaction, counting its own user
+    // as if it had been added; changes nothing
+    @Override
+    public Observation lookup(Transaction transaction) {
+        long epoch = epochOf(transaction, config.getSharedIndex());
+        long userHash = hash(transaction.getUserId());
+        return new Observation(estimateWith(devices, transaction.getDeviceId(), userHash, epoch));
+    }
+    
+    // Distinct users in the window ending at the latest transaction seen
+    public long distinctUsersForDevice(String deviceId) {
+        return estimate(devices, deviceId);
+    }
+    
+    public long distinctUsersForMerchant(String merchantId) {
+        return estimate(merchants, merchantId);
+    }
+    
+    public Map<String, Object> getStatus() {
+        FraudDetectionConfig.SharedIndex settings = config.getSharedIndex();
+        Map<String, Object> status = new HashMap<>();
+        status.put("devices", devices.size());
+        status.put("merchants", merchants.size());
+        status.put("maxKeys", settings.getMaxKeys());
+        status.put("untrackedKeys", untrackedKeys.get());
+        status.put("windowMinutes", settings.getBucketMinutes() * bucketCount());
+        status.put("registerBytes", allocatedBytes(devices) + allocatedBytes(merchants));
+        return status;
+    }
+    
+    public void clear() {
+        devices.clear();
+        merchants.clear();
+        latestEpoch.set(Long.MIN_VALUE);
+        untrackedKeys.set(0);
+    }
+    
+    // Drops keys with no activity inside the window
+    @Scheduled(fixedDelayString = "${fraud.detection.shared-index.sweep-ms:60000}")
+    public void evictIdle() {
+        if (latestEpoch.get() == Long.MIN_VALUE) {
+            return;
+        }
+        long oldest = latestEpoch.get() - bucketCount() + 1;
+        int before = devices.size() + merchants.size();
+        devices.values().removeIf(counter -> counter.getLatestEpoch() < oldest);
+        merchants.values().removeIf(counter -> counter.getLatestEpoch() < oldest);
+        int evicted = before - devices.size() - merchants.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle shared-index keys", evicted);
+        }
+    }
+    
+    private void record(ConcurrentMap<String, WindowedDistinctCounter> index, String key,
+                        long userHash, long epoch) {
+        if (key == null) {
+            return;
+        }
+        WindowedDistinctCounter counter = index.get(key);
+        if (counter == null) {
+            // At capacity new keys go untracked until idle ones are evicted
+            if (index.size() >= config.getSharedIndex().getMaxKeys()) {
+                untrackedKeys.incrementAndGet();
+                return;
+            }
+            counter = index.computeIfAbsent(key, k ->
+                new WindowedDistinctCounter(config.getSharedIndex().getPrecision(), bucketCount()));
+        }
+        synchronized (counter) {
+            counter.add(userHash, epoch);
+        }
+    }
+    
+    private long estimateWith(ConcurrentMap<String, WindowedDistinctCounter> index, String key,
+                              long userHash, long epoch) {
+        if (key == null) {
+            return 0;
+        }
+        WindowedDistinctCounter counter = index.get(key);
+        if (counter == null) {
+            return 1;
+        }
+        synchronized (counter) {
+            return counter.estimateWith(epoch, userHash);
+        }
+    }
+    
+    private long estimate(ConcurrentMap<String, WindowedDistinctCounter> index, String key) {
+        WindowedDistinctCounter counter = index.get(key);
+        if (counter == null) {
+            return 0;
+        }
+        synchronized (counter) {
+            return counter.estimate(latestEpoch.get());
+        }
+    }
+    
+    private long allocatedBytes(ConcurrentMap<String, WindowedDistinctCounter> index) {
+        long bytes = 0;
+        for (WindowedDistinctCounter counter : index.values()) {
+            synchronized (counter) {
+                bytes += counter.getAllocatedBytes();
+            }
+        }
+        return bytes;
+    }
+    
+    private int bucketCount() {
+        return bucketCount(config.getSharedIndex());
+    }
+    
+    static int bucketCount(FraudDetectionConfig.SharedIndex settings) {
+        return Math.max(1, settings.getWindowMinutes() / settings.getBucketMinutes());
+    }
+    
+    static long epochOf(Transaction transaction, FraudDetectionConfig.SharedIndex settings) {
+        return epochOf(transaction.getTimestamp(), settings);
+    }
+    
+    static long epochOf(LocalDateTime timestamp, FraudDetectionConfig.SharedIndex settings) {
+        long minutes = timestamp.toEpochSecond(ZoneOffset.UTC) / 60;
+        return Math.floorDiv(minutes, settings.getBucketMinutes());
+    }
+    
+    // 64-bit FNV-1a with a murmur finalizer, so every bit is usable by the sketch
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    public static class Observation {
+        public final long deviceUsers;
+        
+        public Observation(long deviceUsers) {
+            this.deviceUsers = deviceUsers;
+        }
+    }
+}
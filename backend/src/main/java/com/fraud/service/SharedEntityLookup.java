@@ -0,0 +1,9 @@
+package com.fraud.service;
+
+import com.fraud.entity.Transaction;
+
+// Read-only distinct-user counts for the shared device rule: the live
+// SharedEntityIndex, or a backfill run's own BackfillEntityIndex
+public interface SharedEntityLookup {
+    SharedEntityIndex.Observation lookup(Transaction transaction);
+}
@@ -0,0 +1,244 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionHistoryScanner {
+    
+    // Only the columns needed for scoring; the TEXT columns are never read
+    private static final String SCAN_SQL =
+        "SELECT transaction_id, user_id, amount, merchant_id, merchant_category, timestamp, " +
+        "device_id, location_state, location_country, channel, risk_score, risk_category, created_at " +
+        "FROM transactions WHERE user_id > ? ORDER BY user_id, timestamp, transaction_id";
+    
+    private static final String HISTORY_SQL =
+        "SELECT transaction_id, user_id, amount, merchant_id, merchant_category, timestamp, " +
+        "device_id, location_state, location_country, channel, risk_score, risk_category, created_at " +
+        "FROM transactions WHERE user_id = ANY(?) ORDER BY user_id, timestamp, transaction_id";
+    
+    private static final String ENTITY_SCAN_SQL =
+        "SELECT user_id, device_id, timestamp FROM transactions " +
+        "WHERE timestamp >= ? AND timestamp < ?";
+    
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final FraudDetectionConfig config;
+    
+    // Streams every transaction with user_id > afterUserId through a server-side
+    // cursor, grouped per user in timestamp order. Chunks of users are mapped in
+    // parallel on the pool and committed strictly in user_id order, so the last
+    // committed user id is always a safe resume point. Returns false if stopped.
+    public <R> boolean scanByUser(String afterUserId,
+                                  ForkJoinPool pool,
+                                  Function<UserHistory, R> perUser,
+                                  ChunkCommitter<R> committer,
+                                  BooleanSupplier stopRequested)
+            throws SQLException, InterruptedException, ExecutionException {
+        FraudDetectionConfig.Jobs jobs = config.getJobs();
+        Deque<PendingChunk<R>> pending = new ArrayDeque<>();
+        
+        // A dedicated connection outside any Spring transaction: Postgres only
+        // streams with a fetch size when auto-commit is off, and the committer
+        // must be free to commit its own work while the cursor stays open
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    SCAN_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(jobs.getFetchSize());
+                statement.setString(1, afterUserId != null ? afterUserId : "");
+                
+                try (ResultSet rs = statement.executeQuery()) {
+                    List<UserHistory> chunk = new ArrayList<>(jobs.getUsersPerChunk());
+                    String currentUser = null;
+                    List<Transaction> currentRows = new ArrayList<>();
+                    
+                    while (rs.next()) {
+                        Transaction row = mapRow(rs);
+                        if (!row.getUserId().equals(currentUser)) {
+                            if (currentUser != null) {
+                                chunk.add(new UserHistory(currentUser, currentRows));
+                                currentRows = new ArrayList<>();
+                                if (chunk.size() >= jobs.getUsersPerChunk()) {
+                                    if (stopRequested.getAsBoolean()) {
+                                        drain(pending, committer);
+                                        connection.rollback();
+                                        return false;
+                                    }
+                                    submit(chunk, pool, perUser, pending, committer, jobs.getMaxChunksInFlight());
+                                    chunk = new ArrayList<>(jobs.getUsersPerChunk());
+                                }
+                            }
+                            currentUser = row.getUserId();
+                        }
+                        currentRows.add(row);
+                    }
+                    
+                    if (currentUser != null) {
+                        chunk.add(new UserHistory(currentUser, currentRows));
+                    }
+                    if (!chunk.isEmpty()) {
+                        submit(chunk, pool, perUser, pending, committer, jobs.getMaxChunksInFlight());
+                    }
+                }
+            }
+            drain(pending, committer);
+            connection.rollback();
+        }
+        return true;
+    }
+    
+    // The same per-user history as scanByUser, for a few users, read in the caller's transaction
+    public List<UserHistory> readHistories(Collection<String> userIds) {
+        List<UserHistory> histories = new ArrayList<>();
+        if (userIds.isEmpty()) {
+            return histories;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(HISTORY_SQL);
+            ps.setArray(1, connection.createArrayOf("varchar", userIds.toArray()));
+            return ps;
+        }, (ResultSet rs) -> {
+            Transaction row = mapRow(rs);
+            if (histories.isEmpty() || !histories.get(histories.size() - 1).userId.equals(row.getUserId())) {
+                histories.add(new UserHistory(row.getUserId(), new ArrayList<>()));
+            }
+            histories.get(histories.size() - 1).transactions.add(row);
+        });
+        return histories;
+    }
+    
+    // Streams who used which device when, for every transaction in [from, until),
+    // in no particular order
+    public void scanEntities(LocalDateTime from, LocalDateTime until, EntityVisitor visitor) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    ENTITY_SCAN_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(config.getJobs().getFetchSize());
+                statement.setTimestamp(1, Timestamp.valueOf(from));
+                statement.setTimestamp(2, Timestamp.valueOf(until));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        visitor.visit(rs.getString("user_id"), rs.getString("device_id"),
+                            rs.getTimestamp("timestamp").toLocalDateTime());
+                    }
+                }
+            }
+            connection.rollback();
+        }
+    }
+    
+    private <R> void submit(List<UserHistory> chunk,
+                            ForkJoinPool pool,
+                            Function<UserHistory, R> perUser,
+                            Deque<PendingChunk<R>> pending,
+                            ChunkCommitter<R> committer,
+                            int maxInFlight) throws InterruptedException, ExecutionException {
+        // Bound memory: block the reader until the oldest chunk is committed
+        while (pending.size() >= maxInFlight) {
+            commitOldest(pending, committer);
+        }
+        String lastUserId = chunk.get(chunk.size() - 1).userId;
+        int rows = chunk.stream().mapToInt(h -> h.transactions.size()).sum();
+        // parallelStream inside a ForkJoinPool task runs on that pool
+        Future<List<R>> future = pool.submit(() -> chunk.parallelStream()
+            .map(perUser)
+            .collect(Collectors.toList()));
+        pending.addLast(new PendingChunk<>(future, lastUserId, chunk.size(), rows));
+    }
+    
+    private <R> void drain(Deque<PendingChunk<R>> pending, ChunkCommitter<R> committer)
+            throws InterruptedException, ExecutionException {
+        while (!pending.isEmpty()) {
+            commitOldest(pending, committer);
+        }
+    }
+    
+    private <R> void commitOldest(Deque<PendingChunk<R>> pending, ChunkCommitter<R> committer)
+            throws InterruptedException, ExecutionException {
+        PendingChunk<R> oldest = pending.removeFirst();
+        committer.commit(oldest.future.get(), oldest.lastUserId, oldest.users, oldest.rows);
+    }
+    
+    private Transaction mapRow(ResultSet rs) throws SQLException {
+        double riskScore = rs.getDouble("risk_score");
+        boolean riskScoreNull = rs.wasNull();
+        return Transaction.builder()
+            .transactionId(rs.getString("transaction_id"))
+            .userId(rs.getString("user_id"))
+            .amount(rs.getBigDecimal("amount"))
+            .merchantId(rs.getString("merchant_id"))
+            .merchantCategory(rs.getString("merchant_category"))
+            .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+            .deviceId(rs.getString("device_id"))
+            .locationState(rs.getString("location_state"))
+            .locationCountry(rs.getString("location_country"))
+            .channel(rs.getString("channel"))
+            .riskScore(riskScoreNull ? null : riskScore)
+            .riskCategory(rs.getString("risk_category"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+    }
+    
+    @FunctionalInterface
+    public interface ChunkCommitter<R> {
+        void commit(List<R> results, String lastUserId, int users, int rows);
+    }
+    
+    @FunctionalInterface
+    public interface EntityVisitor {
+        void visit(String userId, String deviceId, LocalDateTime timestamp);
+    }
+    
+    public static class UserHistory {
+        public final String userId;
+        public final List<Transaction> transactions;
+        
+        public UserHistory(String userId, List<Transaction> transactions) {
+            this.userId = userId;
+            this.transactions = transactions;
+        }
+    }
+    
+    private static class PendingChunk<R> {
+        final Future<List<R>> future;
+        final String lastUserId;
+        final int users;
+        final int rows;
+        
+        PendingChunk(Future<List<R>> future, String lastUserId, int users, int rows) {
+            this.future = future;
+            this.lastUserId = lastUserId;
+            this.users = users;
+            this.rows = rows;
+        }
+    }
+}
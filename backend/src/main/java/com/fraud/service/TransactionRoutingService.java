@@ -0,0 +1,83 @@
+package com.fraud.service;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+// Entry point for submitted transactions. With sharding enabled a transaction is
+// processed only by the instance owning its user, so per-user state never has to
+// be shared between instances; anything else is forwarded to the owner over HTTP.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionRoutingService {
+    
+    public static final String FORWARDED_HEADER = "X-Fraud-Forwarded-By";
+    
+    private final TransactionService transactionService;
+    private final AdmissionControlService admissionControlService;
+    private final ShardRouter shardRouter;
+    private final WebClient.Builder webClientBuilder;
+    private final FraudDetectionConfig config;
+    
+    // forwardedBy is the node that forwarded this request, null for client requests
+    public FraudEvaluationResponse submit(TransactionRequest request, String forwardedBy) {
+        if (shardRouter.isLocal(request.getUserId())) {
+            if (forwardedBy != null) {
+                log.debug("Processing transaction {} forwarded by {}", request.getTransactionId(), forwardedBy);
+            }
+            return processLocally(request);
+        }
+        if (forwardedBy != null) {
+            // Instances disagree on membership; process here rather than bounce it again
+            log.warn("Transaction {} forwarded by {} for a user this node does not own, processing locally",
+                request.getTransactionId(), forwardedBy);
+            return processLocally(request);
+        }
+        
+        FraudDetectionConfig.Sharding.Node owner = shardRouter.owner(request.getUserId());
+        try {
+            return webClientBuilder.build()
+                .post()
+                .uri(owner.getUrl() + "/api/transactions")
+                .header(FORWARDED_HEADER, shardRouter.getNodeId())
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(FraudEvaluationResponse.class)
+                .timeout(Duration.ofSeconds(config.getSharding().getForwardTimeoutSeconds()))
+                .block();
+        } catch (WebClientResponseException e) {
+            throw new ResponseStatusException(e.getStatusCode(),
+                "Shard owner " + owner.getId() + " rejected the transaction: " + e.getResponseBodyAsString());
+        } catch (Exception e) {
+            log.error("Failed to forward transaction {} to {}: {}", request.getTransactionId(), owner.getId(),
+                e.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Shard owner " + owner.getId() + " is unavailable", e);
+        }
+    }
+    
+    private FraudEvaluationResponse processLocally(TransactionRequest request) {
+        try (AdmissionControlService.Permit permit = admissionControlService.admit(request.getChannel())) {
+            return transactionService.processTransaction(request, permit.getLevel());
+        }
+    }
+    
+    public boolean isLocal(String userId) {
+        return shardRouter.isLocal(userId);
+    }
+    
+    // Node that processes the user's transactions, null when sharding is off
+    public String ownerId(String userId) {
+        return shardRouter.isEnabled() ? shardRouter.owner(userId).getId() : null;
+    }
+}
@@ -7,10 +7,12 @@ import com.fraud.dto.FraudEvaluationResponse;
 import com.fraud.dto.TransactionRequest;
 import com.fraud.entity.Alert;
 import com.fraud.entity.Transaction;
+import com.fraud.event.TransactionScoredEvent;
 import com.fraud.repository.AlertRepository;
 import com.fraud.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,10 +26,62 @@ public class TransactionService {
     private final AlertRepository alertRepository;
     private final FraudDetectionConfig config;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdempotencyService idempotencyService;
+    private final IdentifierDictionary identifierDictionary;
     
     @Transactional
     public FraudEvaluationResponse processTransaction(TransactionRequest request) {
+        return processTransaction(request, AdmissionControlService.Level.NORMAL);
+    }
+    
+    // Level is the degradation chosen by admission control for this request
+    @Transactional
+    public FraudEvaluationResponse processTransaction(TransactionRequest request, AdmissionControlService.Level level) {
+        // Retries of an already processed id get the original response back, without
+        // re-scoring or feeding the transaction into the baseline a second time
+        FraudEvaluationResponse replay = idempotencyService.findRecent(request.getTransactionId());
+        if (replay != null) {
+            return replay;
+        }
+        if (!idempotencyService.claim(request.getTransactionId())) {
+            log.info("Duplicate submission of transaction {}, returning stored result", request.getTransactionId());
+            return idempotencyService.loadStored(request.getTransactionId());
+        }
+        
         // Create transaction entity
+        Transaction transaction = buildTransaction(request);
+        
+        // Evaluate fraud
+        FraudEvaluationResponse evaluation = fraudEvaluationService.evaluate(transaction, level);
+        recordEvaluation(transaction, evaluation);
+        
+        // Save transaction
+        transactionRepository.save(transaction);
+        
+        // Create alert if above hard threshold
+        Alert createdAlert = null;
+        if ("FLAGGED".equals(evaluation.getRiskCategory())) {
+            if (!alertRepository.existsByTransactionId(transaction.getTransactionId())) {
+                Alert alert = Alert.builder()
+                    .transactionId(transaction.getTransactionId())
+                    .userId(transaction.getUserId())
+                    .riskScore(evaluation.getRiskScore())
+                    .status(Alert.AlertStatus.NEW)
+                    .build();
+                createdAlert = alertRepository.save(alert);
+                log.info("Alert created for transaction {} with risk score {}", 
+                    transaction.getTransactionId(), evaluation.getRiskScore());
+            }
+        }
+        
+        evaluation.setAlertCreated(createdAlert != null);
+        idempotencyService.complete(transaction.getTransactionId(), evaluation);
+        eventPublisher.publishEvent(new TransactionScoredEvent(transaction, evaluation, createdAlert));
+        return evaluation;
+    }
+    
+    public Transaction buildTransaction(TransactionRequest request) {
         Transaction transaction = Transaction.builder()
             .transactionId(request.getTransactionId())
             .userId(request.getUserId())
@@ -41,16 +95,20 @@ public class TransactionService {
             .channel(request.getChannel())
             .isFraud(request.getIsFraud())
             .build();
-        
-        // Evaluate fraud
-        FraudEvaluationResponse evaluation = fraudEvaluationService.evaluate(transaction);
-        
+        // Once here, so scoring compares interned ids rather than strings
+        identifierDictionary.intern(transaction);
+        return transaction;
+    }
+    
+    // Copies the outcome of the evaluation onto the transaction before it is stored
+    public void recordEvaluation(Transaction transaction, FraudEvaluationResponse evaluation) {
         // Set risk score and category on transaction
         transaction.setRiskScore(evaluation.getRiskScore());
         transaction.setRiskCategory(evaluation.getRiskCategory());
         
         // Store explanation
         transaction.setExplanation(evaluation.getExplanation());
+        transaction.setConfigVersion(evaluation.getConfigVersion());
         
         // Serialize and store triggered rules as JSON
         try {
@@ -65,28 +123,5 @@ public class TransactionService {
                 transaction.getTransactionId(), e);
             transaction.setTriggeredRules("[]");
         }
-        
-        // Save transaction
-        transactionRepository.save(transaction);
-        
-        // Create alert if above hard threshold
-        boolean alertCreated = false;
-        if ("FLAGGED".equals(evaluation.getRiskCategory())) {
-            if (!alertRepository.existsByTransactionId(transaction.getTransactionId())) {
-                Alert alert = Alert.builder()
-                    .transactionId(transaction.getTransactionId())
-                    .userId(transaction.getUserId())
-                    .riskScore(evaluation.getRiskScore())
-                    .status(Alert.AlertStatus.NEW)
-                    .build();
-                alertRepository.save(alert);
-                alertCreated = true;
-                log.info("Alert created for transaction {} with risk score {}", 
-                    transaction.getTransactionId(), evaluation.getRiskScore());
-            }
-        }
-        
-        evaluation.setAlertCreated(alertCreated);
-        return evaluation;
     }
 }
@@ -0,0 +1,22 @@
+package com.fraud.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// "warmup" health contributor; part of the readiness group, so /actuator/health/readiness
+// stays OUT_OF_SERVICE until WarmupService has preloaded baselines and warmed up scoring
+@Component
+@RequiredArgsConstructor
+public class WarmupHealthIndicator implements HealthIndicator {
+    
+    private final WarmupService warmupService;
+    
+    @Override
+    public Health health() {
+        return (warmupService.isReady() ? Health.up() : Health.outOfService())
+            .withDetails(warmupService.getStatus())
+            .build();
+    }
+}
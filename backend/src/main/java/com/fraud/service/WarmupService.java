@@ -0,0 +1,236 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.config.ScoringSnapshot;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.MLScoreResponse;
+import com.fraud.entity.Transaction;
+import com.fraud.entity.UserBaseline;
+import com.fraud.repository.UserBaselineRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Gets a fresh instance ready before it reports ready. First the baselines of the most
+// recently active users are streamed into the baseline cache in parallel batches, so the
+// first minutes of traffic do not all go to the database; then synthetic transactions are
+// scored through FraudEvaluationService with ML stubbed and nothing stored, so the scoring
+// code is JIT-compiled before real traffic arrives. WarmupHealthIndicator keeps the
+// readiness probe down until both steps have finished.
+@Service
+@Slf4j
+public class WarmupService {
+    
+    // No index on last_transaction_time: it changes on every baseline update, and an index
+    // would rule out HOT updates for the hottest table; a top-N sort at startup is cheaper
+    private static final String RECENT_USERS_SQL =
+        "SELECT user_id FROM user_baselines ORDER BY last_transaction_time DESC NULLS LAST LIMIT ?";
+    
+    private static final int SAMPLE_BASELINES = 256;
+    private static final String[] CATEGORIES = {"groceries", "restaurants", "gas", "retail", "travel", "electronics"};
+    private static final String[] STATES = {"CA", "NY", "TX", "FL", "WA", "IL"};
+    // Warm-up transactions are dated long before any real traffic, so the few device and
+    // merchant keys they add to the shared-entity index fall outside its window
+    private static final LocalDateTime SYNTHETIC_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    
+    public enum Phase { PENDING, PRELOADING, WARMING_UP, READY, DISABLED }
+    
+    private final DataSource dataSource;
+    private final UserBaselineRepository baselineRepository;
+    private final BaselineService baselineService;
+    private final FraudEvaluationService fraudEvaluationService;
+    private final ScoringConfigService scoringConfigService;
+    private final ObjectMapper objectMapper;
+    private final FraudDetectionConfig config;
+    private final List<UserBaseline> samples = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger baselinesLoaded = new AtomicInteger();
+    private final AtomicInteger evaluationsRun = new AtomicInteger();
+    private volatile Phase phase = Phase.PENDING;
+    private volatile long preloadMs;
+    private volatile long warmupMs;
+    private volatile String error;
+    
+    public WarmupService(DataSource dataSource,
+                         UserBaselineRepository baselineRepository,
+                         BaselineService baselineService,
+                         FraudEvaluationService fraudEvaluationService,
+                         ScoringConfigService scoringConfigService,
+                         ObjectMapper objectMapper,
+                         FraudDetectionConfig config) {
+        this.dataSource = dataSource;
+        this.baselineRepository = baselineRepository;
+        this.baselineService = baselineService;
+        this.fraudEvaluationService = fraudEvaluationService;
+        this.scoringConfigService = scoringConfigService;
+        this.objectMapper = objectMapper;
+        this.config = config;
+    }
+    
+    // On its own thread, so the server is up (and live) while the instance warms up
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.getWarmup().getEnabled()) {
+            phase = Phase.DISABLED;
+            return;
+        }
+        Thread thread = new Thread(this::run, "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    public boolean isReady() {
+        return phase == Phase.READY || phase == Phase.DISABLED;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("phase", phase);
+        status.put("baselinesLoaded", baselinesLoaded.get());
+        status.put("baselineCacheSize", baselineService.getCacheSize());
+        status.put("evaluationsRun", evaluationsRun.get());
+        status.put("preloadMs", preloadMs);
+        status.put("warmupMs", warmupMs);
+        if (error != null) {
+            status.put("error", error);
+        }
+        return status;
+    }
+    
+    private void run() {
+        FraudDetectionConfig.Warmup settings = config.getWarmup();
+        // A failed step is logged and skipped: a cold instance beats one that never gets ready
+        try {
+            phase = Phase.PRELOADING;
+            long started = System.currentTimeMillis();
+            preload(settings);
+            preloadMs = System.currentTimeMillis() - started;
+            log.info("Preloaded {} user baselines in {} ms", baselinesLoaded.get(), preloadMs);
+        } catch (Exception e) {
+            error = "Baseline preload failed: " + e.getMessage();
+            log.warn(error, e);
+        }
+        try {
+            phase = Phase.WARMING_UP;
+            long started = System.currentTimeMillis();
+            warmUp(settings.getEvaluations());
+            warmupMs = System.currentTimeMillis() - started;
+            log.info("Ran {} warm-up evaluations in {} ms", evaluationsRun.get(), warmupMs);
+        } catch (Exception e) {
+            error = "Warm-up failed: " + e.getMessage();
+            log.warn(error, e);
+        }
+        samples.clear();
+        phase = Phase.READY;
+    }
+    
+    // Streams the ids of the most recently active users through a cursor and loads their
+    // baselines in batches on a small pool while the cursor keeps reading
+    private void preload(FraudDetectionConfig.Warmup settings) throws Exception {
+        int batchSize = settings.getPreloadBatchSize();
+        ExecutorService pool = Executors.newFixedThreadPool(settings.getPreloadThreads());
+        List<Future<?>> batches = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            // Postgres only streams with a fetch size when auto-commit is off
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(RECENT_USERS_SQL)) {
+                statement.setFetchSize(batchSize);
+                statement.setInt(1, settings.getPreloadUsers());
+                try (ResultSet rs = statement.executeQuery()) {
+                    List<String> batch = new ArrayList<>(batchSize);
+                    while (rs.next()) {
+                        batch.add(rs.getString(1));
+                        if (batch.size() == batchSize) {
+                            List<String> userIds = batch;
+                            batches.add(pool.submit(() -> loadBatch(userIds)));
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        List<String> userIds = batch;
+                        batches.add(pool.submit(() -> loadBatch(userIds)));
+                    }
+                }
+            }
+            connection.rollback();
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private void loadBatch(List<String> userIds) {
+        for (UserBaseline baseline : baselineRepository.findAllById(userIds)) {
+            if (baselineService.preload(baseline)) {
+                baselinesLoaded.incrementAndGet();
+            }
+            if (samples.size() < SAMPLE_BASELINES) {
+                samples.add(baseline);
+            }
+        }
+    }
+    
+    // Scores synthetic transactions against real baselines when there are any, so the
+    // branches taken resemble production; the baselines are copies and are not stored
+    private void warmUp(int evaluations) throws Exception {
+        SplittableRandom random = new SplittableRandom(42);
+        List<UserBaseline> baselines = new ArrayList<>(samples);
+        if (baselines.isEmpty()) {
+            for (int i = 0; i < 16; i++) {
+                UserBaseline baseline = baselineService.newBaseline("warmup_user_" + i);
+                for (int n = 0; n < 10; n++) {
+                    baselineService.applyTransaction(baseline, syntheticTransaction(i * 10 + n, random));
+                }
+                baselines.add(baseline);
+            }
+        }
+        ScoringSnapshot settings = scoringConfigService.current();
+        MLScoreResponse mlResponse = new MLScoreResponse(0.1, "warmup", null);
+        for (int i = 0; i < evaluations; i++) {
+            Transaction transaction = syntheticTransaction(i, random);
+            UserBaseline baseline = baselines.get(i % baselines.size()).toBuilder().build();
+            // Every third one without ML, so the FAST tier path is compiled too
+            FraudEvaluationResponse response = fraudEvaluationService.evaluateDetached(transaction, baseline,
+                random.nextInt(6), i % 3 == 0 ? null : mlResponse, settings, AdmissionControlService.Level.NORMAL);
+            objectMapper.writeValueAsBytes(response);
+            baselineService.applyTransaction(baseline, transaction);
+            evaluationsRun.incrementAndGet();
+        }
+    }
+    
+    private Transaction syntheticTransaction(int n, SplittableRandom random) {
+        boolean domestic = random.nextInt(10) > 0;
+        return Transaction.builder()
+            .transactionId("warmup_" + n)
+            .userId("warmup_user_" + (n % 16))
+            .amount(BigDecimal.valueOf(random.nextInt(100, 50000), 2))
+            .merchantId("warmup_merchant_" + (n % 8))
+            .merchantCategory(CATEGORIES[random.nextInt(CATEGORIES.length)])
+            .timestamp(SYNTHETIC_EPOCH.plusMinutes(n))
+            .deviceId("warmup_device_" + (n % 8))
+            .locationState(STATES[random.nextInt(STATES.length)])
+            .locationCountry(domestic ? "US" : "CA")
+            .build();
+    }
+}
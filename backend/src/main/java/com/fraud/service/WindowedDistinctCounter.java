@@ -0,0 +1,125 @@
+package com.fraud.service;
+
+import java.util.Arrays;
+
+// Approximate count of distinct values over a sliding window of time buckets.
+// Each bucket is a HyperLogLog sketch of 2^precision one-byte registers, allocated
+// on first use; the window estimate merges the live buckets register by register,
+// so memory and query cost depend only on precision and bucket count, never on traffic.
+// Not thread-safe; callers synchronize on the instance.
+public class WindowedDistinctCounter {
+    
+    private final int precision;
+    private final int registers;
+    private final byte[][] buckets;
+    private final long[] bucketEpochs;
+    private volatile long latestEpoch = Long.MIN_VALUE;
+    
+    public WindowedDistinctCounter(int precision, int bucketCount) {
+        this.precision = precision;
+        this.registers = 1 << precision;
+        this.buckets = new byte[bucketCount][];
+        this.bucketEpochs = new long[bucketCount];
+        Arrays.fill(bucketEpochs, Long.MIN_VALUE);
+    }
+    
+    // Records a 64-bit hash of a value in the bucket for the given epoch. Epochs that
+    // have already rotated out of the ring are ignored.
+    public void add(long hash, long epoch) {
+        int slot = (int) Math.floorMod(epoch, (long) buckets.length);
+        if (bucketEpochs[slot] > epoch) {
+            return;
+        }
+        if (bucketEpochs[slot] < epoch) {
+            if (buckets[slot] == null) {
+                buckets[slot] = new byte[registers];
+            } else {
+                Arrays.fill(buckets[slot], (byte) 0);
+            }
+            bucketEpochs[slot] = epoch;
+        }
+        addToSketch(buckets[slot], hash, precision);
+        if (epoch > latestEpoch) {
+            latestEpoch = epoch;
+        }
+    }
+    
+    // Estimated distinct values in the window of buckets ending at the given epoch
+    public long estimate(long epoch) {
+        return estimateSketch(merge(epoch));
+    }
+    
+    // As above, also counting a value that has not been added
+    public long estimateWith(long epoch, long hash) {
+        byte[] merged = merge(epoch);
+        addToSketch(merged, hash, precision);
+        return estimateSketch(merged);
+    }
+    
+    private byte[] merge(long epoch) {
+        byte[] merged = new byte[registers];
+        long oldest = epoch - buckets.length + 1;
+        for (int b = 0; b < buckets.length; b++) {
+            if (buckets[b] == null || bucketEpochs[b] < oldest || bucketEpochs[b] > epoch) {
+                continue;
+            }
+            mergeInto(merged, buckets[b]);
+        }
+        return merged;
+    }
+    
+    // HyperLogLog register update: the top bits pick the register, which keeps the
+    // highest rank (leading zeros + 1) of the remaining bits seen
+    static void addToSketch(byte[] sketch, long hash, int precision) {
+        int index = (int) (hash >>> (64 - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (sketch[index] < rank) {
+            sketch[index] = rank;
+        }
+    }
+    
+    static void mergeInto(byte[] merged, byte[] sketch) {
+        for (int i = 0; i < merged.length; i++) {
+            if (sketch[i] > merged[i]) {
+                merged[i] = sketch[i];
+            }
+        }
+    }
+    
+    static long estimateSketch(byte[] merged) {
+        int registers = merged.length;
+        double sum = 0.0;
+        int zeros = 0;
+        for (int i = 0; i < registers; i++) {
+            sum += 1.0 / (1L << merged[i]);
+            if (merged[i] == 0) {
+                zeros++;
+            }
+        }
+        if (zeros == registers) {
+            return 0;
+        }
+        double alpha = 0.7213 / (1.0 + 1.079 / registers);
+        double estimate = alpha * registers * registers / sum;
+        // Small-range correction: linear counting is far more accurate here
+        if (estimate <= 2.5 * registers && zeros > 0) {
+            estimate = registers * Math.log((double) registers / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    public long getLatestEpoch() {
+        return latestEpoch;
+    }
+    
+    // Bytes held by allocated registers
+    public int getAllocatedBytes() {
+        int bytes = 0;
+        for (byte[] bucket : buckets) {
+            if (bucket != null) {
+                bytes += bucket.length;
+            }
+        }
+        return bytes;
+    }
+}
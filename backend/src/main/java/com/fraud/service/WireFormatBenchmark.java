@@ -0,0 +1,240 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionBatchRequest;
+import com.fraud.dto.TransactionBatchResponse;
+import com.fraud.dto.TransactionRequest;
+import com.fraud.entity.Transaction;
+import com.fraud.repository.TransactionRepository;
+import com.fraud.wire.ScoringJacksonConverter;
+import com.fraud.wire.ScoringProtobuf;
+import com.fraud.wire.WireFormats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// In-process comparison of the scoring API's wire formats on recent transactions: bytes
+// per message and encode/decode time of JSON (the application's ObjectMapper), Smile, CBOR
+// and protobuf, for single requests and responses and for batches. Every format uses the
+// same precomputed readers and writers the endpoints do. Used by benchmark_wire_formats.sh.
+@Service
+@Slf4j
+public class WireFormatBenchmark {
+    
+    private static final String[] CATEGORIES = {"groceries", "restaurants", "gas", "electronics", "travel", "crypto"};
+    private static final String[] STATES = {"CA", "TX", "NY", "FL", "WA"};
+    private static final TypeReference<List<FraudEvaluationResponse.TriggeredRule>> RULE_LIST =
+        new TypeReference<>() {};
+    
+    private final TransactionRepository transactionRepository;
+    private final WireFormats wireFormats;
+    private final ObjectMapper objectMapper;
+    
+    public WireFormatBenchmark(TransactionRepository transactionRepository, WireFormats wireFormats,
+                               ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.wireFormats = wireFormats;
+        this.objectMapper = objectMapper;
+    }
+    
+    public synchronized Map<String, Object> run(int messageCount, int batchSize, int iterations) throws IOException {
+        List<TransactionRequest> requests = new ArrayList<>(messageCount);
+        List<FraudEvaluationResponse> responses = new ArrayList<>(messageCount);
+        sample(messageCount, requests, responses);
+        
+        List<Object> batchRequests = new ArrayList<>();
+        List<Object> batchResponses = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            int to = Math.min(requests.size(), from + batchSize);
+            batchRequests.add(new TransactionBatchRequest(new ArrayList<>(requests.subList(from, to))));
+            List<TransactionBatchResponse.Result> results = new ArrayList<>(to - from);
+            for (FraudEvaluationResponse response : responses.subList(from, to)) {
+                results.add(TransactionBatchResponse.Result.builder()
+                    .transactionId(response.getTransactionId())
+                    .status(201)
+                    .evaluation(response)
+                    .build());
+            }
+            batchResponses.add(new TransactionBatchResponse(results.size(), 0, results));
+        }
+        
+        Map<String, Codec> codecs = new LinkedHashMap<>();
+        codecs.put("json", jackson(wireFormats.getJson()));
+        codecs.put("smile", jackson(wireFormats.getSmile()));
+        codecs.put("cbor", jackson(wireFormats.getCbor()));
+        codecs.put("protobuf", new Codec() {
+            @Override
+            public byte[] encode(Object value) throws IOException {
+                return ScoringProtobuf.toByteArray(value);
+            }
+            
+            @Override
+            public Object decode(Class<?> type, byte[] bytes) throws IOException {
+                return ScoringProtobuf.read(type, bytes);
+            }
+        });
+        
+        Map<String, Object> formats = new LinkedHashMap<>();
+        for (Map.Entry<String, Codec> codec : codecs.entrySet()) {
+            Map<String, Object> format = new LinkedHashMap<>();
+            format.put("request", measure(codec.getValue(), new ArrayList<>(requests), iterations));
+            format.put("response", measure(codec.getValue(), new ArrayList<>(responses), iterations));
+            // Batches hold the same transactions, so a round covers as many either way
+            format.put("batchRequest", measure(codec.getValue(), batchRequests, iterations));
+            format.put("batchResponse", measure(codec.getValue(), batchResponses, iterations));
+            formats.put(codec.getKey(), format);
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("messages", requests.size());
+        result.put("batchSize", batchSize);
+        result.put("iterations", iterations);
+        result.put("formats", formats);
+        log.info("Wire format benchmark: {}", result);
+        return result;
+    }
+    
+    private interface Codec {
+        byte[] encode(Object value) throws IOException;
+        
+        Object decode(Class<?> type, byte[] bytes) throws IOException;
+    }
+    
+    private static Codec jackson(ScoringJacksonConverter converter) {
+        return new Codec() {
+            @Override
+            public byte[] encode(Object value) throws IOException {
+                return converter.write(value);
+            }
+            
+            @Override
+            public Object decode(Class<?> type, byte[] bytes) throws IOException {
+                return converter.read(type, bytes);
+            }
+        };
+    }
+    
+    // A fifth of the iterations as warm-up, then encode and decode timed separately;
+    // every message must decode to an equal value
+    private Map<String, Object> measure(Codec codec, List<Object> messages, int iterations) throws IOException {
+        byte[][] encoded = new byte[messages.size()][];
+        long totalBytes = 0;
+        boolean roundTrips = true;
+        for (int i = 0; i < messages.size(); i++) {
+            encoded[i] = codec.encode(messages.get(i));
+            totalBytes += encoded[i].length;
+            roundTrips &= messages.get(i).equals(codec.decode(messages.get(i).getClass(), encoded[i]));
+        }
+        Class<?> type = messages.get(0).getClass();
+        long sink = 0;
+        for (int round = 0; round < Math.max(1, iterations / 5); round++) {
+            for (int i = 0; i < messages.size(); i++) {
+                sink += codec.encode(messages.get(i)).length;
+                sink += codec.decode(type, encoded[i]) != null ? 1 : 0;
+            }
+        }
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int round = 0; round < iterations; round++) {
+            long started = System.nanoTime();
+            for (Object message : messages) {
+                sink += codec.encode(message).length;
+            }
+            long midpoint = System.nanoTime();
+            for (byte[] bytes : encoded) {
+                sink += codec.decode(type, bytes) != null ? 1 : 0;
+            }
+            encodeNanos += midpoint - started;
+            decodeNanos += System.nanoTime() - midpoint;
+        }
+        long operations = (long) iterations * messages.size();
+        Map<String, Object> measurement = new LinkedHashMap<>();
+        measurement.put("bytes", round((double) totalBytes / messages.size()));
+        measurement.put("encodeNs", round((double) encodeNanos / operations));
+        measurement.put("decodeNs", round((double) decodeNanos / operations));
+        measurement.put("roundTrips", roundTrips && sink != 0);
+        return measurement;
+    }
+    
+    // Requests rebuilt from recent transactions, with responses as the scoring endpoint
+    // returns them; synthetic transactions fill up when there are too few
+    private void sample(int count, List<TransactionRequest> requests, List<FraudEvaluationResponse> responses) {
+        SplittableRandom random = new SplittableRandom(5);
+        List<Transaction> transactions = transactionRepository.findAll(
+            PageRequest.of(0, count, Sort.by(Sort.Direction.DESC, "timestamp"))).getContent();
+        for (Transaction transaction : transactions) {
+            requests.add(new TransactionRequest(transaction.getTransactionId(), transaction.getUserId(),
+                transaction.getAmount(), transaction.getMerchantId(), transaction.getMerchantCategory(),
+                transaction.getTimestamp(), transaction.getDeviceId(), transaction.getLocationState(),
+                transaction.getLocationCountry(), transaction.getChannel(), null));
+            responses.add(responseFor(transaction.getTransactionId(), transaction.getRiskScore(),
+                transaction.getRiskCategory(), parseRules(transaction.getTriggeredRules()),
+                transaction.getExplanation(), transaction.getConfigVersion(), random));
+        }
+        for (int i = requests.size(); i < count; i++) {
+            String id = "bench_txn_" + i;
+            requests.add(new TransactionRequest(id, "bench_user_" + random.nextInt(1000),
+                BigDecimal.valueOf(random.nextInt(100, 50000), 2), "bench_merchant_" + random.nextInt(200),
+                CATEGORIES[random.nextInt(CATEGORIES.length)], LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i),
+                "bench_device_" + random.nextInt(2000), STATES[random.nextInt(STATES.length)], "US",
+                random.nextBoolean() ? "online" : "pos", null));
+            List<FraudEvaluationResponse.TriggeredRule> rules = new ArrayList<>();
+            if (random.nextInt(3) == 0) {
+                rules.add(new FraudEvaluationResponse.TriggeredRule("NEW_DEVICE", 15.0,
+                    "Transaction from a device not seen for this user"));
+            }
+            double score = random.nextDouble(0, 100);
+            responses.add(responseFor(id, score, score >= 70 ? "FLAGGED" : score >= 40 ? "MONITOR" : "APPROVED",
+                rules, rules.isEmpty() ? "No risk factors detected" : "Risk factors: new device", 1L, random));
+        }
+    }
+    
+    private static FraudEvaluationResponse responseFor(String id, Double riskScore, String category,
+                                                       List<FraudEvaluationResponse.TriggeredRule> rules,
+                                                       String explanation, Long configVersion,
+                                                       SplittableRandom random) {
+        return FraudEvaluationResponse.builder()
+            .transactionId(id)
+            .riskScore(riskScore != null ? riskScore : 0.0)
+            .riskCategory(category != null ? category : "APPROVED")
+            .ruleScore(random.nextDouble(0, 100))
+            .statisticalScore(random.nextDouble(0, 100))
+            .mlScore(random.nextDouble(0, 1))
+            .zScore(random.nextDouble(-3, 3))
+            .velocityCount(random.nextInt(10))
+            .triggeredRules(rules)
+            .explanation(explanation)
+            .alertCreated("FLAGGED".equals(category))
+            .decisionTier("FULL")
+            .configVersion(configVersion)
+            .degradation("NORMAL")
+            .build();
+    }
+    
+    private List<FraudEvaluationResponse.TriggeredRule> parseRules(String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return objectMapper.readValue(json, RULE_LIST);
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
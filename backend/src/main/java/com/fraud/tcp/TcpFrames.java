@@ -0,0 +1,98 @@
+package com.fraud.tcp;
+
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionRequest;
+import com.fraud.wire.ScoringProtobuf;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Frames of the TCP scoring protocol. Each starts with its length, a big-endian u32 that
+// does not count itself:
+//
+//   request    length | correlation id (i64) | TransactionRequest (protobuf)
+//   response   length | correlation id (i64) | status (u16) | FraudEvaluationResponse (protobuf)
+//                                                             or a UTF-8 error message
+//
+// Messages are those of src/main/proto/scoring.proto and statuses are HTTP's: 201 scored,
+// 400 invalid, 421 user owned by another instance, 429 shed, 503 overloaded, 500 failed.
+// Requests may be pipelined; responses come back as they complete, matched by the id the
+// caller chose. Frames are built in buffers from the channel's (pooled) allocator.
+public final class TcpFrames {
+    
+    public static final int LENGTH_BYTES = 4;
+    public static final int REQUEST_HEADER_BYTES = 8;
+    public static final int RESPONSE_HEADER_BYTES = 10;
+    public static final int SCORED = 201;
+    
+    private TcpFrames() {
+    }
+    
+    // Splits the stream into frames, length prefix stripped
+    public static LengthFieldBasedFrameDecoder decoder(int maxFrameBytes) {
+        return new LengthFieldBasedFrameDecoder(maxFrameBytes, 0, LENGTH_BYTES, 0, LENGTH_BYTES);
+    }
+    
+    public static ByteBuf request(ByteBufAllocator allocator, long correlationId, TransactionRequest request)
+            throws IOException {
+        Message message = ScoringProtobuf.toMessage(request);
+        int size = message.getSerializedSize();
+        ByteBuf frame = allocator.buffer(LENGTH_BYTES + REQUEST_HEADER_BYTES + size);
+        frame.writeInt(REQUEST_HEADER_BYTES + size);
+        frame.writeLong(correlationId);
+        return writeMessage(frame, message, size);
+    }
+    
+    public static ByteBuf response(ByteBufAllocator allocator, long correlationId, FraudEvaluationResponse response)
+            throws IOException {
+        Message message = ScoringProtobuf.toMessage(response);
+        int size = message.getSerializedSize();
+        ByteBuf frame = allocator.buffer(LENGTH_BYTES + RESPONSE_HEADER_BYTES + size);
+        frame.writeInt(RESPONSE_HEADER_BYTES + size);
+        frame.writeLong(correlationId);
+        frame.writeShort(SCORED);
+        return writeMessage(frame, message, size);
+    }
+    
+    public static ByteBuf error(ByteBufAllocator allocator, long correlationId, int status, String message) {
+        int size = ByteBufUtil.utf8Bytes(message);
+        ByteBuf frame = allocator.buffer(LENGTH_BYTES + RESPONSE_HEADER_BYTES + size);
+        frame.writeInt(RESPONSE_HEADER_BYTES + size);
+        frame.writeLong(correlationId);
+        frame.writeShort(status);
+        frame.writeCharSequence(message, StandardCharsets.UTF_8);
+        return frame;
+    }
+    
+    // The frame's readable bytes, after the header has been read
+    public static <T> T readMessage(ByteBuf frame, Class<T> type) throws IOException {
+        if (frame.nioBufferCount() == 1) {
+            return ScoringProtobuf.read(type, frame.nioBuffer());
+        }
+        return ScoringProtobuf.read(type, ByteBufUtil.getBytes(frame));
+    }
+    
+    public static String readError(ByteBuf frame) {
+        return frame.toString(StandardCharsets.UTF_8);
+    }
+    
+    // Encoded in place, into the frame's own memory
+    private static ByteBuf writeMessage(ByteBuf frame, Message message, int size) throws IOException {
+        try {
+            CodedOutputStream out = CodedOutputStream.newInstance(frame.nioBuffer(frame.writerIndex(), size));
+            message.writeTo(out);
+            out.checkNoSpaceLeft();
+            frame.writerIndex(frame.writerIndex() + size);
+            return frame;
+        } catch (IOException | RuntimeException e) {
+            frame.release();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.fraud.tcp;
+
+import com.fraud.config.FraudDetectionConfig;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionRequest;
+import com.fraud.service.TransactionRoutingService;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Scoring over plain TCP for callers in the same data center, without HTTP framing and
+// headers (frame layout in TcpFrames). Frames are decoded on the event loop and scored by
+// TransactionRoutingService on a bounded pool, since scoring blocks on the database; the
+// encoded response goes back through the event loop. Like the reactive endpoint it does
+// not forward: with sharding, callers must connect to the owning instance. Reading from a
+// connection pauses while it has max-in-flight-per-connection requests unanswered.
+@Component
+@Slf4j
+public class TcpScoringServer {
+    
+    private static final int MISDIRECTED_REQUEST = 421;
+    
+    private final TransactionRoutingService transactionRoutingService;
+    private final Validator validator;
+    private final FraudDetectionConfig.Tcp settings;
+    
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong scored = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    
+    private volatile EventLoopGroup bossGroup;
+    private volatile EventLoopGroup workerGroup;
+    private volatile ThreadPoolExecutor executor;
+    private volatile Channel serverChannel;
+    
+    public TcpScoringServer(TransactionRoutingService transactionRoutingService, Validator validator,
+                            FraudDetectionConfig config) {
+        this.transactionRoutingService = transactionRoutingService;
+        this.validator = validator;
+        this.settings = config.getTcp();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws InterruptedException {
+        if (!settings.getEnabled()) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = settings.getScoringThreads();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(settings.getQueueCapacity()), runnable -> {
+                Thread thread = new Thread(runnable, "tcp-score-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("tcp-accept", true));
+        workerGroup = new NioEventLoopGroup(settings.getIoThreads(), new DefaultThreadFactory("tcp-io", true));
+        serverChannel = new ServerBootstrap()
+            .group(bossGroup, workerGroup)
+            .channel(NioServerSocketChannel.class)
+            .option(ChannelOption.SO_BACKLOG, 1024)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childOption(ChannelOption.SO_KEEPALIVE, true)
+            .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel channel) {
+                    channel.pipeline()
+                        // Responses finishing together go out in one write
+                        .addLast(new FlushConsolidationHandler(256, true))
+                        .addLast(TcpFrames.decoder(settings.getMaxFrameBytes()))
+                        .addLast(new ConnectionHandler());
+                }
+            })
+            .bind(settings.getPort())
+            .sync()
+            .channel();
+        log.info("TCP scoring endpoint listening on port {} ({} scoring threads)", settings.getPort(), threads);
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", settings.getEnabled());
+        status.put("port", settings.getPort());
+        status.put("connections", connections.get());
+        status.put("received", received.get());
+        status.put("scored", scored.get());
+        status.put("failed", failed.get());
+        status.put("rejected", rejected.get());
+        ThreadPoolExecutor pool = executor;
+        status.put("queued", pool != null ? pool.getQueue().size() : 0);
+        status.put("scoring", pool != null ? pool.getActiveCount() : 0);
+        return status;
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+            workerGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    // One per connection, so it can count the connection's unanswered requests
+    private class ConnectionHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        
+        private final AtomicInteger inFlight = new AtomicInteger();
+        
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            connections.incrementAndGet();
+            ctx.fireChannelActive();
+        }
+        
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            connections.decrementAndGet();
+            ctx.fireChannelInactive();
+        }
+        
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+            if (frame.readableBytes() < TcpFrames.REQUEST_HEADER_BYTES) {
+                log.warn("Closing TCP connection from {}: frame of {} bytes has no header",
+                    ctx.channel().remoteAddress(), frame.readableBytes());
+                ctx.close();
+                return;
+            }
+            long correlationId = frame.readLong();
+            received.incrementAndGet();
+            TransactionRequest request;
+            try {
+                request = TcpFrames.readMessage(frame, TransactionRequest.class);
+            } catch (IOException e) {
+                reject(ctx, correlationId, HttpStatus.BAD_REQUEST.value(), "Invalid request: " + e.getMessage());
+                return;
+            }
+            Set<ConstraintViolation<TransactionRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(ctx, correlationId, HttpStatus.BAD_REQUEST.value(), violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+                return;
+            }
+            if (!transactionRoutingService.isLocal(request.getUserId())) {
+                reject(ctx, correlationId, MISDIRECTED_REQUEST,
+                    "User is owned by " + transactionRoutingService.ownerId(request.getUserId()));
+                return;
+            }
+            
+            if (inFlight.incrementAndGet() >= settings.getMaxInFlightPerConnection()) {
+                ctx.channel().config().setAutoRead(false);
+            }
+            try {
+                executor.execute(() -> score(ctx, correlationId, request));
+            } catch (RejectedExecutionException e) {
+                completed(ctx);
+                rejected.incrementAndGet();
+                reject(ctx, correlationId, HttpStatus.SERVICE_UNAVAILABLE.value(), "Scoring queue is full");
+            }
+        }
+        
+        // On a scoring thread
+        private void score(ChannelHandlerContext ctx, long correlationId, TransactionRequest request) {
+            Runnable reply;
+            try {
+                FraudEvaluationResponse response = transactionRoutingService.submit(request, null);
+                scored.incrementAndGet();
+                reply = () -> respond(ctx, correlationId, request, response);
+            } catch (ResponseStatusException e) {
+                failed.incrementAndGet();
+                String reason = e.getReason() != null ? e.getReason() : e.getStatusCode().toString();
+                reply = () -> reject(ctx, correlationId, e.getStatusCode().value(), reason);
+            } catch (RuntimeException e) {
+                log.error("Failed to score transaction {} received over TCP: {}", request.getTransactionId(),
+                    e.getMessage());
+                failed.incrementAndGet();
+                String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                reply = () -> reject(ctx, correlationId, HttpStatus.INTERNAL_SERVER_ERROR.value(), reason);
+            }
+            completed(ctx);
+            // Encoded on the event loop, into its thread-local pooled buffers
+            ctx.executor().execute(reply);
+        }
+        
+        private void respond(ChannelHandlerContext ctx, long correlationId, TransactionRequest request,
+                             FraudEvaluationResponse response) {
+            try {
+                ctx.writeAndFlush(TcpFrames.response(ctx.alloc(), correlationId, response));
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to encode the response to transaction {}: {}", request.getTransactionId(),
+                    e.getMessage());
+                reject(ctx, correlationId, HttpStatus.INTERNAL_SERVER_ERROR.value(), "Could not encode the response");
+            }
+        }
+        
+        private void completed(ChannelHandlerContext ctx) {
+            // Resume reading once half the window has drained
+            if (inFlight.decrementAndGet() <= settings.getMaxInFlightPerConnection() / 2
+                    && !ctx.channel().config().isAutoRead()) {
+                ctx.channel().config().setAutoRead(true);
+            }
+        }
+        
+        private void reject(ChannelHandlerContext ctx, long correlationId, int status, String message) {
+            ctx.writeAndFlush(TcpFrames.error(ctx.alloc(), correlationId, status, message));
+        }
+        
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (cause instanceof TooLongFrameException) {
+                log.warn("Closing TCP connection from {}: {}", ctx.channel().remoteAddress(), cause.getMessage());
+            } else if (cause instanceof IOException) {
+                log.debug("TCP connection from {} failed: {}", ctx.channel().remoteAddress(), cause.getMessage());
+            } else {
+                log.error("TCP connection from {} failed", ctx.channel().remoteAddress(), cause);
+            }
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.fraud.wire;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A Jackson format (Smile, CBOR) for the scoring DTOs only, with a reader and a writer per
+// DTO resolved once up front: the root (de)serializer is fetched when they are built, and
+// prime() runs a sample through each so the nested ones are resolved before the first
+// request rather than on it.
+public class ScoringJacksonConverter extends AbstractHttpMessageConverter<Object> {
+    
+    private final Map<Class<?>, ObjectReader> readers = new HashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+    
+    public ScoringJacksonConverter(ObjectMapper mapper, MediaType mediaType, List<Class<?>> types) {
+        super(mediaType);
+        for (Class<?> type : types) {
+            readers.put(type, mapper.readerFor(type));
+            writers.put(type, mapper.writerFor(type));
+        }
+    }
+    
+    public void prime(List<?> samples) {
+        try {
+            for (Object sample : samples) {
+                read(sample.getClass(), write(sample));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not prime " + getSupportedMediaTypes(), e);
+        }
+    }
+    
+    public byte[] write(Object value) throws JsonProcessingException {
+        return writers.get(value.getClass()).writeValueAsBytes(value);
+    }
+    
+    public <T> T read(Class<T> type, byte[] bytes) throws IOException {
+        return readers.get(type).readValue(bytes);
+    }
+    
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return writers.containsKey(clazz);
+    }
+    
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return readers.get(clazz).readValue(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("Invalid " + getSupportedMediaTypes().get(0) + " body: "
+                + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+    
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        try {
+            writers.get(value.getClass()).writeValue(outputMessage.getBody(), value);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write " + getSupportedMediaTypes().get(0), e);
+        }
+    }
+}
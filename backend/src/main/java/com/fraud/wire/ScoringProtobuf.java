@@ -0,0 +1,278 @@
+package com.fraud.wire;
+
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionBatchRequest;
+import com.fraud.dto.TransactionBatchResponse;
+import com.fraud.dto.TransactionRequest;
+import com.fraud.wire.v1.ScoringProto;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Protobuf form of the scoring DTOs: maps them to and from the message classes protoc
+// generates from src/main/proto/scoring.proto, which do the encoding. Null fields are left
+// out and absent fields read back as null, except that a response always gets a list of
+// triggered rules, as from the scoring endpoint. TransactionRequest's fields have no
+// presence in proto3, so empty strings and a zero timestamp read back as null as well.
+public final class ScoringProtobuf {
+    
+    private ScoringProtobuf() {
+    }
+    
+    public static boolean supports(Class<?> type) {
+        return type == TransactionRequest.class || type == TransactionBatchRequest.class
+            || type == FraudEvaluationResponse.class || type == TransactionBatchResponse.class;
+    }
+    
+    // Generated messages cache their size, so sizing and then writing encodes once
+    public static Message toMessage(Object value) {
+        if (value instanceof TransactionRequest request) {
+            return toMessage(request);
+        } else if (value instanceof TransactionBatchRequest batch) {
+            return toMessage(batch);
+        } else if (value instanceof FraudEvaluationResponse response) {
+            return toMessage(response);
+        } else if (value instanceof TransactionBatchResponse batch) {
+            return toMessage(batch);
+        }
+        throw new IllegalArgumentException("No protobuf encoding for " + value.getClass().getName());
+    }
+    
+    public static byte[] toByteArray(Object value) {
+        return toMessage(value).toByteArray();
+    }
+    
+    public static <T> T read(Class<T> type, InputStream stream) throws IOException {
+        return read(type, CodedInputStream.newInstance(stream));
+    }
+    
+    public static <T> T read(Class<T> type, byte[] bytes) throws IOException {
+        return read(type, CodedInputStream.newInstance(bytes));
+    }
+    
+    // The buffer's remaining bytes, read in place
+    public static <T> T read(Class<T> type, ByteBuffer buffer) throws IOException {
+        return read(type, CodedInputStream.newInstance(buffer));
+    }
+    
+    private static <T> T read(Class<T> type, CodedInputStream in) throws IOException {
+        Object value;
+        if (type == TransactionRequest.class) {
+            value = fromMessage(ScoringProto.TransactionRequest.parseFrom(in));
+        } else if (type == TransactionBatchRequest.class) {
+            value = fromMessage(ScoringProto.TransactionBatchRequest.parseFrom(in));
+        } else if (type == FraudEvaluationResponse.class) {
+            value = fromMessage(ScoringProto.FraudEvaluationResponse.parseFrom(in));
+        } else if (type == TransactionBatchResponse.class) {
+            value = fromMessage(ScoringProto.TransactionBatchResponse.parseFrom(in));
+        } else {
+            throw new IllegalArgumentException("No protobuf encoding for " + type.getName());
+        }
+        return type.cast(value);
+    }
+    
+    // TransactionRequest
+    
+    private static ScoringProto.TransactionRequest toMessage(TransactionRequest r) {
+        ScoringProto.TransactionRequest.Builder m = ScoringProto.TransactionRequest.newBuilder();
+        set(r.getTransactionId(), m::setTransactionId);
+        set(r.getUserId(), m::setUserId);
+        set(r.getAmount() != null ? r.getAmount().toPlainString() : null, m::setAmount);
+        set(r.getMerchantId(), m::setMerchantId);
+        set(r.getMerchantCategory(), m::setMerchantCategory);
+        set(r.getTimestamp() != null ? toMicros(r.getTimestamp()) : null, m::setTimestampMicros);
+        set(r.getDeviceId(), m::setDeviceId);
+        set(r.getLocationState(), m::setLocationState);
+        set(r.getLocationCountry(), m::setLocationCountry);
+        set(r.getChannel(), m::setChannel);
+        set(r.getIsFraud(), m::setIsFraud);
+        return m.build();
+    }
+    
+    private static TransactionRequest fromMessage(ScoringProto.TransactionRequest m) throws IOException {
+        TransactionRequest r = new TransactionRequest();
+        r.setTransactionId(text(m.getTransactionId()));
+        r.setUserId(text(m.getUserId()));
+        r.setAmount(decimal(m.getAmount()));
+        r.setMerchantId(text(m.getMerchantId()));
+        r.setMerchantCategory(text(m.getMerchantCategory()));
+        r.setTimestamp(m.getTimestampMicros() != 0 ? fromMicros(m.getTimestampMicros()) : null);
+        r.setDeviceId(text(m.getDeviceId()));
+        r.setLocationState(text(m.getLocationState()));
+        r.setLocationCountry(text(m.getLocationCountry()));
+        r.setChannel(m.hasChannel() ? m.getChannel() : null);
+        r.setIsFraud(m.hasIsFraud() ? m.getIsFraud() : null);
+        return r;
+    }
+    
+    // TransactionBatchRequest
+    
+    private static ScoringProto.TransactionBatchRequest toMessage(TransactionBatchRequest batch) {
+        ScoringProto.TransactionBatchRequest.Builder m = ScoringProto.TransactionBatchRequest.newBuilder();
+        if (batch.getTransactions() != null) {
+            for (TransactionRequest r : batch.getTransactions()) {
+                m.addTransactions(toMessage(r));
+            }
+        }
+        return m.build();
+    }
+    
+    private static TransactionBatchRequest fromMessage(ScoringProto.TransactionBatchRequest m) throws IOException {
+        List<TransactionRequest> transactions = new ArrayList<>(m.getTransactionsCount());
+        for (ScoringProto.TransactionRequest r : m.getTransactionsList()) {
+            transactions.add(fromMessage(r));
+        }
+        return new TransactionBatchRequest(transactions);
+    }
+    
+    // FraudEvaluationResponse
+    
+    private static ScoringProto.FraudEvaluationResponse toMessage(FraudEvaluationResponse r) {
+        ScoringProto.FraudEvaluationResponse.Builder m = ScoringProto.FraudEvaluationResponse.newBuilder();
+        set(r.getTransactionId(), m::setTransactionId);
+        set(r.getRiskScore(), m::setRiskScore);
+        set(r.getRiskCategory(), m::setRiskCategory);
+        set(r.getRuleScore(), m::setRuleScore);
+        set(r.getStatisticalScore(), m::setStatisticalScore);
+        set(r.getMlScore(), m::setMlScore);
+        set(r.getZScore(), m::setZScore);
+        set(r.getVelocityCount(), m::setVelocityCount);
+        if (r.getTriggeredRules() != null) {
+            for (FraudEvaluationResponse.TriggeredRule rule : r.getTriggeredRules()) {
+                ScoringProto.TriggeredRule.Builder ruleMessage = ScoringProto.TriggeredRule.newBuilder();
+                set(rule.getRuleName(), ruleMessage::setRuleName);
+                set(rule.getPoints(), ruleMessage::setPoints);
+                set(rule.getExplanation(), ruleMessage::setExplanation);
+                m.addTriggeredRules(ruleMessage);
+            }
+        }
+        set(r.getExplanation(), m::setExplanation);
+        set(r.getAlertCreated(), m::setAlertCreated);
+        set(r.getDecisionTier(), m::setDecisionTier);
+        set(r.getConfigVersion(), m::setConfigVersion);
+        set(r.getDegradation(), m::setDegradation);
+        set(r.getUserId(), m::setUserId);
+        set(r.getAmount(), m::setAmount);
+        set(r.getMerchantId(), m::setMerchantId);
+        set(r.getMerchantCategory(), m::setMerchantCategory);
+        set(r.getDeviceId(), m::setDeviceId);
+        set(r.getLocationState(), m::setLocationState);
+        set(r.getLocationCountry(), m::setLocationCountry);
+        set(r.getTimestamp(), m::setTimestamp);
+        set(r.getChannel(), m::setChannel);
+        return m.build();
+    }
+    
+    private static FraudEvaluationResponse fromMessage(ScoringProto.FraudEvaluationResponse m) {
+        List<FraudEvaluationResponse.TriggeredRule> rules = new ArrayList<>(m.getTriggeredRulesCount());
+        for (ScoringProto.TriggeredRule rule : m.getTriggeredRulesList()) {
+            rules.add(FraudEvaluationResponse.TriggeredRule.builder()
+                .ruleName(rule.hasRuleName() ? rule.getRuleName() : null)
+                .points(rule.hasPoints() ? rule.getPoints() : null)
+                .explanation(rule.hasExplanation() ? rule.getExplanation() : null)
+                .build());
+        }
+        return FraudEvaluationResponse.builder()
+            .transactionId(m.hasTransactionId() ? m.getTransactionId() : null)
+            .riskScore(m.hasRiskScore() ? m.getRiskScore() : null)
+            .riskCategory(m.hasRiskCategory() ? m.getRiskCategory() : null)
+            .ruleScore(m.hasRuleScore() ? m.getRuleScore() : null)
+            .statisticalScore(m.hasStatisticalScore() ? m.getStatisticalScore() : null)
+            .mlScore(m.hasMlScore() ? m.getMlScore() : null)
+            .zScore(m.hasZScore() ? m.getZScore() : null)
+            .velocityCount(m.hasVelocityCount() ? m.getVelocityCount() : null)
+            .triggeredRules(rules) // Repeated fields are never absent, only empty
+            .explanation(m.hasExplanation() ? m.getExplanation() : null)
+            .alertCreated(m.hasAlertCreated() ? m.getAlertCreated() : null)
+            .decisionTier(m.hasDecisionTier() ? m.getDecisionTier() : null)
+            .configVersion(m.hasConfigVersion() ? m.getConfigVersion() : null)
+            .degradation(m.hasDegradation() ? m.getDegradation() : null)
+            .userId(m.hasUserId() ? m.getUserId() : null)
+            .amount(m.hasAmount() ? m.getAmount() : null)
+            .merchantId(m.hasMerchantId() ? m.getMerchantId() : null)
+            .merchantCategory(m.hasMerchantCategory() ? m.getMerchantCategory() : null)
+            .deviceId(m.hasDeviceId() ? m.getDeviceId() : null)
+            .locationState(m.hasLocationState() ? m.getLocationState() : null)
+            .locationCountry(m.hasLocationCountry() ? m.getLocationCountry() : null)
+            .timestamp(m.hasTimestamp() ? m.getTimestamp() : null)
+            .channel(m.hasChannel() ? m.getChannel() : null)
+            .build();
+    }
+    
+    // TransactionBatchResponse
+    
+    private static ScoringProto.TransactionBatchResponse toMessage(TransactionBatchResponse batch) {
+        ScoringProto.TransactionBatchResponse.Builder m = ScoringProto.TransactionBatchResponse.newBuilder();
+        set(batch.getScored(), m::setScored);
+        set(batch.getFailed(), m::setFailed);
+        if (batch.getResults() != null) {
+            for (TransactionBatchResponse.Result result : batch.getResults()) {
+                ScoringProto.TransactionBatchResponse.Result.Builder resultMessage =
+                    ScoringProto.TransactionBatchResponse.Result.newBuilder();
+                set(result.getTransactionId(), resultMessage::setTransactionId);
+                set(result.getStatus(), resultMessage::setStatus);
+                if (result.getEvaluation() != null) {
+                    resultMessage.setEvaluation(toMessage(result.getEvaluation()));
+                }
+                set(result.getError(), resultMessage::setError);
+                m.addResults(resultMessage);
+            }
+        }
+        return m.build();
+    }
+    
+    private static TransactionBatchResponse fromMessage(ScoringProto.TransactionBatchResponse m) {
+        List<TransactionBatchResponse.Result> results = new ArrayList<>(m.getResultsCount());
+        for (ScoringProto.TransactionBatchResponse.Result result : m.getResultsList()) {
+            results.add(TransactionBatchResponse.Result.builder()
+                .transactionId(result.hasTransactionId() ? result.getTransactionId() : null)
+                .status(result.getStatus())
+                .evaluation(result.hasEvaluation() ? fromMessage(result.getEvaluation()) : null)
+                .error(result.hasError() ? result.getError() : null)
+                .build());
+        }
+        return new TransactionBatchResponse(m.getScored(), m.getFailed(), results);
+    }
+    
+    // Field helpers; nulls are not set
+    
+    private static <T> void set(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+    
+    private static String text(String value) {
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static BigDecimal decimal(String text) throws InvalidProtocolBufferException {
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            throw new InvalidProtocolBufferException("Invalid amount: " + text);
+        }
+    }
+    
+    private static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+    
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
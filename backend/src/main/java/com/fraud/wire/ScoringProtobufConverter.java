@@ -0,0 +1,44 @@
+package com.fraud.wire;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+// application/x-protobuf for the scoring DTOs, mapped by ScoringProtobuf
+public class ScoringProtobufConverter extends AbstractHttpMessageConverter<Object> {
+    
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+    
+    public ScoringProtobufConverter() {
+        super(APPLICATION_PROTOBUF);
+    }
+    
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ScoringProtobuf.supports(clazz);
+    }
+    
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return ScoringProtobuf.read(clazz, inputMessage.getBody());
+        } catch (InvalidProtocolBufferException e) {
+            throw new HttpMessageNotReadableException("Invalid protobuf body: " + e.getMessage(), e, inputMessage);
+        }
+    }
+    
+    // The size is known before writing, so responses carry a Content-Length. It is set
+    // here rather than in getContentLength so the DTO is mapped to its message once.
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        Message message = ScoringProtobuf.toMessage(value);
+        outputMessage.getHeaders().setContentLength(message.getSerializedSize());
+        message.writeTo(outputMessage.getBody());
+    }
+}
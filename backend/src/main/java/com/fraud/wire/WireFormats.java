@@ -0,0 +1,80 @@
+package com.fraud.wire;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fraud.dto.FraudEvaluationResponse;
+import com.fraud.dto.TransactionBatchRequest;
+import com.fraud.dto.TransactionBatchResponse;
+import com.fraud.dto.TransactionRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// The wire formats of the scoring API besides plain JSON. The Jackson ones are copies of
+// the application's ObjectMapper over another factory, so every format binds the DTOs the
+// way JSON does; all of them are primed here, at startup.
+@Component
+public class WireFormats {
+    
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    public static final List<Class<?>> SCORING_TYPES = List.of(TransactionRequest.class,
+        TransactionBatchRequest.class, FraudEvaluationResponse.class, TransactionBatchResponse.class);
+    
+    private final ScoringJacksonConverter json;
+    private final ScoringJacksonConverter smile;
+    private final ScoringJacksonConverter cbor;
+    private final ScoringProtobufConverter protobuf = new ScoringProtobufConverter();
+    
+    public WireFormats(ObjectMapper objectMapper) {
+        // JSON itself is served by Spring's converter; this one is for comparisons
+        this.json = new ScoringJacksonConverter(objectMapper, MediaType.APPLICATION_JSON, SCORING_TYPES);
+        this.smile = new ScoringJacksonConverter(objectMapper.copyWith(new SmileFactory()), APPLICATION_SMILE,
+            SCORING_TYPES);
+        this.cbor = new ScoringJacksonConverter(objectMapper.copyWith(new CBORFactory()), MediaType.APPLICATION_CBOR,
+            SCORING_TYPES);
+        List<Object> samples = samples();
+        json.prime(samples);
+        smile.prime(samples);
+        cbor.prime(samples);
+    }
+    
+    public ScoringJacksonConverter getJson() {
+        return json;
+    }
+    
+    public ScoringJacksonConverter getSmile() {
+        return smile;
+    }
+    
+    public ScoringJacksonConverter getCbor() {
+        return cbor;
+    }
+    
+    public ScoringProtobufConverter getProtobuf() {
+        return protobuf;
+    }
+    
+    private static List<Object> samples() {
+        TransactionRequest request = new TransactionRequest("sample", "sample_user", new BigDecimal("12.50"),
+            "sample_merchant", "groceries", LocalDateTime.of(2024, 1, 1, 12, 0), "sample_device", "CA", "US",
+            "online", null);
+        FraudEvaluationResponse response = FraudEvaluationResponse.builder()
+            .transactionId("sample")
+            .riskScore(12.5)
+            .riskCategory("APPROVED")
+            .triggeredRules(List.of(new FraudEvaluationResponse.TriggeredRule("NEW_DEVICE", 10.0, "sample")))
+            .alertCreated(false)
+            .build();
+        TransactionBatchResponse.Result result = TransactionBatchResponse.Result.builder()
+            .transactionId("sample")
+            .status(201)
+            .evaluation(response)
+            .build();
+        return List.of(request, new TransactionBatchRequest(List.of(request)), response,
+            new TransactionBatchResponse(1, 0, List.of(result)));
+    }
+}
@@ -0,0 +1,3 @@
+-- Advanced by every write of a baseline, so a copy cached or read earlier is only
+-- written back over the row it came from
+ALTER TABLE user_baselines ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS job_checkpoints (
+    job_name VARCHAR(100) PRIMARY KEY,
+    status VARCHAR(50) NOT NULL,
+    last_user_id VARCHAR(255),
+    users_processed BIGINT NOT NULL DEFAULT 0,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP,
+    details TEXT,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS backfill_results (
+    run_id VARCHAR(64) NOT NULL,
+    transaction_id VARCHAR(255) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    previous_risk_score DOUBLE PRECISION,
+    previous_risk_category VARCHAR(50),
+    risk_score DOUBLE PRECISION NOT NULL,
+    risk_category VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (run_id, transaction_id)
+);
+
+CREATE INDEX idx_backfill_results_changed ON backfill_results(run_id, previous_risk_category, risk_category);
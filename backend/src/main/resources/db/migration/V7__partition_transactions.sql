@@ -0,0 +1,66 @@
+-- Convert transactions into monthly range partitions on timestamp.
+-- The primary key has to include the partition key, so it becomes
+-- (transaction_id, timestamp). Future partitions are created and expired
+-- ones dropped by PartitionMaintenanceService.
+
+DROP INDEX IF EXISTS idx_transactions_user_id;
+DROP INDEX IF EXISTS idx_transactions_timestamp;
+DROP INDEX IF EXISTS idx_transactions_user_timestamp;
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+ALTER TABLE transactions_unpartitioned RENAME CONSTRAINT transactions_pkey TO transactions_unpartitioned_pkey;
+
+CREATE TABLE transactions (
+    transaction_id VARCHAR(255) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    merchant_id VARCHAR(255) NOT NULL,
+    merchant_category VARCHAR(255) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    device_id VARCHAR(255) NOT NULL,
+    location_state VARCHAR(255) NOT NULL,
+    location_country VARCHAR(255) NOT NULL,
+    channel VARCHAR(255),
+    risk_score DOUBLE PRECISION,
+    risk_category VARCHAR(50),
+    is_fraud BOOLEAN,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    triggered_rules TEXT,
+    explanation TEXT,
+    PRIMARY KEY (transaction_id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Catches rows outside every monthly partition (far past or far future)
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+-- One partition per month from the oldest existing row to three months ahead
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := date_trunc('month', CURRENT_DATE) + INTERVAL '3 months';
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(timestamp)), date_trunc('month', CURRENT_DATE))
+      INTO month_start
+      FROM transactions_unpartitioned;
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+            'transactions_p' || to_char(month_start, 'YYYYMM'),
+            month_start,
+            (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO transactions (transaction_id, user_id, amount, merchant_id, merchant_category,
+    timestamp, device_id, location_state, location_country, channel, risk_score,
+    risk_category, is_fraud, created_at, triggered_rules, explanation)
+SELECT transaction_id, user_id, amount, merchant_id, merchant_category,
+    timestamp, device_id, location_state, location_country, channel, risk_score,
+    risk_category, is_fraud, created_at, triggered_rules, explanation
+FROM transactions_unpartitioned;
+
+DROP TABLE transactions_unpartitioned;
+
+-- (user_id, timestamp) also serves user_id lookups, so the single-column index is gone
+CREATE INDEX idx_transactions_user_timestamp ON transactions(user_id, timestamp);
+CREATE INDEX idx_transactions_timestamp ON transactions(timestamp);
@@ -0,0 +1,16 @@
+-- Claim table for idempotent processing: the first request for a transaction_id
+-- inserts its row, retries hit the primary key and get the stored response back.
+-- transactions itself cannot enforce this since its key includes the partition column.
+CREATE TABLE IF NOT EXISTS processed_transactions (
+    transaction_id VARCHAR(255) PRIMARY KEY,
+    response TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_processed_transactions_created_at ON processed_transactions(created_at);
+
+-- Already processed transactions have no stored response; replays of those are
+-- answered from the transactions row
+INSERT INTO processed_transactions (transaction_id, created_at)
+SELECT transaction_id, MAX(created_at) FROM transactions GROUP BY transaction_id
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,11 @@
+-- Every published scoring configuration snapshot, so the version recorded on a
+-- transaction can be traced back to the weights and rule parameters that scored it
+CREATE TABLE IF NOT EXISTS scoring_config_versions (
+    version BIGSERIAL PRIMARY KEY,
+    settings TEXT NOT NULL,
+    source VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Null for transactions scored before versioning
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS config_version BIGINT;
@@ -0,0 +1,133 @@
+#!/bin/bash
+
+# Fraud Detection System - Servlet vs Reactive Scoring Benchmark
+# Drives the servlet endpoint (:8080) and the WebFlux/R2DBC endpoint (:8081) with the
+# same high-concurrency load while the ML service answers slowly, and reports throughput,
+# latency, live JVM threads and heap growth per in-flight request for each.
+#
+# Starts its own slow ML stub; run the backend against it, e.g.
+#   java -jar backend/target/fraud-detection-service-1.0.0.jar \
+#     --fraud.detection.reactive.enabled=true \
+#     --fraud.detection.admission.enabled=false \
+#     --fraud.detection.ml.service-url=http://localhost:8009
+# (admission control off, its default, or it would degrade both paths before they saturate)
+
+SERVLET_URL=${SERVLET_URL:-http://localhost:8080}
+REACTIVE_URL=${REACTIVE_URL:-http://localhost:8081}
+CONCURRENCY=${CONCURRENCY:-400}
+ROUNDS=${ROUNDS:-5}
+ML_DELAY_MS=${ML_DELAY_MS:-200}
+STUB_PORT=${STUB_PORT:-8009}
+
+RUN_ID=$(date +%s)
+WORK_DIR=$(mktemp -d)
+
+# ML service stand-in that takes ML_DELAY_MS to answer, like a loaded model server
+python3 - "$STUB_PORT" "$ML_DELAY_MS" <<'EOF' &
+import json, sys, time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+delay = int(sys.argv[2]) / 1000.0
+
+class Handler(BaseHTTPRequestHandler):
+    def do_POST(self):
+        self.rfile.read(int(self.headers.get("Content-Length", 0)))
+        time.sleep(delay)
+        body = json.dumps({"mlScore": 0.1, "modelVersion": "bench-stub"}).encode()
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(body)))
+        self.end_headers()
+        self.wfile.write(body)
+
+    def log_message(self, *args):
+        pass
+
+ThreadingHTTPServer.request_queue_size = 1024
+ThreadingHTTPServer(("", int(sys.argv[1])), Handler).serve_forever()
+EOF
+STUB_PID=$!
+trap 'kill $STUB_PID 2>/dev/null; rm -rf "$WORK_DIR"' EXIT
+sleep 1
+
+metric() {
+  curl -s "$SERVLET_URL/actuator/metrics/$1" | sed -n 's/.*"statistic":"VALUE","value":\([0-9.E+]*\).*/\1/p' | \
+    awk '{ printf "%d\n", $1 }'
+}
+
+# One curl config with every request of a run; curl keeps CONCURRENCY of them in flight
+write_requests() {
+  local url=$1 name=$2 timestamp
+  timestamp=$(date +%Y-%m-%dT%H:%M:%S)
+  for n in $(seq 1 $((CONCURRENCY * ROUNDS))); do
+    cat <<EOF
+next
+url = "$url/api/transactions"
+request = "POST"
+header = "Content-Type: application/json"
+data = "{\"transactionId\": \"txn_bench_${RUN_ID}_${name}_$n\", \"userId\": \"user_bench_${name}_$n\", \"amount\": 42.0, \"merchantId\": \"merchant_groceries\", \"merchantCategory\": \"groceries\", \"timestamp\": \"$timestamp\", \"deviceId\": \"device_bench_$n\", \"locationState\": \"CA\", \"locationCountry\": \"US\"}"
+output = "/dev/null"
+write-out = "%{http_code} %{time_total}\\n"
+EOF
+  done > "$WORK_DIR/$name.curl"
+}
+
+run() {
+  local name=$1 url=$2
+  write_requests "$url" "$name"
+  local idle_threads idle_heap
+  idle_threads=$(metric jvm.threads.live)
+  idle_heap=$(metric "jvm.memory.used?tag=area:heap")
+
+  # Peak threads and heap while the load runs
+  : > "$WORK_DIR/$name.samples"
+  touch "$WORK_DIR/$name.running"
+  (
+    while [ -f "$WORK_DIR/$name.running" ]; do
+      echo "$(metric jvm.threads.live) $(metric "jvm.memory.used?tag=area:heap")" >> "$WORK_DIR/$name.samples"
+      sleep 0.5
+    done
+  ) &
+  local sampler=$!
+
+  local started elapsed
+  started=$(date +%s%N)
+  curl -s -Z --parallel-max "$CONCURRENCY" --parallel-immediate -K "$WORK_DIR/$name.curl" \
+    > "$WORK_DIR/$name.out" 2>/dev/null
+  elapsed=$(( ($(date +%s%N) - started) / 1000000 ))
+  rm -f "$WORK_DIR/$name.running"
+  wait $sampler
+
+  local peak_threads peak_heap
+  peak_threads=$(awk '$1 > m { m = $1 } END { print m + 0 }' "$WORK_DIR/$name.samples")
+  peak_heap=$(awk '$2 > m { m = $2 } END { print m + 0 }' "$WORK_DIR/$name.samples")
+
+  echo "$name ($url)"
+  awk -v ms="$elapsed" '{ total++; if ($1 == 201) ok++ }
+    END { printf "  requests:        %d (%d ok), %.0f/s\n", total, ok, total * 1000 / ms }' "$WORK_DIR/$name.out"
+  awk '{ printf "%d\n", $2 * 1000 }' "$WORK_DIR/$name.out" | sort -n | \
+    awk '{ v[NR] = $1 } END { p50 = int(NR * 0.5); p99 = int(NR * 0.99)
+      if (p50 < 1) p50 = 1; if (p99 < 1) p99 = 1
+      printf "  latency p50/p99: %d / %d ms\n", v[p50], v[p99] }'
+  echo "  live threads:    $idle_threads idle, $peak_threads peak (+$((peak_threads - idle_threads)))"
+  echo "  heap:            $((idle_heap / 1048576)) MB idle, $((peak_heap / 1048576)) MB peak," \
+    "~$(( (peak_heap - idle_heap) / CONCURRENCY / 1024 )) KB per in-flight request"
+  echo ""
+}
+
+echo "=========================================="
+echo "Fraud Detection System - Servlet vs Reactive Scoring"
+echo "=========================================="
+echo "$CONCURRENCY concurrent requests, $ROUNDS rounds, ML answers in ${ML_DELAY_MS} ms"
+echo ""
+
+if ! curl -s -o /dev/null "$REACTIVE_URL"; then
+  echo "Reactive endpoint not reachable at $REACTIVE_URL (fraud.detection.reactive.enabled=true?)"
+  exit 1
+fi
+
+run servlet "$SERVLET_URL"
+run reactive "$REACTIVE_URL"
+
+echo "Heap figures are peak minus idle, so they include garbage not yet collected;"
+echo "compare the two runs rather than reading them as exact per-request costs."
@@ -0,0 +1,39 @@
+#!/bin/bash
+
+# Fraud Detection System - Scoring State Benchmark
+# Compares the scoring-state checks made for every transaction (last location, known
+# device and merchant for the rules and the ML features, risky category) with strings and
+# JSON parsed per evaluation against interned ids and the cached int-set profile. Runs
+# inside the backend on real baselines (synthetic ones fill up when there are too few) and
+# reports time and allocation per evaluation and the heap per baseline of each form.
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+BASELINES=${BASELINES:-2000}
+EVALUATIONS=${EVALUATIONS:-200000}
+
+echo "=========================================="
+echo "Fraud Detection System - Scoring State Benchmark"
+echo "=========================================="
+echo "Baselines: $BASELINES, evaluations per path: $EVALUATIONS"
+echo ""
+
+RESULT=$(curl -s -X POST "$BASE_URL/api/admin/benchmarks/scoring-state?baselines=$BASELINES&evaluations=$EVALUATIONS")
+if ! echo "$RESULT" | jq -e '.evaluation' > /dev/null 2>&1; then
+  echo "Benchmark failed: $RESULT"
+  exit 1
+fi
+
+echo "$RESULT" | jq -r '
+  "Known devices / merchants per baseline: \(.avgKnownDevices) / \(.avgKnownMerchants)",
+  "Interning at ingestion:                 \(.internNsPerTransaction) ns per transaction",
+  "",
+  "Per evaluation                 time (ns)   allocated (bytes)",
+  "  strings, new ObjectMapper    \(.evaluation.stringsNsPerEvaluation)   \(.evaluation.stringsBytesAllocatedPerEvaluation)",
+  "  strings, shared ObjectMapper \(.evaluation.stringsSharedMapperNsPerEvaluation)   \(.evaluation.stringsSharedMapperBytesAllocatedPerEvaluation)",
+  "  interned                     \(.evaluation.internedNsPerEvaluation)   \(.evaluation.internedBytesAllocatedPerEvaluation)",
+  "  speedup: \(.evaluation.speedup)x (\(.evaluation.speedupOverSharedMapper)x over a shared ObjectMapper), results agree: \(.evaluation.resultsAgree)",
+  "",
+  "Device and merchant state per baseline (approximate, heap after GC)",
+  "  HashSet<String>: \(.memory.stringSetBytesPerBaseline) bytes",
+  "  int-set profile: \(.memory.profileBytesPerBaseline) bytes",
+  "  reduction:       \((.memory.reduction // 0) * 100 | floor)%"'
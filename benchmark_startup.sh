@@ -0,0 +1,113 @@
+#!/bin/bash
+
+# Fraud Detection System - Startup Benchmark
+# Starts the backend in each mode and measures time from launch to the first scored
+# transaction, plus resident memory then and after a short burst of traffic:
+#   jvm     java -jar on the packaged jar
+#   cds     the same jar unpacked with an AppCDS archive (build_cds.sh); AOT-processed
+#           bean definitions too when the jar was built with mvn -Paot package
+#   native  the GraalVM executable from mvn -Pnative native:compile
+# Modes whose artifacts are missing are skipped. Uses its own port, so it can run next
+# to a live backend on the same database.
+
+JAR=${JAR:-backend/target/fraud-detection-service-1.0.0.jar}
+CDS_DIR=${CDS_DIR:-backend/target/cds}
+NATIVE=${NATIVE:-backend/target/fraud-detection-service}
+PORT=${PORT:-8090}
+BURST=${BURST:-200}
+MODES=${MODES:-"jvm cds native"}
+
+RUN_ID=$(date +%s)
+LOG_DIR=$(mktemp -d)
+APP_PID=""
+trap '[ -n "$APP_PID" ] && kill $APP_PID 2>/dev/null; rm -rf "$LOG_DIR"' EXIT
+
+score() {
+  local id=$1 user=$2
+  curl -s -o /dev/null -w "%{http_code}" -X POST "http://localhost:$PORT/api/transactions" \
+    -H "Content-Type: application/json" \
+    -d "{
+      \"transactionId\": \"$id\",
+      \"userId\": \"$user\",
+      \"amount\": 42.0,
+      \"merchantId\": \"merchant_groceries\",
+      \"merchantCategory\": \"groceries\",
+      \"timestamp\": \"$(date +%Y-%m-%dT%H:%M:%S)\",
+      \"deviceId\": \"device_startup\",
+      \"locationState\": \"CA\",
+      \"locationCountry\": \"US\"
+    }"
+}
+
+rss_mb() {
+  awk '/^VmRSS/ { printf "%d", $2 / 1024 }' "/proc/$1/status" 2>/dev/null
+}
+
+launch() {
+  case $1 in
+    jvm)
+      java -jar "$JAR" --server.port=$PORT > "$LOG_DIR/$1.log" 2>&1 &
+      ;;
+    cds)
+      (cd "$CDS_DIR" && exec java -XX:SharedArchiveFile=app.jsa @jvm.args \
+        com.fraud.FraudDetectionApplication --server.port=$PORT) > "$LOG_DIR/$1.log" 2>&1 &
+      ;;
+    native)
+      "$NATIVE" --server.port=$PORT > "$LOG_DIR/$1.log" 2>&1 &
+      ;;
+  esac
+  APP_PID=$!
+}
+
+run() {
+  local mode=$1
+  case $mode in
+    jvm)    [ -f "$JAR" ] || { echo "$mode: skipped, no jar at $JAR"; echo ""; return; } ;;
+    cds)    [ -f "$CDS_DIR/app.jsa" ] || ./build_cds.sh > /dev/null || { echo "$mode: skipped, archive not built"; echo ""; return; } ;;
+    native) [ -x "$NATIVE" ] || { echo "$mode: skipped, no executable at $NATIVE"; echo ""; return; } ;;
+  esac
+
+  local started code=000 elapsed
+  started=$(date +%s%N)
+  launch "$mode"
+
+  # Keep submitting until the first transaction is scored
+  until [ "$code" = "201" ]; do
+    if ! kill -0 $APP_PID 2>/dev/null; then
+      echo "$mode: exited before scoring; see log below"
+      tail -20 "$LOG_DIR/$mode.log"
+      APP_PID=""
+      return
+    fi
+    sleep 0.05
+    code=$(score "txn_startup_${RUN_ID}_${mode}_0" "user_startup_$mode")
+  done
+  elapsed=$(( ($(date +%s%N) - started) / 1000000 ))
+  local rss_first
+  rss_first=$(rss_mb $APP_PID)
+
+  for n in $(seq 1 "$BURST"); do
+    score "txn_startup_${RUN_ID}_${mode}_$n" "user_startup_${mode}_$((n % 20))" > /dev/null
+  done
+  local rss_burst
+  rss_burst=$(rss_mb $APP_PID)
+
+  echo "$mode"
+  echo "  first scored transaction: $elapsed ms after launch"
+  echo "  reported startup:         $(grep -a -o 'Started FraudDetectionApplication in [0-9.]* seconds' "$LOG_DIR/$mode.log" | awk '{ print $4 " s" }')"
+  echo "  RSS:                      $rss_first MB at first transaction, $rss_burst MB after $BURST more"
+  echo ""
+
+  kill $APP_PID
+  wait $APP_PID 2>/dev/null
+  APP_PID=""
+}
+
+echo "=========================================="
+echo "Fraud Detection System - Startup Benchmark"
+echo "=========================================="
+echo ""
+
+for mode in $MODES; do
+  run "$mode"
+done
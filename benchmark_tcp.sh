@@ -0,0 +1,38 @@
+#!/bin/bash
+
+# Fraud Detection System - TCP Scoring Benchmark
+# Drives the length-prefixed TCP endpoint with pipelined load from TcpLoadClient (in the
+# backend's src/benchmark/java, not part of the service jar) and then POST /api/transactions with the same concurrency over HTTP/JSON,
+# reporting throughput, latency percentiles and response statuses for each.
+#
+# Run the backend with the TCP listener on, e.g.
+#   java -jar backend/target/fraud-detection-service-1.0.0.jar --fraud.detection.tcp.enabled=true
+
+TCP_HOST=${TCP_HOST:-localhost}
+TCP_PORT=${TCP_PORT:-9090}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+CONNECTIONS=${CONNECTIONS:-4}
+PIPELINE=${PIPELINE:-16}
+REQUESTS=${REQUESTS:-20000}
+WARMUP=${WARMUP:-2000}
+USERS=${USERS:-1000}
+
+echo "=========================================="
+echo "Fraud Detection System - TCP Scoring Benchmark"
+echo "=========================================="
+
+# Compiles the benchmark source set and runs the client on the backend's own classpath
+if ! mvn -B -q -f backend/pom.xml test-compile dependency:build-classpath \
+    -Dmdep.outputFile=target/benchmark.classpath -Dmdep.includeScope=test; then
+  echo "Failed to build the load client"
+  exit 1
+fi
+java -cp "backend/target/classes:backend/target/test-classes:$(cat backend/target/benchmark.classpath)" \
+  com.fraud.tcp.TcpLoadClient \
+  --host "$TCP_HOST" --port "$TCP_PORT" --connections "$CONNECTIONS" --pipeline "$PIPELINE" \
+  --requests "$REQUESTS" --warmup "$WARMUP" --users "$USERS" --http "$BASE_URL"
+STATUS=$?
+
+echo ""
+echo "Server side: $(curl -s "$BASE_URL/api/admin/tcp")"
+exit $STATUS
@@ -0,0 +1,60 @@
+#!/bin/bash
+
+# Fraud Detection System - Wire Format Benchmark
+# Compares the scoring API's formats (JSON, Smile, CBOR, protobuf) in two ways: bytes and
+# encode/decode time per message measured inside the backend on recent transactions,
+# and the bytes a real batch response takes on the wire for each Accept type.
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+MESSAGES=${MESSAGES:-1000}
+BATCH_SIZE=${BATCH_SIZE:-100}
+ITERATIONS=${ITERATIONS:-200}
+
+RUN_ID=$(date +%s)
+
+echo "=========================================="
+echo "Fraud Detection System - Wire Format Benchmark"
+echo "=========================================="
+echo "Messages: $MESSAGES, batch size: $BATCH_SIZE, rounds: $ITERATIONS"
+echo ""
+
+RESULT=$(curl -s -X POST \
+  "$BASE_URL/api/admin/benchmarks/wire-formats?messages=$MESSAGES&batchSize=$BATCH_SIZE&iterations=$ITERATIONS")
+if ! echo "$RESULT" | jq -e '.formats' > /dev/null 2>&1; then
+  echo "Benchmark failed: $RESULT"
+  exit 1
+fi
+
+echo "$RESULT" | jq -r '
+  .formats.json as $json
+  | def row($name; $m; $base):
+      "  \($name | . + "         " | .[0:9]) \($m.bytes) bytes (\(($m.bytes / $base.bytes * 100) | floor)% of JSON)   encode \($m.encodeNs) ns   decode \($m.decodeNs) ns   round trip ok: \($m.roundTrips)";
+    (["request", "response", "batchRequest", "batchResponse"][] as $shape
+      | "\($shape)",
+        (.formats | to_entries[] | row(.key; .value[$shape]; $json[$shape])),
+        "")'
+
+# The same batch scored once, then asked for in every format; repeats are idempotent replays
+echo "Batch response on the wire ($BATCH_SIZE transactions)"
+BODY=$(python3 - "$RUN_ID" "$BATCH_SIZE" <<'PY'
+import json, random, sys
+run, size = sys.argv[1], int(sys.argv[2])
+random.seed(run)
+print(json.dumps({"transactions": [{
+    "transactionId": f"wire_{run}_{i}",
+    "userId": f"wire_user_{random.randint(1, 50)}",
+    "amount": round(random.uniform(5, 500), 2),
+    "merchantId": f"merchant_{random.randint(1, 200)}",
+    "merchantCategory": random.choice(["groceries", "restaurants", "gas", "electronics", "travel"]),
+    "timestamp": f"2024-06-01T{i % 24:02d}:{i % 60:02d}:00",
+    "deviceId": f"device_{random.randint(1, 300)}",
+    "locationState": random.choice(["CA", "TX", "NY", "FL", "WA"]),
+    "locationCountry": "US",
+    "channel": "online"} for i in range(size)]}))
+PY
+)
+for ACCEPT in application/json application/x-jackson-smile application/cbor application/x-protobuf; do
+  curl -s -o /dev/null -w "  %{content_type}: %{size_download} bytes, HTTP %{http_code}\n" \
+    -H "Content-Type: application/json" -H "Accept: $ACCEPT" \
+    -d "$BODY" "$BASE_URL/api/transactions/batch"
+done
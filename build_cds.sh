@@ -0,0 +1,53 @@
+#!/bin/bash
+
+# Fraud Detection System - AppCDS Archive
+# Unpacks the backend jar into a plain classpath (class data sharing cannot archive classes
+# loaded from nested jars) and records a CDS archive with a training run that refreshes the
+# Spring context and exits. The training run needs the database, since refresh runs Flyway
+# and Hibernate validation; pass SPRING_DATASOURCE_URL etc. as usual.
+#
+# Works on a plain or an AOT-processed jar (mvn -Paot package); the latter is started with
+# spring.aot.enabled, which together with CDS gives the fastest JVM startup.
+
+JAR=${JAR:-backend/target/fraud-detection-service-1.0.0.jar}
+OUT=${OUT:-backend/target/cds}
+
+if [ ! -f "$JAR" ]; then
+  echo "Backend jar not found at $JAR (cd backend && mvn package -DskipTests)"
+  exit 1
+fi
+
+rm -rf "$OUT"
+mkdir -p "$OUT/unpacked"
+JAR=$(cd "$(dirname "$JAR")" && pwd)/$(basename "$JAR")
+(cd "$OUT/unpacked" && jar xf "$JAR")
+
+# Application classes as a jar, dependencies as-is, in the order the fat jar uses
+jar cf "$OUT/application.jar" -C "$OUT/unpacked/BOOT-INF/classes" .
+mv "$OUT/unpacked/BOOT-INF/lib" "$OUT/lib"
+CLASSPATH="application.jar"
+for lib in $(sed -n 's#^- "BOOT-INF/lib/\(.*\)"#\1#p' "$OUT/unpacked/BOOT-INF/classpath.idx"); do
+  CLASSPATH="$CLASSPATH:lib/$lib"
+done
+
+# JVM options shared by the training run and every later start; they must not differ
+{
+  echo "-cp $CLASSPATH"
+  if [ -f "$OUT/unpacked/BOOT-INF/classes/com/fraud/FraudDetectionApplication__ApplicationContextInitializer.class" ]; then
+    echo "-Dspring.aot.enabled=true"
+  fi
+} > "$OUT/jvm.args"
+rm -rf "$OUT/unpacked"
+
+echo "Training run (refreshes the context, then exits)..."
+(cd "$OUT" && java -XX:ArchiveClassesAtExit=app.jsa -Dspring.context.exit=onRefresh @jvm.args \
+  com.fraud.FraudDetectionApplication "$@") > "$OUT/training.log" 2>&1
+
+if [ ! -f "$OUT/app.jsa" ]; then
+  echo "No archive written; see $OUT/training.log"
+  exit 1
+fi
+
+echo "Archive: $OUT/app.jsa ($(du -h "$OUT/app.jsa" | cut -f1))"
+echo "Start the backend with:"
+echo "  cd $OUT && java -XX:SharedArchiveFile=app.jsa @jvm.args com.fraud.FraudDetectionApplication"
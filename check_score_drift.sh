@@ -0,0 +1,49 @@
+#!/bin/bash
+
+# Fraud Detection System - Score Drift Check
+# Prints how the live score distribution (rolling window of risk, rule, statistical and ML
+# scores, per risk category) compares with the pinned reference window by PSI, and what
+# recording an evaluation into the histograms costs. PIN=true first pins the current
+# window as the new reference.
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+PIN=${PIN:-false}
+UPDATES=${UPDATES:-5000000}
+THREADS=${THREADS:-8}
+
+echo "=========================================="
+echo "Fraud Detection System - Score Drift Check"
+echo "=========================================="
+echo ""
+
+if [ "$PIN" = "true" ]; then
+  echo "Pinning the current window as the reference"
+  curl -s -X POST "$BASE_URL/api/admin/score-distribution/reference" | jq -c '.'
+  echo ""
+fi
+
+RESULT=$(curl -s "$BASE_URL/api/admin/score-distribution?histograms=false")
+if ! echo "$RESULT" | jq -e '.components' > /dev/null 2>&1; then
+  echo "Request failed: $RESULT"
+  exit 1
+fi
+
+echo "$RESULT" | jq -r '
+  def psi($e): if $e.psi == null then "-" else "\($e.psi)" end;
+  "Window:    \(.window.from) to \(.window.to), \(.window.evaluations) evaluations",
+  "Reference: \(if .reference == null then "none pinned" else "\(.reference.from) to \(.reference.to), \(.reference.evaluations) evaluations" end)",
+  "Overall:   \(.drift) (moderate at PSI \(.psiModerate), significant at \(.psiSignificant))",
+  "",
+  "Category mix  PSI \(psi(.categories))  \(.categories.drift)",
+  "  now        \(.categories.current)",
+  "  reference  \(.categories.reference)",
+  "",
+  "Component          PSI       drift              APPROVED / MONITOR / FLAGGED",
+  (.components | to_entries[] |
+    "  \(.key | . + "                " | .[0:16]) \(psi(.value) | . + "        " | .[0:8])  \(.value.drift | . + "                 " | .[0:17])  \(psi(.value.byCategory.APPROVED)) / \(psi(.value.byCategory.MONITOR)) / \(psi(.value.byCategory.FLAGGED))")'
+
+echo ""
+echo "Recording cost ($UPDATES updates)"
+curl -s -X POST "$BASE_URL/api/admin/benchmarks/score-distribution?updates=$UPDATES&threads=$THREADS" | jq -r '
+  "  one thread:  \(.singleThreadNsPerUpdate) ns per evaluation",
+  "  \(.threads) threads:   \(.contendedNsPerUpdate) ns per evaluation (wall time), \(.contendedThreadNsPerUpdate) ns on each thread"'
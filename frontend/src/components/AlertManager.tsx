@@ -1,5 +1,5 @@
-import React, { useState, useEffect } from 'react';
-import { alertApi } from '../services/api';
+import React, { useState, useEffect, useRef } from 'react';
+import { alertApi, streamApi } from '../services/api';
 import { format } from 'date-fns';
 import type { Alert } from '../types';
 
@@ -27,13 +27,41 @@ export const AlertManager: React.FC = () => {
   const [selectedAlert, setSelectedAlert] = useState<Alert | null>(null);
   const [notes, setNotes] = useState('');
   const [status, setStatus] = useState<Alert['status']>('NEW');
+  const [selectedIds, setSelectedIds] = useState<Set<number>>(new Set());
+  const [bulkStatus, setBulkStatus] = useState<Alert['status']>('FALSE_POSITIVE');
 
   useEffect(() => {
     loadAlerts();
-    const interval = setInterval(loadAlerts, 10000);
-    return () => clearInterval(interval);
   }, [filter, pagination.page]);
 
+  // The stream callbacks outlive renders, so they read the current view from refs
+  const viewRef = useRef({ filter, page: pagination.page });
+  viewRef.current = { filter, page: pagination.page };
+  const loadAlertsRef = useRef(loadAlerts);
+  loadAlertsRef.current = loadAlerts;
+
+  // New alerts are pushed by the backend instead of polling /alerts
+  useEffect(() => {
+    return streamApi.subscribe({
+      onAlert: (alert) => {
+        const { filter: currentFilter, page } = viewRef.current;
+        if (currentFilter !== 'all' && currentFilter !== alert.status) {
+          return;
+        }
+        if (page === 0) {
+          setAlerts((prev) => [alert, ...prev.filter((a) => a.id !== alert.id)].slice(0, pagination.size));
+        }
+        setPagination((prev) => {
+          const totalElements = prev.totalElements + 1;
+          const totalPages = Math.ceil(totalElements / prev.size);
+          return { ...prev, totalElements, totalPages, hasNext: prev.page < totalPages - 1 };
+        });
+      },
+      onAlertsUpdated: () => loadAlertsRef.current(),
+      onResync: () => loadAlertsRef.current(),
+    });
+  }, []);
+
   const loadAlerts = async () => {
     try {
       setLoading(true);
@@ -78,6 +106,31 @@ export const AlertManager: React.FC = () => {
     }
   };
 
+  const toggleSelected = (alertId: number) => {
+    setSelectedIds((prev) => {
+      const next = new Set(prev);
+      if (next.has(alertId)) {
+        next.delete(alertId);
+      } else {
+        next.add(alertId);
+      }
+      return next;
+    });
+  };
+
+  const handleBulkUpdate = async () => {
+    if (selectedIds.size === 0) return;
+
+    try {
+      await alertApi.bulkUpdateStatus({ status: bulkStatus, alertIds: Array.from(selectedIds) });
+      setSelectedIds(new Set());
+      loadAlerts();
+    } catch (error) {
+      console.error('Failed to update alerts:', error);
+      alert('Failed to update alert status');
+    }
+  };
+
   const getStatusColor = (status: Alert['status']) => {
     switch (status) {
       case 'NEW':
@@ -155,6 +208,34 @@ export const AlertManager: React.FC = () => {
         </select>
       </div>
 
+      {selectedIds.size > 0 && (
+        <div className="mb-4 flex items-center gap-3 bg-blue-50 border border-blue-200 rounded p-3">
+          <span className="text-sm font-medium">{selectedIds.size} selected</span>
+          <select
+            value={bulkStatus}
+            onChange={(e) => setBulkStatus(e.target.value as Alert['status'])}
+            className="border rounded px-2 py-1 text-sm"
+          >
+            <option value="NEW">New</option>
+            <option value="INVESTIGATING">Investigating</option>
+            <option value="RESOLVED">Resolved</option>
+            <option value="FALSE_POSITIVE">False Positive</option>
+          </select>
+          <button
+            onClick={handleBulkUpdate}
+            className="bg-blue-600 text-white text-sm py-1 px-3 rounded hover:bg-blue-700"
+          >
+            Update Selected
+          </button>
+          <button
+            onClick={() => setSelectedIds(new Set())}
+            className="text-sm text-gray-600 hover:underline"
+          >
+            Clear
+          </button>
+        </div>
+      )}
+
       {loading ? (
         <div className="text-center py-8">Loading alerts...</div>
       ) : alerts.length === 0 ? (
@@ -174,6 +255,12 @@ export const AlertManager: React.FC = () => {
               <div className="flex justify-between items-start">
                 <div className="flex-1">
                   <div className="flex items-center gap-3 mb-2">
+                    <input
+                      type="checkbox"
+                      checked={selectedIds.has(alert.id)}
+                      onClick={(e) => e.stopPropagation()}
+                      onChange={() => toggleSelected(alert.id)}
+                    />
                     <span className="font-bold">Alert #{alert.id}</span>
                     <span
                       className={`px-2 py-1 rounded text-xs font-medium ${getStatusColor(
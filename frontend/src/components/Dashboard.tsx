@@ -4,10 +4,11 @@ import { TransactionList } from './TransactionList';
 import { AlertManager } from './AlertManager';
 import { RiskScoreChart } from './RiskScoreChart';
 import { TimeSeriesChart } from './TimeSeriesChart';
+import { MerchantRiskPanel } from './MerchantRiskPanel';
 import { StatsCard } from './StatsCard';
 import { Modal } from './Modal';
 import { Toast } from './Toast';
-import { transactionApi, adminApi } from '../services/api';
+import { transactionApi, adminApi, streamApi } from '../services/api';
 import type { FraudEvaluationResponse, TimeSeriesDataPoint } from '../types';
 
 export const Dashboard: React.FC = () => {
@@ -40,17 +41,31 @@ export const Dashboard: React.FC = () => {
     isVisible: false,
   });
 
-  // Load transactions and stats from backend on mount and periodically
+  // Load transactions and stats from backend on mount; the time series still refreshes periodically
   useEffect(() => {
     loadData();
     loadTimeSeriesData();
     const interval = setInterval(() => {
-      loadStats(); // Only refresh stats, not transactions list (to preserve pagination)
       loadTimeSeriesData();
     }, 5000); // Refresh every 5 seconds
     return () => clearInterval(interval);
   }, []);
 
+  // Stats arrive as pushed deltas instead of polling /transactions/stats
+  useEffect(() => {
+    return streamApi.subscribe({
+      onStats: (delta) => {
+        setStats((prev) => ({
+          total: prev.total + delta.total,
+          approved: prev.approved + delta.approved,
+          monitor: prev.monitor + delta.monitor,
+          flagged: prev.flagged + delta.flagged,
+        }));
+      },
+      onResync: () => loadStats(),
+    });
+  }, []);
+
   // Reload transactions when page or filter changes
   useEffect(() => {
     loadTransactions();
@@ -349,6 +364,7 @@ export const Dashboard: React.FC = () => {
               </div>
               <TimeSeriesChart data={timeSeriesData} />
             </div>
+            <MerchantRiskPanel />
           </>
         )}
 
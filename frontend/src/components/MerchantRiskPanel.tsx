@@ -0,0 +1,96 @@
+import React, { useState, useEffect } from 'react';
+import { merchantApi, streamApi } from '../services/api';
+import type { MerchantRisk } from '../types';
+
+export const MerchantRiskPanel: React.FC = () => {
+  const [merchants, setMerchants] = useState<MerchantRisk[]>([]);
+  const [trackedMerchants, setTrackedMerchants] = useState(0);
+  const [sort, setSort] = useState<'flagRate' | 'volume'>('flagRate');
+
+  useEffect(() => {
+    loadMerchantRisk();
+  }, [sort]);
+
+  // Aggregates are cheap in-memory reads, so refresh whenever new transactions are pushed
+  useEffect(() => {
+    return streamApi.subscribe({
+      onStats: () => loadMerchantRisk(),
+      onResync: () => loadMerchantRisk(),
+    });
+  }, [sort]);
+
+  const loadMerchantRisk = async () => {
+    try {
+      const response = await merchantApi.getMerchantRisk(10, sort);
+      setMerchants(response.merchants);
+      setTrackedMerchants(response.trackedMerchants);
+    } catch (error) {
+      console.error('Failed to load merchant risk:', error);
+    }
+  };
+
+  const getRateColor = (rate: number) => {
+    if (rate >= 0.25) return 'text-red-600 font-bold';
+    if (rate >= 0.1) return 'text-yellow-600 font-semibold';
+    return 'text-gray-700';
+  };
+
+  return (
+    <div className="bg-white rounded-lg shadow-lg p-6 mb-6">
+      <div className="flex justify-between items-center mb-4">
+        <div>
+          <h2 className="text-2xl font-bold">Merchant Risk</h2>
+          <p className="text-sm text-gray-500">{trackedMerchants} merchants active in the last 24 hours</p>
+        </div>
+        <select
+          value={sort}
+          onChange={(e) => setSort(e.target.value as 'flagRate' | 'volume')}
+          className="border rounded px-3 py-2"
+        >
+          <option value="flagRate">Highest flag rate</option>
+          <option value="volume">Highest volume</option>
+        </select>
+      </div>
+      <div className="overflow-x-auto">
+        <table className="w-full">
+          <thead>
+            <tr className="border-b">
+              <th className="text-left py-2 px-3">Merchant</th>
+              <th className="text-left py-2 px-3">Category</th>
+              <th className="text-right py-2 px-3">1h Volume</th>
+              <th className="text-right py-2 px-3">1h Flag Rate</th>
+              <th className="text-right py-2 px-3">24h Volume</th>
+              <th className="text-right py-2 px-3">24h Amount</th>
+              <th className="text-right py-2 px-3">24h Flag Rate</th>
+            </tr>
+          </thead>
+          <tbody>
+            {merchants.length === 0 ? (
+              <tr>
+                <td colSpan={7} className="text-center py-8 text-gray-500">
+                  {sort === 'flagRate' ? 'No merchants with enough volume yet' : 'No merchant activity in the last 24 hours'}
+                </td>
+              </tr>
+            ) : (
+              merchants.map((merchant) => (
+                <tr key={merchant.merchantId} className="border-b hover:bg-gray-50">
+                  <td className="py-2 px-3 font-mono text-sm">{merchant.merchantId}</td>
+                  <td className="py-2 px-3 text-sm">{merchant.merchantCategory}</td>
+                  <td className="py-2 px-3 text-right">{merchant.lastHour.count}</td>
+                  <td className={`py-2 px-3 text-right ${getRateColor(merchant.lastHour.flagRate)}`}>
+                    {(merchant.lastHour.flagRate * 100).toFixed(1)}%
+                  </td>
+                  <td className="py-2 px-3 text-right">{merchant.lastDay.count}</td>
+                  <td className="py-2 px-3 text-right">${merchant.lastDay.amount.toFixed(2)}</td>
+                  <td className={`py-2 px-3 text-right ${getRateColor(merchant.lastDay.flagRate)}`}>
+                    {(merchant.lastDay.flagRate * 100).toFixed(1)}%
+                  </td>
+                </tr>
+              ))
+            )}
+          </tbody>
+        </table>
+      </div>
+    </div>
+  );
+};
@@ -289,6 +289,12 @@ export const TransactionForm: React.FC<TransactionFormProps> = ({
                 <span>{result.mlScore.toFixed(1)}</span>
               </div>
             )}
+            {result.decisionTier === 'FAST' && (
+              <div className="flex justify-between">
+                <span className="font-medium">ML Score:</span>
+                <span className="text-gray-500">pending (decided on rules and statistics)</span>
+              </div>
+            )}
             {result.triggeredRules.length > 0 && (
               <div className="mt-3">
                 <span className="font-medium">Triggered Rules:</span>
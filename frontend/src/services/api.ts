@@ -1,5 +1,5 @@
 import axios from 'axios';
-import type { TransactionRequest, FraudEvaluationResponse, Alert, PaginatedResponse, TimeSeriesDataPoint, UserAnalytics } from '../types';
+import type { TransactionRequest, FraudEvaluationResponse, Alert, BulkAlertTriageRequest, MerchantRisk, PaginatedResponse, TimeSeriesDataPoint, UserAnalytics } from '../types';
 
 const API_BASE_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080/api';
 
@@ -113,6 +113,23 @@ export const alertApi = {
     });
     return response.data;
   },
+
+  bulkUpdateStatus: async (request: BulkAlertTriageRequest): Promise<{ updated: number; status: Alert['status'] }> => {
+    const response = await api.post<{ updated: number; status: Alert['status'] }>('/alerts/bulk-status', request);
+    return response.data;
+  },
+};
+
+export const merchantApi = {
+  getMerchantRisk: async (
+    limit: number = 10,
+    sort: 'flagRate' | 'volume' = 'flagRate'
+  ): Promise<{ merchants: MerchantRisk[]; trackedMerchants: number }> => {
+    const response = await api.get<{ merchants: MerchantRisk[]; trackedMerchants: number }>('/merchants/risk', {
+      params: { limit, sort }
+    });
+    return response.data;
+  },
 };
 
 export const adminApi = {
@@ -122,4 +139,56 @@ export const adminApi = {
   },
 };
 
+export interface StatsDelta {
+  total: number;
+  approved: number;
+  monitor: number;
+  flagged: number;
+}
+
+export interface LiveEventHandlers {
+  onAlert?: (alert: Alert) => void;
+  onStats?: (delta: StatsDelta) => void;
+  onAlertsUpdated?: () => void;
+  // Connected, reconnected, or the server dropped events for us: reload from REST
+  onResync?: () => void;
+}
+
+// Server-sent events replace polling. All components on a screen share one
+// EventSource; it is opened by the first subscriber and closed with the last.
+const liveSubscribers = new Set<LiveEventHandlers>();
+let liveSource: EventSource | null = null;
+
+const openLiveSource = (): EventSource => {
+  const source = new EventSource(`${API_BASE_URL}/stream`);
+  source.onopen = () => liveSubscribers.forEach((h) => h.onResync?.());
+  source.addEventListener('alert', (event) => {
+    const alert: Alert = JSON.parse((event as MessageEvent).data);
+    liveSubscribers.forEach((h) => h.onAlert?.(alert));
+  });
+  source.addEventListener('stats', (event) => {
+    const delta: StatsDelta = JSON.parse((event as MessageEvent).data);
+    liveSubscribers.forEach((h) => h.onStats?.(delta));
+  });
+  source.addEventListener('alerts', () => liveSubscribers.forEach((h) => h.onAlertsUpdated?.()));
+  source.addEventListener('resync', () => liveSubscribers.forEach((h) => h.onResync?.()));
+  return source;
+};
+
+export const streamApi = {
+  subscribe: (handlers: LiveEventHandlers): (() => void) => {
+    liveSubscribers.add(handlers);
+    if (!liveSource) {
+      liveSource = openLiveSource();
+    }
+    return () => {
+      liveSubscribers.delete(handlers);
+      if (liveSubscribers.size === 0 && liveSource) {
+        liveSource.close();
+        liveSource = null;
+      }
+    };
+  },
+};
+
 export default api;
@@ -30,6 +30,9 @@ export interface FraudEvaluationResponse {
   triggeredRules: TriggeredRule[];
   explanation: string;
   alertCreated: boolean;
+  decisionTier?: 'FULL' | 'FAST'; // FAST: decided without the ML score
+  degradation?: 'NORMAL' | 'SKIP_ML' | 'SKIP_VELOCITY' | 'SHED_LOW_PRIORITY';
+  configVersion?: number | null; // Scoring configuration snapshot that produced the score
   // Additional fields for detail view
   userId?: string;
   amount?: number;
@@ -73,6 +76,18 @@ export interface Alert {
   updatedAt: string;
 }
 
+export interface BulkAlertTriageRequest {
+  status: Alert['status'];
+  analystNotes?: string;
+  alertIds?: number[];
+  currentStatus?: Alert['status'];
+  userId?: string;
+  minRiskScore?: number;
+  maxRiskScore?: number;
+  createdFrom?: string;
+  createdTo?: string;
+}
+
 export interface PaginatedResponse<T> {
   content: T[];
   page: number;
@@ -82,3 +97,18 @@ export interface PaginatedResponse<T> {
   hasNext: boolean;
   hasPrevious: boolean;
 }
+
+export interface MerchantWindowStats {
+  count: number;
+  flagged: number;
+  monitor: number;
+  amount: number;
+  flagRate: number;
+}
+
+export interface MerchantRisk {
+  merchantId: string;
+  merchantCategory: string;
+  lastHour: MerchantWindowStats;
+  lastDay: MerchantWindowStats;
+}
@@ -0,0 +1,85 @@
+#!/bin/bash
+
+# Fraud Detection System - Connection Pool Isolation Test
+# Measures transaction scoring latency on an idle backend, then again while
+# dashboard/search traffic keeps the reporting pool saturated, and checks that
+# scoring stays within a bounded slowdown. Needs a running backend.
+
+API_URL=${API_URL:-http://localhost:8080/api}
+SAMPLES=${SAMPLES:-40}
+READERS=${READERS:-24}
+MAX_SLOWDOWN=${MAX_SLOWDOWN:-3}
+
+RUN_ID=$(date +%s)
+
+# Prints the scoring latency of each submitted transaction in milliseconds
+score_transactions() {
+  for n in $(seq 1 "$SAMPLES"); do
+    curl -s -o /dev/null -w '%{http_code} %{time_total}\n' -X POST "$API_URL/transactions" \
+      -H "Content-Type: application/json" \
+      -d "{
+        \"transactionId\": \"txn_pool_${RUN_ID}_$1_$n\",
+        \"userId\": \"user_pool_$((n % 10))\",
+        \"amount\": 42.0,
+        \"merchantId\": \"merchant_groceries\",
+        \"merchantCategory\": \"groceries\",
+        \"timestamp\": \"$(date +%Y-%m-%dT%H:%M:%S)\",
+        \"deviceId\": \"device_pool_$((n % 10))\",
+        \"locationState\": \"CA\",
+        \"locationCountry\": \"US\"
+      }"
+  done | awk '$1 != 201 { failed++ } { printf "%d\n", $2 * 1000 } END { if (failed) print "FAILED " failed > "/dev/stderr" }'
+}
+
+p95() {
+  sort -n | awk '{ v[NR] = $1 } END { i = int(NR * 0.95); if (i < 1) i = 1; print v[i] }'
+}
+
+# Heavy analyst traffic: every reader loops over the reporting endpoints
+saturate_reporting() {
+  while [ -f "$STOP_FILE" ]; do
+    curl -s -o /dev/null "$API_URL/transactions/timeseries?days=3650"
+    curl -s -o /dev/null "$API_URL/transactions/search?startDate=2000-01-01T00:00:00&size=500"
+    curl -s -o /dev/null "$API_URL/transactions/user/user_pool_$((RANDOM % 10))"
+    curl -s -o /dev/null "$API_URL/transactions/stats"
+  done
+}
+
+echo "=========================================="
+echo "Fraud Detection System - Pool Isolation Test"
+echo "=========================================="
+
+echo "Warming up..."
+SAMPLES=10 score_transactions warmup > /dev/null
+
+echo "Scoring $SAMPLES transactions with an idle reporting pool..."
+BASELINE=$(score_transactions idle | p95)
+echo "  p95: ${BASELINE} ms"
+
+STOP_FILE=$(mktemp)
+READER_PIDS=()
+for _ in $(seq 1 "$READERS"); do
+  saturate_reporting &
+  READER_PIDS+=($!)
+done
+trap 'rm -f "$STOP_FILE"; kill "${READER_PIDS[@]}" 2>/dev/null' EXIT
+sleep 3
+
+echo "Scoring $SAMPLES transactions while $READERS readers saturate the reporting pool..."
+LOADED=$(score_transactions loaded | p95)
+echo "  p95: ${LOADED} ms"
+curl -s "$API_URL/../actuator/metrics/hikaricp.connections.pending?tag=pool:reporting" | \
+  sed -n 's/.*"value":\([0-9.]*\).*/  reporting connections pending at the end: \1/p'
+
+rm -f "$STOP_FILE"
+wait "${READER_PIDS[@]}" 2>/dev/null
+
+echo ""
+# Small absolute floor so a 2 ms idle baseline does not fail on scheduling noise
+LIMIT=$(( BASELINE * MAX_SLOWDOWN > 50 ? BASELINE * MAX_SLOWDOWN : 50 ))
+if [ "$LOADED" -le "$LIMIT" ]; then
+  echo "OK: scoring p95 ${LOADED} ms under reporting load (limit ${LIMIT} ms)"
+else
+  echo "FAILED: scoring p95 ${LOADED} ms under reporting load exceeds ${LIMIT} ms"
+  exit 1
+fi
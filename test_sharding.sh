@@ -0,0 +1,115 @@
+#!/bin/bash
+
+# Fraud Detection System - Local Sharding Test
+# Starts 3 backend JVMs sharing one database, each owning a consistent-hash range
+# of userIds, then sends every transaction to node-1 and checks that each one was
+# processed by its owner. Needs the backend jar (mvn package) and a running
+# PostgreSQL/ML service as for a normal local run.
+
+JAR="backend/target/fraud-detection-service-1.0.0.jar"
+PORTS=(8081 8082 8083)
+USERS=${USERS:-30}
+LOG_DIR=${LOG_DIR:-/tmp/fraud-shards}
+
+if [ ! -f "$JAR" ]; then
+  echo "Backend jar not found, build it first: (cd backend && mvn package -DskipTests)"
+  exit 1
+fi
+
+mkdir -p "$LOG_DIR"
+NODE_ARGS=(
+  --fraud.detection.sharding.enabled=true
+  --logging.level.com.fraud.service.TransactionRoutingService=DEBUG
+  --fraud.detection.sharding.nodes[0].id=node-1 --fraud.detection.sharding.nodes[0].url=http://localhost:8081
+  --fraud.detection.sharding.nodes[1].id=node-2 --fraud.detection.sharding.nodes[1].url=http://localhost:8082
+  --fraud.detection.sharding.nodes[2].id=node-3 --fraud.detection.sharding.nodes[2].url=http://localhost:8083
+)
+
+PIDS=()
+cleanup() {
+  echo "Stopping nodes..."
+  kill "${PIDS[@]}" 2>/dev/null
+  wait 2>/dev/null
+}
+trap cleanup EXIT
+
+wait_for_node() {
+  for _ in $(seq 1 90); do
+    if curl -sf "http://localhost:$1/api/admin/sharding" > /dev/null; then
+      return 0
+    fi
+    sleep 1
+  done
+  echo "Node on port $1 did not start, see $LOG_DIR"
+  exit 1
+}
+
+echo "=========================================="
+echo "Fraud Detection System - Sharding Test"
+echo "=========================================="
+
+# Start node-1 alone first so only one instance runs the Flyway migrations
+for i in 0 1 2; do
+  NODE="node-$((i + 1))"
+  java -Xmx512m -jar "$JAR" --server.port="${PORTS[$i]}" \
+    --fraud.detection.sharding.node-id="$NODE" "${NODE_ARGS[@]}" > "$LOG_DIR/$NODE.log" 2>&1 &
+  PIDS+=($!)
+  if [ "$i" -eq 0 ]; then
+    wait_for_node "${PORTS[0]}"
+  fi
+done
+for port in "${PORTS[@]}"; do
+  wait_for_node "$port"
+  curl -s "http://localhost:$port/api/admin/sharding"
+  echo ""
+done
+echo ""
+
+RUN_ID=$(date +%s)
+declare -A PROCESSED
+echo "Sending $USERS transactions to node-1..."
+for n in $(seq 1 "$USERS"); do
+  SHARD=$(curl -s -o /dev/null -D - -X POST "http://localhost:8081/api/transactions" \
+    -H "Content-Type: application/json" \
+    -d "{
+      \"transactionId\": \"txn_shard_${RUN_ID}_$n\",
+      \"userId\": \"user_shard_$n\",
+      \"amount\": 42.0,
+      \"merchantId\": \"merchant_groceries\",
+      \"merchantCategory\": \"groceries\",
+      \"timestamp\": \"$(date +%Y-%m-%dT%H:%M:%S)\",
+      \"deviceId\": \"device_shard_$n\",
+      \"locationState\": \"CA\",
+      \"locationCountry\": \"US\"
+    }" | tr -d '\r' | awk -F': ' 'tolower($1) == "x-fraud-shard" {print $2}')
+  SHARD=${SHARD:-none}
+  PROCESSED[$SHARD]=$((${PROCESSED[$SHARD]:-0} + 1))
+done
+
+echo ""
+echo "Transactions per owning node (header X-Fraud-Shard):"
+for node in "${!PROCESSED[@]}"; do
+  echo "  $node: ${PROCESSED[$node]}"
+done
+
+echo ""
+echo "Transactions received from node-1 (from each owner's log):"
+FAILED=0
+for NODE in node-2 node-3; do
+  COUNT=$(grep -c "Processing transaction txn_shard_${RUN_ID}_.* forwarded by node-1" "$LOG_DIR/$NODE.log")
+  echo "  $NODE: $COUNT"
+  if [ "$COUNT" -ne "${PROCESSED[$NODE]:-0}" ]; then
+    FAILED=1
+  fi
+done
+if [ $((${PROCESSED[node-1]:-0} + ${PROCESSED[node-2]:-0} + ${PROCESSED[node-3]:-0})) -ne "$USERS" ]; then
+  FAILED=1
+fi
+
+echo ""
+if [ "$FAILED" -eq 0 ]; then
+  echo "OK: every transaction was processed by the node owning its user"
+else
+  echo "FAILED: processing does not match ownership"
+  exit 1
+fi